@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.textures.AtlasLayout;
+import com.tylersuehr.enginej.textures.MaxRectsPacker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures packing a typical set of UI and sprite images into atlas pages.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AtlasPackerBenchmark {
+    @Param({"100", "500"})
+    public int count;
+
+    private int[] mWidths;
+    private int[] mHeights;
+    private final int[] mXY = new int[2];
+
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        mWidths = new int[count];
+        mHeights = new int[count];
+        for (int i = 0; i < count; i++) {
+            mWidths[i] = 8 + random.nextInt(120);
+            mHeights[i] = 8 + random.nextInt(120);
+        }
+    }
+
+    @Benchmark
+    public AtlasLayout layout() {
+        return AtlasLayout.compute(mWidths, mHeights, 2048, 2, 2);
+    }
+
+    @Benchmark
+    public float packer_unsorted() {
+        final MaxRectsPacker packer = new MaxRectsPacker(2048, 2048);
+        for (int i = 0; i < count; i++) {
+            packer.insert(mWidths[i] + 6, mHeights[i] + 6, mXY, 0);
+        }
+        return packer.getOccupancy();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.geometry.Ray;
+import com.tylersuehr.enginej.geometry.Sphere;
+import com.tylersuehr.enginej.geometry.Vec3;
+import com.tylersuehr.enginej.geometry.Vector;
+import com.tylersuehr.enginej.spatial.BVH;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares picking the closest sphere by testing every one, like {@link GeoMathBenchmark}'s
+ * pick benchmarks, against querying a {@link BVH}. Also measures building and refitting.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BVHBenchmark {
+    /* Number of pickable spheres */
+    @Param({"1000", "10000"})
+    public int count;
+
+    private Ray mRay;
+    private Sphere[] mSpheres;
+    private float[] mSpheresData;
+    private final float[] mRayData = new float[GeoMath.RAY_SIZE];
+    private final int[] mHits = new int[256];
+    private BVH mBVH;
+    private float mJitter = 0f;
+
+
+    @Setup
+    public void setup() {
+        mRay = new Ray(new Point(0f, 1f, 5f), new Vector(0.1f, -0.2f, -1f));
+        GeoMath.store(mRayData, 0, mRay);
+
+        final Random random = new Random(42);
+        mSpheres = new Sphere[count];
+        mSpheresData = new float[count * GeoMath.SPHERE_SIZE];
+        mBVH = new BVH(count);
+        for (int i = 0; i < count; i++) {
+            mSpheres[i] = new Sphere(new Point(random.nextFloat() * 20f - 10f,
+                    random.nextFloat() * 20f - 10f, random.nextFloat() * -20f), 0.5f);
+            GeoMath.store(mSpheresData, i * GeoMath.SPHERE_SIZE, mSpheres[i]);
+            mBVH.addSphere(mSpheres[i]);
+        }
+        mBVH.build();
+    }
+
+    @Benchmark
+    public int nearest_linearObject() {
+        int nearest = -1;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            if (GeoMath.intersects(mSpheres[i], mRay)) {
+                final float distance = GeoMath.vectorBetween(mRay.point, mSpheres[i].center).length();
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearest = i;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public int nearest_linearArray() {
+        int nearest = -1;
+        float nearestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            final int s = i * GeoMath.SPHERE_SIZE;
+            if (GeoMath.intersects(mSpheresData, s, mRayData, 0)) {
+                final float distance = Vec3.distanceSq(mSpheresData, s, mRayData, 0);
+                if (distance < nearestDistance) {
+                    nearestDistance = distance;
+                    nearest = i;
+                }
+            }
+        }
+        return nearest;
+    }
+
+    @Benchmark
+    public int nearest_bvh() {
+        return mBVH.intersectNearest(mRayData, 0);
+    }
+
+    @Benchmark
+    public int all_bvh() {
+        return mBVH.intersectAll(mRayData, 0, mHits, 0);
+    }
+
+    @Benchmark
+    public int refit() {
+        // Nudge one sphere so the refit can't be hoisted, then refit the whole tree
+        mJitter = -mJitter + 0.01f;
+        mBVH.setSphere(0, mSpheresData[0] + mJitter, mSpheresData[1], mSpheresData[2], 0.5f);
+        mBVH.refit();
+        return mBVH.getNodeCount();
+    }
+
+    @Benchmark
+    public int build() {
+        mBVH.build();
+        return mBVH.getNodeCount();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.ecs.Archetype;
+import com.tylersuehr.enginej.ecs.ComponentType;
+import com.tylersuehr.enginej.ecs.MovementSystem;
+import com.tylersuehr.enginej.ecs.TransformSystem;
+import com.tylersuehr.enginej.ecs.World;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Quat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one update of moving entities and rebuilding their model matrices, stored as an
+ * object per entity like {@link com.tylersuehr.enginej.AbstractGameObject} subclasses, and
+ * as ECS components updated on one thread and split across a fork-join pool.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EcsBenchmark {
+    /* Number of entities */
+    @Param({"10000", "100000"})
+    public int count;
+
+    private Entity[] mObjects;
+    private World mSequential;
+    private World mParallel;
+    private ForkJoinPool mPool;
+
+
+    @Setup
+    public void setup() {
+        // Allocated in a shuffled order, like objects created over the life of a game
+        final Random random = new Random(42);
+        final Entity[] shuffled = new Entity[count];
+        for (int i = 0; i < count; i++) {
+            shuffled[i] = new Entity();
+        }
+        for (int i = count - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final Entity temp = shuffled[i];
+            shuffled[i] = shuffled[j];
+            shuffled[j] = temp;
+        }
+        mObjects = new Entity[count];
+        for (int i = 0; i < count; i++) {
+            final Entity entity = shuffled[i];
+            entity.x = random.nextFloat() * 100f;
+            entity.y = random.nextFloat() * 100f;
+            entity.z = random.nextFloat() * 100f;
+            entity.vx = random.nextFloat() - 0.5f;
+            entity.vy = random.nextFloat() - 0.5f;
+            entity.vz = random.nextFloat() - 0.5f;
+            Quat.setAxisAngle(entity.rotation, 0, random.nextFloat() * 360f, 0f, 1f, 0f);
+            mObjects[i] = entity;
+        }
+
+        mPool = new ForkJoinPool();
+        mSequential = createWorld(null);
+        mParallel = createWorld(mPool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public Entity[] update_objects() {
+        final float delta = 1f / 60f;
+        for (Entity entity : mObjects) {
+            entity.update(delta);
+        }
+        return mObjects;
+    }
+
+    @Benchmark
+    public World update_ecsSequential() {
+        mSequential.update(1f / 60f);
+        return mSequential;
+    }
+
+    @Benchmark
+    public World update_ecsForkJoin() {
+        mParallel.update(1f / 60f);
+        return mParallel;
+    }
+
+    private World createWorld(ForkJoinPool pool) {
+        final World world = new World(count);
+        final ComponentType position = world.registerFloatComponent("position", 3);
+        final ComponentType velocity = world.registerFloatComponent("velocity", 3);
+        final ComponentType rotation = world.registerFloatComponent("rotation", Quat.SIZE);
+        final ComponentType transform = world.registerFloatComponent("transform", Mat4.SIZE);
+        final MovementSystem movement = new MovementSystem(world, position, velocity);
+        final TransformSystem transforms = new TransformSystem(world, position, rotation, null, transform);
+        movement.setParallel(pool, 4096);
+        transforms.setParallel(pool, 2048);
+        world.addSystem(movement);
+        world.addSystem(transforms);
+
+        final Archetype archetype = world.getArchetype(position, velocity, rotation, transform);
+        for (int i = 0; i < count; i++) {
+            world.createEntity(archetype);
+        }
+        final float[] positions = archetype.getFloats(position);
+        final float[] velocities = archetype.getFloats(velocity);
+        final float[] rotations = archetype.getFloats(rotation);
+        for (int i = 0; i < count; i++) {
+            final Entity entity = mObjects[i];
+            positions[i * 3] = entity.x;
+            positions[i * 3 + 1] = entity.y;
+            positions[i * 3 + 2] = entity.z;
+            velocities[i * 3] = entity.vx;
+            velocities[i * 3 + 1] = entity.vy;
+            velocities[i * 3 + 2] = entity.vz;
+            System.arraycopy(entity.rotation, 0, rotations, i * Quat.SIZE, Quat.SIZE);
+        }
+        return world;
+    }
+
+
+    /**
+     * The object-per-entity equivalent of the systems.
+     */
+    public static final class Entity {
+        final float[] rotation = new float[Quat.SIZE];
+        final float[] model = new float[Mat4.SIZE];
+        float x, y, z;
+        float vx, vy, vz;
+
+        void update(float delta) {
+            x += vx * delta;
+            y += vy * delta;
+            z += vz * delta;
+            Mat4.compose(model, 0, x, y, z, rotation, 0, 1f, 1f, 1f);
+        }
+    }
+}
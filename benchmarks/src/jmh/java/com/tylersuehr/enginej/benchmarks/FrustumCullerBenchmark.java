@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.geometry.Sphere;
+import com.tylersuehr.enginej.render.FrustumCuller;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures culling a scene of spheres and boxes against a perspective frustum, on one thread
+ * and split across a fork-join pool. The objects benchmark tests the same spheres stored as
+ * {@link Sphere} objects, as a game without the culler would. How many objects each cull found
+ * visible is reported through {@link CullCounts}.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrustumCullerBenchmark {
+    /* Number of objects in the scene */
+    @Param({"10000", "100000"})
+    public int count;
+
+    private final float[] mViewProjection = new float[Mat4.SIZE];
+    private final float[] mPlanes = new float[Mat4.FRUSTUM_PLANES_SIZE];
+    private FrustumCuller mSequential;
+    private FrustumCuller mParallel;
+    private ForkJoinPool mPool;
+    private Sphere[] mSpheres;
+    private boolean[] mVisible;
+
+
+    @Setup
+    public void setup() {
+        final float[] projection = new float[Mat4.SIZE];
+        final float[] view = new float[Mat4.SIZE];
+        Mat4.perspective(projection, 0, 60f, 16f / 9f, 1f, 150f);
+        Mat4.lookAt(view, 0, 0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        Mat4.multiply(mViewProjection, 0, projection, 0, view, 0);
+        Mat4.extractFrustumPlanes(mPlanes, 0, mViewProjection, 0);
+
+        mPool = new ForkJoinPool();
+        mSequential = new FrustumCuller(count);
+        mParallel = new FrustumCuller(count);
+        mParallel.setParallel(mPool, 4096);
+        mSpheres = new Sphere[count];
+        mVisible = new boolean[count];
+
+        // Objects all around the camera, so most are culled like in an open scene
+        final Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            final float x = random.nextFloat() * 400f - 200f;
+            final float y = random.nextFloat() * 40f - 20f;
+            final float z = random.nextFloat() * 400f - 200f;
+            final float radius = 0.5f + random.nextFloat() * 2f;
+            mSequential.addSphere(x, y, z, radius);
+            mParallel.addSphere(x, y, z, radius);
+            mSpheres[i] = new Sphere(new Point(x, y, z), radius);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public int cull_sequential(CullCounts counts) {
+        return counts.add(mSequential.cull(mViewProjection, 0), count);
+    }
+
+    @Benchmark
+    public int cull_forkJoin(CullCounts counts) {
+        return counts.add(mParallel.cull(mViewProjection, 0), count);
+    }
+
+    @Benchmark
+    public int cull_objects(CullCounts counts) {
+        int visible = 0;
+        for (int i = 0; i < count; i++) {
+            final Sphere sphere = mSpheres[i];
+            boolean inside = true;
+            for (int k = 0; k < Mat4.FRUSTUM_PLANES_SIZE; k += 4) {
+                final float distance = (mPlanes[k] * sphere.center.x) + (mPlanes[k + 1] * sphere.center.y)
+                        + (mPlanes[k + 2] * sphere.center.z) + mPlanes[k + 3];
+                if (distance < -sphere.radius) {
+                    inside = false;
+                    break;
+                }
+            }
+            mVisible[i] = inside;
+            if (inside) {
+                visible++;
+            }
+        }
+        return counts.add(visible, count);
+    }
+
+
+    /**
+     * The objects tested by every cull in an iteration. JMH reports each field as a total, so
+     * divide by culls for the result of one cull.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CullCounts {
+        public long culls;
+        public long visible;
+        public long culled;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            culls = 0;
+            visible = 0;
+            culled = 0;
+        }
+
+        int add(int visibleCount, int total) {
+            culls++;
+            visible += visibleCount;
+            culled += total - visibleCount;
+            return visibleCount;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.geometry.Plane;
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.geometry.Ray;
+import com.tylersuehr.enginej.geometry.Sphere;
+import com.tylersuehr.enginej.geometry.Vec3;
+import com.tylersuehr.enginej.geometry.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the object-based geometry API against the allocation-free array API.
+ *
+ * Run with the gc profiler (enabled in build.gradle) to see the allocation rate of each.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GeoMathBenchmark {
+    /* Number of spheres tested by the picking benchmarks */
+    @Param({"1000"})
+    public int count;
+
+    private Ray mRay;
+    private Sphere mSphere;
+    private Plane mPlane;
+    private Vector mA;
+    private Vector mB;
+
+    private final float[] mRayData = new float[GeoMath.RAY_SIZE];
+    private final float[] mSphereData = new float[GeoMath.SPHERE_SIZE];
+    private final float[] mPlaneData = new float[GeoMath.PLANE_SIZE];
+    private final float[] mVectors = new float[Vec3.SIZE * 3];
+    private Sphere[] mSpheres;
+    private float[] mSpheresData;
+
+
+    @Setup
+    public void setup() {
+        mRay = new Ray(new Point(0f, 1f, 5f), new Vector(0.1f, -0.2f, -1f));
+        mSphere = new Sphere(new Point(0.5f, 0.25f, -2f), 1.5f);
+        mPlane = new Plane(new Point(0f, 0f, 0f), new Vector(0f, 1f, 0f));
+        mA = new Vector(1f, 2f, 3f);
+        mB = new Vector(-4f, 5f, 0.5f);
+
+        GeoMath.store(mRayData, 0, mRay);
+        GeoMath.store(mSphereData, 0, mSphere);
+        GeoMath.store(mPlaneData, 0, mPlane);
+        Vec3.set(mVectors, 0, mA);
+        Vec3.set(mVectors, 3, mB);
+
+        final Random random = new Random(42);
+        mSpheres = new Sphere[count];
+        mSpheresData = new float[count * GeoMath.SPHERE_SIZE];
+        for (int i = 0; i < count; i++) {
+            mSpheres[i] = new Sphere(new Point(random.nextFloat() * 20f - 10f,
+                    random.nextFloat() * 20f - 10f, random.nextFloat() * -20f), 0.5f);
+            GeoMath.store(mSpheresData, i * GeoMath.SPHERE_SIZE, mSpheres[i]);
+        }
+    }
+
+    @Benchmark
+    public float distanceBetween_object() {
+        return GeoMath.distanceBetween(mSphere.center, mRay);
+    }
+
+    @Benchmark
+    public float distanceBetween_array() {
+        return GeoMath.distanceBetween(mSphereData, 0, mRayData, 0);
+    }
+
+    @Benchmark
+    public boolean intersects_object() {
+        return GeoMath.intersects(mSphere, mRay);
+    }
+
+    @Benchmark
+    public boolean intersects_array() {
+        return GeoMath.intersects(mSphereData, 0, mRayData, 0);
+    }
+
+    @Benchmark
+    public Point intersectionPoint_object() {
+        return GeoMath.intersectionPoint(mRay, mPlane);
+    }
+
+    @Benchmark
+    public float[] intersectionPoint_array() {
+        GeoMath.intersectionPoint(mVectors, 6, mRayData, 0, mPlaneData, 0);
+        return mVectors;
+    }
+
+    @Benchmark
+    public float vectorBetween_object() {
+        return GeoMath.vectorBetween(mRay.point, mSphere.center).length();
+    }
+
+    @Benchmark
+    public float vectorBetween_array() {
+        Vec3.sub(mVectors, 6, mSphereData, 0, mRayData, 0);
+        return Vec3.length(mVectors, 6);
+    }
+
+    @Benchmark
+    public float crossProduct_object() {
+        return new Vector(mA.x, mA.y, mA.z).crossProduct(mB).length();
+    }
+
+    @Benchmark
+    public float crossProduct_array() {
+        Vec3.cross(mVectors, 6, mVectors, 0, mVectors, 3);
+        return Vec3.length(mVectors, 6);
+    }
+
+    @Benchmark
+    public int pick_object() {
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            if (GeoMath.intersects(mSpheres[i], mRay)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int pick_array() {
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            if (GeoMath.intersects(mSpheresData, i * GeoMath.SPHERE_SIZE, mRayData, 0)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
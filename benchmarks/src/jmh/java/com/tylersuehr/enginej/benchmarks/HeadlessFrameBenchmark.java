@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+import com.tylersuehr.enginej.render.RenderCommand;
+import com.tylersuehr.enginej.render.RenderKey;
+import com.tylersuehr.enginej.render.RenderQueue;
+import com.tylersuehr.enginej.shaders.ShaderRegistry;
+import com.tylersuehr.enginej.sprites.SpriteBatch;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU cost of drawing a frame through the engine with the GPU replaced by a
+ * {@link HeadlessGLBackend}. The GL work of every frame is added up in {@link FrameWork}, which
+ * JMH reports next to the time, since draw calls and state changes matter as much as the time
+ * spent issuing them.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeadlessFrameBenchmark {
+    private static final String VERTEX_SHADER =
+            "uniform mat4 u_Matrix;\n" +
+            "attribute vec2 a_Position;\n" +
+            "attribute vec2 a_TextureCoordinates;\n" +
+            "attribute vec4 a_Color;\n" +
+            "varying vec2 v_TextureCoordinates;\n" +
+            "varying vec4 v_Color;\n" +
+            "void main() {\n" +
+            "    v_TextureCoordinates = a_TextureCoordinates;\n" +
+            "    v_Color = a_Color;\n" +
+            "    gl_Position = u_Matrix * vec4(a_Position, 0.0, 1.0);\n" +
+            "}\n";
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;\n" +
+            "uniform sampler2D u_TextureUnit;\n" +
+            "varying vec2 v_TextureCoordinates;\n" +
+            "varying vec4 v_Color;\n" +
+            "void main() {\n" +
+            "#ifdef TINTED\n" +
+            "    gl_FragColor = texture2D(u_TextureUnit, v_TextureCoordinates) * v_Color;\n" +
+            "#else\n" +
+            "    gl_FragColor = texture2D(u_TextureUnit, v_TextureCoordinates);\n" +
+            "#endif\n" +
+            "}\n";
+
+    @Param({"2000"})
+    public int count;
+
+    @Param({"8"})
+    public int textures;
+
+    private HeadlessGLBackend mBackend;
+    private AbstractShaderProgram[] mPrograms;
+    private int[] mTextureIds;
+    private SpriteBatch mBatch;
+    private RenderQueue mQueue;
+    private RenderCommand mCommand;
+    private float[] mPositions;
+    private int[] mSpriteTextures;
+    private int[] mSubmitPrograms;
+    private int[] mSubmitTextures;
+    private final float[] mMatrix = new float[16];
+
+
+    @Setup
+    public void setup() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        ShaderRegistry.clear();
+
+        mPrograms = new AbstractShaderProgram[] {
+                new AbstractShaderProgram(ShaderRegistry.obtain(VERTEX_SHADER, FRAGMENT_SHADER)) {},
+                new AbstractShaderProgram(ShaderRegistry.obtain(VERTEX_SHADER, FRAGMENT_SHADER, "TINTED")) {}
+        };
+        mTextureIds = new int[textures];
+        GL.glGenTextures(textures, mTextureIds, 0);
+
+        mBatch = new SpriteBatch(1000);
+        mQueue = new RenderQueue(count);
+        mCommand = new RenderCommand() {
+            @Override
+            public void execute(AbstractShaderProgram program, int param) {
+                GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, mTextureIds[mSubmitTextures[param]]);
+                program.setUniformMatrix4(program.getUniformLocation("u_Matrix"), mMatrix, 0);
+                GL.glDrawArrays(GL.GL_TRIANGLES, 0, 6);
+            }
+        };
+
+        // Sprites arrive grouped by texture, like they would from a sorted scene
+        final Random random = new Random(42);
+        mPositions = new float[count * 2];
+        mSpriteTextures = new int[count];
+        mSubmitPrograms = new int[count];
+        mSubmitTextures = new int[count];
+        for (int i = 0; i < count; i++) {
+            mPositions[i * 2] = random.nextFloat() * 1920f;
+            mPositions[i * 2 + 1] = random.nextFloat() * 1080f;
+            mSpriteTextures[i] = mTextureIds[i * textures / count];
+            mSubmitPrograms[i] = random.nextInt(mPrograms.length);
+            mSubmitTextures[i] = random.nextInt(textures);
+        }
+        mMatrix[0] = mMatrix[5] = mMatrix[10] = mMatrix[15] = 1f;
+    }
+
+    @TearDown
+    public void tearDown() {
+        ShaderRegistry.clear();
+    }
+
+    @Benchmark
+    public int spriteBatch_frame(FrameWork work) {
+        mBackend.resetCounters();
+        final AbstractShaderProgram program = mPrograms[0];
+        program.useProgram();
+        program.setUniformMatrix4(program.getUniformLocation("u_Matrix"), mMatrix, 0);
+        mBatch.begin(program.getAttribLocation("a_Position"),
+                program.getAttribLocation("a_TextureCoordinates"), -1);
+        for (int i = 0; i < count; i++) {
+            mBatch.draw(mSpriteTextures[i], mPositions[i * 2], mPositions[i * 2 + 1], 32f, 32f);
+        }
+        mBatch.end();
+        work.add(mBackend);
+        return mBatch.getDrawCallCount();
+    }
+
+    @Benchmark
+    public int renderQueue_frame(FrameWork work) {
+        mBackend.resetCounters();
+        for (int i = 0; i < count; i++) {
+            final AbstractShaderProgram program = mPrograms[mSubmitPrograms[i]];
+            final long key = RenderKey.opaque(0, program.getProgramId(),
+                    mTextureIds[mSubmitTextures[i]], 0, (i % 100) / 100f);
+            mQueue.submit(key, program, mCommand, i);
+        }
+        mQueue.execute();
+        work.add(mBackend);
+        return mQueue.getExecutedCount();
+    }
+
+
+    /**
+     * The GL work of every frame in an iteration. JMH reports each field as a total, so divide
+     * by frames for the work of one frame.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameWork {
+        public long frames;
+        public long glCalls;
+        public long drawCalls;
+        public long stateChanges;
+        public long redundantStateChanges;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+            glCalls = 0;
+            drawCalls = 0;
+            stateChanges = 0;
+            redundantStateChanges = 0;
+        }
+
+        void add(HeadlessGLBackend backend) {
+            frames++;
+            glCalls += backend.getCallCount();
+            drawCalls += backend.getDrawCallCount();
+            stateChanges += backend.getStateChangeCount();
+            redundantStateChanges += backend.getRedundantStateChangeCount();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Quat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the single and batch transform routines in {@link Mat4}.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class Mat4Benchmark {
+    @Param({"1000"})
+    public int count;
+
+    private final float[] mViewProj = new float[Mat4.SIZE];
+    private final float[] mModel = new float[Mat4.SIZE];
+    private final float[] mOut = new float[Mat4.SIZE];
+    private final float[] mPlanes = new float[Mat4.FRUSTUM_PLANES_SIZE];
+    private final float[] mRotation = new float[Quat.SIZE];
+    private float[] mModels;
+    private float[] mBatchOut;
+    private float[] mPoints;
+    private float[] mPointsOut;
+
+
+    @Setup
+    public void setup() {
+        final float[] proj = new float[Mat4.SIZE];
+        final float[] view = new float[Mat4.SIZE];
+        Mat4.perspective(proj, 0, 60f, 16f / 9f, 1f, 100f);
+        Mat4.lookAt(view, 0, 0f, 5f, 10f, 0f, 0f, 0f, 0f, 1f, 0f);
+        Mat4.multiply(mViewProj, 0, proj, 0, view, 0);
+
+        Quat.setAxisAngle(mRotation, 0, 30f, 0f, 1f, 0f);
+        Mat4.compose(mModel, 0, 1f, 2f, 3f, mRotation, 0, 2f, 2f, 2f);
+
+        final Random random = new Random(42);
+        mModels = new float[count * Mat4.SIZE];
+        mBatchOut = new float[count * Mat4.SIZE];
+        for (int i = 0; i < count; i++) {
+            Mat4.compose(mModels, i * Mat4.SIZE, random.nextFloat(), random.nextFloat(),
+                    random.nextFloat(), mRotation, 0, 1f, 1f, 1f);
+        }
+        mPoints = new float[count * 3];
+        mPointsOut = new float[count * 3];
+        for (int i = 0; i < mPoints.length; i++) {
+            mPoints[i] = random.nextFloat() * 10f;
+        }
+    }
+
+    @Benchmark
+    public float[] multiply() {
+        Mat4.multiply(mOut, 0, mViewProj, 0, mModel, 0);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] invert() {
+        Mat4.invert(mOut, 0, mModel, 0);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] compose() {
+        Mat4.compose(mOut, 0, 1f, 2f, 3f, mRotation, 0, 2f, 2f, 2f);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] perspective() {
+        Mat4.perspective(mOut, 0, 60f, 16f / 9f, 1f, 100f);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] lookAt() {
+        Mat4.lookAt(mOut, 0, 0f, 5f, 10f, 0f, 0f, 0f, 0f, 1f, 0f);
+        return mOut;
+    }
+
+    @Benchmark
+    public float[] extractFrustumPlanes() {
+        Mat4.extractFrustumPlanes(mPlanes, 0, mViewProj, 0);
+        return mPlanes;
+    }
+
+    @Benchmark
+    public float[] multiply_loop() {
+        for (int i = 0; i < count; i++) {
+            Mat4.multiply(mBatchOut, i * Mat4.SIZE, mViewProj, 0, mModels, i * Mat4.SIZE);
+        }
+        return mBatchOut;
+    }
+
+    @Benchmark
+    public float[] multiply_batch() {
+        Mat4.multiplyBatch(mBatchOut, 0, mViewProj, 0, mModels, 0, count);
+        return mBatchOut;
+    }
+
+    @Benchmark
+    public float[] transformPoints_batch() {
+        Mat4.transformPoints(mPointsOut, 0, mModel, 0, mPoints, 0, 3, count);
+        return mPointsOut;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.mesh.MeshData;
+import com.tylersuehr.enginej.mesh.MeshOptimizer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long optimizing a UV sphere takes with its triangles shuffled, as an exporter
+ * that doesn't care about order might leave them. The cache misses before and after are
+ * reported through {@link CacheCounts}, since the ACMR, not the time, is what the optimizer is
+ * for.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MeshOptimizerBenchmark {
+    /* Number of stacks in the sphere, which has twice as many slices */
+    @Param({"32", "128"})
+    public int stacks;
+
+    private MeshData mMesh;
+
+    /* Cache misses of the shuffled and optimized triangles, which are the same every time */
+    private int mShuffledMisses;
+    private int mVertexCacheMisses;
+    private int mFullMisses;
+
+
+    @Setup
+    public void setup() {
+        final int slices = stacks * 2;
+        final float[] vertices = new float[(stacks + 1) * (slices + 1) * 3];
+        int v = 0;
+        for (int i = 0; i <= stacks; i++) {
+            final double theta = Math.PI * i / stacks;
+            for (int j = 0; j <= slices; j++) {
+                final double phi = 2.0 * Math.PI * j / slices;
+                vertices[v++] = (float)(Math.sin(theta) * Math.cos(phi));
+                vertices[v++] = (float)Math.cos(theta);
+                vertices[v++] = (float)(Math.sin(theta) * Math.sin(phi));
+            }
+        }
+
+        final int[] indices = new int[stacks * slices * 6];
+        int k = 0;
+        for (int i = 0; i < stacks; i++) {
+            for (int j = 0; j < slices; j++) {
+                final int a = i * (slices + 1) + j;
+                final int b = a + slices + 1;
+                indices[k++] = a;
+                indices[k++] = b;
+                indices[k++] = a + 1;
+                indices[k++] = a + 1;
+                indices[k++] = b;
+                indices[k++] = b + 1;
+            }
+        }
+
+        final Random random = new Random(42);
+        for (int t = indices.length / 3 - 1; t > 0; t--) {
+            final int swap = random.nextInt(t + 1);
+            for (int c = 0; c < 3; c++) {
+                final int temp = indices[t * 3 + c];
+                indices[t * 3 + c] = indices[swap * 3 + c];
+                indices[swap * 3 + c] = temp;
+            }
+        }
+        mMesh = new MeshData(vertices, 3, indices);
+
+        final float[] cache = new float[2];
+        final float[] overdraw = new float[2];
+        MeshOptimizer.optimize(mMesh, false, cache);
+        MeshOptimizer.optimize(mMesh, true, overdraw);
+        mShuffledMisses = misses(cache[0]);
+        mVertexCacheMisses = misses(cache[1]);
+        mFullMisses = misses(overdraw[1]);
+    }
+
+    @Benchmark
+    public int[] optimize_vertexCache(CacheCounts counts) {
+        counts.add(mMesh.indexData.length / 3, mShuffledMisses, mVertexCacheMisses);
+        return MeshOptimizer.optimizeVertexCache(mMesh.indexData, mMesh.getVertexCount());
+    }
+
+    @Benchmark
+    public MeshData optimize_full(CacheCounts counts) {
+        counts.add(mMesh.indexData.length / 3, mShuffledMisses, mFullMisses);
+        return MeshOptimizer.optimize(mMesh, true, null);
+    }
+
+    private int misses(float acmr) {
+        return Math.round(acmr * (mMesh.indexData.length / 3));
+    }
+
+
+    /**
+     * The vertex cache misses of every optimization in an iteration. JMH reports each field as
+     * a total, so divide the misses by triangles for the ACMR.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class CacheCounts {
+        public long triangles;
+        public long shuffledMisses;
+        public long optimizedMisses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            triangles = 0;
+            shuffledMisses = 0;
+            optimizedMisses = 0;
+        }
+
+        void add(int triangleCount, int shuffled, int optimized) {
+            triangles += triangleCount;
+            shuffledMisses += shuffled;
+            optimizedMisses += optimized;
+        }
+    }
+}
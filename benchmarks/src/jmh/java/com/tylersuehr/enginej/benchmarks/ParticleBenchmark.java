@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+import com.tylersuehr.enginej.particles.ColorOverLifeAffector;
+import com.tylersuehr.enginej.particles.DragAffector;
+import com.tylersuehr.enginej.particles.GravityAffector;
+import com.tylersuehr.enginej.particles.ParticleEmitter;
+import com.tylersuehr.enginej.particles.ParticleRenderer;
+import com.tylersuehr.enginej.particles.ParticleSystem;
+import com.tylersuehr.enginej.particles.SizeOverLifeAffector;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one frame of a particle scene near its capacity: simulating with every kind of
+ * affector on one thread and across a fork-join pool, then writing and uploading the vertices
+ * as point sprites and as quads through the {@link HeadlessGLBackend}. A 60 fps budget is
+ * 16,667 us per frame. The live particles each frame are reported through {@link FrameCounts}.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParticleBenchmark {
+    private static final int EMITTERS = 4;
+
+    /* Total particle capacity, split evenly between the emitters */
+    @Param({"100000"})
+    public int count;
+
+    private ForkJoinPool mPool;
+    private ParticleSystem mSequential;
+    private ParticleSystem mParallel;
+    private ParticleRenderer mPoints;
+    private ParticleRenderer mQuads;
+
+
+    @Setup
+    public void setup() {
+        GL.setBackend(new HeadlessGLBackend());
+        GLStateCache.invalidate();
+
+        mPool = new ForkJoinPool();
+        mSequential = createSystem();
+        mParallel = createSystem();
+        mParallel.setParallel(mPool, 8192);
+        mPoints = new ParticleRenderer(count, ParticleRenderer.MODE_POINTS);
+        mQuads = new ParticleRenderer(count, ParticleRenderer.MODE_QUADS);
+
+        // Run long enough for spawning and dying to balance out
+        for (int i = 0; i < 300; i++) {
+            mSequential.update(1f / 60f);
+            mParallel.update(1f / 60f);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mPool.shutdown();
+    }
+
+    @Benchmark
+    public int update_sequential(FrameCounts counts) {
+        mSequential.update(1f / 60f);
+        return counts.add(mSequential.getParticleCount());
+    }
+
+    @Benchmark
+    public int update_forkJoin(FrameCounts counts) {
+        mParallel.update(1f / 60f);
+        return counts.add(mParallel.getParticleCount());
+    }
+
+    @Benchmark
+    public int draw_points(FrameCounts counts) {
+        return counts.add(mPoints.draw(mSequential, 0, 1, 2));
+    }
+
+    @Benchmark
+    public int draw_quads(FrameCounts counts) {
+        return counts.add(mQuads.draw(mSequential, 0, 1, 2));
+    }
+
+    private ParticleSystem createSystem() {
+        final ParticleSystem system = new ParticleSystem();
+        final int perEmitter = count / EMITTERS;
+        for (int e = 0; e < EMITTERS; e++) {
+            final ParticleEmitter emitter = new ParticleEmitter(perEmitter);
+            emitter.setMaterial(1 + e % 2, e % 2 == 0);
+            emitter.setSpawnArea(e * 10f, 0f, 0f, 1f, 0f, 1f);
+            emitter.setVelocity(0f, 8f, 0f, 3f);
+            emitter.setLife(1f, 3f);
+            // About as many spawn per second as can live for the average life
+            emitter.setRate(perEmitter / 2f);
+            emitter.addAffector(new GravityAffector(0f, -9.8f, 0f));
+            emitter.addAffector(new DragAffector(0.5f));
+            emitter.addAffector(new SizeOverLifeAffector(1f, 0.1f));
+            emitter.addAffector(new ColorOverLifeAffector(new float[] {1f, 0.8f, 0.2f, 1f},
+                    new float[] {1f, 0f, 0f, 0f}));
+            system.addEmitter(emitter);
+        }
+        return system;
+    }
+
+
+    /**
+     * The particles handled by every frame in an iteration. JMH reports each field as a total,
+     * so divide by frames for the particles in one frame.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameCounts {
+        public long frames;
+        public long particles;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+            particles = 0;
+        }
+
+        int add(int particleCount) {
+            frames++;
+            particles += particleCount;
+            return particleCount;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.ShapeBuilder;
+import com.tylersuehr.enginej.geometry.Circle;
+import com.tylersuehr.enginej.geometry.Cylinder;
+import com.tylersuehr.enginej.geometry.Point;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating shape geometry at a range of tessellation levels, both as standalone
+ * shapes and as a composite shape, with and without indexing.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShapeBuilderBenchmark {
+    @Param({"8", "32", "128"})
+    public int numPoints;
+
+    private Circle mCircle;
+    private Cylinder mCylinder;
+    private int mPuckSizeInVertices;
+
+
+    @Setup
+    public void setup() {
+        mCircle = new Circle(new Point(0f, 0.5f, 0f), 1f);
+        mCylinder = new Cylinder(new Point(0f, 0.25f, 0f), 1f, 0.5f);
+        mPuckSizeInVertices = ShapeBuilder.sizeOfStitchedStripInVertices(
+                ShapeBuilder.sizeOfOpenCylinderInVertices(numPoints))
+                + ShapeBuilder.sizeOfStitchedStripInVertices(
+                ShapeBuilder.sizeOfCircleStripInVertices(numPoints));
+    }
+
+    @Benchmark
+    public ShapeBuilder.ShapeData createCircle() {
+        return ShapeBuilder.createCircle(mCircle, numPoints);
+    }
+
+    @Benchmark
+    public ShapeBuilder.ShapeData createCylinder() {
+        return ShapeBuilder.createCylinder(mCylinder, numPoints);
+    }
+
+    @Benchmark
+    public ShapeBuilder.ShapeData puck_build() {
+        return new ShapeBuilder(mPuckSizeInVertices)
+                .appendCylinder(mCylinder, numPoints)
+                .appendCircle(mCircle, numPoints)
+                .build();
+    }
+
+    @Benchmark
+    public ShapeBuilder.ShapeData puck_buildIndexed() {
+        return new ShapeBuilder(mPuckSizeInVertices)
+                .appendCylinder(mCylinder, numPoints)
+                .appendCircle(mCircle, numPoints)
+                .buildIndexed();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.ShapeBuilder;
+import com.tylersuehr.enginej.ShapeLod;
+import com.tylersuehr.enginej.geometry.Circle;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing a crowd of circles spread out in front of a perspective camera through
+ * the {@link HeadlessGLBackend}, choosing a tessellation level for each against always
+ * drawing the finest. The vertices drawn are reported through {@link FrameCounts}, since
+ * cutting those is what the levels are for.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShapeLodBenchmark {
+    /* Number of circles in the scene */
+    @Param({"1000"})
+    public int count;
+
+    private HeadlessGLBackend mBackend;
+    private ShapeBuilder.ShapeData[] mLod;
+    private ShapeBuilder.ShapeData[] mFinest;
+
+
+    @Setup
+    public void setup() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+
+        final float[] projection = new float[Mat4.SIZE];
+        final float[] view = new float[Mat4.SIZE];
+        final float[] viewProjection = new float[Mat4.SIZE];
+        Mat4.perspective(projection, 0, 60f, 16f / 9f, 1f, 200f);
+        Mat4.lookAt(view, 0, 0f, 2f, 0f, 0f, 2f, -1f, 0f, 1f, 0f);
+        Mat4.multiply(viewProjection, 0, projection, 0, view, 0);
+        ShapeLod.setViewport(1920, 1080);
+        ShapeLod.setTransform(viewProjection, 0);
+
+        // Circles on the ground from right in front of the camera to the far plane
+        mLod = new ShapeBuilder.ShapeData[count];
+        mFinest = new ShapeBuilder.ShapeData[count];
+        final Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            final float z = -2f - random.nextFloat() * 150f;
+            final float x = (random.nextFloat() - 0.5f) * -z;
+            final Circle circle = new Circle(new Point(x, 0f, z), 0.5f + random.nextFloat());
+            mLod[i] = ShapeBuilder.createCircle(circle, 64, ShapeBuilder.DEFAULT_LOD_LEVELS);
+            mFinest[i] = ShapeBuilder.createCircle(circle, 64, 1);
+        }
+    }
+
+    @Benchmark
+    public int draw_lod(FrameCounts counts) {
+        return draw(mLod, counts);
+    }
+
+    @Benchmark
+    public int draw_finest(FrameCounts counts) {
+        return draw(mFinest, counts);
+    }
+
+    private int draw(ShapeBuilder.ShapeData[] shapes, FrameCounts counts) {
+        mBackend.resetCounters();
+        for (ShapeBuilder.ShapeData shape : shapes) {
+            shape.draw();
+        }
+        counts.frames++;
+        counts.vertices += mBackend.getVertexCount();
+        return shapes.length;
+    }
+
+
+    /**
+     * The vertices drawn by every frame in an iteration. JMH reports each field as a total, so
+     * divide by frames for the vertices of one frame.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FrameCounts {
+        public long frames;
+        public long vertices;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            frames = 0;
+            vertices = 0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.geometry.Vec3;
+import com.tylersuehr.enginej.geometry.Vector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures typical per-object vector work (moving points along velocities, lengths, dot and
+ * cross products) over many objects, comparing {@link Point}/{@link Vector} objects against
+ * packed {@link Vec3} arrays.
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorBenchmark {
+    @Param({"1000"})
+    public int count;
+
+    private Point[] mPoints;
+    private Vector[] mVelocities;
+    private Vector mAxis;
+    private final Vector mStep = new Vector(0f, 0f, 0f);
+    private float[] mPointData;
+    private float[] mVelocityData;
+    private final float[] mAxisData = new float[Vec3.SIZE];
+    private final float[] mScratch = new float[Vec3.SIZE];
+
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        mPoints = new Point[count];
+        mVelocities = new Vector[count];
+        mPointData = new float[count * Vec3.SIZE];
+        mVelocityData = new float[count * Vec3.SIZE];
+        for (int i = 0; i < count; i++) {
+            mPoints[i] = new Point(random.nextFloat(), random.nextFloat(), random.nextFloat());
+            mVelocities[i] = new Vector(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f);
+            Vec3.set(mPointData, i * Vec3.SIZE, mPoints[i]);
+            Vec3.set(mVelocityData, i * Vec3.SIZE, mVelocities[i]);
+        }
+        mAxis = new Vector(0f, 1f, 0f);
+        Vec3.set(mAxisData, 0, mAxis);
+    }
+
+    @Benchmark
+    public Point[] integrate_object() {
+        // Step the positions forward and back so they don't drift over the run. The object
+        // API scales in place, so the velocity is copied to keep it intact.
+        final Vector step = mStep;
+        for (int i = 0; i < count; i++) {
+            final Vector v = mVelocities[i];
+            step.x = v.x;
+            step.y = v.y;
+            step.z = v.z;
+            mPoints[i].translate(step.scale(0.016f));
+            mPoints[i].translate(step.scale(-1f));
+        }
+        return mPoints;
+    }
+
+    @Benchmark
+    public float[] integrate_array() {
+        for (int i = 0; i < count * Vec3.SIZE; i += Vec3.SIZE) {
+            Vec3.madd(mPointData, i, mPointData, i, mVelocityData, i, 0.016f);
+            Vec3.madd(mPointData, i, mPointData, i, mVelocityData, i, -0.016f);
+        }
+        return mPointData;
+    }
+
+    @Benchmark
+    public float length_object() {
+        float total = 0f;
+        for (int i = 0; i < count; i++) {
+            total += mVelocities[i].length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float length_array() {
+        float total = 0f;
+        for (int i = 0; i < count * Vec3.SIZE; i += Vec3.SIZE) {
+            total += Vec3.length(mVelocityData, i);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float dotProduct_object() {
+        float total = 0f;
+        for (int i = 0; i < count; i++) {
+            total += mVelocities[i].dotProduct(mAxis);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float dotProduct_array() {
+        float total = 0f;
+        for (int i = 0; i < count * Vec3.SIZE; i += Vec3.SIZE) {
+            total += Vec3.dot(mVelocityData, i, mAxisData, 0);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float crossProduct_object() {
+        // The object API works in place, so crossing without losing the input needs a copy
+        float total = 0f;
+        for (int i = 0; i < count; i++) {
+            final Vector v = mVelocities[i];
+            total += new Vector(v.x, v.y, v.z).crossProduct(mAxis).x;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public float crossProduct_array() {
+        float total = 0f;
+        for (int i = 0; i < count * Vec3.SIZE; i += Vec3.SIZE) {
+            Vec3.cross(mScratch, 0, mVelocityData, i, mAxisData, 0);
+            total += mScratch[0];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.benchmarks;
+
+import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.buffers.VertexLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ways vertex data gets into the direct (native) buffers handed to OpenGL ES:
+ * allocating a new buffer per upload like the vertex buffer constructors do, reusing one
+ * with a bulk put, writing element by element, and interleaving position, texture
+ * coordinate and packed color attributes. The layout benchmarks pack a mesh's position,
+ * normal and texture coordinate floats (32 bytes per vertex) with a {@link VertexLayout}, as
+ * floats and as compact formats (16 bytes per vertex).
+ *
+ * @author Tyler Suehr
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VertexPackingBenchmark {
+    /* Interleaved layout: position xyz, texture coordinate uv, color rgba8 */
+    private static final int STRIDE = 6 * EngineUtils.BYTES_PER_FLOAT;
+
+    @Param({"1024", "16384"})
+    public int vertices;
+
+    private float[] mPositions;
+    private float[] mTextureCoords;
+    private int[] mColors;
+    private float[] mFloats;
+    private int[] mStaging;
+    private ByteBuffer mBytes;
+    private FloatBuffer mFloatBuffer;
+    private IntBuffer mIntBuffer;
+    private float[] mMeshVertices;
+    private VertexLayout mFloatLayout;
+    private VertexLayout mCompactLayout;
+    private ByteBuffer mFloatPacked;
+    private ByteBuffer mCompactPacked;
+
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        mPositions = new float[vertices * 3];
+        mTextureCoords = new float[vertices * 2];
+        mColors = new int[vertices];
+        for (int i = 0; i < mPositions.length; i++) {
+            mPositions[i] = random.nextFloat();
+        }
+        for (int i = 0; i < mTextureCoords.length; i++) {
+            mTextureCoords[i] = random.nextFloat();
+        }
+        for (int i = 0; i < vertices; i++) {
+            mColors[i] = random.nextInt();
+        }
+
+        mFloats = mPositions;
+        mStaging = new int[vertices * STRIDE / 4];
+        mBytes = ByteBuffer.allocateDirect(vertices * STRIDE).order(ByteOrder.nativeOrder());
+        mFloatBuffer = mBytes.asFloatBuffer();
+        mIntBuffer = mBytes.asIntBuffer();
+
+        // Position, unit normal and texture coordinate
+        mMeshVertices = new float[vertices * 8];
+        for (int v = 0, i = 0; v < vertices; v++, i += 8) {
+            mMeshVertices[i] = random.nextFloat() * 20f - 10f;
+            mMeshVertices[i + 1] = random.nextFloat() * 20f - 10f;
+            mMeshVertices[i + 2] = random.nextFloat() * 20f - 10f;
+            final float nx = random.nextFloat() - 0.5f;
+            final float ny = random.nextFloat() - 0.5f;
+            final float nz = random.nextFloat() - 0.5f;
+            final float length = (float)Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+            mMeshVertices[i + 3] = nx / length;
+            mMeshVertices[i + 4] = ny / length;
+            mMeshVertices[i + 5] = nz / length;
+            mMeshVertices[i + 6] = random.nextFloat();
+            mMeshVertices[i + 7] = random.nextFloat();
+        }
+        mFloatLayout = new VertexLayout()
+                .add("a_Position", 3, VertexLayout.FORMAT_FLOAT)
+                .add("a_Normal", 3, VertexLayout.FORMAT_FLOAT)
+                .add("a_TextureCoord", 2, VertexLayout.FORMAT_FLOAT);
+        mCompactLayout = new VertexLayout()
+                .add("a_Position", 3, VertexLayout.FORMAT_HALF_FLOAT)
+                .add("a_Normal", 3, VertexLayout.FORMAT_BYTE_NORM)
+                .add("a_TextureCoord", 2, VertexLayout.FORMAT_UNSIGNED_SHORT_NORM);
+        mFloatPacked = mFloatLayout.allocate(vertices);
+        mCompactPacked = mCompactLayout.allocate(vertices);
+    }
+
+    @Benchmark
+    public FloatBuffer allocateAndPut() {
+        final FloatBuffer buffer = ByteBuffer
+                .allocateDirect(mFloats.length * EngineUtils.BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer()
+                .put(mFloats);
+        buffer.position(0);
+        return buffer;
+    }
+
+    @Benchmark
+    public FloatBuffer reuse_bulkPut() {
+        mFloatBuffer.clear();
+        mFloatBuffer.put(mFloats);
+        mFloatBuffer.flip();
+        return mFloatBuffer;
+    }
+
+    @Benchmark
+    public FloatBuffer reuse_elementPut() {
+        final FloatBuffer buffer = mFloatBuffer;
+        final float[] floats = mFloats;
+        for (int i = 0; i < floats.length; i++) {
+            buffer.put(i, floats[i]);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer interleave_putFloat() {
+        final ByteBuffer bytes = mBytes;
+        for (int v = 0, b = 0; v < vertices; v++, b += STRIDE) {
+            bytes.putFloat(b, mPositions[v * 3]);
+            bytes.putFloat(b + 4, mPositions[v * 3 + 1]);
+            bytes.putFloat(b + 8, mPositions[v * 3 + 2]);
+            bytes.putFloat(b + 12, mTextureCoords[v * 2]);
+            bytes.putFloat(b + 16, mTextureCoords[v * 2 + 1]);
+            bytes.putInt(b + 20, mColors[v]);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public IntBuffer interleave_stagedBulkPut() {
+        // Interleave into a Java array, then copy it to native memory in one go
+        final int[] staging = mStaging;
+        for (int v = 0, i = 0; v < vertices; v++) {
+            staging[i++] = Float.floatToRawIntBits(mPositions[v * 3]);
+            staging[i++] = Float.floatToRawIntBits(mPositions[v * 3 + 1]);
+            staging[i++] = Float.floatToRawIntBits(mPositions[v * 3 + 2]);
+            staging[i++] = Float.floatToRawIntBits(mTextureCoords[v * 2]);
+            staging[i++] = Float.floatToRawIntBits(mTextureCoords[v * 2 + 1]);
+            staging[i++] = mColors[v];
+        }
+        mIntBuffer.clear();
+        mIntBuffer.put(staging);
+        mIntBuffer.flip();
+        return mIntBuffer;
+    }
+
+    @Benchmark
+    public ByteBuffer layout_packFloats() {
+        mFloatLayout.pack(mFloatPacked, 0, mMeshVertices, 0, 8, vertices);
+        return mFloatPacked;
+    }
+
+    @Benchmark
+    public ByteBuffer layout_packCompact() {
+        mCompactLayout.pack(mCompactPacked, 0, mMeshVertices, 0, 8, vertices);
+        return mCompactPacked;
+    }
+}
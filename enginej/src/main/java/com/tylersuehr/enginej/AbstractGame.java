@@ -34,8 +34,33 @@ public abstract class AbstractGame {
      */
     public abstract void onGameSurfaceChanged(int width, int height);
 
+    /**
+     * Called at a fixed rate to step the game logic, set by the {@link AbstractGameRenderer}.
+     *
+     * By default this runs on the GL thread, just before drawing, as many times as are due.
+     * If the renderer runs updates on their own thread, anything shared with drawing must be
+     * handed over safely, like with a {@link com.tylersuehr.enginej.loop.TripleBuffer}.
+     *
+     * @param dt the fixed length of the step in seconds
+     */
+    public void onGameUpdate(float dt) {}
+
     /**
      * Called when a single frame in the game should be rendered.
+     *
+     * Frames usually fall between two updates, so keep the state of the last two updates and
+     * draw a blend of them: previous + (current - previous) * alpha. That keeps motion smooth
+     * at any frame rate, at the cost of drawing one update behind.
+     *
+     * @param alpha how far the present is between the last update and the next, from 0 to 1
+     */
+    public void onGameDrawFrame(float alpha) {
+        onGameDrawFrame();
+    }
+
+    /**
+     * Called when a single frame in the game should be rendered, for games that don't use
+     * interpolation.
      */
-    public abstract void onGameDrawFrame();
+    public void onGameDrawFrame() {}
 }
\ No newline at end of file
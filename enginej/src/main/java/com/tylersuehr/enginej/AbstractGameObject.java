@@ -1,16 +1,25 @@
 package com.tylersuehr.enginej;
 
+import com.tylersuehr.enginej.geometry.Bounds;
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.render.RenderCommand;
+import com.tylersuehr.enginej.render.RenderQueue;
+
 /**
  * Represents an in-game object.
  *
  * An in-game object can be rendered with an OpenGL ES shader program, which is why the shader
  * type is needed, and provides callbacks to set vertex data and draw the object.
  *
+ * Objects can either be drawn immediately by calling {@link #onBindData(AbstractShaderProgram)}
+ * and {@link #onDraw()}, or submitted to a {@link RenderQueue} which draws them later in an
+ * order that minimizes OpenGL ES state changes.
+ *
  * All game objects that will be used/rendered in the game will subclass this.
  *
  * @author Tyler Suehr
  */
-public abstract class AbstractGameObject<T extends AbstractShaderProgram> {
+public abstract class AbstractGameObject<T extends AbstractShaderProgram> implements RenderCommand {
     /**
      * Called when vertex data should be sent to the OpenGL ES program.
      * @param program the program to send vertex data to
@@ -21,4 +30,41 @@ public abstract class AbstractGameObject<T extends AbstractShaderProgram> {
      * Called when this object should be rendered.
      */
     public abstract void onDraw();
+
+    /**
+     * Gets the world-space bounds of this object, so a
+     * {@link com.tylersuehr.enginej.render.FrustumCuller} can skip it while it's off screen.
+     * Objects drawing a {@link ShapeBuilder.ShapeData} can move its local bounds by their
+     * model matrix with {@link Bounds#transformSphere} and {@link Bounds#transformBox}.
+     *
+     * By default an object has no bounds, and is never culled.
+     *
+     * @param sphere the array receiving the bounding sphere, see {@link GeoMath#SPHERE_SIZE}
+     * @param sphereOff the offset of the sphere
+     * @param box the array receiving the bounding box, see {@link Bounds#BOX_SIZE}
+     * @param boxOff the offset of the box
+     * @return true if the bounds were written
+     */
+    public boolean getBounds(float[] sphere, int sphereOff, float[] box, int boxOff) {
+        return false;
+    }
+
+    /**
+     * Submits this object to a render queue instead of drawing it immediately.
+     *
+     * @param queue the render queue to submit to
+     * @param program the program to draw this object with
+     * @param sortKey the sort key, see {@link com.tylersuehr.enginej.render.RenderKey}
+     */
+    public void submit(RenderQueue queue, T program, long sortKey) {
+        queue.submit(sortKey, program, this, 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void execute(AbstractShaderProgram program, int param) {
+        // Only ever submitted with a T by submit(...)
+        onBindData((T)program);
+        onDraw();
+    }
 }
\ No newline at end of file
@@ -3,6 +3,14 @@ package com.tylersuehr.enginej;
 import android.content.Context;
 import android.opengl.GLSurfaceView;
 
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.loop.Clock;
+import com.tylersuehr.enginej.loop.FixedTimestep;
+import com.tylersuehr.enginej.loop.UpdateThread;
+import com.tylersuehr.enginej.profiling.Profiler;
+import com.tylersuehr.enginej.shaders.ShaderRegistry;
+import com.tylersuehr.enginej.textures.CompressedTextureLoader;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
@@ -10,32 +18,141 @@ import javax.microedition.khronos.opengles.GL10;
  * Implementation of {@link GLSurfaceView.Renderer} which invokes the appropriate wrapping methods
  * on a {@link AbstractGame} to be rendered.
  *
+ * Game logic is stepped at a fixed rate through {@link AbstractGame#onGameUpdate(float)},
+ * decoupled from the frame rate, either on the GL thread before each frame or on its own
+ * thread. Each frame is then drawn with the interpolation factor between the last two updates.
+ *
+ * When updating on its own thread, the activity should forward its onPause() and onResume()
+ * here, like it does for the {@link GLSurfaceView}.
+ *
  * @author Tyler Suehr
  */
 public class AbstractGameRenderer implements GLSurfaceView.Renderer {
+    public static final int DEFAULT_TICKS_PER_SECOND = 60;
+
     /* Stores reference to the Android context */
     private final Context mContext;
     /* Stores reference to the game being rendered */
     private final AbstractGame mGame;
+    /* Stores the timing of the fixed-rate updates */
+    private final FixedTimestep mTimestep;
+    private final boolean mUpdateOnOwnThread;
+    /* Touched by both the GL thread and the UI thread (pause and resume) */
+    private volatile UpdateThread mUpdateThread;
+    private volatile boolean mSurfaceCreated = false;
+    private volatile boolean mResetPending = false;
 
 
     public AbstractGameRenderer(final Context c, final AbstractGame game) {
+        this(c, game, DEFAULT_TICKS_PER_SECOND, false);
+    }
+
+    /**
+     * @param c {@link Context}
+     * @param game the game to render
+     * @param ticksPerSecond the rate at which the game is updated
+     * @param updateOnOwnThread true to update on a separate thread from the GL thread
+     */
+    public AbstractGameRenderer(final Context c, final AbstractGame game, int ticksPerSecond,
+                                boolean updateOnOwnThread) {
+        this(c, game, new FixedTimestep(ticksPerSecond, Clock.SYSTEM), updateOnOwnThread);
+    }
+
+    /**
+     * @param c {@link Context}
+     * @param game the game to render
+     * @param timestep the timing of the updates, which may use a custom {@link Clock}
+     * @param updateOnOwnThread true to update on a separate thread from the GL thread
+     */
+    public AbstractGameRenderer(final Context c, final AbstractGame game, FixedTimestep timestep,
+                                boolean updateOnOwnThread) {
         mContext = c;
         mGame = game;
+        mTimestep = timestep;
+        mUpdateOnOwnThread = updateOnOwnThread;
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        // A new context starts with default state, so nothing shadowed is valid anymore
+        GLStateCache.invalidate();
+        ShaderRegistry.onContextLost();
+        CompressedTextureLoader.onContextLost();
+        stopUpdates();
         mGame.onGameCreated(mContext);
+        mSurfaceCreated = true;
+        startUpdates();
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
+        ShapeLod.setViewport(width, height);
         mGame.onGameSurfaceChanged(width, height);
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
-        mGame.onGameDrawFrame();
+        Profiler.beginFrame();
+        final float alpha;
+        if (mUpdateOnOwnThread) {
+            alpha = (mUpdateThread != null) ? mUpdateThread.getAlpha() : 0f;
+        } else {
+            if (mResetPending) {
+                mResetPending = false;
+                mTimestep.reset();
+            }
+            Profiler.begin(Profiler.SCOPE_UPDATE);
+            final int ticks = mTimestep.advance();
+            final float dt = mTimestep.getStepSeconds();
+            for (int i = 0; i < ticks; i++) {
+                mGame.onGameUpdate(dt);
+            }
+            alpha = mTimestep.getAlpha();
+            Profiler.end(Profiler.SCOPE_UPDATE);
+        }
+
+        Profiler.begin(Profiler.SCOPE_DRAW);
+        mGame.onGameDrawFrame(alpha);
+        Profiler.end(Profiler.SCOPE_DRAW);
+        Profiler.endFrame();
+    }
+
+    /**
+     * Stops updating the game while paused. Call from the activity's onPause().
+     */
+    public void onPause() {
+        stopUpdates();
+    }
+
+    /**
+     * Resumes updating the game, without simulating the time spent paused. Call from the
+     * activity's onResume().
+     */
+    public void onResume() {
+        if (mSurfaceCreated) {
+            startUpdates();
+        }
+    }
+
+    private synchronized void startUpdates() {
+        if (!mUpdateOnOwnThread) {
+            // The timestep belongs to the GL thread, so let it reset on the next frame
+            mResetPending = true;
+        } else if (mUpdateThread == null) {
+            mUpdateThread = new UpdateThread(mTimestep, new UpdateThread.TickListener() {
+                @Override
+                public void onTick(float dt) {
+                    mGame.onGameUpdate(dt);
+                }
+            });
+            mUpdateThread.start();
+        }
+    }
+
+    private synchronized void stopUpdates() {
+        if (mUpdateThread != null) {
+            mUpdateThread.shutdown();
+            mUpdateThread = null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,11 @@
 package com.tylersuehr.enginej;
 
 import android.content.Context;
-import android.opengl.GLES20;
 import android.support.annotation.RawRes;
 
+import com.tylersuehr.enginej.shaders.ProgramVariant;
+import com.tylersuehr.enginej.shaders.ShaderRegistry;
+
 /**
  * Represents an OpenGL ES shader program.
  *
@@ -12,25 +14,133 @@ import android.support.annotation.RawRes;
  *
  * Subclass this object for each conjunction of vertex and fragment shader programs made.
  *
+ * The actual program comes from the {@link ShaderRegistry}, so programs made from the same
+ * shaders and defines share one OpenGL ES program, which isn't compiled until first used.
+ *
+ * The locations of all active uniforms and attributes are looked up once after linking, so
+ * subclasses should get them with {@link #getUniformLocation(String)} and
+ * {@link #getAttribLocation(String)} instead of asking OpenGL ES. The typed uniform setters
+ * keep a shadow copy of each uniform and skip the upload when the value hasn't changed. Like
+ * glUniform*, they only affect this program while it's the current program.
+ *
  * @author Tyler Suehr
  */
 public abstract class AbstractShaderProgram {
-    /* Stores pointer to the OpenGL ES program this represents */
+    /* Stores the shared program variant this represents */
+    protected final ProgramVariant mVariant;
+
+    /**
+     * Stores pointer to the OpenGL ES program this represents, for subclasses written before
+     * the {@link ShaderRegistry}. Only the constructor without defines sets it, building the
+     * program right away to do so; otherwise it is 0. Like before, it goes stale if the GL
+     * context is lost.
+     *
+     * @deprecated use {@link #getProgramId()}, which builds the program on first use
+     */
+    @Deprecated
     protected final int mCurrentProgram;
 
 
-    /** Constructs with both vertex and fragment shaders. */
+    /**
+     * Constructs with both vertex and fragment shaders, building the program right away so
+     * {@link #mCurrentProgram} is set. Use {@link #AbstractShaderProgram(ProgramVariant)} to
+     * defer building until first use.
+     */
     public AbstractShaderProgram(Context c, @RawRes int vertexShaderResId, @RawRes int fragShaderResId) {
-        mCurrentProgram = EngineUtils.buildProgram(
-                EngineUtils.readSourceCode(c, vertexShaderResId),
-                EngineUtils.readSourceCode(c, fragShaderResId)
-        );
+        this(ShaderRegistry.obtain(c, vertexShaderResId, fragShaderResId), true);
+    }
+
+    /** Constructs with both vertex and fragment shaders, and defines to select a variant. */
+    public AbstractShaderProgram(Context c, @RawRes int vertexShaderResId, @RawRes int fragShaderResId,
+                                 String... defines) {
+        this(ShaderRegistry.obtain(c, vertexShaderResId, fragShaderResId, defines), false);
+    }
+
+    /** Constructs with a program variant from the {@link ShaderRegistry}. */
+    public AbstractShaderProgram(ProgramVariant variant) {
+        this(variant, false);
+    }
+
+    private AbstractShaderProgram(ProgramVariant variant, boolean buildNow) {
+        mVariant = variant;
+        mCurrentProgram = buildNow ? variant.getProgramId() : 0;
     }
 
     /**
      * Marks this program as the current OpenGL ES shader program.
      */
     public final void useProgram() {
-        GLES20.glUseProgram(mCurrentProgram);
+        mVariant.use();
+    }
+
+    /**
+     * Gets the pointer to the OpenGL ES program this represents, building it if needed.
+     * @return the pointer to the OpenGL ES program object
+     */
+    public final int getProgramId() {
+        return mVariant.getProgramId();
+    }
+
+    /**
+     * Gets the cached location of an active uniform. Array uniforms can be found with or
+     * without their "[0]" suffix.
+     *
+     * @param name the name of the uniform in the shader source
+     * @return the location of the uniform, or -1 if it isn't active
+     */
+    public final int getUniformLocation(String name) {
+        return mVariant.getUniformLocation(name);
+    }
+
+    /**
+     * Gets the cached location of an active vertex attribute.
+     *
+     * @param name the name of the attribute in the shader source
+     * @return the location of the attribute, or -1 if it isn't active
+     */
+    public final int getAttribLocation(String name) {
+        return mVariant.getAttribLocation(name);
+    }
+
+    public final void setUniform1i(int location, int value) {
+        mVariant.setUniform1i(location, value);
+    }
+
+    public final void setUniform1f(int location, float x) {
+        mVariant.setUniform1f(location, x);
+    }
+
+    public final void setUniform2f(int location, float x, float y) {
+        mVariant.setUniform2f(location, x, y);
+    }
+
+    public final void setUniform3f(int location, float x, float y, float z) {
+        mVariant.setUniform3f(location, x, y, z);
+    }
+
+    public final void setUniform4f(int location, float x, float y, float z, float w) {
+        mVariant.setUniform4f(location, x, y, z, w);
+    }
+
+    /** @see ProgramVariant#setUniformMatrix3(int, float[], int) */
+    public final void setUniformMatrix3(int location, float[] m, int offset) {
+        mVariant.setUniformMatrix3(location, m, offset);
+    }
+
+    /** @see ProgramVariant#setUniformMatrix4(int, float[], int) */
+    public final void setUniformMatrix4(int location, float[] m, int offset) {
+        mVariant.setUniformMatrix4(location, m, offset);
+    }
+
+    /** @see ProgramVariant#setUniformMatrix4(int, float[], int, int) */
+    public final void setUniformMatrix4(int location, float[] m, int offset, int version) {
+        mVariant.setUniformMatrix4(location, m, offset, version);
+    }
+
+    /**
+     * Forgets the shadowed uniform values, so the next set of each uniform is always uploaded.
+     */
+    public final void invalidateUniforms() {
+        mVariant.invalidateUniforms();
     }
-}
\ No newline at end of file
+}
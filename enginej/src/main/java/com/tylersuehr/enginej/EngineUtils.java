@@ -26,10 +26,12 @@ package com.tylersuehr.enginej;
 
 import android.content.Context;
 import android.content.res.Resources;
-import android.opengl.GLES20;
 import android.support.annotation.RawRes;
 import android.util.Log;
 
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.gl.GL;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -42,6 +44,7 @@ public final class EngineUtils {
     /* Constants for data types sizes in bytes. */
     public static final int BYTES_PER_DOUBLE = 8;
     public static final int BYTES_PER_FLOAT  = 4;
+    public static final int BYTES_PER_INT    = 4;
     public static final int BYTES_PER_SHORT  = 2;
 
     private static final String TAG = "ENGINE";
@@ -50,17 +53,10 @@ public final class EngineUtils {
     private EngineUtils() {}
 
     /**
-     * Creates a perspective projection matrix.
-     *
-     * {@link android.opengl.Matrix#frustumM(float[], int, float, float, float, float, float, float)}
-     * has a bug that affects some types of projections and perspectiveM(...) was only introduced
-     * in Android Ice Cream Sandwich and above.
-     *
-     * We can simply target Ice Cream Sandwich and above, which is now perfectly fine as we're so
-     * much more advanced than the writing time of the excerpt from which this code was taken and
-     * we can even target Lollipop and above while still supporting much more than the majority of
-     * the market, or we can build our own implementation. At the time of writing, it was more
-     * effective to build your own implementation and that is what's demonstrated here.
+     * Creates a perspective projection matrix by delegating to
+     * {@link Mat4#perspective(float[], int, float, float, float, float)}, which is where this
+     * and the rest of the transform routines (multiply, invert, look-at, orthographic, etc.)
+     * live. Kept for existing callers.
      *
      * @param m the output matrix (results stored here)
      * @param yFovInDegrees the field of view in degrees on y-axis
@@ -69,31 +65,7 @@ public final class EngineUtils {
      * @param f the far perspective value
      */
     public static void perspectiveM(float[] m, float yFovInDegrees, float aspect, float n, float f) {
-        // Calculate the focal length (distance between the focal point and the small side of
-        // the frustum), which will be based on the field of vision across the y-axis.
-        final float angleInRadians = (float)(yFovInDegrees * Math.PI / 180.0);
-        final float a = (float)(1.0 / Math.tan(angleInRadians / 2.0));
-
-        // Write out the matrix values in column-major order (must be 4x4 matrix)
-        m[0] = a / aspect;
-        m[1] = 0f;
-        m[2] = 0f;
-        m[3] = 0f;
-
-        m[4] = 0f;
-        m[5] = a;
-        m[6] = 0f;
-        m[7] = 0f;
-
-        m[8] = 0f;
-        m[9] = 0f;
-        m[10] = -((f + n) / (f - n));
-        m[11] = -1f;
-
-        m[12] = 0f;
-        m[13] = 0f;
-        m[14] = -((2f * f * n) / (f - n));
-        m[15] = 0f;
+        Mat4.perspective(m, 0, yFovInDegrees, aspect, n, f);
     }
 
     /**
@@ -104,8 +76,8 @@ public final class EngineUtils {
      * @return the pointer to the OpenGL ES program object or 0 if failed
      */
     public static int buildProgram(String vertexShaderCode, String fragmentShaderCode) {
-        final int vertexShaderPtr = compileShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-        final int fragShaderPtr = compileShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+        final int vertexShaderPtr = compileShader(GL.GL_VERTEX_SHADER, vertexShaderCode);
+        final int fragShaderPtr = compileShader(GL.GL_FRAGMENT_SHADER, fragmentShaderCode);
         final int programPtr = linkProgram(vertexShaderPtr, fragShaderPtr);
         validateProgram(programPtr);
         return programPtr;
@@ -118,11 +90,11 @@ public final class EngineUtils {
      * @return true if valid, otherwise false
      */
     public static boolean validateProgram(int programPtr) {
-        GLES20.glValidateProgram(programPtr);
+        GL.glValidateProgram(programPtr);
 
         final int[] validStatus = new int[1];
-        GLES20.glGetProgramiv(programPtr, GLES20.GL_VALIDATE_STATUS, validStatus, 0);
-        Log.d(TAG, "Program validation status: " + GLES20.glGetProgramInfoLog(programPtr));
+        GL.glGetProgramiv(programPtr, GL.GL_VALIDATE_STATUS, validStatus, 0);
+        Log.d(TAG, "Program validation status: " + GL.glGetProgramInfoLog(programPtr));
 
         return validStatus[0] != 0;
     }
@@ -136,22 +108,22 @@ public final class EngineUtils {
      */
     public static int linkProgram(int vertexShaderPtr, int fragmentShaderPtr) {
         // Create a new OpenGL ES program object
-        final int programPtr = GLES20.glCreateProgram();
+        final int programPtr = GL.glCreateProgram();
         if (programPtr == 0) {
             Log.wtf(TAG, "Could not create new OpenGL ES program object!");
             return 0;
         }
 
         // Attach the shaders and link program
-        GLES20.glAttachShader(programPtr, vertexShaderPtr);
-        GLES20.glAttachShader(programPtr, fragmentShaderPtr);
-        GLES20.glLinkProgram(programPtr);
+        GL.glAttachShader(programPtr, vertexShaderPtr);
+        GL.glAttachShader(programPtr, fragmentShaderPtr);
+        GL.glLinkProgram(programPtr);
 
         // Determine if program link was successful
         final int[] linkStatus = new int[1];
-        GLES20.glGetProgramiv(programPtr, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        GL.glGetProgramiv(programPtr, GL.GL_LINK_STATUS, linkStatus, 0);
         if (linkStatus[0] == 0) {
-            Log.wtf(TAG, "Program link failed: " + GLES20.glGetProgramInfoLog(programPtr));
+            Log.wtf(TAG, "Program link failed: " + GL.glGetProgramInfoLog(programPtr));
             return 0;
         }
 
@@ -161,33 +133,65 @@ public final class EngineUtils {
     /**
      * Compiles the source code for an OpenGL ES shader program.
      *
-     * @param type {@link GLES20#GL_VERTEX_SHADER} or {@link GLES20#GL_FRAGMENT_SHADER}
+     * @param type {@link GL#GL_VERTEX_SHADER} or {@link GL#GL_FRAGMENT_SHADER}
      * @param sourceCode the source code of the shader program
      * @return the pointer to the OpenGL ES shader object or 0 if failed
      */
     public static int compileShader(int type, String sourceCode) {
         // Create a new OpenGL ES shader object
-        final int shaderPtr = GLES20.glCreateShader(type);
+        final int shaderPtr = GL.glCreateShader(type);
         if (shaderPtr == 0) {
             Log.wtf(TAG, "Could not create new OpenGL ES shader object!");
             return 0;
         }
 
         // Attach the source code to the shader and compile it
-        GLES20.glShaderSource(shaderPtr, sourceCode);
-        GLES20.glCompileShader(shaderPtr);
+        GL.glShaderSource(shaderPtr, sourceCode);
+        GL.glCompileShader(shaderPtr);
 
         // Determine if shader compilation was successful
         final int[] compileStatus = new int[1];
-        GLES20.glGetShaderiv(shaderPtr, GLES20.GL_COMPILE_STATUS, compileStatus, 0);
+        GL.glGetShaderiv(shaderPtr, GL.GL_COMPILE_STATUS, compileStatus, 0);
         if (compileStatus[0] == 0) {
-            Log.wtf(TAG, "Shader compilation failed: " + GLES20.glGetShaderInfoLog(shaderPtr));
+            Log.wtf(TAG, "Shader compilation failed: " + GL.glGetShaderInfoLog(shaderPtr));
             return 0;
         }
 
         return shaderPtr;
     }
 
+    /**
+     * Adds a <code>#define</code> line for each define to shader source code. They go after
+     * the <code>#version</code> line if there is one, since that has to come first.
+     *
+     * @param sourceCode the source code of the shader program
+     * @param defines the defines to add, like "USE_FOG" or "MAX_LIGHTS 4"
+     * @return the source code with the defines added
+     */
+    public static String injectDefines(String sourceCode, String... defines) {
+        if (defines.length == 0) {
+            return sourceCode;
+        }
+
+        int insertAt = 0;
+        final String trimmed = sourceCode.trim();
+        if (trimmed.startsWith("#version")) {
+            final int lineEnd = sourceCode.indexOf('\n', sourceCode.indexOf("#version"));
+            insertAt = (lineEnd < 0) ? sourceCode.length() : lineEnd + 1;
+        }
+
+        final StringBuilder sb = new StringBuilder(sourceCode.length() + defines.length * 32);
+        sb.append(sourceCode, 0, insertAt);
+        if (insertAt > 0 && sourceCode.charAt(insertAt - 1) != '\n') {
+            sb.append('\n');
+        }
+        for (String define : defines) {
+            sb.append("#define ").append(define).append('\n');
+        }
+        sb.append(sourceCode, insertAt, sourceCode.length());
+        return sb.toString();
+    }
+
     /**
      * Reads a shader program's source code as a string from an Android resource.
      *
@@ -200,8 +204,10 @@ public final class EngineUtils {
         try (final BufferedReader in = new BufferedReader(
                 new InputStreamReader(res.openRawResource(sourceCodeResId)))) {
             final StringBuilder sb = new StringBuilder();
+            // Keep the newlines, since preprocessor lines (#define, #ifdef) must end with one
+            // and it keeps the line numbers in compile errors meaningful
             for (String temp; ((temp = in.readLine()) != null);)
-                sb.append(temp);
+                sb.append(temp).append('\n');
             return sb.toString();
         } catch (IOException ex) {
             throw new Error("Could not read source code!", ex);
@@ -24,49 +24,373 @@
 
 package com.tylersuehr.enginej;
 
-import android.opengl.GLES20;
-
+import com.tylersuehr.enginej.geometry.Bounds;
 import com.tylersuehr.enginej.geometry.Circle;
 import com.tylersuehr.enginej.geometry.Cylinder;
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.mesh.MeshBuilder;
+import com.tylersuehr.enginej.mesh.MeshData;
+import com.tylersuehr.enginej.profiling.Profiler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * A builder for building game objects using simple shapes to form complex shapes.
+ *
+ * The static create methods each produce a standalone {@link ShapeData}. An instance of the
+ * builder instead appends many shapes into one vertex array and one draw list, so the result
+ * can be uploaded into a single {@link com.tylersuehr.enginej.buffers.GPUVertexBuffer}.
+ * Appended shapes are emitted as triangle strips and contiguous strips are stitched together
+ * with degenerate triangles, so a whole composite usually draws with one glDrawArrays call.
+ *
+ * Circles and cylinders created by the static methods hold several tessellation levels in
+ * their one vertex array, each with half the points of the last, and draw the level that
+ * suits their size on screen, unless {@link ShapeLod} is disabled.
+ *
  * @author Tyler Suehr
  */
 public class ShapeBuilder {
+    /** The number of tessellation levels created circles and cylinders have at most. */
+    public static final int DEFAULT_LOD_LEVELS = 4;
+    /** The fewest points around a tessellation level, other than the finest. */
+    public static final int MIN_LOD_POINTS = 8;
+
     private static final int FLOATS_PER_VERTEX = 3;
     private final List<ShapeDrawCommand> mDrawList = new ArrayList<>();
-    private final float[] mVertexData;
+    private float[] mVertexData;
     private int mOffset = 0;
 
+    /* The draw command still accepting vertices, or null */
+    private DrawArraysCommand mOpenCommand;
+
 
-    /** Constructs with the number of vertices needed for the shade. */
-    private ShapeBuilder(int sizeInVertices) {
+    /**
+     * Constructs with the number of vertices needed for the shape. The array grows if more
+     * are appended, but sizing it up front avoids any copying; see {@link #sizeOfCircleStripInVertices(int)}
+     * and {@link #sizeOfStitchedStripInVertices(int)}.
+     */
+    public ShapeBuilder(int sizeInVertices) {
         mVertexData = new float[sizeInVertices * FLOATS_PER_VERTEX];
     }
 
-    // TODO - add builder methods to generate non-standalone complex geometric shapes
+    /**
+     * Appends a flat circle, triangulated as a strip that zig-zags across the rim.
+     *
+     * @param circle the circle dimensions to append
+     * @param numPoints the number of points around the circle
+     * @return this builder
+     */
+    public ShapeBuilder appendCircle(Circle circle, int numPoints) {
+        final int numVertices = sizeOfCircleStripInVertices(numPoints);
+        final int first = beginStrip(numVertices);
+
+        // Walk the rim from both ends towards the middle: p0, p1, pN-1, p2, pN-2, ...
+        int offset = first * FLOATS_PER_VERTEX;
+        for (int i = 0; i < numVertices; i++) {
+            final int point = ((i & 1) == 1) ? (i + 1) / 2 : (numPoints - i / 2) % numPoints;
+            final float angleInRadians = ((float)point / (float)numPoints) * ((float)Math.PI * 2f);
+            mVertexData[offset++] = circle.center.x + circle.radius * (float)Math.cos(angleInRadians);
+            mVertexData[offset++] = circle.center.y;
+            mVertexData[offset++] = circle.center.z + circle.radius * (float)Math.sin(angleInRadians);
+        }
+
+        endStrip(first, numVertices);
+        return this;
+    }
+
+    /**
+     * Appends an open cylinder (no caps), triangulated as a strip around its side.
+     *
+     * @param cylinder the cylinder dimensions to append
+     * @param numPoints the number of points around the cylinder
+     * @return this builder
+     */
+    public ShapeBuilder appendCylinder(Cylinder cylinder, int numPoints) {
+        final int numVertices = sizeOfOpenCylinderInVertices(numPoints);
+        final int first = beginStrip(numVertices);
+        writeOpenCylinder(mVertexData, first * FLOATS_PER_VERTEX, cylinder, numPoints);
+        endStrip(first, numVertices);
+        return this;
+    }
+
+    /**
+     * Appends arbitrary triangle strip vertices, stitching them to any preceding strip.
+     *
+     * @param vertexData the array holding the x, y, z positions
+     * @param offset the offset of the first vertex's x-coordinate
+     * @param numVertices the number of vertices in the strip
+     * @return this builder
+     */
+    public ShapeBuilder appendTriangleStrip(float[] vertexData, int offset, int numVertices) {
+        final int first = beginStrip(numVertices);
+        System.arraycopy(vertexData, offset, mVertexData, first * FLOATS_PER_VERTEX, numVertices * FLOATS_PER_VERTEX);
+        endStrip(first, numVertices);
+        return this;
+    }
+
+    /**
+     * Appends an independent triangle list, merging it with any preceding triangle list.
+     *
+     * @param vertexData the array holding the x, y, z positions
+     * @param offset the offset of the first vertex's x-coordinate
+     * @param numVertices the number of vertices, a multiple of 3
+     * @return this builder
+     */
+    public ShapeBuilder appendTriangles(float[] vertexData, int offset, int numVertices) {
+        ensureCapacity(numVertices);
+        final int first = mOffset / FLOATS_PER_VERTEX;
+        System.arraycopy(vertexData, offset, mVertexData, mOffset, numVertices * FLOATS_PER_VERTEX);
+        mOffset += numVertices * FLOATS_PER_VERTEX;
+
+        if (mOpenCommand != null && mOpenCommand.mode == GL.GL_TRIANGLES) {
+            mOpenCommand.count += numVertices;
+        } else {
+            openCommand(GL.GL_TRIANGLES, first, numVertices);
+        }
+        return this;
+    }
+
+    /**
+     * Builds the shape data for everything appended so far.
+     *
+     * The shape gets its own copy of the draw commands, so appending more afterwards leaves
+     * it unchanged; building again includes both.
+     *
+     * @return shape data that can be rendered by OpenGL ES
+     */
+    public ShapeData build() {
+        final float[] vertexData = (mOffset == mVertexData.length)
+                ? mVertexData : Arrays.copyOf(mVertexData, mOffset);
+        final List<ShapeDrawCommand> drawList = new ArrayList<>(mDrawList.size());
+        for (ShapeDrawCommand command : mDrawList) {
+            // The open command keeps growing as strips are appended
+            final DrawArraysCommand arrays = (DrawArraysCommand)command;
+            drawList.add(new DrawArraysCommand(arrays.mode, arrays.first, arrays.count));
+        }
+        return new ShapeData(vertexData, null, drawList);
+    }
+
+    /**
+     * Builds indexed shape data for everything appended so far.
+     *
+     * Every strip and fan is converted into a triangle list, identical vertices are welded
+     * together, and the degenerate triangles used to stitch strips are dropped. The result
+     * draws with a single glDrawElements call using unsigned short indices.
+     *
+     * @return indexed shape data that can be rendered by OpenGL ES
+     */
+    public ShapeData buildIndexed() {
+        final MeshData mesh = toMesh(mVertexData, mDrawList);
+        return new ShapeData(mesh.vertexData, mesh.toShortIndices(), createIndexedDrawList(mesh));
+    }
+
+    /**
+     * Converts non-indexed shape data into an indexed mesh, welding identical vertices.
+     *
+     * @param shape the shape data to convert
+     * @return the indexed mesh
+     */
+    public static MeshData toMesh(ShapeData shape) {
+        return toMesh(shape.vertexData, shape.drawList);
+    }
+
+    private static MeshData toMesh(float[] vertexData, List<ShapeDrawCommand> drawList) {
+        final MeshBuilder mesh = new MeshBuilder(FLOATS_PER_VERTEX, vertexData.length / FLOATS_PER_VERTEX);
+        for (ShapeDrawCommand command : drawList) {
+            if (!(command instanceof DrawArraysCommand) && !(command instanceof LodDrawCommand)) {
+                throw new IllegalArgumentException("Only glDrawArrays shapes can be indexed!");
+            }
+
+            // Only the finest level of a shape with several is kept
+            final DrawArraysCommand arrays = (command instanceof LodDrawCommand)
+                    ? ((LodDrawCommand)command).getLevel(0) : (DrawArraysCommand)command;
+            final int offset = arrays.first * FLOATS_PER_VERTEX;
+            switch (arrays.mode) {
+                case GL.GL_TRIANGLES:
+                    mesh.addTriangles(vertexData, offset, arrays.count);
+                    break;
+                case GL.GL_TRIANGLE_STRIP:
+                    mesh.addTriangleStrip(vertexData, offset, arrays.count);
+                    break;
+                case GL.GL_TRIANGLE_FAN:
+                    mesh.addTriangleFan(vertexData, offset, arrays.count);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported primitive type: " + arrays.mode);
+            }
+        }
+        return mesh.build();
+    }
+
+    private static List<ShapeDrawCommand> createIndexedDrawList(MeshData mesh) {
+        final List<ShapeDrawCommand> drawList = new ArrayList<>(1);
+        drawList.add(new DrawElementsCommand(GL.GL_TRIANGLES, mesh.getIndexCount(), GL.GL_UNSIGNED_SHORT, 0));
+        return drawList;
+    }
 
     /**
-     * Creates a circle that can be rendered with OpenGL ES. Uses a triangle fan.
+     * Makes room for a strip of vertices, writing the degenerate vertices needed to join it
+     * to a preceding strip (their final value is filled in by {@link #endStrip(int, int)}).
+     *
+     * @return the index of the strip's first vertex
+     */
+    private int beginStrip(int numVertices) {
+        final int bridge = stripBridgeSize();
+        ensureCapacity(bridge + numVertices);
+        mOffset += bridge * FLOATS_PER_VERTEX;
+        return mOffset / FLOATS_PER_VERTEX;
+    }
+
+    private void endStrip(int first, int numVertices) {
+        final int bridge = stripBridgeSize();
+        if (bridge > 0) {
+            // Repeat the previous strip's last vertex once, then this strip's first vertex
+            // until the winding parity is even again.
+            final int bridgeStart = (first - bridge) * FLOATS_PER_VERTEX;
+            System.arraycopy(mVertexData, bridgeStart - FLOATS_PER_VERTEX, mVertexData, bridgeStart, FLOATS_PER_VERTEX);
+            for (int i = 1; i < bridge; i++) {
+                System.arraycopy(mVertexData, first * FLOATS_PER_VERTEX, mVertexData,
+                        bridgeStart + i * FLOATS_PER_VERTEX, FLOATS_PER_VERTEX);
+            }
+            mOpenCommand.count += bridge + numVertices;
+        } else {
+            openCommand(GL.GL_TRIANGLE_STRIP, first, numVertices);
+        }
+        mOffset = (first + numVertices) * FLOATS_PER_VERTEX;
+    }
+
+    /** Gets the number of degenerate vertices needed to join a strip to the open command. */
+    private int stripBridgeSize() {
+        if (mOpenCommand == null || mOpenCommand.mode != GL.GL_TRIANGLE_STRIP) {
+            return 0;
+        }
+        return ((mOpenCommand.count & 1) == 0) ? 2 : 3;
+    }
+
+    private void openCommand(int mode, int first, int count) {
+        mOpenCommand = new DrawArraysCommand(mode, first, count);
+        mDrawList.add(mOpenCommand);
+    }
+
+    private void ensureCapacity(int numVertices) {
+        final int required = mOffset + numVertices * FLOATS_PER_VERTEX;
+        if (required > mVertexData.length) {
+            mVertexData = Arrays.copyOf(mVertexData, Math.max(required, mVertexData.length * 2));
+        }
+    }
+
+    /**
+     * Creates a circle that can be rendered with OpenGL ES, with up to
+     * {@link #DEFAULT_LOD_LEVELS} tessellation levels, or just the finest if
+     * {@link ShapeLod} is disabled. Uses triangle fans.
      *
      * @param circle the circle dimensions to create
-     * @param numPoints the number of points around the circle
+     * @param numPoints the number of points around the circle at its finest level
      * @return shape data that can be rendered by OpenGL ES
      */
     public static ShapeData createCircle(Circle circle, int numPoints) {
-        final List<ShapeDrawCommand> drawList = new ArrayList<>();
-        int offset = 0;
+        return createCircle(circle, numPoints, defaultLodLevels());
+    }
+
+    /**
+     * Creates a circle that can be rendered with OpenGL ES. Uses triangle fans.
+     *
+     * @param circle the circle dimensions to create
+     * @param numPoints the number of points around the circle at its finest level
+     * @param maxLevels the most tessellation levels to create, 1 for just the finest
+     * @return shape data that can be rendered by OpenGL ES
+     */
+    public static ShapeData createCircle(Circle circle, int numPoints, int maxLevels) {
+        final int[] points = createLodPoints(numPoints, maxLevels);
+        int numVertices = 0;
+        for (int level = 0; level < points.length; level++) {
+            numVertices += sizeOfCircleInVertices(points[level]);
+        }
+
+        // Every level goes into the one array, finest first
+        final float[] vertexData = new float[numVertices * FLOATS_PER_VERTEX];
+        final DrawArraysCommand[] levels = new DrawArraysCommand[points.length];
+        int first = 0;
+        for (int level = 0; level < points.length; level++) {
+            writeCircleFan(vertexData, first * FLOATS_PER_VERTEX, circle, points[level]);
+            final int count = sizeOfCircleInVertices(points[level]);
+            levels[level] = new DrawArraysCommand(GL.GL_TRIANGLE_FAN, first, count);
+            first += count;
+        }
+        return new ShapeData(vertexData, null, createLodDrawList(levels, points,
+                circle.center.x, circle.center.y, circle.center.z, circle.radius));
+    }
+
+    /**
+     * Creates a cylinder that can be rendered with OpenGL ES, with up to
+     * {@link #DEFAULT_LOD_LEVELS} tessellation levels, or just the finest if
+     * {@link ShapeLod} is disabled. Uses triangle strips.
+     *
+     * @param cylinder the cylinder dimensions to create
+     * @param numPoints the number of points around the cylinder at its finest level
+     * @return shape data that can be rendered by OpenGL ES
+     */
+    public static ShapeData createCylinder(Cylinder cylinder, int numPoints) {
+        return createCylinder(cylinder, numPoints, defaultLodLevels());
+    }
 
-        // Figure out how many vertices we need to represent this circle... equal to
-        // one circle with num points around it.
-        final int startVertex = offset / FLOATS_PER_VERTEX;
-        final int numVertices = sizeOfCircleInVertices(numPoints);
+    /**
+     * Creates a cylinder that can be rendered with OpenGL ES. Uses triangle strips.
+     *
+     * @param cylinder the cylinder dimensions to create
+     * @param numPoints the number of points around the cylinder at its finest level
+     * @param maxLevels the most tessellation levels to create, 1 for just the finest
+     * @return shape data that can be rendered by OpenGL ES
+     */
+    public static ShapeData createCylinder(Cylinder cylinder, int numPoints, int maxLevels) {
+        final int[] points = createLodPoints(numPoints, maxLevels);
+        int numVertices = 0;
+        for (int level = 0; level < points.length; level++) {
+            numVertices += sizeOfOpenCylinderInVertices(points[level]);
+        }
+
+        // The vertices alternate between the bottom and top rims, so each level is a strip
         final float[] vertexData = new float[numVertices * FLOATS_PER_VERTEX];
+        final DrawArraysCommand[] levels = new DrawArraysCommand[points.length];
+        int first = 0;
+        for (int level = 0; level < points.length; level++) {
+            writeOpenCylinder(vertexData, first * FLOATS_PER_VERTEX, cylinder, points[level]);
+            final int count = sizeOfOpenCylinderInVertices(points[level]);
+            levels[level] = new DrawArraysCommand(GL.GL_TRIANGLE_STRIP, first, count);
+            first += count;
+        }
+        return new ShapeData(vertexData, null, createLodDrawList(levels, points,
+                cylinder.center.x, cylinder.center.y, cylinder.center.z, cylinder.radius));
+    }
+
+    private static int defaultLodLevels() {
+        return ShapeLod.isEnabled() ? DEFAULT_LOD_LEVELS : 1;
+    }
 
+    /** Halves the points for each level, until a level would have too few. */
+    private static int[] createLodPoints(int numPoints, int maxLevels) {
+        int numLevels = 1;
+        while (numLevels < maxLevels && (numPoints >> numLevels) >= MIN_LOD_POINTS) {
+            numLevels++;
+        }
+        final int[] points = new int[numLevels];
+        for (int level = 0; level < numLevels; level++) {
+            points[level] = numPoints >> level;
+        }
+        return points;
+    }
+
+    private static List<ShapeDrawCommand> createLodDrawList(DrawArraysCommand[] levels, int[] points,
+                                                            float x, float y, float z, float radius) {
+        final List<ShapeDrawCommand> drawList = new ArrayList<>(1);
+        drawList.add((levels.length == 1) ? levels[0] : new LodDrawCommand(levels, points, x, y, z, radius));
+        return drawList;
+    }
+
+    private static void writeCircleFan(float[] vertexData, int offset, Circle circle, int numPoints) {
         // Center point of fan
         vertexData[offset++] = circle.center.x;
         vertexData[offset++] = circle.center.y;
@@ -80,37 +404,15 @@ public class ShapeBuilder {
             vertexData[offset++] = circle.center.y;
             vertexData[offset++] = circle.center.z + circle.radius * (float)Math.sin(angleInRadians);
         }
-
-        drawList.add(new ShapeDrawCommand() {
-            @Override
-            public void draw() {
-                GLES20.glDrawArrays(GLES20.GL_TRIANGLE_FAN, startVertex, numVertices);
-            }
-        });
-
-        return new ShapeData(vertexData, drawList);
     }
 
-    /**
-     * Creates a cylinder that can be rendered with OpenGL ES. Uses a triangle fan.
-     *
-     * @param cylinder the cylinder dimensions to create
-     * @param numPoints the number of points around the cylinder
-     * @return shape data that can be rendered by OpenGL ES
-     */
-    public static ShapeData createCylinder(Cylinder cylinder, int numPoints) {
-        final List<ShapeDrawCommand> drawList = new ArrayList<>();
-        int offset = 0;
-
-        final int startVertex = offset / FLOATS_PER_VERTEX;
-        final int numVertices = sizeOfOpenCylinderInVertices(numPoints);
-        final float[] vertexData = new float[numVertices * FLOATS_PER_VERTEX];
-
+    private static void writeOpenCylinder(float[] vertexData, int offset, Cylinder cylinder, int numPoints) {
         final float yStart = cylinder.center.y - (cylinder.height / 2f);
         final float yEnd = cylinder.center.y + (cylinder.height / 2f);
 
         for (int i = 0; i <= numPoints; i++) {
-            final float angleInRadians = ((float)i / (float)numPoints) * ((float)Math.PI * 2f);
+            // The last point reuses angle 0 exactly, so the seam welds when indexed
+            final float angleInRadians = ((float)(i % numPoints) / (float)numPoints) * ((float)Math.PI * 2f);
             final float xPos = cylinder.center.x + cylinder.radius * (float)Math.cos(angleInRadians);
             final float zPos = cylinder.center.z + cylinder.radius * (float)Math.sin(angleInRadians);
 
@@ -122,15 +424,6 @@ public class ShapeBuilder {
             vertexData[offset++] = yEnd;
             vertexData[offset++] = zPos;
         }
-
-        drawList.add(new ShapeDrawCommand() {
-            @Override
-            public void draw() {
-                GLES20.glDrawArrays(GLES20.GL_TRIANGLE_FAN, startVertex, numVertices);
-            }
-        });
-
-        return new ShapeData(vertexData, drawList);
     }
 
     public static int sizeOfCircleInVertices(int numPoints) {
@@ -141,17 +434,60 @@ public class ShapeBuilder {
         return (numPoints + 1) * 2;
     }
 
+    /** Size of a circle appended to a builder, which needs no center or repeated rim point. */
+    public static int sizeOfCircleStripInVertices(int numPoints) {
+        return numPoints;
+    }
+
+    /** Size of a strip appended to a builder, including the most degenerate vertices it may need. */
+    public static int sizeOfStitchedStripInVertices(int numVertices) {
+        return numVertices + 3;
+    }
+
 
     /**
      * Structure holding the drawing information for a complex shape.
+     *
+     * Indexed shapes also carry index data, which must be uploaded into a
+     * {@link com.tylersuehr.enginej.buffers.GPUIndexBuffer} and bound before drawing.
+     *
+     * The bounds are computed from the vertices when the shape is built, in the shape's own
+     * space; see {@link Bounds} to transform them into world space for culling.
      */
     public static class ShapeData {
         public final float[] vertexData;
+        public final short[] indexData;
         public final List<ShapeDrawCommand> drawList;
+        /** Axis-aligned box around the vertices, see {@link Bounds#BOX_SIZE}. */
+        public final float[] boundingBox = new float[Bounds.BOX_SIZE];
+        /** Sphere around the vertices, see {@link GeoMath#SPHERE_SIZE}. */
+        public final float[] boundingSphere = new float[GeoMath.SPHERE_SIZE];
 
-        ShapeData(float[] vertexData, List<ShapeDrawCommand> drawList) {
+        ShapeData(float[] vertexData, short[] indexData, List<ShapeDrawCommand> drawList) {
             this.vertexData = vertexData;
+            this.indexData = indexData;
             this.drawList = drawList;
+
+            final int numVertices = vertexData.length / FLOATS_PER_VERTEX;
+            Bounds.computeBox(boundingBox, 0, vertexData, 0, numVertices, FLOATS_PER_VERTEX);
+            Bounds.computeSphere(boundingSphere, 0, vertexData, 0, numVertices, FLOATS_PER_VERTEX);
+        }
+
+        public boolean isIndexed() {
+            return indexData != null;
+        }
+
+        public int getVertexCount() {
+            return vertexData.length / FLOATS_PER_VERTEX;
+        }
+
+        /**
+         * Runs every draw command of this shape, in order.
+         */
+        public void draw() {
+            for (int i = 0, size = drawList.size(); i < size; i++) {
+                drawList.get(i).draw();
+            }
         }
     }
 
@@ -161,4 +497,164 @@ public class ShapeBuilder {
     public interface ShapeDrawCommand {
         void draw();
     }
+
+    /**
+     * Draw command for a range of non-indexed vertices (glDrawArrays).
+     */
+    public static final class DrawArraysCommand implements ShapeDrawCommand {
+        public final int mode;
+        public final int first;
+        int count;
+
+        DrawArraysCommand(int mode, int first, int count) {
+            this.mode = mode;
+            this.first = first;
+            this.count = count;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void draw() {
+            GL.glDrawArrays(mode, first, count);
+            Profiler.countDraw(count);
+        }
+    }
+
+    /**
+     * Draw command for a range of indexed vertices (glDrawElements). The index buffer must
+     * be bound to GL_ELEMENT_ARRAY_BUFFER when this is drawn.
+     */
+    public static final class DrawElementsCommand implements ShapeDrawCommand {
+        public final int mode;
+        public final int count;
+        public final int type;
+        public final int byteOffset;
+
+        public DrawElementsCommand(int mode, int count, int type, int byteOffset) {
+            this.mode = mode;
+            this.count = count;
+            this.type = type;
+            this.byteOffset = byteOffset;
+        }
+
+        @Override
+        public void draw() {
+            GL.glDrawElements(mode, count, type, byteOffset);
+            Profiler.countDraw(count);
+        }
+    }
+
+    /**
+     * Draw command for a shape with several tessellation levels, which draws the level that
+     * suits the shape's size on screen. Each level is its own range of the vertex array.
+     *
+     * Switching to a finer level happens as soon as the shape needs it, but switching to a
+     * coarser one waits until the shape is {@link ShapeLod#HYSTERESIS} smaller than that
+     * level needs, so a shape at the edge between two levels doesn't flicker between them.
+     *
+     * {@link #draw()} keeps the level drawn last on this command, so it assumes the shape is
+     * one instance on screen. To draw one shape in several places, keep a level for each
+     * instance and draw with {@link #draw(int)} instead.
+     */
+    public static final class LodDrawCommand implements ShapeDrawCommand {
+        private final DrawArraysCommand[] mLevels;
+        private final int[] mPoints;
+        private final float mCenterX;
+        private final float mCenterY;
+        private final float mCenterZ;
+        private final float mRadius;
+        /* The level drawn last by draw() */
+        private int mLevel = 0;
+
+        LodDrawCommand(DrawArraysCommand[] levels, int[] points, float x, float y, float z, float radius) {
+            mLevels = levels;
+            mPoints = points;
+            mCenterX = x;
+            mCenterY = y;
+            mCenterZ = z;
+            mRadius = radius;
+        }
+
+        public int getLevelCount() {
+            return mLevels.length;
+        }
+
+        /**
+         * Gets the draw command of a level.
+         * @param level the level, where 0 is the finest
+         * @return the level's draw command
+         */
+        public DrawArraysCommand getLevel(int level) {
+            return mLevels[level];
+        }
+
+        public int getPointsAt(int level) {
+            return mPoints[level];
+        }
+
+        /**
+         * Gets the level drawn last by {@link #draw()}.
+         * @return the level, where 0 is the finest
+         */
+        public int getCurrentLevel() {
+            return mLevel;
+        }
+
+        /**
+         * Chooses the level to draw from the shape's size on screen, and remembers it for the
+         * next call.
+         * @return the level, where 0 is the finest
+         */
+        public int selectLevel() {
+            mLevel = selectLevel(mLevel);
+            return mLevel;
+        }
+
+        /**
+         * Chooses the level to draw from the shape's size on screen, without changing this
+         * command.
+         *
+         * @param lastLevel the level this instance was drawn at last, or 0 if never drawn
+         * @return the level, where 0 is the finest
+         */
+        public int selectLevel(int lastLevel) {
+            final float required = ShapeLod.requiredPoints(mCenterX, mCenterY, mCenterZ, mRadius);
+            if (required < 0f) {
+                return 0;
+            }
+            int level = coarsestLevelWith(required);
+            if (level > lastLevel) {
+                level = Math.max(lastLevel, coarsestLevelWith(required * (1f + ShapeLod.HYSTERESIS)));
+            }
+            return level;
+        }
+
+        @Override
+        public void draw() {
+            mLevels[selectLevel()].draw();
+        }
+
+        /**
+         * Draws the level that suits one instance of this shape.
+         *
+         * @param lastLevel the level the instance was drawn at last, or 0 if never drawn
+         * @return the level drawn, to pass in the next time the instance is drawn
+         */
+        public int draw(int lastLevel) {
+            final int level = selectLevel(lastLevel);
+            mLevels[level].draw();
+            return level;
+        }
+
+        private int coarsestLevelWith(float requiredPoints) {
+            int level = 0;
+            while (level + 1 < mPoints.length && mPoints[level + 1] >= requiredPoints) {
+                level++;
+            }
+            return level;
+        }
+    }
 }
\ No newline at end of file
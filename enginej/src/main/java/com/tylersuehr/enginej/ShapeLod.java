@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej;
+
+import com.tylersuehr.enginej.geometry.Mat4;
+
+/**
+ * Chooses the tessellation level of procedural shapes from their size on screen, so distant
+ * circles and cylinders draw with far fewer vertices than close ones.
+ *
+ * {@link ShapeBuilder#createCircle(com.tylersuehr.enginej.geometry.Circle, int)} and
+ * {@link ShapeBuilder#createCylinder(com.tylersuehr.enginej.geometry.Cylinder, int)} build
+ * every level into the shape's one vertex array, and the shape's draw command picks a level
+ * each time it's drawn. Each level has half the points of the last, so the extra levels
+ * nearly double a shape's vertex data and upload; games that would rather not pay for that
+ * can turn levels off with {@link #setEnabled(boolean)}. A level is chosen so each segment of the
+ * rim spans about {@link #setSegmentPixels(float)} pixels, never finer than the shape was
+ * created with.
+ *
+ * The level comes from the matrix that takes the shape to clip space, set with
+ * {@link #setTransform(float[], int)}: the camera's view-projection once per frame for
+ * shapes built in place, or the full model-view-projection before drawing a shape that is
+ * moved by a model matrix. Until a transform is set, shapes draw at their finest level. The
+ * viewport comes from {@link AbstractGameRenderer}.
+ *
+ * Like OpenGL ES itself, this must only be used from the GL thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class ShapeLod {
+    /** Default length of a rim segment on screen, in pixels. */
+    public static final float DEFAULT_SEGMENT_PIXELS = 8f;
+    /** How much smaller a shape must get than a coarser level needs before switching to it. */
+    public static final float HYSTERESIS = 0.2f;
+
+    private static final float[] sTransform = new float[Mat4.SIZE];
+    /* Length of the transform's y row, which holds both the model's scale and the projection's */
+    private static float sTransformScale;
+    private static boolean sHasTransform = false;
+    private static boolean sEnabled = true;
+    private static int sViewportHeight = 0;
+    private static float sSegmentPixels = DEFAULT_SEGMENT_PIXELS;
+
+
+    private ShapeLod() {}
+
+    /**
+     * Sets whether circles and cylinders created from now on get tessellation levels, which
+     * they do by default. Shapes already created keep the levels they have.
+     *
+     * @param enabled true to build {@link ShapeBuilder#DEFAULT_LOD_LEVELS} levels per shape,
+     *                false to build only the finest
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Sets the viewport that shapes are drawn into.
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public static void setViewport(int width, int height) {
+        sViewportHeight = height;
+    }
+
+    /**
+     * Sets the matrix that takes the shapes about to be drawn into clip space.
+     *
+     * @param m the column-major matrix
+     * @param offset the index of the first matrix value
+     */
+    public static void setTransform(float[] m, int offset) {
+        System.arraycopy(m, offset, sTransform, 0, Mat4.SIZE);
+        sTransformScale = (float)Math.sqrt((m[offset + 1] * m[offset + 1]) + (m[offset + 5] * m[offset + 5])
+                + (m[offset + 9] * m[offset + 9]));
+        sHasTransform = true;
+    }
+
+    /**
+     * Forgets the transform, so shapes draw at their finest level again.
+     */
+    public static void clearTransform() {
+        sHasTransform = false;
+    }
+
+    /**
+     * Sets how long a rim segment should be on screen. Smaller values keep more detail.
+     * @param pixels the length in pixels
+     */
+    public static void setSegmentPixels(float pixels) {
+        sSegmentPixels = pixels;
+    }
+
+    /**
+     * Computes how many points a ring needs around its rim to look round on screen.
+     *
+     * The projected radius is the radius scaled like the transform scales y, divided by the
+     * depth of the ring's center.
+     *
+     * @return the number of points, or -1 if unknown or the ring fills the view
+     */
+    static float requiredPoints(float x, float y, float z, float radius) {
+        if (!sHasTransform || sViewportHeight <= 0) {
+            return -1f;
+        }
+        final float[] m = sTransform;
+        final float w = (m[3] * x) + (m[7] * y) + (m[11] * z) + m[15];
+        final float scale = sTransformScale;
+        if (w <= radius * scale) {
+            return -1f;
+        }
+        final float radiusInPixels = (radius * scale / w) * (sViewportHeight * 0.5f);
+        return ((float)Math.PI * 2f * radiusInPixels) / sSegmentPixels;
+    }
+}
@@ -28,11 +28,16 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.support.annotation.DrawableRes;
 import android.util.Log;
 
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * A utility for helping with common texture methods and computations.
  * @author Tyler Suehr
@@ -77,14 +82,6 @@ public final class TextureUtils {
      * @return the pointer to the OpenGL ES texture object or 0 if failed
      */
     public static int loadCubeMap(Context c, int[] textureResIds) {
-        // Create a new OpenGL ES texture object
-        final int[] textures = new int[1];
-        GLES20.glGenTextures(1, textures, 0);
-        if (textures[0] == 0) {
-            Log.wtf(TAG, "Could not generate a new texture object!");
-            return 0;
-        }
-
         // OpenGL ES doesn't understand typical image encoding like PNG or JPG, so we
         // need to use Android APIs to get the raw image data itself.
         final BitmapFactory.Options ops = new BitmapFactory.Options();
@@ -96,32 +93,55 @@ public final class TextureUtils {
             cubeBitmaps[i] = BitmapFactory.decodeResource(res, textureResIds[i], ops);
             if (cubeBitmaps[i] == null) {
                 Log.wtf(TAG, "Bitmap resource could not be decoded!");
-                GLES20.glDeleteTextures(1, textures, 0);
+                for (int j = 0; j < i; j++) {
+                    cubeBitmaps[j].recycle();
+                }
                 return 0;
             }
         }
 
+        final int texture = createCubeMap(cubeBitmaps);
+        for (Bitmap bmp : cubeBitmaps) {
+            bmp.recycle();
+        }
+        return texture;
+    }
+
+    /**
+     * Creates an OpenGL ES cube map texture object from already decoded Bitmaps. The Bitmaps
+     * are not recycled.
+     *
+     * @param cubeBitmaps the faces in order: -X, +X, -Y, +Y, -Z, +Z
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int createCubeMap(Bitmap[] cubeBitmaps) {
+        // Create a new OpenGL ES texture object
+        final int[] textures = new int[1];
+        GL.glGenTextures(1, textures, 0);
+        if (textures[0] == 0) {
+            Log.wtf(TAG, "Could not generate a new texture object!");
+            return 0;
+        }
+
         // Apply texture calls to the above created texture
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, textures[0]);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_CUBE_MAP, textures[0]);
 
         // Set the texture filtering for both minification and magnification as bilinear
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_CUBE_MAP, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_CUBE_MAP, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GL.glTexParameteri(GL.GL_TEXTURE_CUBE_MAP, GL.GL_TEXTURE_MIN_FILTER, GL.GL_LINEAR);
+        GL.glTexParameteri(GL.GL_TEXTURE_CUBE_MAP, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
 
         // Associate each image with appropriate face of cube
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_NEGATIVE_X, 0, cubeBitmaps[0], 0);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_POSITIVE_X, 0, cubeBitmaps[1], 0);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y, 0, cubeBitmaps[2], 0);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_POSITIVE_Y, 0, cubeBitmaps[3], 0);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z, 0, cubeBitmaps[4], 0);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, 0, cubeBitmaps[5], 0);
-
-        // Unbind the texture and recycle the bitmaps
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_CUBE_MAP, 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_NEGATIVE_X, 0, cubeBitmaps[0], 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_POSITIVE_X, 0, cubeBitmaps[1], 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y, 0, cubeBitmaps[2], 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_POSITIVE_Y, 0, cubeBitmaps[3], 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z, 0, cubeBitmaps[4], 0);
+        GL.texImage2D(GL.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, 0, cubeBitmaps[5], 0);
         for (Bitmap bmp : cubeBitmaps) {
-            bmp.recycle();
+            Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, bmp.getByteCount());
         }
 
+        // The texture stays bound, which GLStateCache keeps track of
         return textures[0];
     }
 
@@ -135,14 +155,6 @@ public final class TextureUtils {
      * @return the pointer to the OpenGL ES texture object or 0 if failed
      */
     public static int loadTexture(Context c, @DrawableRes int textureResId, boolean wrapSV) {
-        // Create a new OpenGL ES texture object
-        final int[] textures = new int[1];
-        GLES20.glGenTextures(1, textures, 0);
-        if (textures[0] == 0) {
-            Log.wtf(TAG, "Could not create new OpenGL ES texture object!");
-            return 0;
-        }
-
         // OpenGL ES doesn't understand typical image encoding like PNG or JPG, so we
         // need to use Android APIs to get the raw image data itself.
         final BitmapFactory.Options ops = new BitmapFactory.Options();
@@ -151,34 +163,128 @@ public final class TextureUtils {
         final Bitmap bmp = BitmapFactory.decodeResource(c.getResources(), textureResId, ops);
         if (bmp == null) {
             Log.wtf(TAG, "Bitmap resource could not be decoded!");
-            GLES20.glDeleteTextures(1, textures, 0);
+            return 0;
+        }
+
+        final int texture = createTexture(bmp, wrapSV);
+        bmp.recycle();
+        return texture;
+    }
+
+    /**
+     * Creates a new mipmapped OpenGL ES texture object from an already decoded Bitmap. The
+     * Bitmap is not recycled.
+     *
+     * @param bmp the decoded image
+     * @param wrapSV true if texture should not be repeated
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int createTexture(Bitmap bmp, boolean wrapSV) {
+        return createTexture(bmp, wrapSV, true);
+    }
+
+    /**
+     * Creates a new OpenGL ES texture object from an already decoded Bitmap. The Bitmap is
+     * not recycled.
+     *
+     * @param bmp the decoded image
+     * @param wrapSV true if texture should not be repeated
+     * @param mipmap true to generate mip levels and filter trilinearly, false for bilinear
+     *               filtering of the base level only
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int createTexture(Bitmap bmp, boolean wrapSV, boolean mipmap) {
+        // Create a new OpenGL ES texture object
+        final int[] textures = new int[1];
+        GL.glGenTextures(1, textures, 0);
+        if (textures[0] == 0) {
+            Log.wtf(TAG, "Could not create new OpenGL ES texture object!");
             return 0;
         }
 
         // Apply texture calls to the object just created
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, textures[0]);
 
-        // Set the texture filtering for minification to trilinear filtering and
-        // magnification to bilinear filtering.
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        // Set the texture filtering for minification to trilinear filtering (or bilinear
+        // without mipmaps) and magnification to bilinear filtering.
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER,
+                mipmap ? GL.GL_LINEAR_MIPMAP_LINEAR : GL.GL_LINEAR);
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
 
         if (wrapSV) {
             // Prevents duplicating texture
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+            GL.glTexParameterf(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+            GL.glTexParameterf(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
         }
 
-        // Load the bitmap data into OpenGL ES and recycle the bitmap
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, bmp, 0);
-        bmp.recycle();
+        // Load the bitmap data into OpenGL ES
+        GL.texImage2D(GL.GL_TEXTURE_2D, 0, bmp, 0);
+        Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, bmp.getByteCount());
 
-        // Tell OpenGL ES to generate all of the necessary levels
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        if (mipmap) {
+            // Tell OpenGL ES to generate all of the necessary levels
+            GL.glGenerateMipmap(GL.GL_TEXTURE_2D);
+        }
 
-        // Unbind for the texture
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        return textures[0];
+    }
+
+    /**
+     * Creates a 1x1 OpenGL ES texture object filled with a single color, like for a placeholder
+     * while the real texture loads.
+     *
+     * @param argb the color, packed as 0xAARRGGBB
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int createSolidTexture(int argb) {
+        final int[] textures = new int[1];
+        GL.glGenTextures(1, textures, 0);
+        if (textures[0] == 0) {
+            Log.wtf(TAG, "Could not create new OpenGL ES texture object!");
+            return 0;
+        }
+
+        final ByteBuffer pixel = createPixel(argb);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, textures[0]);
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER, GL.GL_NEAREST);
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_NEAREST);
+        GL.glTexImage2D(GL.GL_TEXTURE_2D, 0, GL.GL_RGBA, 1, 1, 0,
+                GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixel);
 
         return textures[0];
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates a cube map OpenGL ES texture object with 1x1 faces all filled with a single
+     * color, like for a placeholder while a real cube map loads.
+     *
+     * @param argb the color, packed as 0xAARRGGBB
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int createSolidCubeMap(int argb) {
+        final int[] textures = new int[1];
+        GL.glGenTextures(1, textures, 0);
+        if (textures[0] == 0) {
+            Log.wtf(TAG, "Could not create new OpenGL ES texture object!");
+            return 0;
+        }
+
+        final ByteBuffer pixel = createPixel(argb);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_CUBE_MAP, textures[0]);
+        GL.glTexParameteri(GL.GL_TEXTURE_CUBE_MAP, GL.GL_TEXTURE_MIN_FILTER, GL.GL_NEAREST);
+        GL.glTexParameteri(GL.GL_TEXTURE_CUBE_MAP, GL.GL_TEXTURE_MAG_FILTER, GL.GL_NEAREST);
+        for (int face = 0; face < 6; face++) {
+            GL.glTexImage2D(GL.GL_TEXTURE_CUBE_MAP_POSITIVE_X + face, 0, GL.GL_RGBA, 1, 1, 0,
+                    GL.GL_RGBA, GL.GL_UNSIGNED_BYTE, pixel);
+        }
+
+        return textures[0];
+    }
+
+    private static ByteBuffer createPixel(int argb) {
+        final ByteBuffer pixel = ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder());
+        pixel.put((byte)(argb >>> 16)).put((byte)(argb >>> 8)).put((byte)argb).put((byte)(argb >>> 24));
+        pixel.position(0);
+        return pixel;
+    }
+}
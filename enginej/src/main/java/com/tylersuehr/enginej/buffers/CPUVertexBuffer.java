@@ -1,8 +1,8 @@
 package com.tylersuehr.enginej.buffers;
 
-import android.opengl.GLES20;
-
 import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
@@ -10,6 +10,11 @@ import java.nio.FloatBuffer;
 
 /**
  * Stores native floating-point memory using typical CPU memory allocation.
+ *
+ * The memory is client-side, so the driver copies it on every draw. Prefer
+ * {@link GPUVertexBuffer} for data that never changes and {@link DynamicVertexBuffer} for
+ * data that does.
+ *
  * @author Tyler Suehr
  */
 public class CPUVertexBuffer implements GLShaderBuffer {
@@ -27,15 +32,24 @@ public class CPUVertexBuffer implements GLShaderBuffer {
 
     @Override
     public void setVertexAttr(int dataOffset, int attrLoc, int compCount, int stride) {
+        // Client-side arrays only work while no GPU buffer is bound
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, 0);
         mVertexBuffer.position(dataOffset);
-        GLES20.glVertexAttribPointer(attrLoc, compCount, GLES20.GL_FLOAT, false, stride, mVertexBuffer);
-        GLES20.glEnableVertexAttribArray(attrLoc);
+        GL.glVertexAttribPointer(attrLoc, compCount, GL.GL_FLOAT, false, stride, mVertexBuffer);
+        GLStateCache.enableVertexAttribArray(attrLoc);
         mVertexBuffer.position(0);
     }
 
+    /**
+     * Replaces a run of the vertex data.
+     *
+     * @param vertexData the new vertex data, laid out like the data this buffer was created with
+     * @param start the first float to replace, in both the array and this buffer
+     * @param count the number of floats to replace
+     */
     public void updateVertexData(float[] vertexData, int start, int count) {
         mVertexBuffer.position(start);
-        mVertexBuffer.put(start, count);
+        mVertexBuffer.put(vertexData, start, count);
         mVertexBuffer.position(0);
     }
 
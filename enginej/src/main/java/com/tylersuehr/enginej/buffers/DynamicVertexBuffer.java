@@ -0,0 +1,263 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.buffers;
+
+import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Stores vertex data that changes while the app runs, unlike {@link GPUVertexBuffer}.
+ *
+ * Writes go into a native copy of the buffer and mark the range they touch as dirty;
+ * {@link #flush()} uploads only the dirty range with one glBufferSubData call. Data that is
+ * rewritten every frame, like sprites or particles, should instead be streamed: each
+ * {@link #allocate(int)} hands out the next free range of a ring, so a frame's draws never
+ * overwrite data an earlier draw may still be reading. When the ring is full it starts over
+ * on a fresh buffer: with one buffer the old storage is orphaned, letting the driver keep it
+ * until the GPU is done; with several, the buffers are used in rotation, which avoids relying
+ * on the driver handling orphaning well.
+ *
+ * Streaming usage:
+ * <pre>
+ *     final int offset = buffer.allocate(numBytes);
+ *     buffer.put(offset, vertexData, 0, numInts);
+ *     buffer.flush();
+ *     buffer.setVertexAttr(offset, aPositionLoc, 2, stride);
+ *     // ...draw...
+ * </pre>
+ * Draw an allocation before making the next one, since the next one may move to another
+ * buffer.
+ *
+ * @author Tyler Suehr
+ */
+public class DynamicVertexBuffer extends GPUShaderBuffer {
+    private final int[] mBufferIds;
+    private final int mCapacity;
+    private final int mUsage;
+
+    /* Native copy of the current buffer; views share its memory */
+    private final ByteBuffer mData;
+    private final IntBuffer mInts;
+    private final FloatBuffer mFloats;
+
+    private int mCurrent = 0;
+    private int mHead = 0;
+    private int mDirtyStart = Integer.MAX_VALUE;
+    private int mDirtyEnd = 0;
+
+    /* Statistics since the last call to resetStats() */
+    private long mBytesUploaded = 0;
+    private int mUploads = 0;
+    private int mWraps = 0;
+
+
+    /**
+     * @param capacityBytes the size of each buffer in bytes
+     * @param bufferCount the number of buffers to rotate through, or 1 to orphan instead
+     * @param usage {@link GL#GL_DYNAMIC_DRAW} for data that changes now and then, or
+     *              {@link GL#GL_STREAM_DRAW} for data rewritten every frame
+     */
+    public DynamicVertexBuffer(int capacityBytes, int bufferCount, int usage) {
+        if (capacityBytes < EngineUtils.BYTES_PER_FLOAT || bufferCount < 1) {
+            throw new IllegalArgumentException("Buffer needs a positive capacity and buffer count!");
+        }
+        if (usage != GL.GL_DYNAMIC_DRAW && usage != GL.GL_STREAM_DRAW) {
+            throw new IllegalArgumentException("Usage must be GL_DYNAMIC_DRAW or GL_STREAM_DRAW!");
+        }
+        mCapacity = capacityBytes & ~(EngineUtils.BYTES_PER_FLOAT - 1);
+        mUsage = usage;
+        mData = ByteBuffer.allocateDirect(mCapacity).order(ByteOrder.nativeOrder());
+        mInts = mData.asIntBuffer();
+        mFloats = mData.asFloatBuffer();
+
+        mBufferIds = new int[bufferCount];
+        GL.glGenBuffers(bufferCount, mBufferIds, 0);
+        for (int id : mBufferIds) {
+            if (id == 0) {
+                throw new RuntimeException("Could not create new OpenGL ES buffer!");
+            }
+            GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, id);
+            GL.glBufferData(GL.GL_ARRAY_BUFFER, mCapacity, null, usage);
+        }
+    }
+
+    /**
+     * Reserves the next range of the ring, starting over on a fresh buffer if it doesn't fit.
+     *
+     * @param numBytes the size of the range, at most the capacity
+     * @return the byte offset of the range, which is always a multiple of 4
+     */
+    public int allocate(int numBytes) {
+        final int size = (numBytes + EngineUtils.BYTES_PER_FLOAT - 1) & ~(EngineUtils.BYTES_PER_FLOAT - 1);
+        if (size > mCapacity || size < 0) {
+            throw new IllegalArgumentException("Can't allocate " + numBytes + " bytes from a buffer of "
+                    + mCapacity + "!");
+        }
+        if (mHead + size > mCapacity) {
+            wrap();
+        }
+        final int offset = mHead;
+        mHead += size;
+        return offset;
+    }
+
+    /**
+     * Writes ints, or floats stored as their raw bits, into the buffer.
+     *
+     * @param byteOffset where to write in the buffer, a multiple of 4
+     * @param data the array to copy from
+     * @param start the first element to copy
+     * @param count the number of elements to copy
+     */
+    public void put(int byteOffset, int[] data, int start, int count) {
+        mInts.position(byteOffset / EngineUtils.BYTES_PER_INT);
+        mInts.put(data, start, count);
+        markDirty(byteOffset, count * EngineUtils.BYTES_PER_INT);
+    }
+
+    /**
+     * Writes floats into the buffer.
+     *
+     * @param byteOffset where to write in the buffer, a multiple of 4
+     * @param data the array to copy from
+     * @param start the first element to copy
+     * @param count the number of elements to copy
+     */
+    public void put(int byteOffset, float[] data, int start, int count) {
+        mFloats.position(byteOffset / EngineUtils.BYTES_PER_FLOAT);
+        mFloats.put(data, start, count);
+        markDirty(byteOffset, count * EngineUtils.BYTES_PER_FLOAT);
+    }
+
+    /**
+     * Uploads everything written since the last flush with one glBufferSubData call,
+     * covering the smallest range that spans every write. Does nothing if nothing changed.
+     */
+    public void flush() {
+        if (mDirtyEnd <= mDirtyStart) {
+            return;
+        }
+        final int size = mDirtyEnd - mDirtyStart;
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, mBufferIds[mCurrent]);
+        mData.position(mDirtyStart);
+        GL.glBufferSubData(GL.GL_ARRAY_BUFFER, mDirtyStart, size, mData);
+        mData.position(0);
+        Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, size);
+
+        mBytesUploaded += size;
+        mUploads++;
+        mDirtyStart = Integer.MAX_VALUE;
+        mDirtyEnd = 0;
+    }
+
+    @Override
+    public void setVertexAttr(int dataOffset, int attrLoc, int compCount, int stride) {
+        setVertexAttr(dataOffset, attrLoc, compCount, GL.GL_FLOAT, false, stride);
+    }
+
+    /**
+     * Associates data of any type with an attribute variable, like colors packed into
+     * normalized unsigned bytes.
+     *
+     * @param dataOffset the byte offset of the first vertex's component
+     * @param attrLoc the pointer to the attribute variable
+     * @param compCount the number of components in a vertex
+     * @param type the type of the components, like {@link GL#GL_UNSIGNED_BYTE}
+     * @param normalized true to map integer components to [0, 1] or [-1, 1]
+     * @param stride the stride of a vertex in bytes
+     */
+    public void setVertexAttr(int dataOffset, int attrLoc, int compCount, int type,
+                              boolean normalized, int stride) {
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, mBufferIds[mCurrent]);
+        GL.glVertexAttribPointer(attrLoc, compCount, type, normalized, stride, dataOffset);
+        GLStateCache.enableVertexAttribArray(attrLoc);
+    }
+
+    /**
+     * Deletes the GPU buffers. The buffer cannot be used afterwards.
+     */
+    public void release() {
+        for (int id : mBufferIds) {
+            GLStateCache.deleteBuffer(id);
+        }
+    }
+
+    @Override
+    public int getBufferId() {
+        return mBufferIds[mCurrent];
+    }
+
+    /** Gets the size of each buffer in bytes. */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /** Gets the bytes uploaded since the last call to {@link #resetStats()}. */
+    public long getBytesUploaded() {
+        return mBytesUploaded;
+    }
+
+    /** Gets the glBufferSubData calls made since the last call to {@link #resetStats()}. */
+    public int getUploadCount() {
+        return mUploads;
+    }
+
+    /** Gets how often the ring started over since the last call to {@link #resetStats()}. */
+    public int getWrapCount() {
+        return mWraps;
+    }
+
+    /** Resets the statistics, usually once per frame. */
+    public void resetStats() {
+        mBytesUploaded = 0;
+        mUploads = 0;
+        mWraps = 0;
+    }
+
+    private void markDirty(int byteOffset, int numBytes) {
+        mDirtyStart = Math.min(mDirtyStart, byteOffset);
+        mDirtyEnd = Math.max(mDirtyEnd, byteOffset + numBytes);
+    }
+
+    private void wrap() {
+        // Anything still pending belongs to the buffer being left
+        flush();
+        mHead = 0;
+        mWraps++;
+        if (mBufferIds.length == 1) {
+            GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, mBufferIds[0]);
+            GL.glBufferData(GL.GL_ARRAY_BUFFER, mCapacity, null, mUsage);
+        } else {
+            mCurrent = (mCurrent + 1) % mBufferIds.length;
+        }
+    }
+}
@@ -24,31 +24,34 @@
 
 package com.tylersuehr.enginej.buffers;
 
-import android.opengl.GLES20;
-
 import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.mesh.MeshData;
+import com.tylersuehr.enginej.profiling.Profiler;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
 /**
  * Stores pointer to the GPU buffer that holds the index data.
+ *
+ * Index data is not a vertex attribute: bind it to GL_ELEMENT_ARRAY_BUFFER with
+ * {@link #bind()} and draw with {@link #draw(int)}, or use a
+ * {@link com.tylersuehr.enginej.ShapeBuilder.DrawElementsCommand}.
+ *
  * @author Tyler Suehr
  */
-public class GPUIndexBuffer extends GPUShaderBuffer {
+public class GPUIndexBuffer extends GPUBuffer {
     private final int mBufferId;
+    private final int mIndexCount;
+    private final int mIndexType;
 
 
     public GPUIndexBuffer(final short[] indexData) {
-        // Create the GPU buffer
-        final int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        if (buffers[0] == 0) {
-            throw new RuntimeException("Could not create new OpenGL ES buffer!");
-        }
-        mBufferId = buffers[0];
-
         // Send short VM memory into native memory on CPU
         final ShortBuffer indexBuffer = ByteBuffer
                 .allocateDirect(indexData.length * EngineUtils.BYTES_PER_SHORT)
@@ -57,20 +60,90 @@ public class GPUIndexBuffer extends GPUShaderBuffer {
                 .put(indexData);
         indexBuffer.position(0);
 
+        mIndexCount = indexData.length;
+        mIndexType = GL.GL_UNSIGNED_SHORT;
+        mBufferId = upload(indexBuffer, indexData.length * EngineUtils.BYTES_PER_SHORT);
+    }
+
+    /**
+     * Constructs with 32-bit indices. Drawing these requires the OES_element_index_uint
+     * extension on OpenGL ES 2.0, so prefer short indices whenever the mesh allows it.
+     */
+    public GPUIndexBuffer(final int[] indexData) {
+        final IntBuffer indexBuffer = ByteBuffer
+                .allocateDirect(indexData.length * EngineUtils.BYTES_PER_INT)
+                .order(ByteOrder.nativeOrder())
+                .asIntBuffer()
+                .put(indexData);
+        indexBuffer.position(0);
+
+        mIndexCount = indexData.length;
+        mIndexType = GL.GL_UNSIGNED_INT;
+        mBufferId = upload(indexBuffer, indexData.length * EngineUtils.BYTES_PER_INT);
+    }
+
+    /**
+     * Creates an index buffer for a mesh, using short indices whenever the mesh allows it.
+     *
+     * @param mesh the indexed mesh
+     * @return the GPU index buffer
+     */
+    public static GPUIndexBuffer create(MeshData mesh) {
+        return mesh.canUseShortIndices()
+                ? new GPUIndexBuffer(mesh.toShortIndices())
+                : new GPUIndexBuffer(mesh.indexData);
+    }
+
+    private static int upload(Buffer indexBuffer, int sizeInBytes) {
+        // Create the GPU buffer
+        final int[] buffers = new int[1];
+        GL.glGenBuffers(1, buffers, 0);
+        if (buffers[0] == 0) {
+            throw new RuntimeException("Could not create new OpenGL ES buffer!");
+        }
+
         // Send native memory from CPU to the GPU buffer
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mBufferId);
-        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER,
-                indexBuffer.capacity() * EngineUtils.BYTES_PER_SHORT,
-                indexBuffer, GLES20.GL_STATIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GLStateCache.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, buffers[0]);
+        GL.glBufferData(GL.GL_ELEMENT_ARRAY_BUFFER, sizeInBytes, indexBuffer, GL.GL_STATIC_DRAW);
+        Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, sizeInBytes);
+        return buffers[0];
     }
 
+    /**
+     * Binds this buffer as the current GL_ELEMENT_ARRAY_BUFFER.
+     */
     @Override
-    public void setVertexAttr(int dataOffset, int attrLoc, int compCount, int stride) {
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mBufferId);
-        GLES20.glVertexAttribPointer(attrLoc, compCount, GLES20.GL_UNSIGNED_SHORT, false, stride, dataOffset);
-        GLES20.glEnableVertexAttribArray(attrLoc);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    public void bind() {
+        GLStateCache.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, mBufferId);
+    }
+
+    /**
+     * Unbinds any GL_ELEMENT_ARRAY_BUFFER.
+     */
+    public void unbind() {
+        GLStateCache.bindBuffer(GL.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Binds this buffer and draws all of its indices.
+     * @param mode the primitive type, like {@link GL#GL_TRIANGLES}
+     */
+    public void draw(int mode) {
+        bind();
+        GL.glDrawElements(mode, mIndexCount, mIndexType, 0);
+        Profiler.countDraw(mIndexCount);
+    }
+
+    public int getIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * Gets the type of the indices in this buffer.
+     * @return {@link GL#GL_UNSIGNED_SHORT} or {@link GL#GL_UNSIGNED_INT}
+     */
+    public int getIndexType() {
+        return mIndexType;
     }
 
     @Override
@@ -24,16 +24,24 @@
 
 package com.tylersuehr.enginej.buffers;
 
-import android.opengl.GLES20;
-
 import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
 /**
  * Stores pointer to the GPU buffer that holds the vertex data.
+ *
+ * The buffer is left bound to GL_ARRAY_BUFFER after uploading and after
+ * {@link #setVertexAttr(int, int, int, int)}, so consecutive attributes and draws from it skip
+ * the rebind. Code that sets up client-side arrays with raw GLES20 calls must unbind it first
+ * with {@code GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, 0)}, as {@link CPUVertexBuffer} does.
+ *
  * @author Tyler Suehr
  */
 public class GPUVertexBuffer extends GPUShaderBuffer {
@@ -41,14 +49,6 @@ public class GPUVertexBuffer extends GPUShaderBuffer {
 
 
     public GPUVertexBuffer(final float[] vertexData) {
-        // Create the buffer object to use
-        final int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        if (buffers[0] == 0) {
-            throw new RuntimeException("Could not create new OpenGL ES buffer!");
-        }
-        mBufferId = buffers[0];
-
         // Send the vertex data into native memory
         final FloatBuffer vertexBuffer = ByteBuffer
                 .allocateDirect(vertexData.length * EngineUtils.BYTES_PER_FLOAT)
@@ -56,25 +56,46 @@ public class GPUVertexBuffer extends GPUShaderBuffer {
                 .asFloatBuffer()
                 .put(vertexData);
         vertexBuffer.position(0);
+        mBufferId = upload(vertexBuffer, vertexBuffer.capacity() * EngineUtils.BYTES_PER_FLOAT);
+    }
 
-        // Send the native memory on CPU over to the GPU buffer
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBufferId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER,
-                vertexBuffer.capacity() * EngineUtils.BYTES_PER_FLOAT,
-                vertexBuffer, GLES20.GL_STATIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    /**
+     * Constructs with vertex data already in native memory, like data packed by a
+     * {@link VertexLayout}. Bind it with the layout rather than {@link #setVertexAttr(int, int, int, int)},
+     * since its attributes may not be floats.
+     *
+     * @param vertexData the vertex data, from position 0 up to its limit
+     */
+    public GPUVertexBuffer(final ByteBuffer vertexData) {
+        vertexData.position(0);
+        mBufferId = upload(vertexData, vertexData.limit());
     }
 
     @Override
     public void setVertexAttr(int dataOffset, int attrLoc, int compCount, int stride) {
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mBufferId);
-        GLES20.glVertexAttribPointer(attrLoc, compCount, GLES20.GL_FLOAT, false, stride, dataOffset);
-        GLES20.glEnableVertexAttribArray(attrLoc);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        // The buffer stays bound; GLStateCache skips the bind for the next attribute
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, mBufferId);
+        GL.glVertexAttribPointer(attrLoc, compCount, GL.GL_FLOAT, false, stride, dataOffset);
+        GLStateCache.enableVertexAttribArray(attrLoc);
     }
 
     @Override
     public int getBufferId() {
         return mBufferId;
     }
+
+    private static int upload(Buffer data, int numBytes) {
+        // Create the buffer object to use
+        final int[] buffers = new int[1];
+        GL.glGenBuffers(1, buffers, 0);
+        if (buffers[0] == 0) {
+            throw new RuntimeException("Could not create new OpenGL ES buffer!");
+        }
+
+        // Send the native memory on CPU over to the GPU buffer
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, buffers[0]);
+        GL.glBufferData(GL.GL_ARRAY_BUFFER, numBytes, data, GL.GL_STATIC_DRAW);
+        Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, numBytes);
+        return buffers[0];
+    }
 }
\ No newline at end of file
@@ -0,0 +1,394 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.buffers;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Describes interleaved vertex data: which attributes each vertex has, how many components
+ * each attribute has and how they are stored. Compact formats cut the memory and bandwidth
+ * a mesh needs; for example a position, normal and texture coordinate take 32 bytes as
+ * floats but 16 bytes as half floats, normalized bytes and normalized shorts.
+ *
+ * Attributes are laid out in the order added, each starting on a 4-byte boundary as
+ * OpenGL ES recommends. The layout can pack float data into those formats in a direct
+ * {@link ByteBuffer} ready for {@link GPUVertexBuffer#GPUVertexBuffer(ByteBuffer)}, then bind
+ * every attribute of the buffer at once:
+ * <pre>
+ *     final VertexLayout layout = new VertexLayout()
+ *             .add("a_Position", 3, VertexLayout.FORMAT_FLOAT)
+ *             .add("a_Normal", 3, VertexLayout.FORMAT_BYTE_NORM)
+ *             .add("a_TextureCoord", 2, VertexLayout.FORMAT_UNSIGNED_SHORT_NORM);
+ *     final ByteBuffer packed = layout.allocate(mesh.getVertexCount());
+ *     layout.pack(packed, 0, mesh.vertexData, 0, mesh.floatsPerVertex, mesh.getVertexCount());
+ *     final GPUVertexBuffer buffer = new GPUVertexBuffer(packed);
+ *     ...
+ *     layout.bind(program, buffer.getBufferId(), 0);
+ * </pre>
+ *
+ * @author Tyler Suehr
+ */
+public final class VertexLayout {
+    /** 32-bit floats. */
+    public static final int FORMAT_FLOAT = 0;
+    /** 16-bit floats, requires the OES_vertex_half_float extension. */
+    public static final int FORMAT_HALF_FLOAT = 1;
+    /** Signed shorts mapped to [-1, 1], good for normals and tangents. */
+    public static final int FORMAT_SHORT_NORM = 2;
+    /** Unsigned shorts mapped to [0, 1], good for texture coordinates. */
+    public static final int FORMAT_UNSIGNED_SHORT_NORM = 3;
+    /** Signed bytes mapped to [-1, 1], good for normals. */
+    public static final int FORMAT_BYTE_NORM = 4;
+    /** Unsigned bytes mapped to [0, 1], good for colors. */
+    public static final int FORMAT_UNSIGNED_BYTE_NORM = 5;
+
+    /** The most attributes a layout can have, which is the least OpenGL ES 2.0 guarantees. */
+    public static final int MAX_ATTRIBUTES = 8;
+
+    private static final int STAGING_VERTICES = 256;
+    private static final int[] FORMAT_BYTES = {4, 2, 2, 2, 1, 1};
+    private static final int[] FORMAT_GL_TYPES = {
+            GL.GL_FLOAT, GL.GL_HALF_FLOAT_OES, GL.GL_SHORT,
+            GL.GL_UNSIGNED_SHORT, GL.GL_BYTE, GL.GL_UNSIGNED_BYTE
+    };
+
+    private final String[] mNames = new String[MAX_ATTRIBUTES];
+    private final int[] mComponents = new int[MAX_ATTRIBUTES];
+    private final int[] mFormats = new int[MAX_ATTRIBUTES];
+    private final int[] mOffsets = new int[MAX_ATTRIBUTES];
+    private int mCount = 0;
+    private int mStride = 0;
+
+
+    /**
+     * Adds an attribute after the existing ones.
+     *
+     * @param name the name of the attribute in the shader source
+     * @param components the number of components, 1 to 4
+     * @param format the storage format, like {@link #FORMAT_FLOAT}
+     * @return this layout
+     */
+    public VertexLayout add(String name, int components, int format) {
+        if (mCount == MAX_ATTRIBUTES) {
+            throw new IllegalStateException("Layout can't have more than " + MAX_ATTRIBUTES + " attributes!");
+        }
+        if (components < 1 || components > 4) {
+            throw new IllegalArgumentException("Attributes must have 1 to 4 components!");
+        }
+        if (format < FORMAT_FLOAT || format > FORMAT_UNSIGNED_BYTE_NORM) {
+            throw new IllegalArgumentException("Unknown vertex format: " + format);
+        }
+        mNames[mCount] = name;
+        mComponents[mCount] = components;
+        mFormats[mCount] = format;
+        mOffsets[mCount] = mStride;
+        mStride += align4(components * FORMAT_BYTES[format]);
+        mCount++;
+        return this;
+    }
+
+    /** Gets the size of one vertex in bytes. */
+    public int getStride() {
+        return mStride;
+    }
+
+    public int getAttributeCount() {
+        return mCount;
+    }
+
+    public String getName(int attribute) {
+        return mNames[attribute];
+    }
+
+    public int getComponents(int attribute) {
+        return mComponents[attribute];
+    }
+
+    public int getFormat(int attribute) {
+        return mFormats[attribute];
+    }
+
+    /** Gets the byte offset of an attribute within a vertex. */
+    public int getOffset(int attribute) {
+        return mOffsets[attribute];
+    }
+
+    /**
+     * Finds an attribute by name.
+     *
+     * @param name the name of the attribute
+     * @return the index of the attribute, or -1 if this layout doesn't have it
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < mCount; i++) {
+            if (mNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Determines if any attribute needs the OES_vertex_half_float extension. */
+    public boolean usesHalfFloats() {
+        for (int i = 0; i < mCount; i++) {
+            if (mFormats[i] == FORMAT_HALF_FLOAT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Allocates native memory for a number of vertices in this layout.
+     *
+     * @param numVertices the number of vertices
+     * @return the direct buffer, in native byte order
+     */
+    public ByteBuffer allocate(int numVertices) {
+        return ByteBuffer.allocateDirect(numVertices * mStride).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Packs interleaved float vertices, like those of a {@link com.tylersuehr.enginej.mesh.MeshData},
+     * into this layout. The attributes take consecutive floats from each source vertex in the
+     * order they were added; any floats left over at the end of a source vertex are skipped.
+     *
+     * @param dst the native-order buffer to write into
+     * @param dstOffset the byte offset of the first vertex in the buffer, a multiple of 4
+     * @param src the float vertices
+     * @param srcOffset the offset of the first source vertex
+     * @param floatsPerVertex the number of floats per source vertex
+     * @param numVertices the number of vertices
+     */
+    public void pack(ByteBuffer dst, int dstOffset, float[] src, int srcOffset, int floatsPerVertex,
+                     int numVertices) {
+        int needed = 0;
+        for (int a = 0; a < mCount; a++) {
+            needed += mComponents[a];
+        }
+        if (needed > floatsPerVertex) {
+            throw new IllegalArgumentException("Layout needs " + needed
+                    + " floats per vertex, but the source only has " + floatsPerVertex + "!");
+        }
+
+        final IntBuffer ints = intView(dst);
+        final int strideInts = mStride / 4;
+        final boolean littleEndian = dst.order() == ByteOrder.LITTLE_ENDIAN;
+        final int[] staging = new int[Math.min(numVertices, STAGING_VERTICES) * strideInts];
+        for (int done = 0; done < numVertices; done += STAGING_VERTICES) {
+            final int count = Math.min(STAGING_VERTICES, numVertices - done);
+            Arrays.fill(staging, 0);
+            int first = srcOffset + done * floatsPerVertex;
+            for (int a = 0; a < mCount; a++) {
+                stageAttribute(staging, a, littleEndian, src, first, floatsPerVertex, count);
+                first += mComponents[a];
+            }
+            ints.position((dstOffset / 4) + done * strideInts);
+            ints.put(staging, 0, count * strideInts);
+        }
+    }
+
+    /**
+     * Packs one attribute from float data, converting it to the attribute's format. The other
+     * attributes already in the buffer are left untouched.
+     *
+     * @param dst the native-order buffer to write into
+     * @param dstOffset the byte offset of the first vertex in the buffer, a multiple of 4
+     * @param attribute the index of the attribute
+     * @param src the float data
+     * @param srcOffset the offset of the first vertex's first component
+     * @param srcStride the distance in floats between consecutive vertices
+     * @param numVertices the number of vertices
+     */
+    public void packAttribute(ByteBuffer dst, int dstOffset, int attribute, float[] src, int srcOffset,
+                              int srcStride, int numVertices) {
+        final IntBuffer ints = intView(dst);
+        final int strideInts = mStride / 4;
+        final int attributeInts = align4(mComponents[attribute] * FORMAT_BYTES[mFormats[attribute]]) / 4;
+        final int offsetInts = mOffsets[attribute] / 4;
+        final boolean littleEndian = dst.order() == ByteOrder.LITTLE_ENDIAN;
+        final int[] staging = new int[Math.min(numVertices, STAGING_VERTICES) * strideInts];
+        for (int done = 0; done < numVertices; done += STAGING_VERTICES) {
+            final int count = Math.min(STAGING_VERTICES, numVertices - done);
+            final int position = (dstOffset / 4) + done * strideInts;
+
+            // Read the vertices back, clear just this attribute, then write them out again
+            ints.position(position);
+            ints.get(staging, 0, count * strideInts);
+            for (int v = 0, i = offsetInts; v < count; v++, i += strideInts) {
+                Arrays.fill(staging, i, i + attributeInts, 0);
+            }
+            stageAttribute(staging, attribute, littleEndian, src, srcOffset + done * srcStride,
+                    srcStride, count);
+            ints.position(position);
+            ints.put(staging, 0, count * strideInts);
+        }
+    }
+
+    /**
+     * Packs colors that are already packed into ints, like those from
+     * {@link com.tylersuehr.enginej.sprites.SpriteBatch#packColor(float, float, float, float)},
+     * into a 4 component {@link #FORMAT_UNSIGNED_BYTE_NORM} attribute.
+     *
+     * @param dst the native-order buffer to write into
+     * @param dstOffset the byte offset of the first vertex in the buffer
+     * @param attribute the index of the attribute
+     * @param colors the packed colors, one per vertex
+     * @param srcOffset the first color
+     * @param numVertices the number of vertices
+     */
+    public void packColors(ByteBuffer dst, int dstOffset, int attribute, int[] colors, int srcOffset,
+                           int numVertices) {
+        if (mFormats[attribute] != FORMAT_UNSIGNED_BYTE_NORM || mComponents[attribute] != 4) {
+            throw new IllegalArgumentException("Packed colors need 4 normalized unsigned bytes!");
+        }
+        for (int v = 0, b = dstOffset + mOffsets[attribute]; v < numVertices; v++, b += mStride) {
+            dst.putInt(b, colors[srcOffset + v]);
+        }
+    }
+
+    /**
+     * Binds a GPU buffer holding vertices in this layout to a program's attributes, looking
+     * each attribute up by name. Attributes the program doesn't use are skipped.
+     *
+     * @param program the program in use
+     * @param bufferId the pointer to the GPU buffer
+     * @param baseOffset the byte offset of the first vertex in the buffer
+     */
+    public void bind(AbstractShaderProgram program, int bufferId, int baseOffset) {
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, bufferId);
+        for (int a = 0; a < mCount; a++) {
+            bindAttribute(a, program.getAttribLocation(mNames[a]), baseOffset);
+        }
+    }
+
+    /**
+     * Binds a GPU buffer holding vertices in this layout to known attribute locations.
+     *
+     * @param bufferId the pointer to the GPU buffer
+     * @param baseOffset the byte offset of the first vertex in the buffer
+     * @param locations the location of each attribute, in layout order, or -1 to skip one
+     */
+    public void bind(int bufferId, int baseOffset, int[] locations) {
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, bufferId);
+        for (int a = 0; a < mCount; a++) {
+            bindAttribute(a, locations[a], baseOffset);
+        }
+    }
+
+    /**
+     * Converts one attribute of a run of vertices into a zeroed staging array of whole
+     * vertices. Working in ints and copying them out in bulk is much faster than writing
+     * each component into the direct buffer.
+     */
+    private void stageAttribute(int[] staging, int attribute, boolean littleEndian, float[] src,
+                                int srcOffset, int srcStride, int numVertices) {
+        final int format = mFormats[attribute];
+        final int strideInts = mStride / 4;
+        final int first = mOffsets[attribute] / 4;
+        final int end = first + numVertices * strideInts;
+
+        // One strided pass per component, so each pass has a fixed int and shift to write
+        for (int c = 0; c < mComponents[attribute]; c++) {
+            int s = srcOffset + c;
+            if (format == FORMAT_FLOAT) {
+                for (int i = first + c; i < end; i += strideInts, s += srcStride) {
+                    staging[i] = Float.floatToRawIntBits(src[s]);
+                }
+                continue;
+            }
+            final boolean wide = FORMAT_BYTES[format] == 2;
+            final int slot = first + (wide ? c >> 1 : c >> 2);
+            final int shift = wide ? shortShift(c, littleEndian) : byteShift(c, littleEndian);
+            switch (format) {
+                case FORMAT_HALF_FLOAT:
+                    for (int i = slot; i < end; i += strideInts, s += srcStride) {
+                        staging[i] |= (VertexPacking.toHalf(src[s]) & 0xFFFF) << shift;
+                    }
+                    break;
+                case FORMAT_SHORT_NORM:
+                    for (int i = slot; i < end; i += strideInts, s += srcStride) {
+                        staging[i] |= (VertexPacking.toShortNorm(src[s]) & 0xFFFF) << shift;
+                    }
+                    break;
+                case FORMAT_UNSIGNED_SHORT_NORM:
+                    for (int i = slot; i < end; i += strideInts, s += srcStride) {
+                        staging[i] |= (VertexPacking.toUnsignedShortNorm(src[s]) & 0xFFFF) << shift;
+                    }
+                    break;
+                case FORMAT_BYTE_NORM:
+                    for (int i = slot; i < end; i += strideInts, s += srcStride) {
+                        staging[i] |= (VertexPacking.toByteNorm(src[s]) & 0xFF) << shift;
+                    }
+                    break;
+                default:
+                    for (int i = slot; i < end; i += strideInts, s += srcStride) {
+                        staging[i] |= (VertexPacking.toUnsignedByteNorm(src[s]) & 0xFF) << shift;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void bindAttribute(int attribute, int location, int baseOffset) {
+        if (location < 0) {
+            return;
+        }
+        final int format = mFormats[attribute];
+        GL.glVertexAttribPointer(location, mComponents[attribute], FORMAT_GL_TYPES[format],
+                format >= FORMAT_SHORT_NORM, mStride, baseOffset + mOffsets[attribute]);
+        GLStateCache.enableVertexAttribArray(location);
+    }
+
+    private static int align4(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    /** Gets the shift of a 16-bit component within its int, so it lands at the right address. */
+    private static int shortShift(int component, boolean littleEndian) {
+        return (littleEndian ? (component & 1) : 1 - (component & 1)) * 16;
+    }
+
+    /** Gets the shift of an 8-bit component within its int, so it lands at the right address. */
+    private static int byteShift(int component, boolean littleEndian) {
+        return (littleEndian ? (component & 3) : 3 - (component & 3)) * 8;
+    }
+
+    /** Views a whole byte buffer as ints, regardless of its position. */
+    private static IntBuffer intView(ByteBuffer buffer) {
+        final int position = buffer.position();
+        buffer.position(0);
+        final IntBuffer ints = buffer.asIntBuffer();
+        buffer.position(position);
+        return ints;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.buffers;
+
+/**
+ * Converts floats into the compact formats of a {@link VertexLayout}. Values outside a
+ * normalized format's range are clamped to it.
+ *
+ * @author Tyler Suehr
+ */
+public final class VertexPacking {
+    private VertexPacking() {}
+
+    /**
+     * Converts a float to a 16-bit half float, rounding to the nearest representable value.
+     * Magnitudes of 65520 and above become infinity, and NaN stays NaN.
+     *
+     * @param value the float
+     * @return the bits of the half float
+     */
+    public static short toHalf(float value) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int magnitude = bits & 0x7FFFFFFF;
+
+        if (magnitude >= 0x7F800000) {
+            return (short)(sign | (magnitude > 0x7F800000 ? 0x7E00 : 0x7C00));
+        }
+        if (magnitude >= 0x477FF000) {
+            return (short)(sign | 0x7C00);
+        }
+        if (magnitude < 0x38800000) {
+            // Below the smallest normal half, so it becomes a subnormal or zero
+            if (magnitude < 0x33000000) {
+                return (short)sign;
+            }
+            final int mantissa = (magnitude & 0x7FFFFF) | 0x800000;
+            final int shift = 126 - (magnitude >>> 23);
+            int half = mantissa >>> shift;
+            final int rest = mantissa & ((1 << shift) - 1);
+            final int midpoint = 1 << (shift - 1);
+            if (rest > midpoint || (rest == midpoint && (half & 1) != 0)) {
+                half++;
+            }
+            return (short)(sign | half);
+        }
+
+        // Rebias the exponent from 127 to 15, then round away the low 13 mantissa bits to the
+        // nearest even without branching, since the rounding direction is unpredictable
+        final int rebiased = magnitude - 0x38000000;
+        return (short)(sign | ((rebiased + 0xFFF + ((rebiased >>> 13) & 1)) >>> 13));
+    }
+
+    /**
+     * Converts a 16-bit half float back to a float.
+     *
+     * @param half the bits of the half float
+     * @return the float
+     */
+    public static float fromHalf(short half) {
+        final int bits = half & 0xFFFF;
+        final int sign = (bits & 0x8000) << 16;
+        final int exponent = (bits >>> 10) & 0x1F;
+        final int mantissa = bits & 0x3FF;
+        if (exponent == 0) {
+            final float value = mantissa * (1f / (1 << 24));
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 0x1F) {
+            return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    /** Converts a float within [-1, 1] to a normalized signed byte. */
+    public static byte toByteNorm(float value) {
+        return (byte)roundSymmetric(clamp(value, -1f, 1f) * 127f);
+    }
+
+    /** Converts a float within [0, 1] to a normalized unsigned byte. */
+    public static byte toUnsignedByteNorm(float value) {
+        return (byte)(int)(clamp(value, 0f, 1f) * 255f + 0.5f);
+    }
+
+    /** Converts a float within [-1, 1] to a normalized signed short. */
+    public static short toShortNorm(float value) {
+        return (short)roundSymmetric(clamp(value, -1f, 1f) * 32767f);
+    }
+
+    /** Converts a float within [0, 1] to a normalized unsigned short. */
+    public static short toUnsignedShortNorm(float value) {
+        return (short)(int)(clamp(value, 0f, 1f) * 65535f + 0.5f);
+    }
+
+    /**
+     * Rounds halves away from zero. Math.round() rounds them up, so a value and its negation
+     * could pack to different magnitudes.
+     */
+    private static int roundSymmetric(float value) {
+        return (int)(value + Math.copySign(0.5f, value));
+    }
+
+    private static float clamp(float value, float min, float max) {
+        // Written so that NaN clamps to min
+        return value > min ? (value < max ? value : max) : min;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import java.util.Arrays;
+
+/**
+ * Stores every entity that has exactly the same set of components.
+ *
+ * Each component is one dense column: a float or int array holding that component for every
+ * entity in row order, so a system reads row 0, row 1, row 2... of each column it needs with
+ * no gaps and no pointer chasing. Removing an entity moves the last row into its place, which
+ * keeps the columns dense but means rows are not stable across structural changes.
+ *
+ * The arrays returned by {@link #getFloats(ComponentType)} and {@link #getInts(ComponentType)}
+ * are replaced when the archetype grows, so fetch them again after creating entities.
+ *
+ * @author Tyler Suehr
+ */
+public final class Archetype {
+    private static final int INITIAL_CAPACITY = 64;
+
+    final long mMask;
+    private final ComponentType[] mTypes;
+    /* Column of each component type id, or -1 */
+    private final int[] mColumnOf = new int[World.MAX_COMPONENT_TYPES];
+    private final float[][] mFloats;
+    private final int[][] mInts;
+
+    private int[] mEntities = new int[INITIAL_CAPACITY];
+    private int mSize = 0;
+
+
+    Archetype(long mask, ComponentType[] types) {
+        mMask = mask;
+        mTypes = types;
+        mFloats = new float[types.length][];
+        mInts = new int[types.length][];
+        Arrays.fill(mColumnOf, -1);
+        for (int c = 0; c < types.length; c++) {
+            mColumnOf[types[c].mId] = c;
+            if (types[c].isInt()) {
+                mInts[c] = new int[INITIAL_CAPACITY * types[c].getWidth()];
+            } else {
+                mFloats[c] = new float[INITIAL_CAPACITY * types[c].getWidth()];
+            }
+        }
+    }
+
+    /** Gets the number of entities, which is also the number of rows in use. */
+    public int size() {
+        return mSize;
+    }
+
+    public boolean has(ComponentType type) {
+        return (mMask & type.mBit) != 0;
+    }
+
+    /**
+     * Gets the entity stored in a row.
+     *
+     * @param row from 0 up to {@link #size()}
+     * @return the entity
+     */
+    public int getEntity(int row) {
+        return mEntities[row];
+    }
+
+    /**
+     * Gets the column of a float component. The component of the entity in row r starts at
+     * r * {@link ComponentType#getWidth()}.
+     *
+     * @param type the component type
+     * @return the column
+     */
+    public float[] getFloats(ComponentType type) {
+        final int c = columnOf(type);
+        if (type.isInt()) {
+            throw new IllegalArgumentException("Component " + type + " is stored as ints!");
+        }
+        return mFloats[c];
+    }
+
+    /**
+     * Gets the column of an int component. The component of the entity in row r starts at
+     * r * {@link ComponentType#getWidth()}.
+     *
+     * @param type the component type
+     * @return the column
+     */
+    public int[] getInts(ComponentType type) {
+        final int c = columnOf(type);
+        if (!type.isInt()) {
+            throw new IllegalArgumentException("Component " + type + " is stored as floats!");
+        }
+        return mInts[c];
+    }
+
+    /** Appends a zeroed row for an entity, returning the row. */
+    int addRow(int entity) {
+        if (mSize == mEntities.length) {
+            grow(mSize * 2);
+        }
+        final int row = mSize++;
+        mEntities[row] = entity;
+        for (int c = 0; c < mTypes.length; c++) {
+            final int width = mTypes[c].getWidth();
+            if (mInts[c] != null) {
+                Arrays.fill(mInts[c], row * width, (row + 1) * width, 0);
+            } else {
+                Arrays.fill(mFloats[c], row * width, (row + 1) * width, 0f);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Removes a row by moving the last row into it.
+     * @return true if another entity moved into the row
+     */
+    boolean removeRow(int row) {
+        final int last = --mSize;
+        if (row == last) {
+            return false;
+        }
+        mEntities[row] = mEntities[last];
+        for (int c = 0; c < mTypes.length; c++) {
+            final int width = mTypes[c].getWidth();
+            if (mInts[c] != null) {
+                System.arraycopy(mInts[c], last * width, mInts[c], row * width, width);
+            } else {
+                System.arraycopy(mFloats[c], last * width, mFloats[c], row * width, width);
+            }
+        }
+        return true;
+    }
+
+    /** Copies every component this archetype shares with another from one row to another. */
+    void copyRow(int row, Archetype dst, int dstRow) {
+        for (int c = 0; c < mTypes.length; c++) {
+            final int dc = dst.mColumnOf[mTypes[c].mId];
+            if (dc < 0) {
+                continue;
+            }
+            final int width = mTypes[c].getWidth();
+            if (mInts[c] != null) {
+                System.arraycopy(mInts[c], row * width, dst.mInts[dc], dstRow * width, width);
+            } else {
+                System.arraycopy(mFloats[c], row * width, dst.mFloats[dc], dstRow * width, width);
+            }
+        }
+    }
+
+    private int columnOf(ComponentType type) {
+        final int c = mColumnOf[type.mId];
+        if (c < 0 || mTypes[c] != type) {
+            throw new IllegalArgumentException("Archetype has no " + type + " component!");
+        }
+        return c;
+    }
+
+    private void grow(int capacity) {
+        mEntities = Arrays.copyOf(mEntities, capacity);
+        for (int c = 0; c < mTypes.length; c++) {
+            final int width = mTypes[c].getWidth();
+            if (mInts[c] != null) {
+                mInts[c] = Arrays.copyOf(mInts[c], capacity * width);
+            } else {
+                mFloats[c] = Arrays.copyOf(mFloats[c], capacity * width);
+            }
+        }
+    }
+}
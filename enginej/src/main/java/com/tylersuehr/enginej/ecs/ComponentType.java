@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+/**
+ * Identifies a kind of component, like a position or a velocity, registered with a
+ * {@link World}. A component is a fixed number of floats or ints per entity, stored densely
+ * in the columns of each {@link Archetype} that has it.
+ *
+ * @author Tyler Suehr
+ */
+public final class ComponentType {
+    final int mId;
+    final long mBit;
+    private final String mName;
+    private final int mWidth;
+    private final boolean mIsInt;
+
+
+    ComponentType(int id, String name, int width, boolean isInt) {
+        mId = id;
+        mBit = 1L << id;
+        mName = name;
+        mWidth = width;
+        mIsInt = isInt;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /** Gets the number of floats or ints this component uses per entity. */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /** Determines if this component is stored as ints rather than floats. */
+    public boolean isInt() {
+        return mIsInt;
+    }
+
+    @Override
+    public String toString() {
+        return mName;
+    }
+}
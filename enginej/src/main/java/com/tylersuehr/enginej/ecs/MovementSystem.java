@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Moves every entity with a position and a velocity by its velocity times the time step.
+ * Both components are three floats: x, y, z.
+ *
+ * @author Tyler Suehr
+ */
+public final class MovementSystem implements EntitySystem, ParallelFor.Body {
+    private static final int DEFAULT_MIN_PER_TASK = 4096;
+
+    private final Query mQuery;
+    private final ComponentType mPosition;
+    private final ComponentType mVelocity;
+    private ForkJoinPool mPool;
+    private int mMinPerTask = DEFAULT_MIN_PER_TASK;
+
+    /* Set for the archetype being updated */
+    private float[] mPositions;
+    private float[] mVelocities;
+    private float mDelta;
+
+
+    public MovementSystem(World world, ComponentType position, ComponentType velocity) {
+        if (position.getWidth() != 3 || velocity.getWidth() != 3 || position.isInt() || velocity.isInt()) {
+            throw new IllegalArgumentException("Position and velocity must be three floats!");
+        }
+        mQuery = world.createQuery(position, velocity);
+        mPosition = position;
+        mVelocity = velocity;
+    }
+
+    /**
+     * Splits each archetype across a fork-join pool when it has enough entities.
+     *
+     * @param pool the pool to run on, or null to update on the calling thread only
+     * @param minPerTask the fewest entities worth giving one task
+     */
+    public void setParallel(ForkJoinPool pool, int minPerTask) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one entity!");
+        }
+        mPool = pool;
+        mMinPerTask = minPerTask;
+    }
+
+    @Override
+    public void update(float deltaSeconds) {
+        mDelta = deltaSeconds;
+        for (int a = 0; a < mQuery.getArchetypeCount(); a++) {
+            final Archetype archetype = mQuery.getArchetype(a);
+            mPositions = archetype.getFloats(mPosition);
+            mVelocities = archetype.getFloats(mVelocity);
+            ParallelFor.run(mPool, archetype.size(), mMinPerTask, this);
+        }
+        mPositions = mVelocities = null;
+    }
+
+    @Override
+    public void run(int start, int end) {
+        final float[] positions = mPositions;
+        final float[] velocities = mVelocities;
+        final float delta = mDelta;
+        for (int i = start * 3, n = end * 3; i < n; i++) {
+            positions[i] += velocities[i] * delta;
+        }
+    }
+}
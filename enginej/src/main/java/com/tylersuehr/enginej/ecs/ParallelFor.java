@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits a loop over rows across a fork-join pool, for systems whose rows don't depend on
+ * each other. Each task gets a contiguous range, so rows stay in cache-friendly order and
+ * no two tasks write the same row.
+ *
+ * @author Tyler Suehr
+ */
+public final class ParallelFor {
+    /**
+     * Defines the work done on one range of rows.
+     */
+    public interface Body {
+        /**
+         * Called with a range of rows to process, possibly on a worker thread.
+         *
+         * @param start the first row
+         * @param end one past the last row
+         */
+        void run(int start, int end);
+    }
+
+
+    private ParallelFor() {}
+
+    /**
+     * Runs a body over rows 0 to count, halving the range until it is smaller than twice
+     * minPerTask. Returns once every row has been processed.
+     *
+     * @param pool the pool to run on, or null to run on the calling thread
+     * @param count the number of rows
+     * @param minPerTask the fewest rows worth giving one task
+     * @param body the work
+     */
+    public static void run(ForkJoinPool pool, int count, int minPerTask, Body body) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one row!");
+        }
+        if (pool == null || count < minPerTask * 2) {
+            body.run(0, count);
+        } else {
+            pool.invoke(new Task(body, 0, count, minPerTask));
+        }
+    }
+
+
+    /**
+     * Halves its range until it is small enough, then runs the body over it.
+     */
+    private static final class Task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Body mBody;
+        private final int mStart;
+        private final int mEnd;
+        private final int mMinPerTask;
+
+        Task(Body body, int start, int end, int minPerTask) {
+            mBody = body;
+            mStart = start;
+            mEnd = end;
+            mMinPerTask = minPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart < mMinPerTask * 2) {
+                mBody.run(mStart, mEnd);
+                return;
+            }
+            final int mid = (mStart + mEnd) >>> 1;
+            invokeAll(new Task(mBody, mStart, mid, mMinPerTask), new Task(mBody, mid, mEnd, mMinPerTask));
+        }
+    }
+}
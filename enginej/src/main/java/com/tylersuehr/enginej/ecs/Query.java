@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The archetypes that have a set of components, kept up to date by its {@link World} as new
+ * archetypes appear. Systems loop over the archetypes, then over the rows of each:
+ *
+ * <pre>
+ * for (int a = 0; a &lt; query.getArchetypeCount(); a++) {
+ *     final Archetype archetype = query.getArchetype(a);
+ *     final float[] position = archetype.getFloats(POSITION);
+ *     for (int row = 0; row &lt; archetype.size(); row++) { ... }
+ * }
+ * </pre>
+ *
+ * @author Tyler Suehr
+ */
+public final class Query {
+    private final long mMask;
+    private final List<Archetype> mArchetypes = new ArrayList<>();
+
+
+    Query(long mask) {
+        mMask = mask;
+    }
+
+    public int getArchetypeCount() {
+        return mArchetypes.size();
+    }
+
+    public Archetype getArchetype(int index) {
+        return mArchetypes.get(index);
+    }
+
+    /** Gets the number of entities across every matching archetype. */
+    public int getEntityCount() {
+        int count = 0;
+        for (int i = 0; i < mArchetypes.size(); i++) {
+            count += mArchetypes.get(i).size();
+        }
+        return count;
+    }
+
+    void offer(Archetype archetype) {
+        if ((archetype.mMask & mMask) == mMask) {
+            mArchetypes.add(archetype);
+        }
+    }
+}
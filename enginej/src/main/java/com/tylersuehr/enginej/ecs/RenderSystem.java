@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.render.RenderCommand;
+import com.tylersuehr.enginej.render.RenderQueue;
+
+import java.util.Arrays;
+
+/**
+ * Draws entities through a {@link RenderQueue}, so they sort and batch with everything else
+ * and use the same shader programs as {@link com.tylersuehr.enginej.AbstractGameObject}s.
+ *
+ * Each entity has a transform ({@link Mat4#SIZE} floats) and a render handle (one int)
+ * returned by {@link #register(AbstractShaderProgram, long, Drawable)}. The handle picks the
+ * program, sort key and {@link Drawable}, so thousands of entities can share one mesh while
+ * the system submits itself once per entity instead of allocating a command for each.
+ *
+ * Handles start at 1 so that the zeroed handle of a new entity is {@link #NO_HANDLE}; set it
+ * after creating the entity, or the entity won't be drawn.
+ *
+ * @author Tyler Suehr
+ */
+public final class RenderSystem implements RenderCommand {
+    /** The handle of an entity that shouldn't be drawn, which is what new entities have. */
+    public static final int NO_HANDLE = 0;
+
+    /**
+     * Defines how to draw one entity, usually a mesh with a model matrix uniform.
+     */
+    public interface Drawable {
+        /**
+         * Called when an entity should bind its data and draw. The program is already in use.
+         *
+         * @param program the program of the entity's handle
+         * @param model the array of the entity's model matrix
+         * @param modelOffset the offset of the model matrix
+         */
+        void draw(AbstractShaderProgram program, float[] model, int modelOffset);
+    }
+
+    private final Query mQuery;
+    private final ComponentType mTransform;
+    private final ComponentType mHandle;
+
+    /* Registered handles, where handle h is at index h - 1 */
+    private AbstractShaderProgram[] mPrograms = new AbstractShaderProgram[8];
+    private long[] mSortKeys = new long[8];
+    private Drawable[] mDrawables = new Drawable[8];
+    private int mHandleCount = 0;
+
+    /* Per submitted entity, since rows may change before the queue executes */
+    private float[] mMatrices = new float[256 * Mat4.SIZE];
+    private int[] mSubmittedHandles = new int[256];
+    private int mSubmittedCount = 0;
+
+
+    /**
+     * @param world the world
+     * @param transform the transform component, sixteen floats
+     * @param handle the render handle component, one int
+     */
+    public RenderSystem(World world, ComponentType transform, ComponentType handle) {
+        if (transform.isInt() || transform.getWidth() != Mat4.SIZE) {
+            throw new IllegalArgumentException("Transform must be " + Mat4.SIZE + " floats!");
+        }
+        if (!handle.isInt() || handle.getWidth() != 1) {
+            throw new IllegalArgumentException("Render handle must be one int!");
+        }
+        mQuery = world.createQuery(transform, handle);
+        mTransform = transform;
+        mHandle = handle;
+    }
+
+    /**
+     * Registers a way of drawing entities.
+     *
+     * @param program the program to draw with
+     * @param sortKey the sort key, see {@link com.tylersuehr.enginej.render.RenderKey}
+     * @param drawable the drawing logic
+     * @return the handle to store in entities' render handle component, never
+     *         {@link #NO_HANDLE}
+     */
+    public int register(AbstractShaderProgram program, long sortKey, Drawable drawable) {
+        if (mHandleCount == mDrawables.length) {
+            final int capacity = mHandleCount * 2;
+            mPrograms = Arrays.copyOf(mPrograms, capacity);
+            mSortKeys = Arrays.copyOf(mSortKeys, capacity);
+            mDrawables = Arrays.copyOf(mDrawables, capacity);
+        }
+        mPrograms[mHandleCount] = program;
+        mSortKeys[mHandleCount] = sortKey;
+        mDrawables[mHandleCount] = drawable;
+        return ++mHandleCount;
+    }
+
+    /**
+     * Submits every entity with a valid handle. The model matrices are copied, so the world
+     * may change before the queue executes.
+     *
+     * @param queue the render queue to submit to
+     * @return the number of entities submitted
+     */
+    public int submit(RenderQueue queue) {
+        final int total = mQuery.getEntityCount();
+        if (total > mSubmittedHandles.length) {
+            final int capacity = Math.max(total, mSubmittedHandles.length * 2);
+            mMatrices = new float[capacity * Mat4.SIZE];
+            mSubmittedHandles = new int[capacity];
+        }
+
+        int count = 0;
+        for (int a = 0; a < mQuery.getArchetypeCount(); a++) {
+            final Archetype archetype = mQuery.getArchetype(a);
+            final float[] transforms = archetype.getFloats(mTransform);
+            final int[] handles = archetype.getInts(mHandle);
+            for (int row = 0, n = archetype.size(); row < n; row++) {
+                final int handle = handles[row] - 1;
+                if (handle < 0 || handle >= mHandleCount) {
+                    continue; // NO_HANDLE or not registered
+                }
+                System.arraycopy(transforms, row * Mat4.SIZE, mMatrices, count * Mat4.SIZE, Mat4.SIZE);
+                mSubmittedHandles[count] = handle;
+                queue.submit(mSortKeys[handle], mPrograms[handle], this, count);
+                count++;
+            }
+        }
+        mSubmittedCount = count;
+        return count;
+    }
+
+    @Override
+    public void execute(AbstractShaderProgram program, int param) {
+        mDrawables[mSubmittedHandles[param]].draw(program, mMatrices, param * Mat4.SIZE);
+    }
+
+    /** Gets the number of entities submitted by the last {@link #submit(RenderQueue)}. */
+    public int getSubmittedCount() {
+        return mSubmittedCount;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Quat;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds the model matrix of every entity with a position and a transform. The position is
+ * three floats and the transform is a {@link Mat4#SIZE} matrix.
+ *
+ * Rotation (a {@link Quat#SIZE} quaternion) and scale (three floats) are optional: an
+ * archetype without them is treated as unrotated and unscaled. Components start zeroed, so
+ * set the rotation of new entities to the identity quaternion. Likewise, the render handle
+ * of a new entity is {@link RenderSystem#NO_HANDLE} until one is set.
+ *
+ * @author Tyler Suehr
+ */
+public final class TransformSystem implements EntitySystem, ParallelFor.Body {
+    private static final int DEFAULT_MIN_PER_TASK = 2048;
+    private static final float[] IDENTITY = {0f, 0f, 0f, 1f};
+
+    private final Query mQuery;
+    private final ComponentType mPosition;
+    private final ComponentType mRotation;
+    private final ComponentType mScale;
+    private final ComponentType mTransform;
+    private ForkJoinPool mPool;
+    private int mMinPerTask = DEFAULT_MIN_PER_TASK;
+
+    /* Set for the archetype being updated, rotation and scale may be null */
+    private float[] mPositions;
+    private float[] mRotations;
+    private float[] mScales;
+    private float[] mTransforms;
+
+
+    /**
+     * @param world the world
+     * @param position the position component, three floats
+     * @param rotation the rotation component, four floats, or null
+     * @param scale the scale component, three floats, or null
+     * @param transform the transform component, sixteen floats
+     */
+    public TransformSystem(World world, ComponentType position, ComponentType rotation,
+                           ComponentType scale, ComponentType transform) {
+        checkFloats(position, 3);
+        checkFloats(transform, Mat4.SIZE);
+        if (rotation != null) {
+            checkFloats(rotation, Quat.SIZE);
+        }
+        if (scale != null) {
+            checkFloats(scale, 3);
+        }
+        mQuery = world.createQuery(position, transform);
+        mPosition = position;
+        mRotation = rotation;
+        mScale = scale;
+        mTransform = transform;
+    }
+
+    /**
+     * Splits each archetype across a fork-join pool when it has enough entities.
+     *
+     * @param pool the pool to run on, or null to update on the calling thread only
+     * @param minPerTask the fewest entities worth giving one task
+     */
+    public void setParallel(ForkJoinPool pool, int minPerTask) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one entity!");
+        }
+        mPool = pool;
+        mMinPerTask = minPerTask;
+    }
+
+    @Override
+    public void update(float deltaSeconds) {
+        for (int a = 0; a < mQuery.getArchetypeCount(); a++) {
+            final Archetype archetype = mQuery.getArchetype(a);
+            mPositions = archetype.getFloats(mPosition);
+            mTransforms = archetype.getFloats(mTransform);
+            mRotations = optionalFloats(archetype, mRotation);
+            mScales = optionalFloats(archetype, mScale);
+            ParallelFor.run(mPool, archetype.size(), mMinPerTask, this);
+        }
+        mPositions = mRotations = mScales = mTransforms = null;
+    }
+
+    @Override
+    public void run(int start, int end) {
+        final float[] positions = mPositions;
+        final float[] rotations = mRotations;
+        final float[] scales = mScales;
+        final float[] transforms = mTransforms;
+        for (int i = start; i < end; i++) {
+            final int p = i * 3;
+            final float[] q = rotations != null ? rotations : IDENTITY;
+            final int qOff = rotations != null ? i * Quat.SIZE : 0;
+            final float sx = scales != null ? scales[p] : 1f;
+            final float sy = scales != null ? scales[p + 1] : 1f;
+            final float sz = scales != null ? scales[p + 2] : 1f;
+            Mat4.compose(transforms, i * Mat4.SIZE, positions[p], positions[p + 1], positions[p + 2],
+                    q, qOff, sx, sy, sz);
+        }
+    }
+
+    private static float[] optionalFloats(Archetype archetype, ComponentType type) {
+        return type != null && archetype.has(type) ? archetype.getFloats(type) : null;
+    }
+
+    private static void checkFloats(ComponentType type, int width) {
+        if (type.isInt() || type.getWidth() != width) {
+            throw new IllegalArgumentException("Component " + type + " must be " + width + " floats!");
+        }
+    }
+}
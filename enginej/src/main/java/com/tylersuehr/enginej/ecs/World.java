@@ -0,0 +1,353 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the entities, components and systems of an entity-component-system scene. It is an
+ * alternative to {@link com.tylersuehr.enginej.AbstractGameObject} for scenes with many
+ * similar things: instead of an object per thing, components live in dense primitive arrays
+ * grouped by {@link Archetype}, and {@link EntitySystem}s loop over them linearly.
+ *
+ * An entity is an int handle that packs a slot index with a generation, so a handle to a
+ * destroyed entity stays dead even after its slot is reused. Adding or removing a component
+ * moves the entity to another archetype, which is much more expensive than changing the
+ * value of a component, so choose the components up front where possible.
+ *
+ * Structural changes (creating, destroying, adding or removing components) aren't thread
+ * safe, and must not happen while a system is iterating the affected archetypes.
+ *
+ * @author Tyler Suehr
+ */
+public final class World {
+    /** The maximum number of component types, one per bit of an archetype mask. */
+    public static final int MAX_COMPONENT_TYPES = 64;
+    private static final int INDEX_BITS = 20;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    /** The maximum number of entities alive at once. */
+    public static final int MAX_ENTITIES = 1 << INDEX_BITS;
+
+    private final List<ComponentType> mTypes = new ArrayList<>();
+    private final Map<Long, Archetype> mArchetypes = new HashMap<>();
+    private final List<Archetype> mArchetypeList = new ArrayList<>();
+    private final List<Query> mQueries = new ArrayList<>();
+    private final List<EntitySystem> mSystems = new ArrayList<>();
+
+    /* Per entity slot */
+    private int[] mGenerations;
+    private Archetype[] mEntityArchetypes;
+    private int[] mEntityRows;
+    private int[] mFreeSlots;
+    private int mFreeCount = 0;
+    private int mSlotCount = 0;
+    private int mEntityCount = 0;
+
+
+    public World() {
+        this(256);
+    }
+
+    public World(int initialCapacity) {
+        final int capacity = Math.max(1, initialCapacity);
+        mGenerations = new int[capacity];
+        mEntityArchetypes = new Archetype[capacity];
+        mEntityRows = new int[capacity];
+        mFreeSlots = new int[capacity];
+    }
+
+    /**
+     * Registers a component type stored as floats.
+     *
+     * @param name the name, used in error messages
+     * @param width the number of floats per entity
+     * @return the component type
+     */
+    public ComponentType registerFloatComponent(String name, int width) {
+        return register(name, width, false);
+    }
+
+    /**
+     * Registers a component type stored as ints.
+     *
+     * @param name the name, used in error messages
+     * @param width the number of ints per entity
+     * @return the component type
+     */
+    public ComponentType registerIntComponent(String name, int width) {
+        return register(name, width, true);
+    }
+
+    /**
+     * Gets the archetype with exactly the given components, creating it if needed.
+     *
+     * @param types the components
+     * @return the archetype
+     */
+    public Archetype getArchetype(ComponentType... types) {
+        return archetypeOf(maskOf(types));
+    }
+
+    /**
+     * Creates an entity with the given components, all zeroed.
+     *
+     * @param types the components
+     * @return the entity
+     */
+    public int createEntity(ComponentType... types) {
+        return createEntity(getArchetype(types));
+    }
+
+    /**
+     * Creates an entity in an archetype, with all of its components zeroed. Prefer this over
+     * {@link #createEntity(ComponentType...)} when creating many entities, since it doesn't
+     * look the archetype up.
+     *
+     * @param archetype the archetype from {@link #getArchetype(ComponentType...)}
+     * @return the entity
+     */
+    public int createEntity(Archetype archetype) {
+        final int slot;
+        if (mFreeCount > 0) {
+            slot = mFreeSlots[--mFreeCount];
+        } else {
+            if (mSlotCount == MAX_ENTITIES) {
+                throw new IllegalStateException("World can't have more than "
+                        + MAX_ENTITIES + " entities!");
+            }
+            if (mSlotCount == mGenerations.length) {
+                growSlots(Math.min(MAX_ENTITIES, mSlotCount * 2));
+            }
+            slot = mSlotCount++;
+        }
+        final int entity = (mGenerations[slot] << INDEX_BITS) | slot;
+        mEntityArchetypes[slot] = archetype;
+        mEntityRows[slot] = archetype.addRow(entity);
+        mEntityCount++;
+        return entity;
+    }
+
+    /**
+     * Destroys an entity. Does nothing if it is already dead.
+     *
+     * @param entity the entity
+     */
+    public void destroyEntity(int entity) {
+        if (!isAlive(entity)) {
+            return;
+        }
+        final int slot = entity & INDEX_MASK;
+        removeFromArchetype(slot);
+        mEntityArchetypes[slot] = null;
+        // Wraps within the bits left over by the index
+        mGenerations[slot] = (mGenerations[slot] + 1) & ((1 << (32 - INDEX_BITS)) - 1);
+        mFreeSlots[mFreeCount++] = slot;
+        mEntityCount--;
+    }
+
+    /** Determines if an entity exists and hasn't been destroyed. */
+    public boolean isAlive(int entity) {
+        final int slot = entity & INDEX_MASK;
+        return slot < mSlotCount
+                && mEntityArchetypes[slot] != null
+                && mGenerations[slot] == (entity >>> INDEX_BITS);
+    }
+
+    /** Determines if a living entity has a component. */
+    public boolean hasComponent(int entity, ComponentType type) {
+        return getArchetype(entity).has(type);
+    }
+
+    /**
+     * Adds a component to an entity, zeroed, moving the entity to a new archetype. Does
+     * nothing if the entity already has it.
+     *
+     * @param entity the entity
+     * @param type the component
+     */
+    public void addComponent(int entity, ComponentType type) {
+        final Archetype current = getArchetype(entity);
+        if (!current.has(type)) {
+            moveEntity(entity & INDEX_MASK, archetypeOf(current.mMask | type.mBit));
+        }
+    }
+
+    /**
+     * Removes a component from an entity, moving the entity to a new archetype. Does nothing
+     * if the entity doesn't have it.
+     *
+     * @param entity the entity
+     * @param type the component
+     */
+    public void removeComponent(int entity, ComponentType type) {
+        final Archetype current = getArchetype(entity);
+        if (current.has(type)) {
+            moveEntity(entity & INDEX_MASK, archetypeOf(current.mMask & ~type.mBit));
+        }
+    }
+
+    /**
+     * Gets the archetype of a living entity. Its components are at {@link #getRow(int)} in
+     * the archetype's columns.
+     *
+     * @param entity the entity
+     * @return the archetype
+     */
+    public Archetype getArchetype(int entity) {
+        if (!isAlive(entity)) {
+            throw new IllegalArgumentException("Entity " + entity + " isn't alive!");
+        }
+        return mEntityArchetypes[entity & INDEX_MASK];
+    }
+
+    /**
+     * Gets the row of a living entity in its archetype. Rows change when other entities are
+     * destroyed or change archetype, so don't hold on to them.
+     *
+     * @param entity the entity
+     * @return the row
+     */
+    public int getRow(int entity) {
+        getArchetype(entity);
+        return mEntityRows[entity & INDEX_MASK];
+    }
+
+    /**
+     * Creates a query over every archetype that has all of the given components, including
+     * archetypes created later.
+     *
+     * @param types the required components
+     * @return the query
+     */
+    public Query createQuery(ComponentType... types) {
+        final Query query = new Query(maskOf(types));
+        for (Archetype archetype : mArchetypeList) {
+            query.offer(archetype);
+        }
+        mQueries.add(query);
+        return query;
+    }
+
+    /** Adds a system, which is updated in the order it was added. */
+    public void addSystem(EntitySystem system) {
+        mSystems.add(system);
+    }
+
+    public void removeSystem(EntitySystem system) {
+        mSystems.remove(system);
+    }
+
+    /**
+     * Updates every system in order.
+     *
+     * @param deltaSeconds the time step
+     */
+    public void update(float deltaSeconds) {
+        for (int i = 0; i < mSystems.size(); i++) {
+            mSystems.get(i).update(deltaSeconds);
+        }
+    }
+
+    public int getEntityCount() {
+        return mEntityCount;
+    }
+
+    public int getArchetypeCount() {
+        return mArchetypeList.size();
+    }
+
+    private ComponentType register(String name, int width, boolean isInt) {
+        if (mTypes.size() == MAX_COMPONENT_TYPES) {
+            throw new IllegalStateException("World can't have more than "
+                    + MAX_COMPONENT_TYPES + " component types!");
+        }
+        if (width < 1) {
+            throw new IllegalArgumentException("Component width must be at least 1!");
+        }
+        final ComponentType type = new ComponentType(mTypes.size(), name, width, isInt);
+        mTypes.add(type);
+        return type;
+    }
+
+    private long maskOf(ComponentType[] types) {
+        long mask = 0L;
+        for (ComponentType type : types) {
+            if (type.mId >= mTypes.size() || mTypes.get(type.mId) != type) {
+                throw new IllegalArgumentException("Component " + type + " belongs to another world!");
+            }
+            mask |= type.mBit;
+        }
+        return mask;
+    }
+
+    private Archetype archetypeOf(long mask) {
+        Archetype archetype = mArchetypes.get(mask);
+        if (archetype == null) {
+            final ComponentType[] types = new ComponentType[Long.bitCount(mask)];
+            for (int i = 0, t = 0; i < mTypes.size(); i++) {
+                if ((mask & (1L << i)) != 0) {
+                    types[t++] = mTypes.get(i);
+                }
+            }
+            archetype = new Archetype(mask, types);
+            mArchetypes.put(mask, archetype);
+            mArchetypeList.add(archetype);
+            for (int i = 0; i < mQueries.size(); i++) {
+                mQueries.get(i).offer(archetype);
+            }
+        }
+        return archetype;
+    }
+
+    private void moveEntity(int slot, Archetype target) {
+        final Archetype source = mEntityArchetypes[slot];
+        final int row = mEntityRows[slot];
+        final int entity = source.getEntity(row);
+        final int newRow = target.addRow(entity);
+        source.copyRow(row, target, newRow);
+        removeFromArchetype(slot);
+        mEntityArchetypes[slot] = target;
+        mEntityRows[slot] = newRow;
+    }
+
+    private void removeFromArchetype(int slot) {
+        final Archetype archetype = mEntityArchetypes[slot];
+        final int row = mEntityRows[slot];
+        if (archetype.removeRow(row)) {
+            mEntityRows[archetype.getEntity(row) & INDEX_MASK] = row;
+        }
+    }
+
+    private void growSlots(int capacity) {
+        mGenerations = Arrays.copyOf(mGenerations, capacity);
+        mEntityArchetypes = Arrays.copyOf(mEntityArchetypes, capacity);
+        mEntityRows = Arrays.copyOf(mEntityRows, capacity);
+        mFreeSlots = Arrays.copyOf(mFreeSlots, capacity);
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * Allocation-free bounding volume math on float arrays, used to cull and pick objects by
+ * their bounds instead of their geometry.
+ *
+ * Boxes are axis-aligned and use the {@link #BOX_SIZE} layout; spheres use the
+ * {@link GeoMath#SPHERE_SIZE} layout. Like {@link Vec3}, every method reads all of its
+ * inputs before writing, so the output may alias an input.
+ *
+ * @author Tyler Suehr
+ */
+public final class Bounds {
+    /** The number of floats used by an axis-aligned box: min xyz, max xyz. */
+    public static final int BOX_SIZE = 6;
+
+
+    private Bounds() {}
+
+    /**
+     * Computes the axis-aligned box around a run of vertices. The position is assumed to be
+     * the first three floats of each vertex. An empty run produces an empty box at the origin.
+     *
+     * @param out the output array
+     * @param outOff the offset of the box
+     * @param vertexData the array of the vertices
+     * @param offset the offset of the first vertex
+     * @param numVertices the number of vertices
+     * @param stride the distance in floats between consecutive vertices, at least 3
+     */
+    public static void computeBox(float[] out, int outOff, float[] vertexData, int offset,
+                                  int numVertices, int stride) {
+        if (numVertices == 0) {
+            for (int k = 0; k < BOX_SIZE; k++) {
+                out[outOff + k] = 0f;
+            }
+            return;
+        }
+
+        float minX = vertexData[offset], minY = vertexData[offset + 1], minZ = vertexData[offset + 2];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        for (int i = 1, v = offset + stride; i < numVertices; i++, v += stride) {
+            final float x = vertexData[v], y = vertexData[v + 1], z = vertexData[v + 2];
+            if (x < minX) minX = x; else if (x > maxX) maxX = x;
+            if (y < minY) minY = y; else if (y > maxY) maxY = y;
+            if (z < minZ) minZ = z; else if (z > maxZ) maxZ = z;
+        }
+        out[outOff] = minX;
+        out[outOff + 1] = minY;
+        out[outOff + 2] = minZ;
+        out[outOff + 3] = maxX;
+        out[outOff + 4] = maxY;
+        out[outOff + 5] = maxZ;
+    }
+
+    /**
+     * Computes a sphere around a run of vertices, centered on their box. It isn't the
+     * smallest possible sphere, but it is never larger than the sphere around the box and
+     * usually tighter, since it measures the actual vertices.
+     *
+     * @param out the output array
+     * @param outOff the offset of the sphere
+     * @param vertexData the array of the vertices
+     * @param offset the offset of the first vertex
+     * @param numVertices the number of vertices
+     * @param stride the distance in floats between consecutive vertices, at least 3
+     */
+    public static void computeSphere(float[] out, int outOff, float[] vertexData, int offset,
+                                     int numVertices, int stride) {
+        if (numVertices == 0) {
+            out[outOff] = out[outOff + 1] = out[outOff + 2] = out[outOff + 3] = 0f;
+            return;
+        }
+
+        float minX = vertexData[offset], minY = vertexData[offset + 1], minZ = vertexData[offset + 2];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        for (int i = 1, v = offset + stride; i < numVertices; i++, v += stride) {
+            final float x = vertexData[v], y = vertexData[v + 1], z = vertexData[v + 2];
+            if (x < minX) minX = x; else if (x > maxX) maxX = x;
+            if (y < minY) minY = y; else if (y > maxY) maxY = y;
+            if (z < minZ) minZ = z; else if (z > maxZ) maxZ = z;
+        }
+
+        final float cx = (minX + maxX) * 0.5f;
+        final float cy = (minY + maxY) * 0.5f;
+        final float cz = (minZ + maxZ) * 0.5f;
+        float radiusSq = 0f;
+        for (int i = 0, v = offset; i < numVertices; i++, v += stride) {
+            final float dx = vertexData[v] - cx, dy = vertexData[v + 1] - cy, dz = vertexData[v + 2] - cz;
+            radiusSq = Math.max(radiusSq, (dx * dx) + (dy * dy) + (dz * dz));
+        }
+        out[outOff] = cx;
+        out[outOff + 1] = cy;
+        out[outOff + 2] = cz;
+        out[outOff + 3] = (float)Math.sqrt(radiusSq);
+    }
+
+    /**
+     * Computes the sphere that encloses a box.
+     *
+     * @param out the output array
+     * @param outOff the offset of the sphere
+     * @param box the array of the box, see {@link #BOX_SIZE}
+     * @param boxOff the offset of the box
+     */
+    public static void sphereOfBox(float[] out, int outOff, float[] box, int boxOff) {
+        final float ex = (box[boxOff + 3] - box[boxOff]) * 0.5f;
+        final float ey = (box[boxOff + 4] - box[boxOff + 1]) * 0.5f;
+        final float ez = (box[boxOff + 5] - box[boxOff + 2]) * 0.5f;
+        final float cx = box[boxOff] + ex, cy = box[boxOff + 1] + ey, cz = box[boxOff + 2] + ez;
+        out[outOff] = cx;
+        out[outOff + 1] = cy;
+        out[outOff + 2] = cz;
+        out[outOff + 3] = (float)Math.sqrt((ex * ex) + (ey * ey) + (ez * ez));
+    }
+
+    /**
+     * Computes the box that encloses a sphere.
+     *
+     * @param out the output array
+     * @param outOff the offset of the box
+     * @param sphere the array of the sphere, see {@link GeoMath#SPHERE_SIZE}
+     * @param sphereOff the offset of the sphere
+     */
+    public static void boxOfSphere(float[] out, int outOff, float[] sphere, int sphereOff) {
+        final float cx = sphere[sphereOff], cy = sphere[sphereOff + 1], cz = sphere[sphereOff + 2];
+        final float r = Math.abs(sphere[sphereOff + 3]);
+        out[outOff] = cx - r;
+        out[outOff + 1] = cy - r;
+        out[outOff + 2] = cz - r;
+        out[outOff + 3] = cx + r;
+        out[outOff + 4] = cy + r;
+        out[outOff + 5] = cz + r;
+    }
+
+    /**
+     * Transforms a box by an affine matrix, producing the axis-aligned box around the
+     * transformed box. Each output extent is the sum of the absolute matrix terms times the
+     * input extents, which avoids transforming all eight corners.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output box
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param box the array of the box, see {@link #BOX_SIZE}
+     * @param boxOff the offset of the box
+     */
+    public static void transformBox(float[] out, int outOff, float[] m, int mOff, float[] box, int boxOff) {
+        final float ex = (box[boxOff + 3] - box[boxOff]) * 0.5f;
+        final float ey = (box[boxOff + 4] - box[boxOff + 1]) * 0.5f;
+        final float ez = (box[boxOff + 5] - box[boxOff + 2]) * 0.5f;
+        final float cx = box[boxOff] + ex, cy = box[boxOff + 1] + ey, cz = box[boxOff + 2] + ez;
+
+        for (int r = 0; r < 3; r++) {
+            final float m0 = m[mOff + r], m1 = m[mOff + 4 + r], m2 = m[mOff + 8 + r];
+            final float center = (m0 * cx) + (m1 * cy) + (m2 * cz) + m[mOff + 12 + r];
+            final float extent = (Math.abs(m0) * ex) + (Math.abs(m1) * ey) + (Math.abs(m2) * ez);
+            out[outOff + r] = center - extent;
+            out[outOff + 3 + r] = center + extent;
+        }
+    }
+
+    /**
+     * Transforms a sphere by an affine matrix. The radius is scaled by the matrix's largest
+     * axis scale, so non-uniform scaling gives a sphere that still encloses the result.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output sphere
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param sphere the array of the sphere, see {@link GeoMath#SPHERE_SIZE}
+     * @param sphereOff the offset of the sphere
+     */
+    public static void transformSphere(float[] out, int outOff, float[] m, int mOff,
+                                       float[] sphere, int sphereOff) {
+        final float x = sphere[sphereOff], y = sphere[sphereOff + 1], z = sphere[sphereOff + 2];
+        final float r = sphere[sphereOff + 3];
+        final float sx = lengthSq(m[mOff], m[mOff + 1], m[mOff + 2]);
+        final float sy = lengthSq(m[mOff + 4], m[mOff + 5], m[mOff + 6]);
+        final float sz = lengthSq(m[mOff + 8], m[mOff + 9], m[mOff + 10]);
+
+        out[outOff] = (m[mOff] * x) + (m[mOff + 4] * y) + (m[mOff + 8] * z) + m[mOff + 12];
+        out[outOff + 1] = (m[mOff + 1] * x) + (m[mOff + 5] * y) + (m[mOff + 9] * z) + m[mOff + 13];
+        out[outOff + 2] = (m[mOff + 2] * x) + (m[mOff + 6] * y) + (m[mOff + 10] * z) + m[mOff + 14];
+        out[outOff + 3] = r * (float)Math.sqrt(Math.max(sx, Math.max(sy, sz)));
+    }
+
+    private static float lengthSq(float x, float y, float z) {
+        return (x * x) + (y * y) + (z * z);
+    }
+}
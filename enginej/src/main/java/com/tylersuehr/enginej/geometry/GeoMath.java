@@ -29,6 +29,12 @@ package com.tylersuehr.enginej.geometry;
  * @author Tyler Suehr
  */
 public final class GeoMath {
+    /* Float layouts used by the array-based overloads below. */
+    public static final int RAY_SIZE    = 6; // point xyz, vector xyz
+    public static final int SPHERE_SIZE = 4; // center xyz, radius
+    public static final int PLANE_SIZE  = 6; // point xyz, normal xyz
+
+
     private GeoMath() {}
 
     /**
@@ -54,8 +60,13 @@ public final class GeoMath {
      * @return distance between the point and the ray
      */
     public static float distanceBetween(Point point, Ray ray) {
+        final Point rayEnd = new Point(
+                ray.point.x + ray.vector.x,
+                ray.point.y + ray.vector.y,
+                ray.point.z + ray.vector.z
+        );
         final Vector p1ToPoint = vectorBetween(ray.point, point);
-        final Vector p2ToPoint = vectorBetween(ray.point.translate(ray.vector), point);
+        final Vector p2ToPoint = vectorBetween(rayEnd, point);
 
         // The length of the cross product gives the area of an imaginary parallelogram having
         // the two vectors as sides. A parallelogram can be thought of as consisting of two
@@ -113,6 +124,112 @@ public final class GeoMath {
     public static Point intersectionPoint(Ray ray, Plane plane) {
         final Vector rayToPlaneVector = vectorBetween(ray.point, plane.point);
         final float scaleFactor = rayToPlaneVector.dotProduct(plane.normal) / ray.vector.dotProduct(plane.normal);
-        return ray.point.translate(ray.vector.scale(scaleFactor)); // the intersection point
+        return new Point( // the intersection point
+                ray.point.x + ray.vector.x * scaleFactor,
+                ray.point.y + ray.vector.y * scaleFactor,
+                ray.point.z + ray.vector.z * scaleFactor
+        );
+    }
+
+    /**
+     * Allocation-free version of {@link #distanceBetween(Point, Ray)}.
+     *
+     * The triangle used above has sides (p - o) and (p - (o + v)) = (p - o) - v, and the
+     * cross product of those is the same length as (p - o) x v, so that is all we compute.
+     *
+     * @param point the array of the point
+     * @param pointOff the offset of the point
+     * @param ray the array of the ray, see {@link #RAY_SIZE}
+     * @param rayOff the offset of the ray
+     * @return distance between the point and the ray
+     */
+    public static float distanceBetween(float[] point, int pointOff, float[] ray, int rayOff) {
+        final float ax = point[pointOff] - ray[rayOff];
+        final float ay = point[pointOff + 1] - ray[rayOff + 1];
+        final float az = point[pointOff + 2] - ray[rayOff + 2];
+        final float vx = ray[rayOff + 3], vy = ray[rayOff + 4], vz = ray[rayOff + 5];
+
+        final float cx = (ay * vz) - (az * vy);
+        final float cy = (az * vx) - (ax * vz);
+        final float cz = (ax * vy) - (ay * vx);
+
+        final float areaOfTriangleTimesTwoSq = (cx * cx) + (cy * cy) + (cz * cz);
+        final float lengthOfBaseSq = (vx * vx) + (vy * vy) + (vz * vz);
+        return (float)Math.sqrt(areaOfTriangleTimesTwoSq / lengthOfBaseSq);
+    }
+
+    /**
+     * Allocation-free version of {@link #intersects(Sphere, Ray)}.
+     *
+     * @param sphere the array of the sphere, see {@link #SPHERE_SIZE}
+     * @param sphereOff the offset of the sphere
+     * @param ray the array of the ray, see {@link #RAY_SIZE}
+     * @param rayOff the offset of the ray
+     * @return true if intersection between sphere and ray
+     */
+    public static boolean intersects(float[] sphere, int sphereOff, float[] ray, int rayOff) {
+        return distanceBetween(sphere, sphereOff, ray, rayOff) < sphere[sphereOff + 3];
+    }
+
+    /**
+     * Allocation-free version of {@link #intersectionPoint(Ray, Plane)}.
+     *
+     * @param out the array to store the intersection point in
+     * @param outOff the offset of the intersection point
+     * @param ray the array of the ray, see {@link #RAY_SIZE}
+     * @param rayOff the offset of the ray
+     * @param plane the array of the plane, see {@link #PLANE_SIZE}
+     * @param planeOff the offset of the plane
+     * @return true if a point was written, false if the ray is parallel to the plane
+     */
+    public static boolean intersectionPoint(float[] out, int outOff, float[] ray, int rayOff,
+                                            float[] plane, int planeOff) {
+        final float nx = plane[planeOff + 3], ny = plane[planeOff + 4], nz = plane[planeOff + 5];
+        final float denominator = (ray[rayOff + 3] * nx) + (ray[rayOff + 4] * ny) + (ray[rayOff + 5] * nz);
+        if (denominator == 0f) {
+            return false;
+        }
+
+        final float numerator = ((plane[planeOff] - ray[rayOff]) * nx)
+                + ((plane[planeOff + 1] - ray[rayOff + 1]) * ny)
+                + ((plane[planeOff + 2] - ray[rayOff + 2]) * nz);
+        Vec3.madd(out, outOff, ray, rayOff, ray, rayOff + 3, numerator / denominator);
+        return true;
+    }
+
+    /**
+     * Stores a ray into a float array using the {@link #RAY_SIZE} layout.
+     *
+     * @param out the output array
+     * @param outOff the offset of the ray
+     * @param ray the ray to store
+     */
+    public static void store(float[] out, int outOff, Ray ray) {
+        Vec3.set(out, outOff, ray.point);
+        Vec3.set(out, outOff + 3, ray.vector);
+    }
+
+    /**
+     * Stores a sphere into a float array using the {@link #SPHERE_SIZE} layout.
+     *
+     * @param out the output array
+     * @param outOff the offset of the sphere
+     * @param sphere the sphere to store
+     */
+    public static void store(float[] out, int outOff, Sphere sphere) {
+        Vec3.set(out, outOff, sphere.center);
+        out[outOff + 3] = sphere.radius;
+    }
+
+    /**
+     * Stores a plane into a float array using the {@link #PLANE_SIZE} layout.
+     *
+     * @param out the output array
+     * @param outOff the offset of the plane
+     * @param plane the plane to store
+     */
+    public static void store(float[] out, int outOff, Plane plane) {
+        Vec3.set(out, outOff, plane.point);
+        Vec3.set(out, outOff + 3, plane.normal);
     }
 }
\ No newline at end of file
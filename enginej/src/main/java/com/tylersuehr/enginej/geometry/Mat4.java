@@ -0,0 +1,678 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * Allocation-free 4x4 matrix math operating on float arrays.
+ *
+ * Matrices are stored in column-major order (the same layout OpenGL ES expects), so the
+ * element at column c and row r lives at {@code m[offset + c * 4 + r]}. Like {@link Vec3},
+ * every method writes into an output array and reads all inputs first, so the output may
+ * alias any of the inputs.
+ *
+ * @author Tyler Suehr
+ */
+public final class Mat4 {
+    /** The number of floats used by a single matrix. */
+    public static final int SIZE = 16;
+    /** The number of floats written by {@link #extractFrustumPlanes}. */
+    public static final int FRUSTUM_PLANES_SIZE = 24;
+
+
+    private Mat4() {}
+
+    public static void setIdentity(float[] m, int mOff) {
+        m[mOff]      = 1f; m[mOff + 1]  = 0f; m[mOff + 2]  = 0f; m[mOff + 3]  = 0f;
+        m[mOff + 4]  = 0f; m[mOff + 5]  = 1f; m[mOff + 6]  = 0f; m[mOff + 7]  = 0f;
+        m[mOff + 8]  = 0f; m[mOff + 9]  = 0f; m[mOff + 10] = 1f; m[mOff + 11] = 0f;
+        m[mOff + 12] = 0f; m[mOff + 13] = 0f; m[mOff + 14] = 0f; m[mOff + 15] = 1f;
+    }
+
+    public static void copy(float[] out, int outOff, float[] m, int mOff) {
+        System.arraycopy(m, mOff, out, outOff, SIZE);
+    }
+
+    /**
+     * Multiplies two matrices, out = a * b.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output matrix
+     * @param a the array of the left matrix
+     * @param aOff the offset of the left matrix
+     * @param b the array of the right matrix
+     * @param bOff the offset of the right matrix
+     */
+    public static void multiply(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float a00 = a[aOff],      a10 = a[aOff + 1],  a20 = a[aOff + 2],  a30 = a[aOff + 3];
+        final float a01 = a[aOff + 4],  a11 = a[aOff + 5],  a21 = a[aOff + 6],  a31 = a[aOff + 7];
+        final float a02 = a[aOff + 8],  a12 = a[aOff + 9],  a22 = a[aOff + 10], a32 = a[aOff + 11];
+        final float a03 = a[aOff + 12], a13 = a[aOff + 13], a23 = a[aOff + 14], a33 = a[aOff + 15];
+
+        // Each column of b is read before the matching column of out is written, which
+        // keeps this correct when out and b are the same matrix.
+        float b0, b1, b2, b3;
+        b0 = b[bOff]; b1 = b[bOff + 1]; b2 = b[bOff + 2]; b3 = b[bOff + 3];
+        out[outOff] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+        out[outOff + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+        out[outOff + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+        out[outOff + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+        b0 = b[bOff + 4]; b1 = b[bOff + 5]; b2 = b[bOff + 6]; b3 = b[bOff + 7];
+        out[outOff + 4] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+        out[outOff + 5] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+        out[outOff + 6] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+        out[outOff + 7] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+        b0 = b[bOff + 8]; b1 = b[bOff + 9]; b2 = b[bOff + 10]; b3 = b[bOff + 11];
+        out[outOff + 8] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+        out[outOff + 9] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+        out[outOff + 10] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+        out[outOff + 11] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+        b0 = b[bOff + 12]; b1 = b[bOff + 13]; b2 = b[bOff + 14]; b3 = b[bOff + 15];
+        out[outOff + 12] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+        out[outOff + 13] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+        out[outOff + 14] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+        out[outOff + 15] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+    }
+
+    /**
+     * Multiplies a matrix by a 4-component vector, out = m * v.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param v the array of the vector
+     * @param vOff the offset of the vector
+     */
+    public static void multiplyVec4(float[] out, int outOff, float[] m, int mOff, float[] v, int vOff) {
+        final float x = v[vOff], y = v[vOff + 1], z = v[vOff + 2], w = v[vOff + 3];
+        out[outOff]     = m[mOff]     * x + m[mOff + 4] * y + m[mOff + 8]  * z + m[mOff + 12] * w;
+        out[outOff + 1] = m[mOff + 1] * x + m[mOff + 5] * y + m[mOff + 9]  * z + m[mOff + 13] * w;
+        out[outOff + 2] = m[mOff + 2] * x + m[mOff + 6] * y + m[mOff + 10] * z + m[mOff + 14] * w;
+        out[outOff + 3] = m[mOff + 3] * x + m[mOff + 7] * y + m[mOff + 11] * z + m[mOff + 15] * w;
+    }
+
+    /**
+     * Transforms a 3D point (implicit w of 1) by an affine matrix.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output point
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param p the array of the point
+     * @param pOff the offset of the point
+     */
+    public static void transformPoint(float[] out, int outOff, float[] m, int mOff, float[] p, int pOff) {
+        final float x = p[pOff], y = p[pOff + 1], z = p[pOff + 2];
+        out[outOff]     = m[mOff]     * x + m[mOff + 4] * y + m[mOff + 8]  * z + m[mOff + 12];
+        out[outOff + 1] = m[mOff + 1] * x + m[mOff + 5] * y + m[mOff + 9]  * z + m[mOff + 13];
+        out[outOff + 2] = m[mOff + 2] * x + m[mOff + 6] * y + m[mOff + 10] * z + m[mOff + 14];
+    }
+
+    /**
+     * Transforms a 3D direction (implicit w of 0) by a matrix, ignoring translation.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param v the array of the direction
+     * @param vOff the offset of the direction
+     */
+    public static void transformVector(float[] out, int outOff, float[] m, int mOff, float[] v, int vOff) {
+        final float x = v[vOff], y = v[vOff + 1], z = v[vOff + 2];
+        out[outOff]     = m[mOff]     * x + m[mOff + 4] * y + m[mOff + 8]  * z;
+        out[outOff + 1] = m[mOff + 1] * x + m[mOff + 5] * y + m[mOff + 9]  * z;
+        out[outOff + 2] = m[mOff + 2] * x + m[mOff + 6] * y + m[mOff + 10] * z;
+    }
+
+    /**
+     * Multiplies one matrix by many, out[i] = a * b[i]. The left matrix is loaded once for
+     * the whole batch, which makes this much cheaper than calling {@link #multiply} in a loop.
+     *
+     * @param out the output array
+     * @param outOff the offset of the first output matrix
+     * @param a the array of the left matrix
+     * @param aOff the offset of the left matrix
+     * @param b the array of the right matrices, stored back to back
+     * @param bOff the offset of the first right matrix
+     * @param count the number of matrices to multiply
+     */
+    public static void multiplyBatch(float[] out, int outOff, float[] a, int aOff,
+                                     float[] b, int bOff, int count) {
+        final float a00 = a[aOff],      a10 = a[aOff + 1],  a20 = a[aOff + 2],  a30 = a[aOff + 3];
+        final float a01 = a[aOff + 4],  a11 = a[aOff + 5],  a21 = a[aOff + 6],  a31 = a[aOff + 7];
+        final float a02 = a[aOff + 8],  a12 = a[aOff + 9],  a22 = a[aOff + 10], a32 = a[aOff + 11];
+        final float a03 = a[aOff + 12], a13 = a[aOff + 13], a23 = a[aOff + 14], a33 = a[aOff + 15];
+
+        float b0, b1, b2, b3;
+        for (int i = 0, bi = bOff, oi = outOff; i < count; i++, bi += SIZE, oi += SIZE) {
+            b0 = b[bi]; b1 = b[bi + 1]; b2 = b[bi + 2]; b3 = b[bi + 3];
+            out[oi] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            out[oi + 1] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            out[oi + 2] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            out[oi + 3] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+            b0 = b[bi + 4]; b1 = b[bi + 5]; b2 = b[bi + 6]; b3 = b[bi + 7];
+            out[oi + 4] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            out[oi + 5] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            out[oi + 6] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            out[oi + 7] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+            b0 = b[bi + 8]; b1 = b[bi + 9]; b2 = b[bi + 10]; b3 = b[bi + 11];
+            out[oi + 8] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            out[oi + 9] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            out[oi + 10] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            out[oi + 11] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+
+            b0 = b[bi + 12]; b1 = b[bi + 13]; b2 = b[bi + 14]; b3 = b[bi + 15];
+            out[oi + 12] = a00 * b0 + a01 * b1 + a02 * b2 + a03 * b3;
+            out[oi + 13] = a10 * b0 + a11 * b1 + a12 * b2 + a13 * b3;
+            out[oi + 14] = a20 * b0 + a21 * b1 + a22 * b2 + a23 * b3;
+            out[oi + 15] = a30 * b0 + a31 * b1 + a32 * b2 + a33 * b3;
+        }
+    }
+
+    /**
+     * Transforms many 3D points (implicit w of 1) by one affine matrix.
+     *
+     * @param out the output array
+     * @param outOff the offset of the first output point
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param points the array of the points
+     * @param pointsOff the offset of the first point
+     * @param stride the distance in floats between consecutive points (in and out), at least 3
+     * @param count the number of points to transform
+     */
+    public static void transformPoints(float[] out, int outOff, float[] m, int mOff,
+                                       float[] points, int pointsOff, int stride, int count) {
+        final float m0 = m[mOff],     m4 = m[mOff + 4], m8 = m[mOff + 8],   m12 = m[mOff + 12];
+        final float m1 = m[mOff + 1], m5 = m[mOff + 5], m9 = m[mOff + 9],   m13 = m[mOff + 13];
+        final float m2 = m[mOff + 2], m6 = m[mOff + 6], m10 = m[mOff + 10], m14 = m[mOff + 14];
+
+        for (int i = 0, pi = pointsOff, oi = outOff; i < count; i++, pi += stride, oi += stride) {
+            final float x = points[pi], y = points[pi + 1], z = points[pi + 2];
+            out[oi]     = m0 * x + m4 * y + m8  * z + m12;
+            out[oi + 1] = m1 * x + m5 * y + m9  * z + m13;
+            out[oi + 2] = m2 * x + m6 * y + m10 * z + m14;
+        }
+    }
+
+    /**
+     * Calculates the inverse of a matrix.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output matrix
+     * @param m the array of the matrix to invert
+     * @param mOff the offset of the matrix to invert
+     * @return true if inverted, false if the matrix is singular (out is left untouched)
+     */
+    public static boolean invert(float[] out, int outOff, float[] m, int mOff) {
+        // Named by array index (aCR = m[C * 4 + R]), so a12 is column 1, row 2
+        final float a00 = m[mOff], a01 = m[mOff + 1], a02 = m[mOff + 2], a03 = m[mOff + 3];
+        final float a10 = m[mOff + 4], a11 = m[mOff + 5], a12 = m[mOff + 6], a13 = m[mOff + 7];
+        final float a20 = m[mOff + 8], a21 = m[mOff + 9], a22 = m[mOff + 10], a23 = m[mOff + 11];
+        final float a30 = m[mOff + 12], a31 = m[mOff + 13], a32 = m[mOff + 14], a33 = m[mOff + 15];
+
+        // 2x2 determinants shared between the cofactors
+        final float b00 = a00 * a11 - a01 * a10;
+        final float b01 = a00 * a12 - a02 * a10;
+        final float b02 = a00 * a13 - a03 * a10;
+        final float b03 = a01 * a12 - a02 * a11;
+        final float b04 = a01 * a13 - a03 * a11;
+        final float b05 = a02 * a13 - a03 * a12;
+        final float b06 = a20 * a31 - a21 * a30;
+        final float b07 = a20 * a32 - a22 * a30;
+        final float b08 = a20 * a33 - a23 * a30;
+        final float b09 = a21 * a32 - a22 * a31;
+        final float b10 = a21 * a33 - a23 * a31;
+        final float b11 = a22 * a33 - a23 * a32;
+
+        final float det = b00 * b11 - b01 * b10 + b02 * b09 + b03 * b08 - b04 * b07 + b05 * b06;
+        if (det == 0f) {
+            return false;
+        }
+        final float invDet = 1f / det;
+
+        out[outOff]      = (a11 * b11 - a12 * b10 + a13 * b09) * invDet;
+        out[outOff + 1]  = (a02 * b10 - a01 * b11 - a03 * b09) * invDet;
+        out[outOff + 2]  = (a31 * b05 - a32 * b04 + a33 * b03) * invDet;
+        out[outOff + 3]  = (a22 * b04 - a21 * b05 - a23 * b03) * invDet;
+        out[outOff + 4]  = (a12 * b08 - a10 * b11 - a13 * b07) * invDet;
+        out[outOff + 5]  = (a00 * b11 - a02 * b08 + a03 * b07) * invDet;
+        out[outOff + 6]  = (a32 * b02 - a30 * b05 - a33 * b01) * invDet;
+        out[outOff + 7]  = (a20 * b05 - a22 * b02 + a23 * b01) * invDet;
+        out[outOff + 8]  = (a10 * b10 - a11 * b08 + a13 * b06) * invDet;
+        out[outOff + 9]  = (a01 * b08 - a00 * b10 - a03 * b06) * invDet;
+        out[outOff + 10] = (a30 * b04 - a31 * b02 + a33 * b00) * invDet;
+        out[outOff + 11] = (a21 * b02 - a20 * b04 - a23 * b00) * invDet;
+        out[outOff + 12] = (a11 * b07 - a10 * b09 - a12 * b06) * invDet;
+        out[outOff + 13] = (a00 * b09 - a01 * b07 + a02 * b06) * invDet;
+        out[outOff + 14] = (a31 * b01 - a30 * b03 - a32 * b00) * invDet;
+        out[outOff + 15] = (a20 * b03 - a21 * b01 + a22 * b00) * invDet;
+        return true;
+    }
+
+    /**
+     * Transposes a matrix.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output matrix
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     */
+    public static void transpose(float[] out, int outOff, float[] m, int mOff) {
+        final float m1 = m[mOff + 1], m2 = m[mOff + 2], m3 = m[mOff + 3];
+        final float m6 = m[mOff + 6], m7 = m[mOff + 7], m11 = m[mOff + 11];
+        out[outOff] = m[mOff];
+        out[outOff + 1] = m[mOff + 4];
+        out[outOff + 2] = m[mOff + 8];
+        out[outOff + 3] = m[mOff + 12];
+        out[outOff + 4] = m1;
+        out[outOff + 5] = m[mOff + 5];
+        out[outOff + 6] = m[mOff + 9];
+        out[outOff + 7] = m[mOff + 13];
+        out[outOff + 8] = m2;
+        out[outOff + 9] = m6;
+        out[outOff + 10] = m[mOff + 10];
+        out[outOff + 11] = m[mOff + 14];
+        out[outOff + 12] = m3;
+        out[outOff + 13] = m7;
+        out[outOff + 14] = m11;
+        out[outOff + 15] = m[mOff + 15];
+    }
+
+    /**
+     * Creates a view matrix looking from an eye position towards a center position.
+     *
+     * @param m the output array
+     * @param mOff the offset of the output matrix
+     * @param eyeX the x-coordinate of the eye
+     * @param eyeY the y-coordinate of the eye
+     * @param eyeZ the z-coordinate of the eye
+     * @param centerX the x-coordinate being looked at
+     * @param centerY the y-coordinate being looked at
+     * @param centerZ the z-coordinate being looked at
+     * @param upX the x-component of the up vector
+     * @param upY the y-component of the up vector
+     * @param upZ the z-component of the up vector
+     */
+    public static void lookAt(float[] m, int mOff,
+                              float eyeX, float eyeY, float eyeZ,
+                              float centerX, float centerY, float centerZ,
+                              float upX, float upY, float upZ) {
+        // Forward vector
+        float fx = centerX - eyeX;
+        float fy = centerY - eyeY;
+        float fz = centerZ - eyeZ;
+        final float invF = 1f / (float)Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx *= invF;
+        fy *= invF;
+        fz *= invF;
+
+        // Side vector = forward x up
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+        final float invS = 1f / (float)Math.sqrt(sx * sx + sy * sy + sz * sz);
+        sx *= invS;
+        sy *= invS;
+        sz *= invS;
+
+        // Recomputed up vector = side x forward
+        final float ux = sy * fz - sz * fy;
+        final float uy = sz * fx - sx * fz;
+        final float uz = sx * fy - sy * fx;
+
+        m[mOff]      = sx;
+        m[mOff + 1]  = ux;
+        m[mOff + 2]  = -fx;
+        m[mOff + 3]  = 0f;
+
+        m[mOff + 4]  = sy;
+        m[mOff + 5]  = uy;
+        m[mOff + 6]  = -fy;
+        m[mOff + 7]  = 0f;
+
+        m[mOff + 8]  = sz;
+        m[mOff + 9]  = uz;
+        m[mOff + 10] = -fz;
+        m[mOff + 11] = 0f;
+
+        m[mOff + 12] = -(sx * eyeX + sy * eyeY + sz * eyeZ);
+        m[mOff + 13] = -(ux * eyeX + uy * eyeY + uz * eyeZ);
+        m[mOff + 14] = fx * eyeX + fy * eyeY + fz * eyeZ;
+        m[mOff + 15] = 1f;
+    }
+
+    /**
+     * Creates an orthographic projection matrix.
+     *
+     * @param m the output array
+     * @param mOff the offset of the output matrix
+     * @param left the left clipping plane
+     * @param right the right clipping plane
+     * @param bottom the bottom clipping plane
+     * @param top the top clipping plane
+     * @param near the near clipping plane
+     * @param far the far clipping plane
+     */
+    public static void ortho(float[] m, int mOff, float left, float right,
+                             float bottom, float top, float near, float far) {
+        final float rWidth = 1f / (right - left);
+        final float rHeight = 1f / (top - bottom);
+        final float rDepth = 1f / (far - near);
+
+        m[mOff]      = 2f * rWidth;
+        m[mOff + 1]  = 0f;
+        m[mOff + 2]  = 0f;
+        m[mOff + 3]  = 0f;
+
+        m[mOff + 4]  = 0f;
+        m[mOff + 5]  = 2f * rHeight;
+        m[mOff + 6]  = 0f;
+        m[mOff + 7]  = 0f;
+
+        m[mOff + 8]  = 0f;
+        m[mOff + 9]  = 0f;
+        m[mOff + 10] = -2f * rDepth;
+        m[mOff + 11] = 0f;
+
+        m[mOff + 12] = -(right + left) * rWidth;
+        m[mOff + 13] = -(top + bottom) * rHeight;
+        m[mOff + 14] = -(far + near) * rDepth;
+        m[mOff + 15] = 1f;
+    }
+
+    /**
+     * Creates a perspective projection matrix from the clipping planes of a frustum.
+     *
+     * @param m the output array
+     * @param mOff the offset of the output matrix
+     * @param left the left clipping plane (at the near plane)
+     * @param right the right clipping plane (at the near plane)
+     * @param bottom the bottom clipping plane (at the near plane)
+     * @param top the top clipping plane (at the near plane)
+     * @param near the near clipping plane
+     * @param far the far clipping plane
+     */
+    public static void frustum(float[] m, int mOff, float left, float right,
+                               float bottom, float top, float near, float far) {
+        final float rWidth = 1f / (right - left);
+        final float rHeight = 1f / (top - bottom);
+        final float rDepth = 1f / (far - near);
+
+        m[mOff]      = 2f * near * rWidth;
+        m[mOff + 1]  = 0f;
+        m[mOff + 2]  = 0f;
+        m[mOff + 3]  = 0f;
+
+        m[mOff + 4]  = 0f;
+        m[mOff + 5]  = 2f * near * rHeight;
+        m[mOff + 6]  = 0f;
+        m[mOff + 7]  = 0f;
+
+        m[mOff + 8]  = (right + left) * rWidth;
+        m[mOff + 9]  = (top + bottom) * rHeight;
+        m[mOff + 10] = -(far + near) * rDepth;
+        m[mOff + 11] = -1f;
+
+        m[mOff + 12] = 0f;
+        m[mOff + 13] = 0f;
+        m[mOff + 14] = -2f * far * near * rDepth;
+        m[mOff + 15] = 0f;
+    }
+
+    /**
+     * Creates a perspective projection matrix from a vertical field of view.
+     *
+     * @param m the output array
+     * @param mOff the offset of the output matrix
+     * @param yFovInDegrees the field of view in degrees on y-axis
+     * @param aspect the device aspect ratio
+     * @param near the near clipping plane
+     * @param far the far clipping plane
+     */
+    public static void perspective(float[] m, int mOff, float yFovInDegrees,
+                                   float aspect, float near, float far) {
+        // Focal length, based on the field of vision across the y-axis
+        final float a = (float)(1.0 / Math.tan(Math.toRadians(yFovInDegrees) / 2.0));
+        final float rDepth = 1f / (far - near);
+
+        m[mOff]      = a / aspect;
+        m[mOff + 1]  = 0f;
+        m[mOff + 2]  = 0f;
+        m[mOff + 3]  = 0f;
+
+        m[mOff + 4]  = 0f;
+        m[mOff + 5]  = a;
+        m[mOff + 6]  = 0f;
+        m[mOff + 7]  = 0f;
+
+        m[mOff + 8]  = 0f;
+        m[mOff + 9]  = 0f;
+        m[mOff + 10] = -(far + near) * rDepth;
+        m[mOff + 11] = -1f;
+
+        m[mOff + 12] = 0f;
+        m[mOff + 13] = 0f;
+        m[mOff + 14] = -2f * far * near * rDepth;
+        m[mOff + 15] = 0f;
+    }
+
+    /**
+     * Composes a matrix from a translation, rotation and scale (applied scale first, then
+     * rotation, then translation).
+     *
+     * @param m the output array
+     * @param mOff the offset of the output matrix
+     * @param tx the x-translation
+     * @param ty the y-translation
+     * @param tz the z-translation
+     * @param q the array of the rotation quaternion, see {@link Quat}
+     * @param qOff the offset of the rotation quaternion
+     * @param sx the x-scale
+     * @param sy the y-scale
+     * @param sz the z-scale
+     */
+    public static void compose(float[] m, int mOff, float tx, float ty, float tz,
+                               float[] q, int qOff, float sx, float sy, float sz) {
+        final float x = q[qOff], y = q[qOff + 1], z = q[qOff + 2], w = q[qOff + 3];
+        final float x2 = x + x, y2 = y + y, z2 = z + z;
+        final float xx = x * x2, xy = x * y2, xz = x * z2;
+        final float yy = y * y2, yz = y * z2, zz = z * z2;
+        final float wx = w * x2, wy = w * y2, wz = w * z2;
+
+        m[mOff]      = (1f - (yy + zz)) * sx;
+        m[mOff + 1]  = (xy + wz) * sx;
+        m[mOff + 2]  = (xz - wy) * sx;
+        m[mOff + 3]  = 0f;
+
+        m[mOff + 4]  = (xy - wz) * sy;
+        m[mOff + 5]  = (1f - (xx + zz)) * sy;
+        m[mOff + 6]  = (yz + wx) * sy;
+        m[mOff + 7]  = 0f;
+
+        m[mOff + 8]  = (xz + wy) * sz;
+        m[mOff + 9]  = (yz - wx) * sz;
+        m[mOff + 10] = (1f - (xx + yy)) * sz;
+        m[mOff + 11] = 0f;
+
+        m[mOff + 12] = tx;
+        m[mOff + 13] = ty;
+        m[mOff + 14] = tz;
+        m[mOff + 15] = 1f;
+    }
+
+    /**
+     * Decomposes an affine matrix (without shear) into its translation, rotation and scale.
+     * A negative determinant is folded into the x-scale.
+     *
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @param outT the array to store the translation in
+     * @param tOff the offset of the translation
+     * @param outQ the array to store the rotation quaternion in
+     * @param qOff the offset of the rotation quaternion
+     * @param outS the array to store the scale in
+     * @param sOff the offset of the scale
+     */
+    public static void decompose(float[] m, int mOff, float[] outT, int tOff,
+                                 float[] outQ, int qOff, float[] outS, int sOff) {
+        final float m0 = m[mOff],     m1 = m[mOff + 1], m2 = m[mOff + 2];
+        final float m4 = m[mOff + 4], m5 = m[mOff + 5], m6 = m[mOff + 6];
+        final float m8 = m[mOff + 8], m9 = m[mOff + 9], m10 = m[mOff + 10];
+
+        float sx = (float)Math.sqrt(m0 * m0 + m1 * m1 + m2 * m2);
+        final float sy = (float)Math.sqrt(m4 * m4 + m5 * m5 + m6 * m6);
+        final float sz = (float)Math.sqrt(m8 * m8 + m9 * m9 + m10 * m10);
+        final float det = m0 * (m5 * m10 - m9 * m6) - m4 * (m1 * m10 - m9 * m2) + m8 * (m1 * m6 - m5 * m2);
+        if (det < 0f) {
+            sx = -sx;
+        }
+
+        outT[tOff] = m[mOff + 12];
+        outT[tOff + 1] = m[mOff + 13];
+        outT[tOff + 2] = m[mOff + 14];
+
+        outS[sOff] = sx;
+        outS[sOff + 1] = sy;
+        outS[sOff + 2] = sz;
+
+        // Pure rotation matrix, named rRC for row R and column C
+        final float isx = (sx != 0f) ? 1f / sx : 0f;
+        final float isy = (sy != 0f) ? 1f / sy : 0f;
+        final float isz = (sz != 0f) ? 1f / sz : 0f;
+        final float r00 = m0 * isx, r10 = m1 * isx, r20 = m2 * isx;
+        final float r01 = m4 * isy, r11 = m5 * isy, r21 = m6 * isy;
+        final float r02 = m8 * isz, r12 = m9 * isz, r22 = m10 * isz;
+
+        // Pick the largest diagonal term to keep the square root well-conditioned
+        final float trace = r00 + r11 + r22;
+        if (trace > 0f) {
+            final float s = (float)Math.sqrt(trace + 1f) * 2f;
+            outQ[qOff]     = (r21 - r12) / s;
+            outQ[qOff + 1] = (r02 - r20) / s;
+            outQ[qOff + 2] = (r10 - r01) / s;
+            outQ[qOff + 3] = 0.25f * s;
+        } else if (r00 > r11 && r00 > r22) {
+            final float s = (float)Math.sqrt(1f + r00 - r11 - r22) * 2f;
+            outQ[qOff]     = 0.25f * s;
+            outQ[qOff + 1] = (r01 + r10) / s;
+            outQ[qOff + 2] = (r02 + r20) / s;
+            outQ[qOff + 3] = (r21 - r12) / s;
+        } else if (r11 > r22) {
+            final float s = (float)Math.sqrt(1f + r11 - r00 - r22) * 2f;
+            outQ[qOff]     = (r01 + r10) / s;
+            outQ[qOff + 1] = 0.25f * s;
+            outQ[qOff + 2] = (r12 + r21) / s;
+            outQ[qOff + 3] = (r02 - r20) / s;
+        } else {
+            final float s = (float)Math.sqrt(1f + r22 - r00 - r11) * 2f;
+            outQ[qOff]     = (r02 + r20) / s;
+            outQ[qOff + 1] = (r12 + r21) / s;
+            outQ[qOff + 2] = 0.25f * s;
+            outQ[qOff + 3] = (r10 - r01) / s;
+        }
+    }
+
+    /**
+     * Extracts the 3x3 normal matrix (the inverse-transpose of the upper-left 3x3) from a
+     * model or model-view matrix, suitable for glUniformMatrix3fv.
+     *
+     * @param out the output array, receives 9 floats in column-major order
+     * @param outOff the offset of the output matrix
+     * @param m the array of the matrix
+     * @param mOff the offset of the matrix
+     * @return true if extracted, false if the matrix is singular (out is left untouched)
+     */
+    public static boolean normalMatrix(float[] out, int outOff, float[] m, int mOff) {
+        // Upper-left 3x3 laid out by rows: | a b c | d e f | g h i |
+        final float a = m[mOff], b = m[mOff + 4], c = m[mOff + 8];
+        final float d = m[mOff + 1], e = m[mOff + 5], f = m[mOff + 9];
+        final float g = m[mOff + 2], h = m[mOff + 6], i = m[mOff + 10];
+
+        // The inverse-transpose is the cofactor matrix divided by the determinant
+        final float c00 = e * i - f * h, c01 = f * g - d * i, c02 = d * h - e * g;
+        final float c10 = c * h - b * i, c11 = a * i - c * g, c12 = b * g - a * h;
+        final float c20 = b * f - c * e, c21 = c * d - a * f, c22 = a * e - b * d;
+
+        final float det = a * c00 + b * c01 + c * c02;
+        if (det == 0f) {
+            return false;
+        }
+        final float invDet = 1f / det;
+
+        out[outOff]     = c00 * invDet;
+        out[outOff + 1] = c10 * invDet;
+        out[outOff + 2] = c20 * invDet;
+        out[outOff + 3] = c01 * invDet;
+        out[outOff + 4] = c11 * invDet;
+        out[outOff + 5] = c21 * invDet;
+        out[outOff + 6] = c02 * invDet;
+        out[outOff + 7] = c12 * invDet;
+        out[outOff + 8] = c22 * invDet;
+        return true;
+    }
+
+    /**
+     * Extracts the six clipping planes of the frustum described by a view-projection matrix.
+     *
+     * Planes are written as (nx, ny, nz, d) in the order left, right, bottom, top, near, far,
+     * normalized and facing inwards, so a point p is inside a plane when dot(n, p) + d >= 0.
+     *
+     * @param out the output array, receives {@link #FRUSTUM_PLANES_SIZE} floats
+     * @param outOff the offset of the first plane
+     * @param m the array of the view-projection matrix
+     * @param mOff the offset of the view-projection matrix
+     */
+    public static void extractFrustumPlanes(float[] out, int outOff, float[] m, int mOff) {
+        // Rows of the matrix
+        final float r00 = m[mOff],     r01 = m[mOff + 4], r02 = m[mOff + 8],  r03 = m[mOff + 12];
+        final float r10 = m[mOff + 1], r11 = m[mOff + 5], r12 = m[mOff + 9],  r13 = m[mOff + 13];
+        final float r20 = m[mOff + 2], r21 = m[mOff + 6], r22 = m[mOff + 10], r23 = m[mOff + 14];
+        final float r30 = m[mOff + 3], r31 = m[mOff + 7], r32 = m[mOff + 11], r33 = m[mOff + 15];
+
+        setPlane(out, outOff,      r30 + r00, r31 + r01, r32 + r02, r33 + r03); // left
+        setPlane(out, outOff + 4,  r30 - r00, r31 - r01, r32 - r02, r33 - r03); // right
+        setPlane(out, outOff + 8,  r30 + r10, r31 + r11, r32 + r12, r33 + r13); // bottom
+        setPlane(out, outOff + 12, r30 - r10, r31 - r11, r32 - r12, r33 - r13); // top
+        setPlane(out, outOff + 16, r30 + r20, r31 + r21, r32 + r22, r33 + r23); // near
+        setPlane(out, outOff + 20, r30 - r20, r31 - r21, r32 - r22, r33 - r23); // far
+    }
+
+    private static void setPlane(float[] out, int off, float a, float b, float c, float d) {
+        final float len = (float)Math.sqrt(a * a + b * b + c * c);
+        final float inv = (len > 0f) ? (1f / len) : 0f;
+        out[off] = a * inv;
+        out[off + 1] = b * inv;
+        out[off + 2] = c * inv;
+        out[off + 3] = d * inv;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * Allocation-free quaternion math operating on float arrays.
+ *
+ * A quaternion is stored as four floats in (x, y, z, w) order and is used by {@link Mat4} to
+ * compose and decompose rotations. Follows the same array/offset conventions as {@link Vec3}.
+ *
+ * @author Tyler Suehr
+ */
+public final class Quat {
+    /** The number of floats used by a single quaternion. */
+    public static final int SIZE = 4;
+
+
+    private Quat() {}
+
+    public static void setIdentity(float[] q, int qOff) {
+        q[qOff] = 0f;
+        q[qOff + 1] = 0f;
+        q[qOff + 2] = 0f;
+        q[qOff + 3] = 1f;
+    }
+
+    /**
+     * Sets a quaternion to a rotation around an axis.
+     *
+     * @param q the output array
+     * @param qOff the offset of the output quaternion
+     * @param angleInDegrees the angle of rotation in degrees
+     * @param x the x-component of the (normalized) axis
+     * @param y the y-component of the (normalized) axis
+     * @param z the z-component of the (normalized) axis
+     */
+    public static void setAxisAngle(float[] q, int qOff, float angleInDegrees, float x, float y, float z) {
+        final double halfAngle = Math.toRadians(angleInDegrees) * 0.5;
+        final float s = (float)Math.sin(halfAngle);
+        q[qOff] = x * s;
+        q[qOff + 1] = y * s;
+        q[qOff + 2] = z * s;
+        q[qOff + 3] = (float)Math.cos(halfAngle);
+    }
+
+    /**
+     * Multiplies two quaternions, out = a * b, which rotates by b and then by a.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output quaternion
+     * @param a the array of the left quaternion
+     * @param aOff the offset of the left quaternion
+     * @param b the array of the right quaternion
+     * @param bOff the offset of the right quaternion
+     */
+    public static void multiply(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float ax = a[aOff], ay = a[aOff + 1], az = a[aOff + 2], aw = a[aOff + 3];
+        final float bx = b[bOff], by = b[bOff + 1], bz = b[bOff + 2], bw = b[bOff + 3];
+        out[outOff]     = ax * bw + aw * bx + ay * bz - az * by;
+        out[outOff + 1] = ay * bw + aw * by + az * bx - ax * bz;
+        out[outOff + 2] = az * bw + aw * bz + ax * by - ay * bx;
+        out[outOff + 3] = aw * bw - ax * bx - ay * by - az * bz;
+    }
+
+    /**
+     * Normalizes a quaternion so it represents a pure rotation.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output quaternion
+     * @param q the array of the quaternion
+     * @param qOff the offset of the quaternion
+     */
+    public static void normalize(float[] out, int outOff, float[] q, int qOff) {
+        final float len = Vec4.length(q, qOff);
+        final float inv = (len > 0f) ? (1f / len) : 0f;
+        Vec4.scale(out, outOff, q, qOff, inv);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * A preallocated stack of floats used as temporary storage by the array-based math API.
+ *
+ * Rather than allocating temporary vectors or matrices, hot code allocates ranges from an
+ * arena and releases them back to a saved mark when done:
+ * <pre>
+ *     final int mark = arena.mark();
+ *     final int tmp = arena.vec3();
+ *     Vec3.sub(arena.data(), tmp, a, aOff, b, bOff);
+ *     ...
+ *     arena.release(mark);
+ * </pre>
+ *
+ * An arena is not thread-safe; use one per thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class ScratchArena {
+    private final float[] mData;
+    private int mTop = 0;
+
+
+    /** Constructs with the total number of floats the arena can hand out at once. */
+    public ScratchArena(int capacityInFloats) {
+        mData = new float[capacityInFloats];
+    }
+
+    /**
+     * Gets the backing array that every offset returned by this arena refers to.
+     * @return the backing array
+     */
+    public float[] data() {
+        return mData;
+    }
+
+    /**
+     * Reserves a range of floats from the arena.
+     *
+     * @param numFloats the number of floats to reserve
+     * @return the offset of the range within {@link #data()}
+     */
+    public int alloc(int numFloats) {
+        final int offset = mTop;
+        if (offset + numFloats > mData.length) {
+            throw new IllegalStateException("Scratch arena exhausted!");
+        }
+        mTop = offset + numFloats;
+        return offset;
+    }
+
+    public int vec3() {
+        return alloc(Vec3.SIZE);
+    }
+
+    public int vec4() {
+        return alloc(Vec4.SIZE);
+    }
+
+    public int mat4() {
+        return alloc(Mat4.SIZE);
+    }
+
+    /**
+     * Gets the current top of the arena, to later be passed to {@link #release(int)}.
+     * @return the current mark
+     */
+    public int mark() {
+        return mTop;
+    }
+
+    /**
+     * Releases every range reserved since the provided mark was taken.
+     * @param mark a value previously returned by {@link #mark()}
+     */
+    public void release(int mark) {
+        if (mark < 0 || mark > mTop) {
+            throw new IllegalArgumentException("Invalid scratch arena mark: " + mark);
+        }
+        mTop = mark;
+    }
+
+    /**
+     * Releases every range reserved from this arena.
+     */
+    public void reset() {
+        mTop = 0;
+    }
+}
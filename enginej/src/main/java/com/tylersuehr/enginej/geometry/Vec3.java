@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * Allocation-free 3-component vector math operating on float arrays.
+ *
+ * Every vector is addressed as an array plus the offset of its x-component, so vectors can
+ * live inside larger arrays (vertex data, scratch arenas, packed rays, etc.). Results are
+ * written into an output vector; inputs are never modified unless they are passed as the
+ * output, and every method reads all of its inputs before writing, so aliasing is safe.
+ *
+ * @author Tyler Suehr
+ */
+public final class Vec3 {
+    /** The number of floats used by a single vector. */
+    public static final int SIZE = 3;
+
+
+    private Vec3() {}
+
+    public static void set(float[] out, int outOff, float x, float y, float z) {
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    public static void copy(float[] out, int outOff, float[] a, int aOff) {
+        out[outOff] = a[aOff];
+        out[outOff + 1] = a[aOff + 1];
+        out[outOff + 2] = a[aOff + 2];
+    }
+
+    /**
+     * Stores the components of a point into a float array.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param point the point to store
+     */
+    public static void set(float[] out, int outOff, Point point) {
+        out[outOff] = point.x;
+        out[outOff + 1] = point.y;
+        out[outOff + 2] = point.z;
+    }
+
+    /**
+     * Stores the components of a vector into a float array.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param vector the vector to store
+     */
+    public static void set(float[] out, int outOff, Vector vector) {
+        out[outOff] = vector.x;
+        out[outOff + 1] = vector.y;
+        out[outOff + 2] = vector.z;
+    }
+
+    /** Calculates out = a + b. */
+    public static void add(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float x = a[aOff] + b[bOff];
+        final float y = a[aOff + 1] + b[bOff + 1];
+        final float z = a[aOff + 2] + b[bOff + 2];
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    /** Calculates out = a - b, which is the vector pointing from b to a. */
+    public static void sub(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float x = a[aOff] - b[bOff];
+        final float y = a[aOff + 1] - b[bOff + 1];
+        final float z = a[aOff + 2] - b[bOff + 2];
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    /** Calculates out = a * s. */
+    public static void scale(float[] out, int outOff, float[] a, int aOff, float s) {
+        out[outOff] = a[aOff] * s;
+        out[outOff + 1] = a[aOff + 1] * s;
+        out[outOff + 2] = a[aOff + 2] * s;
+    }
+
+    /** Calculates out = a + (b * s); handy for translating a point along a direction. */
+    public static void madd(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff, float s) {
+        final float x = a[aOff] + b[bOff] * s;
+        final float y = a[aOff + 1] + b[bOff + 1] * s;
+        final float z = a[aOff + 2] + b[bOff + 2] * s;
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+    }
+
+    /**
+     * Calculates the cross product of a and b. Safe to call when the output is a or b.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param a the array of the left vector
+     * @param aOff the offset of the left vector
+     * @param b the array of the right vector
+     * @param bOff the offset of the right vector
+     */
+    public static void cross(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float ax = a[aOff], ay = a[aOff + 1], az = a[aOff + 2];
+        final float bx = b[bOff], by = b[bOff + 1], bz = b[bOff + 2];
+        out[outOff] = (ay * bz) - (az * by);
+        out[outOff + 1] = (az * bx) - (ax * bz);
+        out[outOff + 2] = (ax * by) - (ay * bx);
+    }
+
+    public static float dot(float[] a, int aOff, float[] b, int bOff) {
+        return (a[aOff] * b[bOff]) + (a[aOff + 1] * b[bOff + 1]) + (a[aOff + 2] * b[bOff + 2]);
+    }
+
+    public static float lengthSq(float[] a, int aOff) {
+        final float x = a[aOff], y = a[aOff + 1], z = a[aOff + 2];
+        return (x * x) + (y * y) + (z * z);
+    }
+
+    public static float length(float[] a, int aOff) {
+        return (float)Math.sqrt(lengthSq(a, aOff));
+    }
+
+    public static float distanceSq(float[] a, int aOff, float[] b, int bOff) {
+        final float dx = a[aOff] - b[bOff];
+        final float dy = a[aOff + 1] - b[bOff + 1];
+        final float dz = a[aOff + 2] - b[bOff + 2];
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
+    public static float distance(float[] a, int aOff, float[] b, int bOff) {
+        return (float)Math.sqrt(distanceSq(a, aOff, b, bOff));
+    }
+
+    /**
+     * Normalizes a vector. A zero-length vector is written out as zero.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param a the array of the vector to normalize
+     * @param aOff the offset of the vector to normalize
+     * @return the length of the vector before normalization
+     */
+    public static float normalize(float[] out, int outOff, float[] a, int aOff) {
+        final float x = a[aOff], y = a[aOff + 1], z = a[aOff + 2];
+        final float len = (float)Math.sqrt((x * x) + (y * y) + (z * z));
+        final float inv = (len > 0f) ? (1f / len) : 0f;
+        out[outOff] = x * inv;
+        out[outOff + 1] = y * inv;
+        out[outOff + 2] = z * inv;
+        return len;
+    }
+
+    /** Calculates out = a + (b - a) * t. */
+    public static void lerp(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff, float t) {
+        final float ax = a[aOff], ay = a[aOff + 1], az = a[aOff + 2];
+        out[outOff] = ax + (b[bOff] - ax) * t;
+        out[outOff + 1] = ay + (b[bOff + 1] - ay) * t;
+        out[outOff + 2] = az + (b[bOff + 2] - az) * t;
+    }
+}
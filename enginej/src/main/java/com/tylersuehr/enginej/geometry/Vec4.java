@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.geometry;
+
+/**
+ * Allocation-free 4-component vector math operating on float arrays.
+ *
+ * Follows the same conventions as {@link Vec3}: vectors are addressed by an array and offset,
+ * results are written to an output vector, and inputs are read before anything is written.
+ *
+ * @author Tyler Suehr
+ */
+public final class Vec4 {
+    /** The number of floats used by a single vector. */
+    public static final int SIZE = 4;
+
+
+    private Vec4() {}
+
+    public static void set(float[] out, int outOff, float x, float y, float z, float w) {
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+        out[outOff + 3] = w;
+    }
+
+    public static void copy(float[] out, int outOff, float[] a, int aOff) {
+        out[outOff] = a[aOff];
+        out[outOff + 1] = a[aOff + 1];
+        out[outOff + 2] = a[aOff + 2];
+        out[outOff + 3] = a[aOff + 3];
+    }
+
+    /** Calculates out = a + b. */
+    public static void add(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float x = a[aOff] + b[bOff];
+        final float y = a[aOff + 1] + b[bOff + 1];
+        final float z = a[aOff + 2] + b[bOff + 2];
+        final float w = a[aOff + 3] + b[bOff + 3];
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+        out[outOff + 3] = w;
+    }
+
+    /** Calculates out = a - b. */
+    public static void sub(float[] out, int outOff, float[] a, int aOff, float[] b, int bOff) {
+        final float x = a[aOff] - b[bOff];
+        final float y = a[aOff + 1] - b[bOff + 1];
+        final float z = a[aOff + 2] - b[bOff + 2];
+        final float w = a[aOff + 3] - b[bOff + 3];
+        out[outOff] = x;
+        out[outOff + 1] = y;
+        out[outOff + 2] = z;
+        out[outOff + 3] = w;
+    }
+
+    /** Calculates out = a * s. */
+    public static void scale(float[] out, int outOff, float[] a, int aOff, float s) {
+        out[outOff] = a[aOff] * s;
+        out[outOff + 1] = a[aOff + 1] * s;
+        out[outOff + 2] = a[aOff + 2] * s;
+        out[outOff + 3] = a[aOff + 3] * s;
+    }
+
+    public static float dot(float[] a, int aOff, float[] b, int bOff) {
+        return (a[aOff] * b[bOff])
+                + (a[aOff + 1] * b[bOff + 1])
+                + (a[aOff + 2] * b[bOff + 2])
+                + (a[aOff + 3] * b[bOff + 3]);
+    }
+
+    public static float length(float[] a, int aOff) {
+        return (float)Math.sqrt(dot(a, aOff, a, aOff));
+    }
+
+    /**
+     * Divides the x, y, and z components by w (perspective divide) and sets w to 1.
+     * A w of zero leaves the vector untouched.
+     *
+     * @param out the output array
+     * @param outOff the offset of the output vector
+     * @param a the array of the homogeneous vector
+     * @param aOff the offset of the homogeneous vector
+     */
+    public static void divideByW(float[] out, int outOff, float[] a, int aOff) {
+        final float w = a[aOff + 3];
+        final float inv = (w != 0f) ? (1f / w) : 1f;
+        out[outOff] = a[aOff] * inv;
+        out[outOff + 1] = a[aOff + 1] * inv;
+        out[outOff + 2] = a[aOff + 2] * inv;
+        out[outOff + 3] = (w != 0f) ? 1f : w;
+    }
+}
@@ -58,9 +58,12 @@ public class Vector {
      * @return this vector with results
      */
     public Vector crossProduct(final Vector other) {
-        this.x = (y * other.z) - (z * other.y);
-        this.y = (z * other.x) - (x * other.z);
-        this.z = (x * other.y) - (y * other.x);
+        final float cx = (y * other.z) - (z * other.y);
+        final float cy = (z * other.x) - (x * other.z);
+        final float cz = (x * other.y) - (y * other.x);
+        this.x = cx;
+        this.y = cy;
+        this.z = cz;
         return this;
     }
 
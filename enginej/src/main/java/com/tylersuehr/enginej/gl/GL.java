@@ -0,0 +1,482 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.gl;
+
+import android.graphics.Bitmap;
+
+import com.tylersuehr.enginej.textures.CompressedTextureLoader;
+
+import java.nio.Buffer;
+
+/**
+ * The engine's entry point to OpenGL ES 2.0. It has the same constants and methods as
+ * {@link android.opengl.GLES20}, but forwards each call to a {@link GLBackend} that can be
+ * swapped out. On devices that's {@link AndroidGLBackend}; on a desktop JVM it can be a
+ * {@link HeadlessGLBackend}, which lets benchmarks and unit tests drive the engine's
+ * batching, sorting and buffering code without a GPU.
+ *
+ * Engine classes call this instead of GLES20. Game code may call either, but calls made
+ * on GLES20 directly won't be seen by a headless backend.
+ *
+ * Like OpenGL ES itself, this must only be used from the GL thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class GL {
+    public static final int GL_DEPTH_BUFFER_BIT = 0x00000100;
+    public static final int GL_STENCIL_BUFFER_BIT = 0x00000400;
+    public static final int GL_COLOR_BUFFER_BIT = 0x00004000;
+    public static final int GL_FALSE = 0;
+    public static final int GL_TRUE = 1;
+
+    /* Primitive types */
+    public static final int GL_POINTS = 0x0000;
+    public static final int GL_LINES = 0x0001;
+    public static final int GL_LINE_LOOP = 0x0002;
+    public static final int GL_LINE_STRIP = 0x0003;
+    public static final int GL_TRIANGLES = 0x0004;
+    public static final int GL_TRIANGLE_STRIP = 0x0005;
+    public static final int GL_TRIANGLE_FAN = 0x0006;
+
+    /* Blending factors */
+    public static final int GL_ZERO = 0;
+    public static final int GL_ONE = 1;
+    public static final int GL_SRC_COLOR = 0x0300;
+    public static final int GL_ONE_MINUS_SRC_COLOR = 0x0301;
+    public static final int GL_SRC_ALPHA = 0x0302;
+    public static final int GL_ONE_MINUS_SRC_ALPHA = 0x0303;
+    public static final int GL_DST_ALPHA = 0x0304;
+    public static final int GL_ONE_MINUS_DST_ALPHA = 0x0305;
+    public static final int GL_DST_COLOR = 0x0306;
+    public static final int GL_ONE_MINUS_DST_COLOR = 0x0307;
+
+    /* Buffer objects */
+    public static final int GL_ARRAY_BUFFER = 0x8892;
+    public static final int GL_ELEMENT_ARRAY_BUFFER = 0x8893;
+    public static final int GL_ARRAY_BUFFER_BINDING = 0x8894;
+    public static final int GL_ELEMENT_ARRAY_BUFFER_BINDING = 0x8895;
+    public static final int GL_STREAM_DRAW = 0x88E0;
+    public static final int GL_STATIC_DRAW = 0x88E4;
+    public static final int GL_DYNAMIC_DRAW = 0x88E8;
+    public static final int GL_BUFFER_SIZE = 0x8764;
+    public static final int GL_BUFFER_USAGE = 0x8765;
+
+    /* Culling */
+    public static final int GL_FRONT = 0x0404;
+    public static final int GL_BACK = 0x0405;
+    public static final int GL_FRONT_AND_BACK = 0x0408;
+    public static final int GL_CW = 0x0900;
+    public static final int GL_CCW = 0x0901;
+
+    /* Capabilities */
+    public static final int GL_TEXTURE_2D = 0x0DE1;
+    public static final int GL_CULL_FACE = 0x0B44;
+    public static final int GL_BLEND = 0x0BE2;
+    public static final int GL_DITHER = 0x0BD0;
+    public static final int GL_STENCIL_TEST = 0x0B90;
+    public static final int GL_DEPTH_TEST = 0x0B71;
+    public static final int GL_SCISSOR_TEST = 0x0C11;
+
+    /* Errors */
+    public static final int GL_NO_ERROR = 0;
+    public static final int GL_INVALID_ENUM = 0x0500;
+    public static final int GL_INVALID_VALUE = 0x0501;
+    public static final int GL_INVALID_OPERATION = 0x0502;
+    public static final int GL_OUT_OF_MEMORY = 0x0505;
+
+    /* Queries */
+    public static final int GL_VIEWPORT = 0x0BA2;
+    public static final int GL_UNPACK_ALIGNMENT = 0x0CF5;
+    public static final int GL_MAX_TEXTURE_SIZE = 0x0D33;
+    public static final int GL_NUM_COMPRESSED_TEXTURE_FORMATS = 0x86A2;
+    public static final int GL_COMPRESSED_TEXTURE_FORMATS = 0x86A3;
+    public static final int GL_MAX_VERTEX_ATTRIBS = 0x8869;
+    public static final int GL_MAX_TEXTURE_IMAGE_UNITS = 0x8872;
+    public static final int GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS = 0x8B4D;
+    public static final int GL_CURRENT_PROGRAM = 0x8B8D;
+
+    /* Data types */
+    public static final int GL_BYTE = 0x1400;
+    public static final int GL_UNSIGNED_BYTE = 0x1401;
+    public static final int GL_SHORT = 0x1402;
+    public static final int GL_UNSIGNED_SHORT = 0x1403;
+    public static final int GL_INT = 0x1404;
+    public static final int GL_UNSIGNED_INT = 0x1405;
+    public static final int GL_FLOAT = 0x1406;
+    /** Vertex attributes only, requires the OES_vertex_half_float extension. */
+    public static final int GL_HALF_FLOAT_OES = 0x8D61;
+
+    /* Pixel formats and types */
+    public static final int GL_ALPHA = 0x1906;
+    public static final int GL_RGB = 0x1907;
+    public static final int GL_RGBA = 0x1908;
+    public static final int GL_LUMINANCE = 0x1909;
+    public static final int GL_LUMINANCE_ALPHA = 0x190A;
+    public static final int GL_UNSIGNED_SHORT_4_4_4_4 = 0x8033;
+    public static final int GL_UNSIGNED_SHORT_5_5_5_1 = 0x8034;
+    public static final int GL_UNSIGNED_SHORT_5_6_5 = 0x8363;
+
+    /* Shaders and programs */
+    public static final int GL_FRAGMENT_SHADER = 0x8B30;
+    public static final int GL_VERTEX_SHADER = 0x8B31;
+    public static final int GL_SHADER_TYPE = 0x8B4F;
+    public static final int GL_DELETE_STATUS = 0x8B80;
+    public static final int GL_COMPILE_STATUS = 0x8B81;
+    public static final int GL_LINK_STATUS = 0x8B82;
+    public static final int GL_VALIDATE_STATUS = 0x8B83;
+    public static final int GL_INFO_LOG_LENGTH = 0x8B84;
+    public static final int GL_ATTACHED_SHADERS = 0x8B85;
+    public static final int GL_ACTIVE_UNIFORMS = 0x8B86;
+    public static final int GL_ACTIVE_UNIFORM_MAX_LENGTH = 0x8B87;
+    public static final int GL_SHADER_SOURCE_LENGTH = 0x8B88;
+    public static final int GL_ACTIVE_ATTRIBUTES = 0x8B89;
+    public static final int GL_ACTIVE_ATTRIBUTE_MAX_LENGTH = 0x8B8A;
+
+    /* Depth functions */
+    public static final int GL_NEVER = 0x0200;
+    public static final int GL_LESS = 0x0201;
+    public static final int GL_EQUAL = 0x0202;
+    public static final int GL_LEQUAL = 0x0203;
+    public static final int GL_GREATER = 0x0204;
+    public static final int GL_NOTEQUAL = 0x0205;
+    public static final int GL_GEQUAL = 0x0206;
+    public static final int GL_ALWAYS = 0x0207;
+
+    /* Textures */
+    public static final int GL_NEAREST = 0x2600;
+    public static final int GL_LINEAR = 0x2601;
+    public static final int GL_NEAREST_MIPMAP_NEAREST = 0x2700;
+    public static final int GL_LINEAR_MIPMAP_NEAREST = 0x2701;
+    public static final int GL_NEAREST_MIPMAP_LINEAR = 0x2702;
+    public static final int GL_LINEAR_MIPMAP_LINEAR = 0x2703;
+    public static final int GL_TEXTURE_MAG_FILTER = 0x2800;
+    public static final int GL_TEXTURE_MIN_FILTER = 0x2801;
+    public static final int GL_TEXTURE_WRAP_S = 0x2802;
+    public static final int GL_TEXTURE_WRAP_T = 0x2803;
+    public static final int GL_REPEAT = 0x2901;
+    public static final int GL_CLAMP_TO_EDGE = 0x812F;
+    public static final int GL_MIRRORED_REPEAT = 0x8370;
+    public static final int GL_TEXTURE_BINDING_2D = 0x8069;
+    public static final int GL_TEXTURE_CUBE_MAP = 0x8513;
+    public static final int GL_TEXTURE_BINDING_CUBE_MAP = 0x8514;
+    public static final int GL_TEXTURE_CUBE_MAP_POSITIVE_X = 0x8515;
+    public static final int GL_TEXTURE_CUBE_MAP_NEGATIVE_X = 0x8516;
+    public static final int GL_TEXTURE_CUBE_MAP_POSITIVE_Y = 0x8517;
+    public static final int GL_TEXTURE_CUBE_MAP_NEGATIVE_Y = 0x8518;
+    public static final int GL_TEXTURE_CUBE_MAP_POSITIVE_Z = 0x8519;
+    public static final int GL_TEXTURE_CUBE_MAP_NEGATIVE_Z = 0x851A;
+    public static final int GL_TEXTURE0 = 0x84C0;
+    public static final int GL_ACTIVE_TEXTURE = 0x84E0;
+
+    /* Uniform and attribute types */
+    public static final int GL_FLOAT_VEC2 = 0x8B50;
+    public static final int GL_FLOAT_VEC3 = 0x8B51;
+    public static final int GL_FLOAT_VEC4 = 0x8B52;
+    public static final int GL_INT_VEC2 = 0x8B53;
+    public static final int GL_INT_VEC3 = 0x8B54;
+    public static final int GL_INT_VEC4 = 0x8B55;
+    public static final int GL_BOOL = 0x8B56;
+    public static final int GL_BOOL_VEC2 = 0x8B57;
+    public static final int GL_BOOL_VEC3 = 0x8B58;
+    public static final int GL_BOOL_VEC4 = 0x8B59;
+    public static final int GL_FLOAT_MAT2 = 0x8B5A;
+    public static final int GL_FLOAT_MAT3 = 0x8B5B;
+    public static final int GL_FLOAT_MAT4 = 0x8B5C;
+    public static final int GL_SAMPLER_2D = 0x8B5E;
+    public static final int GL_SAMPLER_CUBE = 0x8B60;
+
+    private static GLBackend sBackend = new AndroidGLBackend();
+
+
+    private GL() {}
+
+    /**
+     * Swaps the backend all GL calls go to. Switching backends is like switching contexts,
+     * so {@link GLStateCache} and the cached compressed formats are invalidated, and any GL
+     * objects from the old backend must be forgotten (see
+     * {@link com.tylersuehr.enginej.shaders.ShaderRegistry#onContextLost()}).
+     *
+     * @param backend the new backend
+     */
+    public static void setBackend(GLBackend backend) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend cannot be null!");
+        }
+        sBackend = backend;
+        GLStateCache.invalidate();
+        CompressedTextureLoader.onContextLost();
+    }
+
+    public static GLBackend getBackend() {
+        return sBackend;
+    }
+
+    public static void glActiveTexture(int texture) {
+        sBackend.glActiveTexture(texture);
+    }
+
+    public static void glAttachShader(int program, int shader) {
+        sBackend.glAttachShader(program, shader);
+    }
+
+    public static void glBindBuffer(int target, int buffer) {
+        sBackend.glBindBuffer(target, buffer);
+    }
+
+    public static void glBindTexture(int target, int texture) {
+        sBackend.glBindTexture(target, texture);
+    }
+
+    public static void glBlendFunc(int sfactor, int dfactor) {
+        sBackend.glBlendFunc(sfactor, dfactor);
+    }
+
+    public static void glBufferData(int target, int size, Buffer data, int usage) {
+        sBackend.glBufferData(target, size, data, usage);
+    }
+
+    public static void glBufferSubData(int target, int offset, int size, Buffer data) {
+        sBackend.glBufferSubData(target, offset, size, data);
+    }
+
+    public static void glClear(int mask) {
+        sBackend.glClear(mask);
+    }
+
+    public static void glClearColor(float red, float green, float blue, float alpha) {
+        sBackend.glClearColor(red, green, blue, alpha);
+    }
+
+    public static void glCompileShader(int shader) {
+        sBackend.glCompileShader(shader);
+    }
+
+    public static void glCompressedTexImage2D(int target, int level, int internalformat, int width,
+                                              int height, int border, int imageSize, Buffer data) {
+        sBackend.glCompressedTexImage2D(target, level, internalformat, width, height, border,
+                                        imageSize, data);
+    }
+
+    public static int glCreateProgram() {
+        return sBackend.glCreateProgram();
+    }
+
+    public static int glCreateShader(int type) {
+        return sBackend.glCreateShader(type);
+    }
+
+    public static void glCullFace(int mode) {
+        sBackend.glCullFace(mode);
+    }
+
+    public static void glDeleteBuffers(int n, int[] buffers, int offset) {
+        sBackend.glDeleteBuffers(n, buffers, offset);
+    }
+
+    public static void glDeleteProgram(int program) {
+        sBackend.glDeleteProgram(program);
+    }
+
+    public static void glDeleteShader(int shader) {
+        sBackend.glDeleteShader(shader);
+    }
+
+    public static void glDeleteTextures(int n, int[] textures, int offset) {
+        sBackend.glDeleteTextures(n, textures, offset);
+    }
+
+    public static void glDepthFunc(int func) {
+        sBackend.glDepthFunc(func);
+    }
+
+    public static void glDepthMask(boolean flag) {
+        sBackend.glDepthMask(flag);
+    }
+
+    public static void glDetachShader(int program, int shader) {
+        sBackend.glDetachShader(program, shader);
+    }
+
+    public static void glDisable(int cap) {
+        sBackend.glDisable(cap);
+    }
+
+    public static void glDisableVertexAttribArray(int index) {
+        sBackend.glDisableVertexAttribArray(index);
+    }
+
+    public static void glDrawArrays(int mode, int first, int count) {
+        sBackend.glDrawArrays(mode, first, count);
+    }
+
+    public static void glDrawElements(int mode, int count, int type, int offset) {
+        sBackend.glDrawElements(mode, count, type, offset);
+    }
+
+    public static void glEnable(int cap) {
+        sBackend.glEnable(cap);
+    }
+
+    public static void glEnableVertexAttribArray(int index) {
+        sBackend.glEnableVertexAttribArray(index);
+    }
+
+    public static void glGenBuffers(int n, int[] buffers, int offset) {
+        sBackend.glGenBuffers(n, buffers, offset);
+    }
+
+    public static void glGenTextures(int n, int[] textures, int offset) {
+        sBackend.glGenTextures(n, textures, offset);
+    }
+
+    public static void glGenerateMipmap(int target) {
+        sBackend.glGenerateMipmap(target);
+    }
+
+    public static String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset,
+                                           int[] type, int typeOffset) {
+        return sBackend.glGetActiveAttrib(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    public static String glGetActiveUniform(int program, int index, int[] size, int sizeOffset,
+                                            int[] type, int typeOffset) {
+        return sBackend.glGetActiveUniform(program, index, size, sizeOffset, type, typeOffset);
+    }
+
+    public static int glGetAttribLocation(int program, String name) {
+        return sBackend.glGetAttribLocation(program, name);
+    }
+
+    public static int glGetError() {
+        return sBackend.glGetError();
+    }
+
+    public static void glGetIntegerv(int pname, int[] params, int offset) {
+        sBackend.glGetIntegerv(pname, params, offset);
+    }
+
+    public static String glGetProgramInfoLog(int program) {
+        return sBackend.glGetProgramInfoLog(program);
+    }
+
+    public static void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        sBackend.glGetProgramiv(program, pname, params, offset);
+    }
+
+    public static String glGetShaderInfoLog(int shader) {
+        return sBackend.glGetShaderInfoLog(shader);
+    }
+
+    public static void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        sBackend.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    public static int glGetUniformLocation(int program, String name) {
+        return sBackend.glGetUniformLocation(program, name);
+    }
+
+    public static void glLinkProgram(int program) {
+        sBackend.glLinkProgram(program);
+    }
+
+    public static void glPixelStorei(int pname, int param) {
+        sBackend.glPixelStorei(pname, param);
+    }
+
+    public static void glShaderSource(int shader, String string) {
+        sBackend.glShaderSource(shader, string);
+    }
+
+    public static void glTexImage2D(int target, int level, int internalformat, int width,
+                                    int height, int border, int format, int type, Buffer pixels) {
+        sBackend.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+    }
+
+    public static void glTexParameterf(int target, int pname, float param) {
+        sBackend.glTexParameterf(target, pname, param);
+    }
+
+    public static void glTexParameteri(int target, int pname, int param) {
+        sBackend.glTexParameteri(target, pname, param);
+    }
+
+    public static void glUniform1f(int location, float x) {
+        sBackend.glUniform1f(location, x);
+    }
+
+    public static void glUniform1i(int location, int x) {
+        sBackend.glUniform1i(location, x);
+    }
+
+    public static void glUniform2f(int location, float x, float y) {
+        sBackend.glUniform2f(location, x, y);
+    }
+
+    public static void glUniform3f(int location, float x, float y, float z) {
+        sBackend.glUniform3f(location, x, y, z);
+    }
+
+    public static void glUniform4f(int location, float x, float y, float z, float w) {
+        sBackend.glUniform4f(location, x, y, z, w);
+    }
+
+    public static void glUniformMatrix3fv(int location, int count, boolean transpose,
+                                          float[] value, int offset) {
+        sBackend.glUniformMatrix3fv(location, count, transpose, value, offset);
+    }
+
+    public static void glUniformMatrix4fv(int location, int count, boolean transpose,
+                                          float[] value, int offset) {
+        sBackend.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    public static void glUseProgram(int program) {
+        sBackend.glUseProgram(program);
+    }
+
+    public static void glValidateProgram(int program) {
+        sBackend.glValidateProgram(program);
+    }
+
+    public static void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                             int stride, int offset) {
+        sBackend.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    public static void glVertexAttribPointer(int index, int size, int type, boolean normalized,
+                                             int stride, Buffer ptr) {
+        sBackend.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+    }
+
+    public static void glViewport(int x, int y, int width, int height) {
+        sBackend.glViewport(x, y, width, height);
+    }
+
+    /** @see GLBackend#texImage2D(int, int, Bitmap, int) */
+    public static void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        sBackend.texImage2D(target, level, bitmap, border);
+    }
+}
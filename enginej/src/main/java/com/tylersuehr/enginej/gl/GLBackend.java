@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.gl;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+
+/**
+ * The OpenGL ES 2.0 calls the engine makes, as an interface so they can be answered by
+ * something other than the real driver. {@link GL} forwards every call to the current backend.
+ *
+ * The methods mirror {@link android.opengl.GLES20} one-to-one, with the same names, arguments
+ * and meaning, so see the OpenGL ES 2.0 reference for their documentation. The one exception
+ * is {@link #texImage2D(int, int, Bitmap, int)}, which uploads a Bitmap like
+ * {@link android.opengl.GLUtils} does.
+ *
+ * @see AndroidGLBackend
+ * @see HeadlessGLBackend
+ * @author Tyler Suehr
+ */
+public interface GLBackend {
+    void glActiveTexture(int texture);
+    void glAttachShader(int program, int shader);
+    void glBindBuffer(int target, int buffer);
+    void glBindTexture(int target, int texture);
+    void glBlendFunc(int sfactor, int dfactor);
+    void glBufferData(int target, int size, Buffer data, int usage);
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+    void glClear(int mask);
+    void glClearColor(float red, float green, float blue, float alpha);
+    void glCompileShader(int shader);
+    void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height,
+                                int border, int imageSize, Buffer data);
+    int glCreateProgram();
+    int glCreateShader(int type);
+    void glCullFace(int mode);
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+    void glDeleteProgram(int program);
+    void glDeleteShader(int shader);
+    void glDeleteTextures(int n, int[] textures, int offset);
+    void glDepthFunc(int func);
+    void glDepthMask(boolean flag);
+    void glDetachShader(int program, int shader);
+    void glDisable(int cap);
+    void glDisableVertexAttribArray(int index);
+    void glDrawArrays(int mode, int first, int count);
+    void glDrawElements(int mode, int count, int type, int offset);
+    void glEnable(int cap);
+    void glEnableVertexAttribArray(int index);
+    void glGenBuffers(int n, int[] buffers, int offset);
+    void glGenTextures(int n, int[] textures, int offset);
+    void glGenerateMipmap(int target);
+    String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset);
+    String glGetActiveUniform(int program, int index, int[] size, int sizeOffset, int[] type, int typeOffset);
+    int glGetAttribLocation(int program, String name);
+    int glGetError();
+    void glGetIntegerv(int pname, int[] params, int offset);
+    String glGetProgramInfoLog(int program);
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+    String glGetShaderInfoLog(int shader);
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+    int glGetUniformLocation(int program, String name);
+    void glLinkProgram(int program);
+    void glPixelStorei(int pname, int param);
+    void glShaderSource(int shader, String string);
+    void glTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                      int format, int type, Buffer pixels);
+    void glTexParameterf(int target, int pname, float param);
+    void glTexParameteri(int target, int pname, int param);
+    void glUniform1f(int location, float x);
+    void glUniform1i(int location, int x);
+    void glUniform2f(int location, float x, float y);
+    void glUniform3f(int location, float x, float y, float z);
+    void glUniform4f(int location, float x, float y, float z, float w);
+    void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset);
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+    void glUseProgram(int program);
+    void glValidateProgram(int program);
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr);
+    void glViewport(int x, int y, int width, int height);
+
+    /**
+     * Uploads a Bitmap into a level of the bound texture, in a format matching its config.
+     * Same as {@link android.opengl.GLUtils#texImage2D(int, int, Bitmap, int)}.
+     */
+    void texImage2D(int target, int level, Bitmap bitmap, int border);
+}
@@ -0,0 +1,380 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.gl;
+
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.util.Arrays;
+
+/**
+ * Shadows the OpenGL ES state the engine touches so that redundant state changes are never
+ * sent to the driver. Every GL call is a JNI crossing plus driver validation, so skipping the
+ * ones that wouldn't change anything adds up quickly.
+ *
+ * All engine classes change program, buffer, texture, vertex attribute array, capability,
+ * blend/depth/cull and viewport state through here. If a game changes any of that state by
+ * calling {@link GL} or GLES20 directly, it must call {@link #invalidate()} afterwards so the
+ * shadow copy doesn't go stale.
+ *
+ * Like OpenGL ES itself, this must only be used from the GL thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class GLStateCache {
+    /* Marks state whose real value is unknown, forcing the next call through */
+    private static final int UNKNOWN = -1;
+
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int MAX_VERTEX_ATTRIBS = 32;
+
+    private static int sProgram;
+    private static int sArrayBuffer;
+    private static int sElementArrayBuffer;
+    private static int sActiveTextureUnit;
+    private static final int[] sTexture2D = new int[MAX_TEXTURE_UNITS];
+    private static final int[] sTextureCubeMap = new int[MAX_TEXTURE_UNITS];
+    private static final int[] sVertexAttribArrays = new int[MAX_VERTEX_ATTRIBS];
+
+    private static int sBlend;
+    private static int sDepthTest;
+    private static int sCullFace;
+    private static int sBlendSrc;
+    private static int sBlendDst;
+    private static int sDepthMask;
+    private static int sDepthFunc;
+    private static int sCullFaceMode;
+    private static int sViewportX;
+    private static int sViewportY;
+    private static int sViewportWidth;
+    private static int sViewportHeight;
+
+    private static long sIssued = 0;
+    private static long sSkipped = 0;
+
+    private static final int[] sScratch = new int[1];
+
+    static {
+        invalidate();
+    }
+
+
+    private GLStateCache() {}
+
+    /**
+     * Forgets all shadowed state, so the next change of each kind is always issued. Must be
+     * called whenever a new GL context is created, or after changing state outside this class.
+     */
+    public static void invalidate() {
+        sProgram = UNKNOWN;
+        sArrayBuffer = UNKNOWN;
+        sElementArrayBuffer = UNKNOWN;
+        sActiveTextureUnit = UNKNOWN;
+        Arrays.fill(sTexture2D, UNKNOWN);
+        Arrays.fill(sTextureCubeMap, UNKNOWN);
+        Arrays.fill(sVertexAttribArrays, UNKNOWN);
+        sBlend = UNKNOWN;
+        sDepthTest = UNKNOWN;
+        sCullFace = UNKNOWN;
+        sBlendSrc = UNKNOWN;
+        sBlendDst = UNKNOWN;
+        sDepthMask = UNKNOWN;
+        sDepthFunc = UNKNOWN;
+        sCullFaceMode = UNKNOWN;
+        sViewportX = UNKNOWN;
+        sViewportY = UNKNOWN;
+        sViewportWidth = UNKNOWN;
+        sViewportHeight = UNKNOWN;
+    }
+
+    public static void useProgram(int program) {
+        if (sProgram == program) {
+            sSkipped++;
+            return;
+        }
+        GL.glUseProgram(program);
+        sProgram = program;
+        issued(Profiler.COUNTER_PROGRAM_BINDS);
+    }
+
+    /**
+     * Binds a buffer object.
+     *
+     * @param target {@link GL#GL_ARRAY_BUFFER} or {@link GL#GL_ELEMENT_ARRAY_BUFFER}
+     * @param buffer the pointer to the OpenGL ES buffer object, or 0 to unbind
+     */
+    public static void bindBuffer(int target, int buffer) {
+        if (target == GL.GL_ARRAY_BUFFER) {
+            if (sArrayBuffer == buffer) {
+                sSkipped++;
+                return;
+            }
+            sArrayBuffer = buffer;
+        } else if (target == GL.GL_ELEMENT_ARRAY_BUFFER) {
+            if (sElementArrayBuffer == buffer) {
+                sSkipped++;
+                return;
+            }
+            sElementArrayBuffer = buffer;
+        }
+        GL.glBindBuffer(target, buffer);
+        issued(Profiler.COUNTER_BUFFER_BINDS);
+    }
+
+    /**
+     * Selects the active texture unit.
+     * @param unit the index of the unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     */
+    public static void activeTexture(int unit) {
+        if (sActiveTextureUnit == unit) {
+            sSkipped++;
+            return;
+        }
+        GL.glActiveTexture(GL.GL_TEXTURE0 + unit);
+        sActiveTextureUnit = unit;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    /**
+     * Binds a texture object to the active texture unit. If the active unit is unknown, like
+     * after {@link #invalidate()}, unit 0 is selected first so the bind can be shadowed.
+     *
+     * @param target {@link GL#GL_TEXTURE_2D} or {@link GL#GL_TEXTURE_CUBE_MAP}
+     * @param texture the pointer to the OpenGL ES texture object, or 0 to unbind
+     */
+    public static void bindTexture(int target, int texture) {
+        if (sActiveTextureUnit == UNKNOWN) {
+            activeTexture(0);
+        }
+        final int unit = sActiveTextureUnit;
+        final int[] bound = (target == GL.GL_TEXTURE_2D) ? sTexture2D
+                : (target == GL.GL_TEXTURE_CUBE_MAP) ? sTextureCubeMap : null;
+        if (bound != null && unit < MAX_TEXTURE_UNITS) {
+            if (bound[unit] == texture) {
+                sSkipped++;
+                return;
+            }
+            bound[unit] = texture;
+        }
+        GL.glBindTexture(target, texture);
+        issued(Profiler.COUNTER_TEXTURE_BINDS);
+    }
+
+    /**
+     * Binds a texture object to a texture unit, making that unit active.
+     *
+     * @param unit the index of the unit (0 for GL_TEXTURE0, 1 for GL_TEXTURE1, etc.)
+     * @param target {@link GL#GL_TEXTURE_2D} or {@link GL#GL_TEXTURE_CUBE_MAP}
+     * @param texture the pointer to the OpenGL ES texture object, or 0 to unbind
+     */
+    public static void bindTexture(int unit, int target, int texture) {
+        activeTexture(unit);
+        bindTexture(target, texture);
+    }
+
+    public static void enableVertexAttribArray(int location) {
+        if (location >= 0 && location < MAX_VERTEX_ATTRIBS) {
+            if (sVertexAttribArrays[location] == 1) {
+                sSkipped++;
+                return;
+            }
+            sVertexAttribArrays[location] = 1;
+        }
+        GL.glEnableVertexAttribArray(location);
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void disableVertexAttribArray(int location) {
+        if (location >= 0 && location < MAX_VERTEX_ATTRIBS) {
+            if (sVertexAttribArrays[location] == 0) {
+                sSkipped++;
+                return;
+            }
+            sVertexAttribArrays[location] = 0;
+        }
+        GL.glDisableVertexAttribArray(location);
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    /**
+     * Enables or disables a server-side capability. {@link GL#GL_BLEND},
+     * {@link GL#GL_DEPTH_TEST} and {@link GL#GL_CULL_FACE} are shadowed; anything
+     * else is always passed through.
+     *
+     * @param capability the capability, like {@link GL#GL_BLEND}
+     * @param enabled true to enable, false to disable
+     */
+    public static void setEnabled(int capability, boolean enabled) {
+        final int value = enabled ? 1 : 0;
+        switch (capability) {
+            case GL.GL_BLEND:
+                if (sBlend == value) {
+                    sSkipped++;
+                    return;
+                }
+                sBlend = value;
+                break;
+            case GL.GL_DEPTH_TEST:
+                if (sDepthTest == value) {
+                    sSkipped++;
+                    return;
+                }
+                sDepthTest = value;
+                break;
+            case GL.GL_CULL_FACE:
+                if (sCullFace == value) {
+                    sSkipped++;
+                    return;
+                }
+                sCullFace = value;
+                break;
+        }
+        if (enabled) {
+            GL.glEnable(capability);
+        } else {
+            GL.glDisable(capability);
+        }
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void blendFunc(int src, int dst) {
+        if (sBlendSrc == src && sBlendDst == dst) {
+            sSkipped++;
+            return;
+        }
+        GL.glBlendFunc(src, dst);
+        sBlendSrc = src;
+        sBlendDst = dst;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void depthMask(boolean flag) {
+        final int value = flag ? 1 : 0;
+        if (sDepthMask == value) {
+            sSkipped++;
+            return;
+        }
+        GL.glDepthMask(flag);
+        sDepthMask = value;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void depthFunc(int func) {
+        if (sDepthFunc == func) {
+            sSkipped++;
+            return;
+        }
+        GL.glDepthFunc(func);
+        sDepthFunc = func;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void cullFace(int mode) {
+        if (sCullFaceMode == mode) {
+            sSkipped++;
+            return;
+        }
+        GL.glCullFace(mode);
+        sCullFaceMode = mode;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    public static void viewport(int x, int y, int width, int height) {
+        if (sViewportX == x && sViewportY == y && sViewportWidth == width && sViewportHeight == height) {
+            sSkipped++;
+            return;
+        }
+        GL.glViewport(x, y, width, height);
+        sViewportX = x;
+        sViewportY = y;
+        sViewportWidth = width;
+        sViewportHeight = height;
+        issued(Profiler.COUNTER_STATE_CHANGES);
+    }
+
+    /**
+     * Deletes a buffer object, forgetting it wherever it is bound.
+     * @param buffer the pointer to the OpenGL ES buffer object
+     */
+    public static void deleteBuffer(int buffer) {
+        sScratch[0] = buffer;
+        GL.glDeleteBuffers(1, sScratch, 0);
+        if (sArrayBuffer == buffer) {
+            sArrayBuffer = 0;
+        }
+        if (sElementArrayBuffer == buffer) {
+            sElementArrayBuffer = 0;
+        }
+    }
+
+    /**
+     * Deletes a texture object, forgetting it wherever it is bound.
+     * @param texture the pointer to the OpenGL ES texture object
+     */
+    public static void deleteTexture(int texture) {
+        sScratch[0] = texture;
+        GL.glDeleteTextures(1, sScratch, 0);
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if (sTexture2D[i] == texture) {
+                sTexture2D[i] = 0;
+            }
+            if (sTextureCubeMap[i] == texture) {
+                sTextureCubeMap[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Deletes a program object, forgetting it if it is in use.
+     * @param program the pointer to the OpenGL ES program object
+     */
+    public static void deleteProgram(int program) {
+        GL.glDeleteProgram(program);
+        if (sProgram == program) {
+            // Deleting the current program is deferred by GL, so its real state is unclear
+            sProgram = UNKNOWN;
+        }
+    }
+
+    /** Gets the number of state changes sent to OpenGL ES since the last reset. */
+    public static long getIssuedCount() {
+        return sIssued;
+    }
+
+    /** Gets the number of redundant state changes skipped since the last reset. */
+    public static long getSkippedCount() {
+        return sSkipped;
+    }
+
+    public static void resetCounters() {
+        sIssued = 0;
+        sSkipped = 0;
+    }
+
+    private static void issued(int counter) {
+        sIssued++;
+        Profiler.count(counter, 1);
+    }
+}
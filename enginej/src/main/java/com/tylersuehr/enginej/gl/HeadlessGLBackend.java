@@ -0,0 +1,1523 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.gl;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link GLBackend} that needs no GPU, for running the engine on a plain JVM. Nothing is
+ * drawn; instead every call is counted (and optionally recorded), and a simulation of the
+ * parts of GL state the engine relies on is kept up to date:
+ *
+ * <ul>
+ *   <li>Buffer, texture, shader and program names are handed out and released, and a
+ *   texture can only be bound to the target it was first bound to.</li>
+ *   <li>Bindings, capabilities, blend/depth/cull state, the viewport, vertex attribute arrays
+ *   and uniform values are tracked, so a call that sets something to the value it already
+ *   had is counted as a redundant state change.</li>
+ *   <li>The size of every buffer and texture is tracked to estimate GPU memory use.</li>
+ *   <li>Shaders always compile, and linking finds the attributes and uniforms declared in the
+ *   sources, so location lookups work like they would on a device.</li>
+ * </ul>
+ *
+ * Install it with {@link GL#setBackend(GLBackend)}, then draw frames and check the counters.
+ * Bitmap uploads are counted at the Bitmap's byte count; their pixels are never read.
+ *
+ * @author Tyler Suehr
+ */
+public final class HeadlessGLBackend implements GLBackend {
+    /* Command ids, one per GLBackend method (both glVertexAttribPointer overloads share one) */
+    public static final int CMD_ACTIVE_TEXTURE = 0;
+    public static final int CMD_ATTACH_SHADER = 1;
+    public static final int CMD_BIND_BUFFER = 2;
+    public static final int CMD_BIND_TEXTURE = 3;
+    public static final int CMD_BLEND_FUNC = 4;
+    public static final int CMD_BUFFER_DATA = 5;
+    public static final int CMD_BUFFER_SUB_DATA = 6;
+    public static final int CMD_CLEAR = 7;
+    public static final int CMD_CLEAR_COLOR = 8;
+    public static final int CMD_COMPILE_SHADER = 9;
+    public static final int CMD_COMPRESSED_TEX_IMAGE_2D = 10;
+    public static final int CMD_CREATE_PROGRAM = 11;
+    public static final int CMD_CREATE_SHADER = 12;
+    public static final int CMD_CULL_FACE = 13;
+    public static final int CMD_DELETE_BUFFERS = 14;
+    public static final int CMD_DELETE_PROGRAM = 15;
+    public static final int CMD_DELETE_SHADER = 16;
+    public static final int CMD_DELETE_TEXTURES = 17;
+    public static final int CMD_DEPTH_FUNC = 18;
+    public static final int CMD_DEPTH_MASK = 19;
+    public static final int CMD_DETACH_SHADER = 20;
+    public static final int CMD_DISABLE = 21;
+    public static final int CMD_DISABLE_VERTEX_ATTRIB_ARRAY = 22;
+    public static final int CMD_DRAW_ARRAYS = 23;
+    public static final int CMD_DRAW_ELEMENTS = 24;
+    public static final int CMD_ENABLE = 25;
+    public static final int CMD_ENABLE_VERTEX_ATTRIB_ARRAY = 26;
+    public static final int CMD_GEN_BUFFERS = 27;
+    public static final int CMD_GEN_TEXTURES = 28;
+    public static final int CMD_GENERATE_MIPMAP = 29;
+    public static final int CMD_GET_ACTIVE_ATTRIB = 30;
+    public static final int CMD_GET_ACTIVE_UNIFORM = 31;
+    public static final int CMD_GET_ATTRIB_LOCATION = 32;
+    public static final int CMD_GET_ERROR = 33;
+    public static final int CMD_GET_INTEGERV = 34;
+    public static final int CMD_GET_PROGRAM_INFO_LOG = 35;
+    public static final int CMD_GET_PROGRAMIV = 36;
+    public static final int CMD_GET_SHADER_INFO_LOG = 37;
+    public static final int CMD_GET_SHADERIV = 38;
+    public static final int CMD_GET_UNIFORM_LOCATION = 39;
+    public static final int CMD_LINK_PROGRAM = 40;
+    public static final int CMD_PIXEL_STOREI = 41;
+    public static final int CMD_SHADER_SOURCE = 42;
+    public static final int CMD_TEX_IMAGE_2D = 43;
+    public static final int CMD_TEX_PARAMETERF = 44;
+    public static final int CMD_TEX_PARAMETERI = 45;
+    public static final int CMD_UNIFORM_1F = 46;
+    public static final int CMD_UNIFORM_1I = 47;
+    public static final int CMD_UNIFORM_2F = 48;
+    public static final int CMD_UNIFORM_3F = 49;
+    public static final int CMD_UNIFORM_4F = 50;
+    public static final int CMD_UNIFORM_MATRIX_3FV = 51;
+    public static final int CMD_UNIFORM_MATRIX_4FV = 52;
+    public static final int CMD_USE_PROGRAM = 53;
+    public static final int CMD_VALIDATE_PROGRAM = 54;
+    public static final int CMD_VERTEX_ATTRIB_POINTER = 55;
+    public static final int CMD_VIEWPORT = 56;
+    public static final int CMD_TEX_IMAGE_2D_BITMAP = 57;
+    public static final int NUM_COMMANDS = 58;
+
+    private static final String[] COMMAND_NAMES = {
+            "glActiveTexture", "glAttachShader", "glBindBuffer", "glBindTexture", "glBlendFunc",
+            "glBufferData", "glBufferSubData", "glClear", "glClearColor", "glCompileShader",
+            "glCompressedTexImage2D", "glCreateProgram", "glCreateShader", "glCullFace",
+            "glDeleteBuffers", "glDeleteProgram", "glDeleteShader", "glDeleteTextures",
+            "glDepthFunc", "glDepthMask", "glDetachShader", "glDisable",
+            "glDisableVertexAttribArray", "glDrawArrays", "glDrawElements", "glEnable",
+            "glEnableVertexAttribArray", "glGenBuffers", "glGenTextures", "glGenerateMipmap",
+            "glGetActiveAttrib", "glGetActiveUniform", "glGetAttribLocation", "glGetError",
+            "glGetIntegerv", "glGetProgramInfoLog", "glGetProgramiv", "glGetShaderInfoLog",
+            "glGetShaderiv", "glGetUniformLocation", "glLinkProgram", "glPixelStorei",
+            "glShaderSource", "glTexImage2D", "glTexParameterf", "glTexParameteri", "glUniform1f",
+            "glUniform1i", "glUniform2f", "glUniform3f", "glUniform4f", "glUniformMatrix3fv",
+            "glUniformMatrix4fv", "glUseProgram", "glValidateProgram", "glVertexAttribPointer",
+            "glViewport", "texImage2D"
+    };
+
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int MAX_VERTEX_ATTRIBS = 16;
+    private static final int MAX_TEXTURE_SIZE = 4096;
+    /* Floats stored per uniform location, enough for a mat4 */
+    private static final int UNIFORM_STRIDE = 16;
+
+    /* Call counters */
+    private final long[] mCallCounts = new long[NUM_COMMANDS];
+    private long mDrawCalls;
+    private long mVertices;
+    private long mStateChanges;
+    private long mRedundantStateChanges;
+    private long mBytesUploaded;
+    private long mErrorCount;
+    private int mError = GL.GL_NO_ERROR;
+
+    /* Command recording */
+    private boolean mRecording = false;
+    private int[] mRecorded = new int[256];
+    private int mRecordedCount = 0;
+
+    /* Objects; buffer and texture names index these arrays and are never reused */
+    private int mNextBuffer = 1;
+    private int mNextTexture = 1;
+    private int mNextObject = 1;
+    private boolean[] mBufferLive = new boolean[64];
+    private long[] mBufferSize = new long[64];
+    private boolean[] mTextureLive = new boolean[64];
+    private long[] mTextureBytes = new long[64];
+    private long[] mTextureBaseBytes = new long[64];
+    /* The target each texture was first bound to, which it keeps for life */
+    private int[] mTextureTarget = new int[64];
+    private final Map<Integer, Shader> mShaders = new HashMap<>();
+    private final Map<Integer, Program> mPrograms = new HashMap<>();
+    private long mBufferMemory;
+    private long mTextureMemory;
+    private long mPeakMemory;
+    private int mBufferCount;
+    private int mTextureCount;
+    private int[] mCompressedFormats = { 0x8D64 }; // GL_ETC1_RGB8_OES
+
+    /* Simulated context state */
+    private Program mProgram;
+    private int mArrayBuffer;
+    private int mElementArrayBuffer;
+    private int mActiveTextureUnit;
+    private final int[] mTexture2D = new int[MAX_TEXTURE_UNITS];
+    private final int[] mTextureCubeMap = new int[MAX_TEXTURE_UNITS];
+    private final boolean[] mAttribEnabled = new boolean[MAX_VERTEX_ATTRIBS];
+    private final int[][] mAttribPointers = new int[MAX_VERTEX_ATTRIBS][6];
+    private boolean mBlend;
+    private boolean mDepthTest;
+    private boolean mCullFace;
+    private boolean mScissorTest;
+    private boolean mStencilTest;
+    private boolean mDither = true;
+    private int mBlendSrc = GL.GL_ONE;
+    private int mBlendDst = GL.GL_ZERO;
+    private boolean mDepthMask = true;
+    private int mDepthFunc = GL.GL_LESS;
+    private int mCullFaceMode = GL.GL_BACK;
+    private final int[] mViewport = new int[4];
+    private final float[] mClearColor = new float[4];
+    private int mUnpackAlignment = 4;
+
+
+    /**
+     * Creates a backend whose viewport starts out with the given size, like a surface would.
+     *
+     * @param width the width of the simulated surface
+     * @param height the height of the simulated surface
+     */
+    public HeadlessGLBackend(int width, int height) {
+        mViewport[2] = width;
+        mViewport[3] = height;
+    }
+
+    @Override
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        call(CMD_TEX_IMAGE_2D_BITMAP);
+        texImage(target, level, bitmap.getWidth(), bitmap.getHeight(), bitmap.getByteCount());
+    }
+
+    public HeadlessGLBackend() {
+        this(1920, 1080);
+    }
+
+    /**
+     * Sets the compressed texture formats reported as supported. Only ETC1 is by default,
+     * like on every OpenGL ES 2.0 device.
+     *
+     * @param formats the internal formats, like
+     *                {@link com.tylersuehr.enginej.textures.CompressedImage#GL_ETC1_RGB8_OES}
+     */
+    public void setCompressedTextureFormats(int... formats) {
+        mCompressedFormats = formats.clone();
+    }
+
+    /**
+     * Starts or stops recording the id of every command called, in order.
+     * @param recording true to record
+     */
+    public void setRecording(boolean recording) {
+        mRecording = recording;
+    }
+
+    public boolean isRecording() {
+        return mRecording;
+    }
+
+    public int getRecordedCount() {
+        return mRecordedCount;
+    }
+
+    /**
+     * Gets a recorded command.
+     *
+     * @param index the position of the command, from 0 for the first recorded
+     * @return the command id, like {@link #CMD_DRAW_ELEMENTS}
+     */
+    public int getRecordedCommand(int index) {
+        if (index < 0 || index >= mRecordedCount) {
+            throw new IndexOutOfBoundsException("Command " + index + " was not recorded!");
+        }
+        return mRecorded[index];
+    }
+
+    public void clearRecording() {
+        mRecordedCount = 0;
+    }
+
+    /**
+     * Gets the GL function name of a command id, like "glDrawElements".
+     *
+     * @param command the command id
+     * @return the name
+     */
+    public static String getCommandName(int command) {
+        return COMMAND_NAMES[command];
+    }
+
+    /**
+     * Zeroes all call counters and clears the recording. The simulated state and memory are
+     * kept, since they belong to the "context" rather than a frame.
+     */
+    public void resetCounters() {
+        Arrays.fill(mCallCounts, 0);
+        mDrawCalls = 0;
+        mVertices = 0;
+        mStateChanges = 0;
+        mRedundantStateChanges = 0;
+        mBytesUploaded = 0;
+        mErrorCount = 0;
+        mRecordedCount = 0;
+    }
+
+    /** Gets the number of GL calls made since the last reset. */
+    public long getCallCount() {
+        long total = 0;
+        for (long count : mCallCounts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /** Gets the number of calls of one command, like {@link #CMD_USE_PROGRAM}, since the last reset. */
+    public long getCallCount(int command) {
+        return mCallCounts[command];
+    }
+
+    /** Gets the number of glDrawArrays and glDrawElements calls since the last reset. */
+    public long getDrawCallCount() {
+        return mDrawCalls;
+    }
+
+    /** Gets the number of vertices (or indices) submitted by draw calls since the last reset. */
+    public long getVertexCount() {
+        return mVertices;
+    }
+
+    /**
+     * Gets the number of calls that set context state, like bindings, capabilities, uniforms
+     * and vertex attributes, since the last reset. Includes redundant ones.
+     */
+    public long getStateChangeCount() {
+        return mStateChanges;
+    }
+
+    /** Gets the number of state changes that didn't change anything since the last reset. */
+    public long getRedundantStateChangeCount() {
+        return mRedundantStateChanges;
+    }
+
+    /** Gets the number of bytes sent to buffers and textures since the last reset. */
+    public long getBytesUploaded() {
+        return mBytesUploaded;
+    }
+
+    /** Gets the number of GL errors raised since the last reset. */
+    public long getErrorCount() {
+        return mErrorCount;
+    }
+
+    /** Gets the bytes held by all live buffer objects. */
+    public long getBufferMemory() {
+        return mBufferMemory;
+    }
+
+    /** Gets the (estimated) bytes held by all live texture objects, mipmaps included. */
+    public long getTextureMemory() {
+        return mTextureMemory;
+    }
+
+    /** Gets the most buffer plus texture memory that was ever held at once. */
+    public long getPeakMemory() {
+        return mPeakMemory;
+    }
+
+    public int getBufferCount() {
+        return mBufferCount;
+    }
+
+    public int getTextureCount() {
+        return mTextureCount;
+    }
+
+    public int getProgramCount() {
+        return mPrograms.size();
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        call(CMD_ACTIVE_TEXTURE);
+        final int unit = texture - GL.GL_TEXTURE0;
+        if (unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            error(GL.GL_INVALID_ENUM);
+            return;
+        }
+        stateChange(mActiveTextureUnit == unit);
+        mActiveTextureUnit = unit;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        call(CMD_ATTACH_SHADER);
+        final Program p = mPrograms.get(program);
+        final Shader s = mShaders.get(shader);
+        if (p == null || s == null || p.mShaders.contains(s)) {
+            error(p == null || s == null ? GL.GL_INVALID_VALUE : GL.GL_INVALID_OPERATION);
+            return;
+        }
+        p.mShaders.add(s);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        call(CMD_BIND_BUFFER);
+        if (buffer != 0 && !isLive(mBufferLive, buffer)) {
+            error(GL.GL_INVALID_OPERATION);
+            return;
+        }
+        if (target == GL.GL_ARRAY_BUFFER) {
+            stateChange(mArrayBuffer == buffer);
+            mArrayBuffer = buffer;
+        } else if (target == GL.GL_ELEMENT_ARRAY_BUFFER) {
+            stateChange(mElementArrayBuffer == buffer);
+            mElementArrayBuffer = buffer;
+        } else {
+            error(GL.GL_INVALID_ENUM);
+        }
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        call(CMD_BIND_TEXTURE);
+        if (texture != 0 && !isLive(mTextureLive, texture)) {
+            error(GL.GL_INVALID_OPERATION);
+            return;
+        }
+        final int[] bound = boundTextures(target);
+        if (bound == null) {
+            error(GL.GL_INVALID_ENUM);
+            return;
+        }
+        if (texture != 0) {
+            if (mTextureTarget[texture] == 0) {
+                mTextureTarget[texture] = target;
+            } else if (mTextureTarget[texture] != target) {
+                error(GL.GL_INVALID_OPERATION);
+                return;
+            }
+        }
+        stateChange(bound[mActiveTextureUnit] == texture);
+        bound[mActiveTextureUnit] = texture;
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        call(CMD_BLEND_FUNC);
+        stateChange(mBlendSrc == sfactor && mBlendDst == dfactor);
+        mBlendSrc = sfactor;
+        mBlendDst = dfactor;
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        call(CMD_BUFFER_DATA);
+        final int buffer = boundBuffer(target);
+        if (buffer <= 0 || size < 0) {
+            error((buffer < 0) ? GL.GL_INVALID_ENUM
+                    : (size < 0) ? GL.GL_INVALID_VALUE : GL.GL_INVALID_OPERATION);
+            return;
+        }
+        mBufferMemory += size - mBufferSize[buffer];
+        mBufferSize[buffer] = size;
+        updatePeakMemory();
+        if (data != null) {
+            mBytesUploaded += size;
+        }
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        call(CMD_BUFFER_SUB_DATA);
+        final int buffer = boundBuffer(target);
+        if (buffer <= 0) {
+            error(buffer < 0 ? GL.GL_INVALID_ENUM : GL.GL_INVALID_OPERATION);
+            return;
+        }
+        if (offset < 0 || size < 0 || (long)offset + size > mBufferSize[buffer]) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        mBytesUploaded += size;
+    }
+
+    @Override
+    public void glClear(int mask) {
+        call(CMD_CLEAR);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        call(CMD_CLEAR_COLOR);
+        stateChange(mClearColor[0] == red && mClearColor[1] == green
+                && mClearColor[2] == blue && mClearColor[3] == alpha);
+        mClearColor[0] = red;
+        mClearColor[1] = green;
+        mClearColor[2] = blue;
+        mClearColor[3] = alpha;
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        call(CMD_COMPILE_SHADER);
+        final Shader s = mShaders.get(shader);
+        if (s == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        s.mCompiled = (s.mSource != null);
+    }
+
+    @Override
+    public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height,
+                                       int border, int imageSize, Buffer data) {
+        call(CMD_COMPRESSED_TEX_IMAGE_2D);
+        boolean supported = false;
+        for (int format : mCompressedFormats) {
+            supported |= (format == internalformat);
+        }
+        if (!supported) {
+            error(GL.GL_INVALID_ENUM);
+            return;
+        }
+        texImage(target, level, width, height, imageSize);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        call(CMD_CREATE_PROGRAM);
+        final int name = mNextObject++;
+        mPrograms.put(name, new Program(name));
+        return name;
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        call(CMD_CREATE_SHADER);
+        if (type != GL.GL_VERTEX_SHADER && type != GL.GL_FRAGMENT_SHADER) {
+            error(GL.GL_INVALID_ENUM);
+            return 0;
+        }
+        final int name = mNextObject++;
+        mShaders.put(name, new Shader(type));
+        return name;
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        call(CMD_CULL_FACE);
+        stateChange(mCullFaceMode == mode);
+        mCullFaceMode = mode;
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        call(CMD_DELETE_BUFFERS);
+        for (int i = 0; i < n; i++) {
+            final int buffer = buffers[offset + i];
+            if (!isLive(mBufferLive, buffer)) {
+                continue; // Unused names are silently ignored
+            }
+            mBufferLive[buffer] = false;
+            mBufferMemory -= mBufferSize[buffer];
+            mBufferSize[buffer] = 0;
+            mBufferCount--;
+            if (mArrayBuffer == buffer) {
+                mArrayBuffer = 0;
+            }
+            if (mElementArrayBuffer == buffer) {
+                mElementArrayBuffer = 0;
+            }
+        }
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        call(CMD_DELETE_PROGRAM);
+        final Program p = mPrograms.get(program);
+        if (p == null) {
+            if (program != 0) {
+                error(GL.GL_INVALID_VALUE);
+            }
+            return;
+        }
+        // GL defers deleting the current program until another one is used
+        p.mDeletePending = true;
+        if (mProgram != p) {
+            mPrograms.remove(program);
+        }
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        call(CMD_DELETE_SHADER);
+        if (shader != 0 && mShaders.remove(shader) == null) {
+            error(GL.GL_INVALID_VALUE);
+        }
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        call(CMD_DELETE_TEXTURES);
+        for (int i = 0; i < n; i++) {
+            final int texture = textures[offset + i];
+            if (!isLive(mTextureLive, texture)) {
+                continue;
+            }
+            mTextureLive[texture] = false;
+            mTextureMemory -= mTextureBytes[texture];
+            mTextureBytes[texture] = 0;
+            mTextureBaseBytes[texture] = 0;
+            mTextureCount--;
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (mTexture2D[unit] == texture) {
+                    mTexture2D[unit] = 0;
+                }
+                if (mTextureCubeMap[unit] == texture) {
+                    mTextureCubeMap[unit] = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        call(CMD_DEPTH_FUNC);
+        stateChange(mDepthFunc == func);
+        mDepthFunc = func;
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        call(CMD_DEPTH_MASK);
+        stateChange(mDepthMask == flag);
+        mDepthMask = flag;
+    }
+
+    @Override
+    public void glDetachShader(int program, int shader) {
+        call(CMD_DETACH_SHADER);
+        final Program p = mPrograms.get(program);
+        final Shader s = mShaders.get(shader);
+        if (p == null || s == null || !p.mShaders.remove(s)) {
+            error(p == null || s == null ? GL.GL_INVALID_VALUE : GL.GL_INVALID_OPERATION);
+        }
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        call(CMD_DISABLE);
+        setCapability(cap, false);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        call(CMD_DISABLE_VERTEX_ATTRIB_ARRAY);
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        stateChange(!mAttribEnabled[index]);
+        mAttribEnabled[index] = false;
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        call(CMD_DRAW_ARRAYS);
+        if (first < 0 || count < 0) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        mDrawCalls++;
+        mVertices += count;
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        call(CMD_DRAW_ELEMENTS);
+        if (count < 0) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        if (mElementArrayBuffer == 0) {
+            // Offsets are only meaningful with an index buffer bound
+            error(GL.GL_INVALID_OPERATION);
+            return;
+        }
+        final int indexSize = (type == GL.GL_UNSIGNED_BYTE) ? 1 : (type == GL.GL_UNSIGNED_SHORT) ? 2 : 4;
+        if (offset + (long)count * indexSize > mBufferSize[mElementArrayBuffer]) {
+            error(GL.GL_INVALID_OPERATION);
+            return;
+        }
+        mDrawCalls++;
+        mVertices += count;
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        call(CMD_ENABLE);
+        setCapability(cap, true);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        call(CMD_ENABLE_VERTEX_ATTRIB_ARRAY);
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        stateChange(mAttribEnabled[index]);
+        mAttribEnabled[index] = true;
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        call(CMD_GEN_BUFFERS);
+        for (int i = 0; i < n; i++) {
+            final int buffer = mNextBuffer++;
+            if (buffer >= mBufferLive.length) {
+                final int capacity = mBufferLive.length * 2;
+                mBufferLive = Arrays.copyOf(mBufferLive, capacity);
+                mBufferSize = Arrays.copyOf(mBufferSize, capacity);
+            }
+            mBufferLive[buffer] = true;
+            mBufferCount++;
+            buffers[offset + i] = buffer;
+        }
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        call(CMD_GEN_TEXTURES);
+        for (int i = 0; i < n; i++) {
+            final int texture = mNextTexture++;
+            if (texture >= mTextureLive.length) {
+                final int capacity = mTextureLive.length * 2;
+                mTextureLive = Arrays.copyOf(mTextureLive, capacity);
+                mTextureBytes = Arrays.copyOf(mTextureBytes, capacity);
+                mTextureBaseBytes = Arrays.copyOf(mTextureBaseBytes, capacity);
+                mTextureTarget = Arrays.copyOf(mTextureTarget, capacity);
+            }
+            mTextureLive[texture] = true;
+            mTextureCount++;
+            textures[offset + i] = texture;
+        }
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        call(CMD_GENERATE_MIPMAP);
+        final int[] bound = boundTextures(target);
+        if (bound == null || bound[mActiveTextureUnit] == 0) {
+            error(bound == null ? GL.GL_INVALID_ENUM : GL.GL_INVALID_OPERATION);
+            return;
+        }
+
+        // A full mip chain adds about a third on top of the base level
+        final int texture = bound[mActiveTextureUnit];
+        final long bytes = mTextureBaseBytes[texture] + mTextureBaseBytes[texture] / 3;
+        mTextureMemory += bytes - mTextureBytes[texture];
+        mTextureBytes[texture] = bytes;
+        updatePeakMemory();
+    }
+
+    @Override
+    public String glGetActiveAttrib(int program, int index, int[] size, int sizeOffset,
+                                    int[] type, int typeOffset) {
+        call(CMD_GET_ACTIVE_ATTRIB);
+        final Program p = linkedProgram(program);
+        if (p == null || index < 0 || index >= p.mAttributes.size()) {
+            error(GL.GL_INVALID_VALUE);
+            return null;
+        }
+        final Variable attribute = p.mAttributes.get(index);
+        size[sizeOffset] = attribute.mSize;
+        type[typeOffset] = attribute.mType;
+        return attribute.mName;
+    }
+
+    @Override
+    public String glGetActiveUniform(int program, int index, int[] size, int sizeOffset,
+                                     int[] type, int typeOffset) {
+        call(CMD_GET_ACTIVE_UNIFORM);
+        final Program p = linkedProgram(program);
+        if (p == null || index < 0 || index >= p.mUniforms.size()) {
+            error(GL.GL_INVALID_VALUE);
+            return null;
+        }
+        final Variable uniform = p.mUniforms.get(index);
+        size[sizeOffset] = uniform.mSize;
+        type[typeOffset] = uniform.mType;
+        return uniform.mArray ? uniform.mName + "[0]" : uniform.mName;
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        call(CMD_GET_ATTRIB_LOCATION);
+        final Program p = linkedProgram(program);
+        if (p == null) {
+            error(GL.GL_INVALID_OPERATION);
+            return -1;
+        }
+        final Variable attribute = find(p.mAttributes, name);
+        return (attribute == null) ? -1 : attribute.mLocation;
+    }
+
+    @Override
+    public int glGetError() {
+        call(CMD_GET_ERROR);
+        final int error = mError;
+        mError = GL.GL_NO_ERROR;
+        return error;
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        call(CMD_GET_INTEGERV);
+        switch (pname) {
+            case GL.GL_CURRENT_PROGRAM:
+                params[offset] = (mProgram == null) ? 0 : mProgram.mName;
+                break;
+            case GL.GL_ARRAY_BUFFER_BINDING:
+                params[offset] = mArrayBuffer;
+                break;
+            case GL.GL_ELEMENT_ARRAY_BUFFER_BINDING:
+                params[offset] = mElementArrayBuffer;
+                break;
+            case GL.GL_ACTIVE_TEXTURE:
+                params[offset] = GL.GL_TEXTURE0 + mActiveTextureUnit;
+                break;
+            case GL.GL_TEXTURE_BINDING_2D:
+                params[offset] = mTexture2D[mActiveTextureUnit];
+                break;
+            case GL.GL_TEXTURE_BINDING_CUBE_MAP:
+                params[offset] = mTextureCubeMap[mActiveTextureUnit];
+                break;
+            case GL.GL_VIEWPORT:
+                System.arraycopy(mViewport, 0, params, offset, 4);
+                break;
+            case GL.GL_UNPACK_ALIGNMENT:
+                params[offset] = mUnpackAlignment;
+                break;
+            case GL.GL_MAX_TEXTURE_SIZE:
+                params[offset] = MAX_TEXTURE_SIZE;
+                break;
+            case GL.GL_MAX_VERTEX_ATTRIBS:
+                params[offset] = MAX_VERTEX_ATTRIBS;
+                break;
+            case GL.GL_MAX_TEXTURE_IMAGE_UNITS:
+            case GL.GL_MAX_COMBINED_TEXTURE_IMAGE_UNITS:
+                params[offset] = MAX_TEXTURE_UNITS;
+                break;
+            case GL.GL_NUM_COMPRESSED_TEXTURE_FORMATS:
+                params[offset] = mCompressedFormats.length;
+                break;
+            case GL.GL_COMPRESSED_TEXTURE_FORMATS:
+                System.arraycopy(mCompressedFormats, 0, params, offset, mCompressedFormats.length);
+                break;
+            default:
+                error(GL.GL_INVALID_ENUM);
+                break;
+        }
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        call(CMD_GET_PROGRAM_INFO_LOG);
+        final Program p = mPrograms.get(program);
+        return (p == null) ? "" : p.mInfoLog;
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        call(CMD_GET_PROGRAMIV);
+        final Program p = mPrograms.get(program);
+        if (p == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        switch (pname) {
+            case GL.GL_DELETE_STATUS:
+                params[offset] = p.mDeletePending ? GL.GL_TRUE : GL.GL_FALSE;
+                break;
+            case GL.GL_LINK_STATUS:
+                params[offset] = p.mLinked ? GL.GL_TRUE : GL.GL_FALSE;
+                break;
+            case GL.GL_VALIDATE_STATUS:
+                params[offset] = p.mValidated ? GL.GL_TRUE : GL.GL_FALSE;
+                break;
+            case GL.GL_INFO_LOG_LENGTH:
+                params[offset] = p.mInfoLog.isEmpty() ? 0 : p.mInfoLog.length() + 1;
+                break;
+            case GL.GL_ATTACHED_SHADERS:
+                params[offset] = p.mShaders.size();
+                break;
+            case GL.GL_ACTIVE_ATTRIBUTES:
+                params[offset] = p.mAttributes.size();
+                break;
+            case GL.GL_ACTIVE_UNIFORMS:
+                params[offset] = p.mUniforms.size();
+                break;
+            case GL.GL_ACTIVE_ATTRIBUTE_MAX_LENGTH:
+                params[offset] = maxNameLength(p.mAttributes);
+                break;
+            case GL.GL_ACTIVE_UNIFORM_MAX_LENGTH:
+                params[offset] = maxNameLength(p.mUniforms);
+                break;
+            default:
+                error(GL.GL_INVALID_ENUM);
+                break;
+        }
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        call(CMD_GET_SHADER_INFO_LOG);
+        return "";
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        call(CMD_GET_SHADERIV);
+        final Shader s = mShaders.get(shader);
+        if (s == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        switch (pname) {
+            case GL.GL_SHADER_TYPE:
+                params[offset] = s.mType;
+                break;
+            case GL.GL_DELETE_STATUS:
+                params[offset] = GL.GL_FALSE;
+                break;
+            case GL.GL_COMPILE_STATUS:
+                params[offset] = s.mCompiled ? GL.GL_TRUE : GL.GL_FALSE;
+                break;
+            case GL.GL_INFO_LOG_LENGTH:
+                params[offset] = 0;
+                break;
+            case GL.GL_SHADER_SOURCE_LENGTH:
+                params[offset] = (s.mSource == null) ? 0 : s.mSource.length() + 1;
+                break;
+            default:
+                error(GL.GL_INVALID_ENUM);
+                break;
+        }
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        call(CMD_GET_UNIFORM_LOCATION);
+        final Program p = linkedProgram(program);
+        if (p == null) {
+            error(GL.GL_INVALID_OPERATION);
+            return -1;
+        }
+
+        // Array elements can be asked for as "name[i]", where "name" means "name[0]"
+        String base = name;
+        int element = 0;
+        final int bracket = name.indexOf('[');
+        if (bracket > 0 && name.endsWith("]")) {
+            base = name.substring(0, bracket);
+            try {
+                element = Integer.parseInt(name.substring(bracket + 1, name.length() - 1).trim());
+            } catch (NumberFormatException ex) {
+                return -1;
+            }
+        }
+        final Variable uniform = find(p.mUniforms, base);
+        if (uniform == null || element < 0 || element >= uniform.mSize) {
+            return -1;
+        }
+        return uniform.mLocation + element;
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        call(CMD_LINK_PROGRAM);
+        final Program p = mPrograms.get(program);
+        if (p == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        p.link();
+    }
+
+    @Override
+    public void glPixelStorei(int pname, int param) {
+        call(CMD_PIXEL_STOREI);
+        if (pname == GL.GL_UNPACK_ALIGNMENT) {
+            stateChange(mUnpackAlignment == param);
+            mUnpackAlignment = param;
+        } else {
+            stateChange(false);
+        }
+    }
+
+    @Override
+    public void glShaderSource(int shader, String string) {
+        call(CMD_SHADER_SOURCE);
+        final Shader s = mShaders.get(shader);
+        if (s == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        s.mSource = string;
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                             int format, int type, Buffer pixels) {
+        call(CMD_TEX_IMAGE_2D);
+        final int bytesPerPixel;
+        switch (type) {
+            case GL.GL_UNSIGNED_SHORT_5_6_5:
+            case GL.GL_UNSIGNED_SHORT_4_4_4_4:
+            case GL.GL_UNSIGNED_SHORT_5_5_5_1:
+                bytesPerPixel = 2;
+                break;
+            default:
+                bytesPerPixel = (format == GL.GL_RGBA) ? 4 : (format == GL.GL_RGB) ? 3
+                        : (format == GL.GL_LUMINANCE_ALPHA) ? 2 : 1;
+                break;
+        }
+        texImage(target, level, width, height, (long)width * height * bytesPerPixel);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        call(CMD_TEX_PARAMETERF);
+        stateChange(false);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        call(CMD_TEX_PARAMETERI);
+        stateChange(false);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        call(CMD_UNIFORM_1F);
+        final float[] values = uniformValues(location, 1);
+        if (values != null) {
+            final int i = location * UNIFORM_STRIDE;
+            stateChange(values[i] == x);
+            values[i] = x;
+        }
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        call(CMD_UNIFORM_1I);
+        final float[] values = uniformValues(location, 1);
+        if (values != null) {
+            final int i = location * UNIFORM_STRIDE;
+            stateChange(values[i] == x);
+            values[i] = x;
+        }
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        call(CMD_UNIFORM_2F);
+        final float[] values = uniformValues(location, 1);
+        if (values != null) {
+            final int i = location * UNIFORM_STRIDE;
+            stateChange(values[i] == x && values[i + 1] == y);
+            values[i] = x;
+            values[i + 1] = y;
+        }
+    }
+
+    @Override
+    public void glUniform3f(int location, float x, float y, float z) {
+        call(CMD_UNIFORM_3F);
+        final float[] values = uniformValues(location, 1);
+        if (values != null) {
+            final int i = location * UNIFORM_STRIDE;
+            stateChange(values[i] == x && values[i + 1] == y && values[i + 2] == z);
+            values[i] = x;
+            values[i + 1] = y;
+            values[i + 2] = z;
+        }
+    }
+
+    @Override
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        call(CMD_UNIFORM_4F);
+        final float[] values = uniformValues(location, 1);
+        if (values != null) {
+            final int i = location * UNIFORM_STRIDE;
+            stateChange(values[i] == x && values[i + 1] == y && values[i + 2] == z && values[i + 3] == w);
+            values[i] = x;
+            values[i + 1] = y;
+            values[i + 2] = z;
+            values[i + 3] = w;
+        }
+    }
+
+    @Override
+    public void glUniformMatrix3fv(int location, int count, boolean transpose, float[] value, int offset) {
+        call(CMD_UNIFORM_MATRIX_3FV);
+        uniformMatrix(location, count, value, offset, 9);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        call(CMD_UNIFORM_MATRIX_4FV);
+        uniformMatrix(location, count, value, offset, 16);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        call(CMD_USE_PROGRAM);
+        final Program p = (program == 0) ? null : mPrograms.get(program);
+        if (program != 0 && (p == null || !p.mLinked)) {
+            error(p == null ? GL.GL_INVALID_VALUE : GL.GL_INVALID_OPERATION);
+            return;
+        }
+        stateChange(mProgram == p);
+
+        // Finish a deferred delete once its program stops being current
+        if (mProgram != null && mProgram != p && mProgram.mDeletePending) {
+            mPrograms.remove(mProgram.mName);
+        }
+        mProgram = p;
+    }
+
+    @Override
+    public void glValidateProgram(int program) {
+        call(CMD_VALIDATE_PROGRAM);
+        final Program p = mPrograms.get(program);
+        if (p == null) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        p.mValidated = p.mLinked;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                                      int offset) {
+        call(CMD_VERTEX_ATTRIB_POINTER);
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS || size < 1 || size > 4 || stride < 0) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        final int[] pointer = mAttribPointers[index];
+        final int norm = normalized ? 1 : 0;
+        stateChange(pointer[0] == mArrayBuffer && pointer[1] == size && pointer[2] == type
+                && pointer[3] == norm && pointer[4] == stride && pointer[5] == offset);
+        pointer[0] = mArrayBuffer;
+        pointer[1] = size;
+        pointer[2] = type;
+        pointer[3] = norm;
+        pointer[4] = stride;
+        pointer[5] = offset;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+                                      Buffer ptr) {
+        call(CMD_VERTEX_ATTRIB_POINTER);
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS || size < 1 || size > 4 || stride < 0) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+
+        // Client-side arrays are read at draw time, so setting one is never redundant
+        Arrays.fill(mAttribPointers[index], -1);
+        stateChange(false);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        call(CMD_VIEWPORT);
+        if (width < 0 || height < 0) {
+            error(GL.GL_INVALID_VALUE);
+            return;
+        }
+        stateChange(mViewport[0] == x && mViewport[1] == y
+                && mViewport[2] == width && mViewport[3] == height);
+        mViewport[0] = x;
+        mViewport[1] = y;
+        mViewport[2] = width;
+        mViewport[3] = height;
+    }
+
+    private void call(int command) {
+        mCallCounts[command]++;
+        if (mRecording) {
+            if (mRecordedCount == mRecorded.length) {
+                mRecorded = Arrays.copyOf(mRecorded, mRecordedCount * 2);
+            }
+            mRecorded[mRecordedCount++] = command;
+        }
+    }
+
+    private void stateChange(boolean redundant) {
+        mStateChanges++;
+        if (redundant) {
+            mRedundantStateChanges++;
+        }
+    }
+
+    private void error(int error) {
+        // Like GL, keep the first error until it is read
+        if (mError == GL.GL_NO_ERROR) {
+            mError = error;
+        }
+        mErrorCount++;
+    }
+
+    private void updatePeakMemory() {
+        mPeakMemory = Math.max(mPeakMemory, mBufferMemory + mTextureMemory);
+    }
+
+    private void setCapability(int cap, boolean enabled) {
+        final boolean previous;
+        switch (cap) {
+            case GL.GL_BLEND:
+                previous = mBlend;
+                mBlend = enabled;
+                break;
+            case GL.GL_DEPTH_TEST:
+                previous = mDepthTest;
+                mDepthTest = enabled;
+                break;
+            case GL.GL_CULL_FACE:
+                previous = mCullFace;
+                mCullFace = enabled;
+                break;
+            case GL.GL_SCISSOR_TEST:
+                previous = mScissorTest;
+                mScissorTest = enabled;
+                break;
+            case GL.GL_STENCIL_TEST:
+                previous = mStencilTest;
+                mStencilTest = enabled;
+                break;
+            case GL.GL_DITHER:
+                previous = mDither;
+                mDither = enabled;
+                break;
+            default:
+                error(GL.GL_INVALID_ENUM);
+                return;
+        }
+        stateChange(previous == enabled);
+    }
+
+    /* Gets the buffer bound to a target, 0 if none, or -1 if the target is invalid */
+    private int boundBuffer(int target) {
+        return (target == GL.GL_ARRAY_BUFFER) ? mArrayBuffer
+                : (target == GL.GL_ELEMENT_ARRAY_BUFFER) ? mElementArrayBuffer : -1;
+    }
+
+    private int[] boundTextures(int target) {
+        return (target == GL.GL_TEXTURE_2D) ? mTexture2D
+                : (target == GL.GL_TEXTURE_CUBE_MAP) ? mTextureCubeMap : null;
+    }
+
+    private void texImage(int target, int level, int width, int height, long bytes) {
+        final boolean cubeFace = target >= GL.GL_TEXTURE_CUBE_MAP_POSITIVE_X
+                && target <= GL.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z;
+        final int[] bound = cubeFace ? mTextureCubeMap : boundTextures(target);
+        if (bound == null || level < 0 || width < 0 || height < 0
+                || width > MAX_TEXTURE_SIZE || height > MAX_TEXTURE_SIZE) {
+            error(bound == null ? GL.GL_INVALID_ENUM : GL.GL_INVALID_VALUE);
+            return;
+        }
+        final int texture = bound[mActiveTextureUnit];
+        if (texture == 0) {
+            error(GL.GL_INVALID_OPERATION);
+            return;
+        }
+
+        // Respecifying a 2D base level replaces the old image; cube faces each add their own
+        if (level == 0 && !cubeFace) {
+            mTextureMemory += bytes - mTextureBytes[texture];
+            mTextureBytes[texture] = bytes;
+            mTextureBaseBytes[texture] = bytes;
+        } else {
+            mTextureMemory += bytes;
+            mTextureBytes[texture] += bytes;
+            if (level == 0) {
+                mTextureBaseBytes[texture] += bytes;
+            }
+        }
+        mBytesUploaded += bytes;
+        updatePeakMemory();
+    }
+
+    /* Gets the uniform storage of the current program, or null if the call should be ignored */
+    private float[] uniformValues(int location, int count) {
+        if (mProgram == null) {
+            error(GL.GL_INVALID_OPERATION);
+            return null;
+        }
+        if (location == -1) {
+            return null; // Silently ignored, like GL does
+        }
+        if (location < 0 || count < 0 || location + count > mProgram.mNumLocations) {
+            error(GL.GL_INVALID_OPERATION);
+            return null;
+        }
+        return mProgram.mValues;
+    }
+
+    private void uniformMatrix(int location, int count, float[] value, int offset, int floats) {
+        final float[] values = uniformValues(location, count);
+        if (values == null) {
+            return;
+        }
+        boolean redundant = true;
+        for (int m = 0; m < count; m++) {
+            final int dst = (location + m) * UNIFORM_STRIDE;
+            final int src = offset + m * floats;
+            for (int i = 0; i < floats; i++) {
+                if (values[dst + i] != value[src + i]) {
+                    redundant = false;
+                    values[dst + i] = value[src + i];
+                }
+            }
+        }
+        stateChange(redundant);
+    }
+
+    private Program linkedProgram(int program) {
+        final Program p = mPrograms.get(program);
+        return (p != null && p.mLinked) ? p : null;
+    }
+
+    private static boolean isLive(boolean[] live, int name) {
+        return name > 0 && name < live.length && live[name];
+    }
+
+    private static Variable find(List<Variable> variables, String name) {
+        for (Variable variable : variables) {
+            if (variable.mName.equals(name)) {
+                return variable;
+            }
+        }
+        return null;
+    }
+
+    private static int maxNameLength(List<Variable> variables) {
+        int max = 0;
+        for (Variable variable : variables) {
+            max = Math.max(max, variable.mName.length() + (variable.mArray ? 3 : 0) + 1);
+        }
+        return max;
+    }
+
+    /**
+     * Finds the variables declared with a storage qualifier, like "uniform", in GLSL source.
+     * Preprocessor lines are skipped rather than evaluated, so declarations inside an #ifdef
+     * are always found.
+     */
+    private static void parseDeclarations(String source, String qualifier, List<Variable> out) {
+        final String code = stripComments(source);
+        final StringBuilder withoutDirectives = new StringBuilder(code.length());
+        for (String line : code.split("\n")) {
+            if (!line.trim().startsWith("#")) {
+                withoutDirectives.append(line).append('\n');
+            }
+        }
+
+        for (String statement : withoutDirectives.toString().split("[;{}]")) {
+            final String[] tokens = statement.trim().split("\\s+", 3);
+            if (tokens.length < 3 || !tokens[0].equals(qualifier)) {
+                continue;
+            }
+            String type = tokens[1];
+            String declarators = tokens[2];
+            if (type.equals("lowp") || type.equals("mediump") || type.equals("highp")) {
+                final String[] rest = declarators.trim().split("\\s+", 2);
+                if (rest.length < 2) {
+                    continue;
+                }
+                type = rest[0];
+                declarators = rest[1];
+            }
+
+            for (String declarator : declarators.replaceAll("\\s+", "").split(",")) {
+                if (declarator.isEmpty() || find(out, nameOfDeclarator(declarator)) != null) {
+                    continue; // Already declared by the other shader
+                }
+                final Variable variable = new Variable(nameOfDeclarator(declarator), typeOf(type));
+                final int bracket = declarator.indexOf('[');
+                if (bracket > 0) {
+                    variable.mArray = true;
+                    final String length = declarator.substring(bracket + 1, declarator.indexOf(']'));
+                    try {
+                        variable.mSize = Integer.parseInt(length);
+                    } catch (NumberFormatException ex) {
+                        variable.mSize = 1; // Sized by a #define we didn't evaluate
+                    }
+                }
+                out.add(variable);
+            }
+        }
+    }
+
+    private static String nameOfDeclarator(String declarator) {
+        final int bracket = declarator.indexOf('[');
+        return (bracket > 0) ? declarator.substring(0, bracket) : declarator;
+    }
+
+    private static String stripComments(String source) {
+        final StringBuilder sb = new StringBuilder(source.length());
+        int i = 0;
+        while (i < source.length()) {
+            if (source.startsWith("//", i)) {
+                final int end = source.indexOf('\n', i);
+                i = (end < 0) ? source.length() : end;
+            } else if (source.startsWith("/*", i)) {
+                final int end = source.indexOf("*/", i + 2);
+                i = (end < 0) ? source.length() : end + 2;
+                sb.append(' ');
+            } else {
+                sb.append(source.charAt(i++));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int typeOf(String glslType) {
+        switch (glslType) {
+            case "float": return GL.GL_FLOAT;
+            case "vec2": return GL.GL_FLOAT_VEC2;
+            case "vec3": return GL.GL_FLOAT_VEC3;
+            case "vec4": return GL.GL_FLOAT_VEC4;
+            case "int": return GL.GL_INT;
+            case "ivec2": return GL.GL_INT_VEC2;
+            case "ivec3": return GL.GL_INT_VEC3;
+            case "ivec4": return GL.GL_INT_VEC4;
+            case "bool": return GL.GL_BOOL;
+            case "bvec2": return GL.GL_BOOL_VEC2;
+            case "bvec3": return GL.GL_BOOL_VEC3;
+            case "bvec4": return GL.GL_BOOL_VEC4;
+            case "mat2": return GL.GL_FLOAT_MAT2;
+            case "mat3": return GL.GL_FLOAT_MAT3;
+            case "mat4": return GL.GL_FLOAT_MAT4;
+            case "sampler2D": return GL.GL_SAMPLER_2D;
+            case "samplerCube": return GL.GL_SAMPLER_CUBE;
+            default: return 0; // Structs aren't supported
+        }
+    }
+
+
+    private static final class Shader {
+        final int mType;
+        String mSource;
+        boolean mCompiled;
+
+        Shader(int type) {
+            mType = type;
+        }
+    }
+
+
+    private static final class Variable {
+        final String mName;
+        final int mType;
+        int mSize = 1;
+        boolean mArray = false;
+        int mLocation;
+
+        Variable(String name, int type) {
+            mName = name;
+            mType = type;
+        }
+    }
+
+
+    private static final class Program {
+        final int mName;
+        final List<Shader> mShaders = new ArrayList<>(2);
+        final List<Variable> mAttributes = new ArrayList<>();
+        final List<Variable> mUniforms = new ArrayList<>();
+        float[] mValues = new float[0];
+        int mNumLocations = 0;
+        String mInfoLog = "";
+        boolean mLinked = false;
+        boolean mValidated = false;
+        boolean mDeletePending = false;
+
+        Program(int name) {
+            mName = name;
+        }
+
+        void link() {
+            mAttributes.clear();
+            mUniforms.clear();
+            mLinked = false;
+            mValidated = false;
+
+            Shader vertex = null;
+            Shader fragment = null;
+            for (Shader shader : mShaders) {
+                if (shader.mType == GL.GL_VERTEX_SHADER) {
+                    vertex = shader;
+                } else {
+                    fragment = shader;
+                }
+            }
+            if (vertex == null || fragment == null || !vertex.mCompiled || !fragment.mCompiled) {
+                mInfoLog = "A compiled vertex and fragment shader must be attached.";
+                return;
+            }
+
+            parseDeclarations(vertex.mSource, "attribute", mAttributes);
+            parseDeclarations(vertex.mSource, "uniform", mUniforms);
+            parseDeclarations(fragment.mSource, "uniform", mUniforms);
+
+            // Attributes get one location each; uniform arrays one per element
+            for (int i = 0; i < mAttributes.size(); i++) {
+                mAttributes.get(i).mLocation = i;
+            }
+            int location = 0;
+            for (Variable uniform : mUniforms) {
+                uniform.mLocation = location;
+                location += uniform.mSize;
+            }
+            mNumLocations = location;
+            mValues = new float[location * UNIFORM_STRIDE];
+            mInfoLog = "";
+            mLinked = true;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.loop;
+
+/**
+ * Turns real elapsed time into a whole number of fixed-length simulation ticks.
+ *
+ * Each call to {@link #advance()} adds the time since the last call to an accumulator and
+ * returns how many ticks fit in it; the leftover carries into the next frame. Game logic then
+ * always steps by the same amount, no matter how fast or unevenly frames are rendered, and
+ * {@link #getAlpha()} says how far between the last two ticks the present moment is, so
+ * rendering can interpolate.
+ *
+ * A long hitch (or a pause) would otherwise demand a burst of catch-up ticks that take longer
+ * than the hitch itself, so elapsed time is clamped to {@link #setMaxFrameNanos(long)} and the
+ * ticks per advance are capped; the simulation just runs slow instead.
+ *
+ * @author Tyler Suehr
+ */
+public final class FixedTimestep {
+    private static final long DEFAULT_MAX_FRAME_NANOS = 250_000_000L;
+
+    private final Clock mClock;
+    private final long mStepNanos;
+    private final float mStepSeconds;
+    private long mMaxFrameNanos = DEFAULT_MAX_FRAME_NANOS;
+    private int mMaxTicksPerAdvance;
+
+    private long mLastNanos;
+    private long mAccumulatorNanos;
+    private long mTickCount;
+
+
+    public FixedTimestep(int ticksPerSecond) {
+        this(ticksPerSecond, Clock.SYSTEM);
+    }
+
+    /**
+     * @param ticksPerSecond the fixed update rate
+     * @param clock the source of time
+     */
+    public FixedTimestep(int ticksPerSecond, Clock clock) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive!");
+        }
+        mClock = clock;
+        mStepNanos = 1_000_000_000L / ticksPerSecond;
+        mStepSeconds = 1f / ticksPerSecond;
+        mMaxTicksPerAdvance = (int)Math.max(1, DEFAULT_MAX_FRAME_NANOS / mStepNanos);
+        reset();
+    }
+
+    /**
+     * Starts timing from now, throwing away any accumulated time. Call this after a pause so
+     * the time spent paused isn't simulated.
+     */
+    public void reset() {
+        mLastNanos = mClock.nanoTime();
+        mAccumulatorNanos = 0;
+    }
+
+    /**
+     * Accumulates the time since the last call and consumes the ticks that are due.
+     * @return the number of ticks to run, each {@link #getStepSeconds()} long
+     */
+    public int advance() {
+        final long now = mClock.nanoTime();
+        mAccumulatorNanos += Math.min(Math.max(0, now - mLastNanos), mMaxFrameNanos);
+        mLastNanos = now;
+
+        int ticks = (int)Math.min(mAccumulatorNanos / mStepNanos, mMaxTicksPerAdvance);
+        mAccumulatorNanos -= ticks * mStepNanos;
+        if (mAccumulatorNanos >= mStepNanos) {
+            // Capped; drop the rest rather than let it pile up into the next frame
+            mAccumulatorNanos %= mStepNanos;
+        }
+        mTickCount += ticks;
+        return ticks;
+    }
+
+    /**
+     * Gets how far the present moment is between the last tick and the next one, as of the
+     * last {@link #advance()}.
+     * @return the interpolation factor, from 0 (inclusive) to 1 (exclusive)
+     */
+    public float getAlpha() {
+        return (float)mAccumulatorNanos / mStepNanos;
+    }
+
+    /**
+     * Gets the interpolation factor at a given time, which may be read on another thread than
+     * the one advancing.
+     *
+     * @param lastTickNanos the time at which the last tick was due, from {@link #getLastTickNanos()}
+     * @param nowNanos the present time from the same clock
+     * @return the interpolation factor, clamped from 0 to 1
+     */
+    public float alphaAt(long lastTickNanos, long nowNanos) {
+        final float alpha = (float)(nowNanos - lastTickNanos) / mStepNanos;
+        return Math.min(Math.max(alpha, 0f), 1f);
+    }
+
+    /** Gets the time at which the last consumed tick was due. */
+    public long getLastTickNanos() {
+        return mLastNanos - mAccumulatorNanos;
+    }
+
+    /** Gets the time until the next tick is due, as of the last {@link #advance()}. */
+    public long getNanosUntilNextTick() {
+        return mStepNanos - mAccumulatorNanos;
+    }
+
+    public float getStepSeconds() {
+        return mStepSeconds;
+    }
+
+    public long getStepNanos() {
+        return mStepNanos;
+    }
+
+    /** Gets the total number of ticks consumed. */
+    public long getTickCount() {
+        return mTickCount;
+    }
+
+    public Clock getClock() {
+        return mClock;
+    }
+
+    /**
+     * @param maxFrameNanos the most elapsed time a single advance will accumulate
+     */
+    public void setMaxFrameNanos(long maxFrameNanos) {
+        mMaxFrameNanos = maxFrameNanos;
+    }
+
+    /**
+     * @param maxTicks the most ticks a single advance will return
+     */
+    public void setMaxTicksPerAdvance(int maxTicks) {
+        mMaxTicksPerAdvance = Math.max(1, maxTicks);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.loop;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands render state from the update thread to the GL thread without locks or copies.
+ *
+ * There are three buffers: the producer owns one to write into, the consumer owns one to read
+ * from, and the third sits in the middle holding the newest complete state. Publishing swaps
+ * the producer's buffer with the middle one, and acquiring swaps the consumer's buffer with
+ * the middle one if anything new was published. Neither side ever waits for the other, and
+ * the consumer always gets the newest complete state.
+ *
+ * Only one thread may produce and only one may consume.
+ *
+ * @param <T> the type of the render state
+ *
+ * @author Tyler Suehr
+ */
+public final class TripleBuffer<T> {
+    /* The middle buffer's index in the low bits, plus a flag if it's newer than the reader's */
+    private static final int FRESH = 4;
+
+    private final Object[] mBuffers;
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+    private int mWrite = 0;
+    private int mRead = 2;
+
+
+    /**
+     * Constructs with three separate instances of the render state.
+     */
+    public TripleBuffer(T a, T b, T c) {
+        if (a == b || b == c || a == c) {
+            throw new IllegalArgumentException("The three buffers must be separate objects!");
+        }
+        mBuffers = new Object[] { a, b, c };
+    }
+
+    /**
+     * Gets the buffer the producer should fill with the next state.
+     * @return the producer's buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T)mBuffers[mWrite];
+    }
+
+    /**
+     * Makes the producer's buffer the newest state, and gives the producer a new buffer to
+     * write into. That buffer holds an older state, so it must be written in full.
+     */
+    public void publish() {
+        mWrite = mMiddle.getAndSet(mWrite | FRESH) & ~FRESH;
+    }
+
+    /**
+     * Gets the newest published state, swapping it in if anything was published since the
+     * last call.
+     * @return the consumer's buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((mMiddle.get() & FRESH) != 0) {
+            mRead = mMiddle.getAndSet(mRead) & ~FRESH;
+        }
+        return (T)mBuffers[mRead];
+    }
+
+    /**
+     * Gets the consumer's buffer without checking for a newer state.
+     * @return the consumer's buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        return (T)mBuffers[mRead];
+    }
+}
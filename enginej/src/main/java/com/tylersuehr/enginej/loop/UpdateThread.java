@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.loop;
+
+/**
+ * Runs fixed-timestep updates on their own thread, sleeping between ticks, so the simulation
+ * keeps its rate even when rendering hitches.
+ *
+ * @author Tyler Suehr
+ */
+public final class UpdateThread extends Thread {
+    private final FixedTimestep mTimestep;
+    private final TickListener mListener;
+    private volatile boolean mRunning = true;
+    private volatile long mLastTickNanos;
+
+
+    /**
+     * @param timestep the timestep, which belongs to this thread while it runs
+     * @param listener called for every tick
+     */
+    public UpdateThread(FixedTimestep timestep, TickListener listener) {
+        super("GameUpdate");
+        mTimestep = timestep;
+        mListener = listener;
+        mLastTickNanos = timestep.getClock().nanoTime();
+    }
+
+    @Override
+    public void run() {
+        mTimestep.reset();
+        final float dt = mTimestep.getStepSeconds();
+        while (mRunning) {
+            final int ticks = mTimestep.advance();
+            for (int i = 0; i < ticks && mRunning; i++) {
+                mListener.onTick(dt);
+            }
+            mLastTickNanos = mTimestep.getLastTickNanos();
+
+            final long sleepNanos = mTimestep.getNanosUntilNextTick();
+            try {
+                Thread.sleep(sleepNanos / 1_000_000L, (int)(sleepNanos % 1_000_000L));
+            } catch (InterruptedException ex) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets how far the present moment is between the last tick and the next one. Safe to call
+     * from any thread.
+     * @return the interpolation factor, from 0 to 1
+     */
+    public float getAlpha() {
+        return mTimestep.alphaAt(mLastTickNanos, mTimestep.getClock().nanoTime());
+    }
+
+    /**
+     * Stops the thread and waits for the current tick to finish.
+     */
+    public void shutdown() {
+        mRunning = false;
+        interrupt();
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Receives every fixed-timestep tick.
+     */
+    public interface TickListener {
+        /**
+         * @param dt the fixed length of the tick in seconds
+         */
+        void onTick(float dt);
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.mesh;
+
+import java.util.Arrays;
+
+/**
+ * A builder for indexed meshes that welds identical vertices together.
+ *
+ * Every vertex added is looked up in an open-addressing hash table keyed by its components,
+ * so a vertex shared by many triangles is only stored once and referenced by index. Vertices
+ * are compared by their exact bits (with -0 treated as 0), which is what generated geometry
+ * like {@link com.tylersuehr.enginej.ShapeBuilder} output needs.
+ *
+ * @author Tyler Suehr
+ */
+public class MeshBuilder {
+    private final int mFloatsPerVertex;
+    private float[] mVertexData;
+    private int mVertexCount = 0;
+    private int[] mIndexData;
+    private int mIndexCount = 0;
+
+    /* Hash table of vertex index + 1, where 0 marks an empty slot */
+    private int[] mTable;
+    private int mTableMask;
+
+
+    /**
+     * Constructs with the layout of a vertex and a sizing hint.
+     *
+     * @param floatsPerVertex the number of floats in a single vertex
+     * @param expectedVertices the number of unique vertices expected
+     */
+    public MeshBuilder(int floatsPerVertex, int expectedVertices) {
+        if (floatsPerVertex < 1) {
+            throw new IllegalArgumentException("A vertex must have at least one component!");
+        }
+        final int capacity = Math.max(expectedVertices, 16);
+        mFloatsPerVertex = floatsPerVertex;
+        mVertexData = new float[capacity * floatsPerVertex];
+        mIndexData = new int[capacity * 3];
+        allocateTable(capacity);
+    }
+
+    /**
+     * Welds a non-indexed triangle list into an indexed mesh.
+     *
+     * @param vertexData three vertices per triangle
+     * @param floatsPerVertex the number of floats in a single vertex
+     * @return the indexed mesh
+     */
+    public static MeshData weld(float[] vertexData, int floatsPerVertex) {
+        final int numVertices = vertexData.length / floatsPerVertex;
+        return new MeshBuilder(floatsPerVertex, numVertices / 2)
+                .addTriangles(vertexData, 0, numVertices)
+                .build();
+    }
+
+    public int getVertexCount() {
+        return mVertexCount;
+    }
+
+    public int getIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * Adds a vertex, or finds the identical vertex added before.
+     *
+     * @param vertexData the array holding the vertex
+     * @param offset the offset of the vertex's first component
+     * @return the index of the vertex
+     */
+    public int addVertex(float[] vertexData, int offset) {
+        final int fpv = mFloatsPerVertex;
+        int slot = hash(vertexData, offset) & mTableMask;
+        for (int entry; (entry = mTable[slot]) != 0; slot = (slot + 1) & mTableMask) {
+            if (sameVertex(vertexData, offset, (entry - 1) * fpv)) {
+                return entry - 1;
+            }
+        }
+
+        // Not seen before, so store it
+        if (mVertexCount * fpv == mVertexData.length) {
+            mVertexData = Arrays.copyOf(mVertexData, mVertexData.length * 2);
+        }
+        final int index = mVertexCount++;
+        System.arraycopy(vertexData, offset, mVertexData, index * fpv, fpv);
+        mTable[slot] = index + 1;
+
+        // Keep the table at most half full so probe sequences stay short
+        if (mVertexCount * 2 > mTable.length) {
+            rehash();
+        }
+        return index;
+    }
+
+    /**
+     * Adds a triangle referencing vertices returned by {@link #addVertex(float[], int)}.
+     * Degenerate triangles (sharing an index) are skipped.
+     *
+     * @param a the index of the first vertex
+     * @param b the index of the second vertex
+     * @param c the index of the third vertex
+     * @return this builder
+     */
+    public MeshBuilder addTriangle(int a, int b, int c) {
+        if (a == b || b == c || a == c) {
+            return this;
+        }
+        if (mIndexCount + 3 > mIndexData.length) {
+            mIndexData = Arrays.copyOf(mIndexData, mIndexData.length * 2);
+        }
+        mIndexData[mIndexCount++] = a;
+        mIndexData[mIndexCount++] = b;
+        mIndexData[mIndexCount++] = c;
+        return this;
+    }
+
+    /**
+     * Adds a non-indexed triangle list, welding its vertices.
+     *
+     * @param vertexData the array holding three vertices per triangle
+     * @param offset the offset of the first vertex
+     * @param numVertices the number of vertices, a multiple of 3
+     * @return this builder
+     */
+    public MeshBuilder addTriangles(float[] vertexData, int offset, int numVertices) {
+        final int fpv = mFloatsPerVertex;
+        for (int i = 0; i + 2 < numVertices; i += 3) {
+            final int at = offset + i * fpv;
+            addTriangle(
+                    addVertex(vertexData, at),
+                    addVertex(vertexData, at + fpv),
+                    addVertex(vertexData, at + fpv * 2)
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Adds a triangle strip, welding its vertices and converting it into a triangle list.
+     *
+     * @param vertexData the array holding the strip
+     * @param offset the offset of the first vertex
+     * @param numVertices the number of vertices in the strip
+     * @return this builder
+     */
+    public MeshBuilder addTriangleStrip(float[] vertexData, int offset, int numVertices) {
+        if (numVertices < 3) {
+            return this;
+        }
+        final int fpv = mFloatsPerVertex;
+        int a = addVertex(vertexData, offset);
+        int b = addVertex(vertexData, offset + fpv);
+        for (int i = 2; i < numVertices; i++) {
+            final int c = addVertex(vertexData, offset + i * fpv);
+
+            // Every other triangle in a strip is wound the other way
+            if ((i & 1) == 0) {
+                addTriangle(a, b, c);
+            } else {
+                addTriangle(b, a, c);
+            }
+            a = b;
+            b = c;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a triangle fan, welding its vertices and converting it into a triangle list.
+     *
+     * @param vertexData the array holding the fan, starting with its center
+     * @param offset the offset of the first vertex
+     * @param numVertices the number of vertices in the fan
+     * @return this builder
+     */
+    public MeshBuilder addTriangleFan(float[] vertexData, int offset, int numVertices) {
+        if (numVertices < 3) {
+            return this;
+        }
+        final int fpv = mFloatsPerVertex;
+        final int center = addVertex(vertexData, offset);
+        int b = addVertex(vertexData, offset + fpv);
+        for (int i = 2; i < numVertices; i++) {
+            final int c = addVertex(vertexData, offset + i * fpv);
+            addTriangle(center, b, c);
+            b = c;
+        }
+        return this;
+    }
+
+    /**
+     * Builds the indexed mesh for everything added so far.
+     * @return the indexed mesh
+     */
+    public MeshData build() {
+        return new MeshData(
+                Arrays.copyOf(mVertexData, mVertexCount * mFloatsPerVertex),
+                mFloatsPerVertex,
+                Arrays.copyOf(mIndexData, mIndexCount)
+        );
+    }
+
+    private boolean sameVertex(float[] vertexData, int offset, int storedOffset) {
+        for (int i = 0; i < mFloatsPerVertex; i++) {
+            if (bits(vertexData[offset + i]) != bits(mVertexData[storedOffset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(float[] vertexData, int offset) {
+        int h = 1;
+        for (int i = 0; i < mFloatsPerVertex; i++) {
+            h = 31 * h + bits(vertexData[offset + i]);
+        }
+        // Spread the bits so nearby floats don't cluster in the table
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    private static int bits(float value) {
+        return (value == 0f) ? 0 : Float.floatToIntBits(value);
+    }
+
+    private void allocateTable(int minVertices) {
+        int size = 16;
+        while (size < minVertices * 2) {
+            size <<= 1;
+        }
+        mTable = new int[size];
+        mTableMask = size - 1;
+    }
+
+    private void rehash() {
+        allocateTable(mTable.length);
+        final int fpv = mFloatsPerVertex;
+        for (int index = 0; index < mVertexCount; index++) {
+            int slot = hash(mVertexData, index * fpv) & mTableMask;
+            while (mTable[slot] != 0) {
+                slot = (slot + 1) & mTableMask;
+            }
+            mTable[slot] = index + 1;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.mesh;
+
+import com.tylersuehr.enginej.geometry.Bounds;
+import com.tylersuehr.enginej.geometry.GeoMath;
+
+/**
+ * Structure holding an indexed mesh: a list of unique vertices and the triangle indices
+ * that reference them.
+ *
+ * The position is the first three floats of each vertex, and the bounds are computed from
+ * those positions when the mesh is created.
+ *
+ * @author Tyler Suehr
+ */
+public class MeshData {
+    /** The largest vertex count that can be addressed by unsigned short indices. */
+    public static final int MAX_SHORT_INDEXED_VERTICES = 65536;
+
+    public final float[] vertexData;
+    public final int floatsPerVertex;
+    public final int[] indexData;
+    /** Axis-aligned box around the vertices, see {@link Bounds#BOX_SIZE}. */
+    public final float[] boundingBox = new float[Bounds.BOX_SIZE];
+    /** Sphere around the vertices, see {@link GeoMath#SPHERE_SIZE}. */
+    public final float[] boundingSphere = new float[GeoMath.SPHERE_SIZE];
+
+
+    public MeshData(float[] vertexData, int floatsPerVertex, int[] indexData) {
+        this.vertexData = vertexData;
+        this.floatsPerVertex = floatsPerVertex;
+        this.indexData = indexData;
+
+        final int numVertices = vertexData.length / floatsPerVertex;
+        Bounds.computeBox(boundingBox, 0, vertexData, 0, numVertices, floatsPerVertex);
+        Bounds.computeSphere(boundingSphere, 0, vertexData, 0, numVertices, floatsPerVertex);
+    }
+
+    public int getVertexCount() {
+        return vertexData.length / floatsPerVertex;
+    }
+
+    public int getIndexCount() {
+        return indexData.length;
+    }
+
+    /**
+     * Determines if this mesh's indices fit into unsigned shorts, which is all OpenGL ES 2.0
+     * guarantees without the OES_element_index_uint extension.
+     *
+     * @return true if short indices can be used
+     */
+    public boolean canUseShortIndices() {
+        return getVertexCount() <= MAX_SHORT_INDEXED_VERTICES;
+    }
+
+    /**
+     * Copies the indices into an unsigned short array.
+     * @return the index data as shorts
+     */
+    public short[] toShortIndices() {
+        if (!canUseShortIndices()) {
+            throw new IllegalStateException("Mesh has too many vertices for short indices!");
+        }
+        final short[] indices = new short[indexData.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (short)indexData[i];
+        }
+        return indices;
+    }
+}
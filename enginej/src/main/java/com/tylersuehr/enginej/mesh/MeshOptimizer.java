@@ -0,0 +1,488 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.mesh;
+
+import java.util.Arrays;
+
+/**
+ * Reorders indexed meshes so the GPU does less work drawing them, without changing what is
+ * drawn. Meant to run once, when a mesh is built or loaded.
+ *
+ * <ul>
+ *     <li>{@link #optimizeVertexCache(int[], int)} orders triangles so recently transformed
+ *     vertices are reused from the post-transform cache, using Tom Forsyth's linear-speed
+ *     algorithm. This is the one that matters most.</li>
+ *     <li>{@link #optimizeOverdraw(int[], float[], int, int)} then reorders clusters of those
+ *     triangles so surfaces facing outward tend to draw first and occlude the rest.</li>
+ *     <li>{@link #computeFetchRemap(int[], int)} orders vertices by first use, so vertex
+ *     fetches walk memory forward.</li>
+ * </ul>
+ * The efficiency of an order is measured by its average cache miss ratio (ACMR): vertices
+ * transformed per triangle, from 3 at worst down to about 0.5 for a regular grid.
+ *
+ * @author Tyler Suehr
+ */
+public final class MeshOptimizer {
+    /** The cache size used to measure ACMR, a FIFO of the size common on mobile GPUs. */
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    /* Smallest cluster optimizeOverdraw splits at a soft boundary */
+    private static final int MIN_CLUSTER_TRIANGLES = 64;
+
+    /* Forsyth's scoring model, an LRU cache larger than the real one */
+    private static final int MODEL_CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+    private static final int VALENCE_TABLE_SIZE = 32;
+    private static final float[] CACHE_SCORES = new float[MODEL_CACHE_SIZE];
+    private static final float[] VALENCE_SCORES = new float[VALENCE_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < MODEL_CACHE_SIZE; i++) {
+            // The last triangle's vertices get a fixed score, so the next one doesn't just reuse them
+            CACHE_SCORES[i] = (i < 3) ? LAST_TRIANGLE_SCORE
+                    : (float)Math.pow(1f - (i - 3) / (float)(MODEL_CACHE_SIZE - 3), CACHE_DECAY_POWER);
+        }
+        for (int i = 1; i < VALENCE_TABLE_SIZE; i++) {
+            VALENCE_SCORES[i] = valenceScore(i);
+        }
+    }
+
+
+    private MeshOptimizer() {}
+
+    /**
+     * Optimizes a mesh for the vertex cache and vertex fetches, and optionally for overdraw.
+     *
+     * @param mesh the mesh, which is left unchanged
+     * @param overdraw true to also reorder triangle clusters for overdraw, which usually costs
+     *                 a little cache efficiency
+     * @param acmrOut if not null, receives the ACMR before at [0] and after at [1]
+     * @return the optimized mesh
+     */
+    public static MeshData optimize(MeshData mesh, boolean overdraw, float[] acmrOut) {
+        final int numVertices = mesh.getVertexCount();
+        int[] indices = optimizeVertexCache(mesh.indexData, numVertices);
+        if (overdraw) {
+            indices = optimizeOverdraw(indices, mesh.vertexData, mesh.floatsPerVertex, DEFAULT_CACHE_SIZE);
+        }
+        final int[] remap = computeFetchRemap(indices, numVertices);
+        final float[] vertices = remapVertices(mesh.vertexData, mesh.floatsPerVertex, remap);
+        remapIndices(indices, remap);
+
+        if (acmrOut != null) {
+            acmrOut[0] = computeACMR(mesh.indexData, numVertices, DEFAULT_CACHE_SIZE);
+            acmrOut[1] = computeACMR(indices, numVertices, DEFAULT_CACHE_SIZE);
+        }
+        return new MeshData(vertices, mesh.floatsPerVertex, indices);
+    }
+
+    /**
+     * Measures the average cache miss ratio of a triangle list: the vertices transformed per
+     * triangle by a FIFO post-transform cache.
+     *
+     * @param indices the triangle list
+     * @param numVertices the number of vertices the indices refer to
+     * @param cacheSize the number of vertices the cache holds
+     * @return the ACMR, within [0.5, 3] for typical meshes
+     */
+    public static float computeACMR(int[] indices, int numVertices, int cacheSize) {
+        final int numTriangles = indices.length / 3;
+        if (numTriangles == 0) {
+            return 0f;
+        }
+        return countCacheMisses(indices, numVertices, cacheSize) / (float)numTriangles;
+    }
+
+    /** Measures the ACMR of a triangle list with unsigned short indices. */
+    public static float computeACMR(short[] indices, int numVertices, int cacheSize) {
+        return computeACMR(toInts(indices), numVertices, cacheSize);
+    }
+
+    /**
+     * Measures the average transform to vertex ratio of a triangle list: how many times each
+     * vertex is transformed, where 1 is ideal. Unlike ACMR it doesn't depend on the mesh's
+     * topology, so it compares meshes better.
+     *
+     * @param indices the triangle list
+     * @param numVertices the number of vertices the indices refer to
+     * @param cacheSize the number of vertices the cache holds
+     * @return the ATVR
+     */
+    public static float computeATVR(int[] indices, int numVertices, int cacheSize) {
+        return numVertices == 0 ? 0f : countCacheMisses(indices, numVertices, cacheSize) / (float)numVertices;
+    }
+
+    /**
+     * Reorders the triangles of a triangle list for the post-transform vertex cache, using
+     * Tom Forsyth's algorithm. Each step draws the triangle with the best score, which favors
+     * vertices recently used and vertices with few triangles left, so isolated triangles get
+     * finished instead of left behind. Only the triangles around cached vertices are
+     * rescored, so it runs in linear time.
+     *
+     * @param indices the triangle list, which is left unchanged
+     * @param numVertices the number of vertices the indices refer to
+     * @return the reordered triangle list
+     */
+    public static int[] optimizeVertexCache(int[] indices, int numVertices) {
+        final int numTriangles = indices.length / 3;
+        final int[] out = new int[numTriangles * 3];
+
+        // Triangles of each vertex; the live ones are the first remaining[v] of its range
+        final int[] remaining = new int[numVertices];
+        for (int i = 0; i < numTriangles * 3; i++) {
+            remaining[indices[i]]++;
+        }
+        final int[] adjacencyStart = new int[numVertices + 1];
+        for (int v = 0; v < numVertices; v++) {
+            adjacencyStart[v + 1] = adjacencyStart[v] + remaining[v];
+        }
+        final int[] adjacency = new int[numTriangles * 3];
+        final int[] fill = Arrays.copyOf(adjacencyStart, numVertices);
+        for (int i = 0; i < numTriangles * 3; i++) {
+            adjacency[fill[indices[i]]++] = i / 3;
+        }
+
+        final int[] cachePosition = new int[numVertices];
+        Arrays.fill(cachePosition, -1);
+        final float[] vertexScores = new float[numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            vertexScores[v] = vertexScore(-1, remaining[v]);
+        }
+        int best = -1;
+        float bestScore = -1f;
+        for (int t = 0; t < numTriangles; t++) {
+            final float score = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]]
+                    + vertexScores[indices[t * 3 + 2]];
+            if (score > bestScore) {
+                bestScore = score;
+                best = t;
+            }
+        }
+
+        final boolean[] emitted = new boolean[numTriangles];
+        int[] cache = new int[MODEL_CACHE_SIZE + 3];
+        int[] nextCache = new int[MODEL_CACHE_SIZE + 3];
+        int cacheCount = 0;
+        int cursor = 0;
+
+        for (int o = 0; o < out.length; o += 3) {
+            if (best < 0) {
+                // Dead end: nothing in the cache has triangles left, so start somewhere new
+                while (emitted[cursor]) {
+                    cursor++;
+                }
+                best = cursor;
+            }
+            final int a = indices[best * 3], b = indices[best * 3 + 1], c = indices[best * 3 + 2];
+            out[o] = a;
+            out[o + 1] = b;
+            out[o + 2] = c;
+            emitted[best] = true;
+            removeTriangle(adjacency, adjacencyStart, remaining, a, best);
+            removeTriangle(adjacency, adjacencyStart, remaining, b, best);
+            removeTriangle(adjacency, adjacencyStart, remaining, c, best);
+
+            // The triangle's vertices move to the front of the cache, pushing the rest back
+            int nextCount = 0;
+            nextCache[nextCount++] = a;
+            if (b != a) {
+                nextCache[nextCount++] = b;
+            }
+            if (c != a && c != b) {
+                nextCache[nextCount++] = c;
+            }
+            for (int i = 0; i < cacheCount; i++) {
+                final int v = cache[i];
+                if (v != a && v != b && v != c) {
+                    nextCache[nextCount++] = v;
+                }
+            }
+
+            // Rescore the cached and just evicted vertices, then the triangles around them
+            for (int i = 0; i < nextCount; i++) {
+                final int v = nextCache[i];
+                cachePosition[v] = (i < MODEL_CACHE_SIZE) ? i : -1;
+                vertexScores[v] = vertexScore(cachePosition[v], remaining[v]);
+            }
+            best = -1;
+            bestScore = -1f;
+            for (int i = 0; i < nextCount; i++) {
+                final int v = nextCache[i];
+                for (int k = adjacencyStart[v], end = k + remaining[v]; k < end; k++) {
+                    final int t = adjacency[k];
+                    final float score = vertexScores[indices[t * 3]] + vertexScores[indices[t * 3 + 1]]
+                            + vertexScores[indices[t * 3 + 2]];
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = t;
+                    }
+                }
+            }
+
+            final int[] swap = cache;
+            cache = nextCache;
+            nextCache = swap;
+            cacheCount = Math.min(nextCount, MODEL_CACHE_SIZE);
+        }
+        return out;
+    }
+
+    /** Reorders a triangle list with unsigned short indices for the vertex cache. */
+    public static short[] optimizeVertexCache(short[] indices, int numVertices) {
+        final int[] optimized = optimizeVertexCache(toInts(indices), numVertices);
+        final short[] out = new short[optimized.length];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = (short)optimized[i];
+        }
+        return out;
+    }
+
+    /**
+     * Reorders the clusters of a cache-optimized triangle list to reduce overdraw, after
+     * Sander et al.'s "Fast Triangle Reordering for Vertex Locality and Reduced Overdraw".
+     * A cluster ends wherever the cache had to start over, so cache efficiency is mostly
+     * kept. Clusters whose surface faces away from the mesh's center draw first, since on
+     * closed meshes they tend to be in front of the others from any direction.
+     *
+     * @param indices the cache-optimized triangle list, which is left unchanged
+     * @param vertexData the vertices; the position is the first three floats of each
+     * @param floatsPerVertex the number of floats per vertex
+     * @param cacheSize the number of vertices the cache holds
+     * @return the reordered triangle list
+     */
+    public static int[] optimizeOverdraw(int[] indices, float[] vertexData, int floatsPerVertex,
+                                         int cacheSize) {
+        final int numTriangles = indices.length / 3;
+        final int numVertices = vertexData.length / floatsPerVertex;
+        if (numTriangles == 0) {
+            return new int[0];
+        }
+
+        // A cluster starts wherever the cache starts over: all three vertices missed, or two did
+        // once the cluster is big enough that splitting it costs few extra misses
+        final int[] clusterStarts = new int[numTriangles + 1];
+        int numClusters = 0;
+        final int[] insertedAt = new int[numVertices];
+        Arrays.fill(insertedAt, Integer.MIN_VALUE / 2);
+        int time = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            int misses = 0;
+            for (int k = 0; k < 3; k++) {
+                final int v = indices[t * 3 + k];
+                if (time - insertedAt[v] >= cacheSize) {
+                    insertedAt[v] = time++;
+                    misses++;
+                }
+            }
+            if (t == 0 || misses == 3
+                    || (misses == 2 && t - clusterStarts[numClusters - 1] >= MIN_CLUSTER_TRIANGLES)) {
+                clusterStarts[numClusters++] = t;
+            }
+        }
+        clusterStarts[numClusters] = numTriangles;
+
+        // Area-weighted centroid and normal of each cluster
+        final float[] clusters = new float[numClusters * 6];
+        float meshX = 0f, meshY = 0f, meshZ = 0f, meshArea = 0f;
+        for (int cl = 0; cl < numClusters; cl++) {
+            float cx = 0f, cy = 0f, cz = 0f, nx = 0f, ny = 0f, nz = 0f, area = 0f;
+            for (int t = clusterStarts[cl]; t < clusterStarts[cl + 1]; t++) {
+                final int p0 = indices[t * 3] * floatsPerVertex;
+                final int p1 = indices[t * 3 + 1] * floatsPerVertex;
+                final int p2 = indices[t * 3 + 2] * floatsPerVertex;
+                final float e1x = vertexData[p1] - vertexData[p0];
+                final float e1y = vertexData[p1 + 1] - vertexData[p0 + 1];
+                final float e1z = vertexData[p1 + 2] - vertexData[p0 + 2];
+                final float e2x = vertexData[p2] - vertexData[p0];
+                final float e2y = vertexData[p2 + 1] - vertexData[p0 + 1];
+                final float e2z = vertexData[p2 + 2] - vertexData[p0 + 2];
+                final float tx = (e1y * e2z) - (e1z * e2y);
+                final float ty = (e1z * e2x) - (e1x * e2z);
+                final float tz = (e1x * e2y) - (e1y * e2x);
+                final float twiceArea = (float)Math.sqrt((tx * tx) + (ty * ty) + (tz * tz));
+                nx += tx;
+                ny += ty;
+                nz += tz;
+                cx += (vertexData[p0] + vertexData[p1] + vertexData[p2]) * twiceArea;
+                cy += (vertexData[p0 + 1] + vertexData[p1 + 1] + vertexData[p2 + 1]) * twiceArea;
+                cz += (vertexData[p0 + 2] + vertexData[p1 + 2] + vertexData[p2 + 2]) * twiceArea;
+                area += twiceArea;
+            }
+            final float inverse = area > 0f ? 1f / (area * 3f) : 0f;
+            clusters[cl * 6] = cx * inverse;
+            clusters[cl * 6 + 1] = cy * inverse;
+            clusters[cl * 6 + 2] = cz * inverse;
+            clusters[cl * 6 + 3] = nx;
+            clusters[cl * 6 + 4] = ny;
+            clusters[cl * 6 + 5] = nz;
+            meshX += cx / 3f;
+            meshY += cy / 3f;
+            meshZ += cz / 3f;
+            meshArea += area;
+        }
+        if (meshArea > 0f) {
+            meshX /= meshArea;
+            meshY /= meshArea;
+            meshZ /= meshArea;
+        }
+
+        // Sort by how far each cluster faces out from the center, largest first
+        final long[] order = new long[numClusters];
+        for (int cl = 0; cl < numClusters; cl++) {
+            final float nx = clusters[cl * 6 + 3], ny = clusters[cl * 6 + 4], nz = clusters[cl * 6 + 5];
+            final float length = (float)Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+            final float facing = length > 0f
+                    ? ((clusters[cl * 6] - meshX) * nx + (clusters[cl * 6 + 1] - meshY) * ny
+                    + (clusters[cl * 6 + 2] - meshZ) * nz) / length
+                    : 0f;
+            order[cl] = ((long)sortableBits(-facing) << 32) | cl;
+        }
+        Arrays.sort(order);
+
+        final int[] out = new int[numTriangles * 3];
+        int o = 0;
+        for (long entry : order) {
+            final int cl = (int)entry;
+            final int start = clusterStarts[cl] * 3;
+            final int length = (clusterStarts[cl + 1] - clusterStarts[cl]) * 3;
+            System.arraycopy(indices, start, out, o, length);
+            o += length;
+        }
+        return out;
+    }
+
+    /**
+     * Computes a new vertex order in which vertices appear in the order the triangle list
+     * first uses them. Unused vertices go last.
+     *
+     * @param indices the triangle list
+     * @param numVertices the number of vertices the indices refer to
+     * @return the new index of each vertex
+     */
+    public static int[] computeFetchRemap(int[] indices, int numVertices) {
+        final int[] remap = new int[numVertices];
+        Arrays.fill(remap, -1);
+        int next = 0;
+        for (int index : indices) {
+            if (remap[index] < 0) {
+                remap[index] = next++;
+            }
+        }
+        for (int v = 0; v < numVertices; v++) {
+            if (remap[v] < 0) {
+                remap[v] = next++;
+            }
+        }
+        return remap;
+    }
+
+    /**
+     * Moves vertices to their new indices.
+     *
+     * @param vertexData the vertices, which are left unchanged
+     * @param floatsPerVertex the number of floats per vertex
+     * @param remap the new index of each vertex, from {@link #computeFetchRemap(int[], int)}
+     * @return the reordered vertices
+     */
+    public static float[] remapVertices(float[] vertexData, int floatsPerVertex, int[] remap) {
+        final float[] out = new float[vertexData.length];
+        for (int v = 0; v < remap.length; v++) {
+            System.arraycopy(vertexData, v * floatsPerVertex,
+                    out, remap[v] * floatsPerVertex, floatsPerVertex);
+        }
+        return out;
+    }
+
+    /**
+     * Points indices at the new indices of their vertices, in place.
+     *
+     * @param indices the triangle list
+     * @param remap the new index of each vertex, from {@link #computeFetchRemap(int[], int)}
+     */
+    public static void remapIndices(int[] indices, int[] remap) {
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = remap[indices[i]];
+        }
+    }
+
+    private static int countCacheMisses(int[] indices, int numVertices, int cacheSize) {
+        // A vertex is cached if fewer than cacheSize vertices were inserted since it was
+        final int[] insertedAt = new int[numVertices];
+        Arrays.fill(insertedAt, Integer.MIN_VALUE / 2);
+        int time = 0;
+        for (int i = 0, n = (indices.length / 3) * 3; i < n; i++) {
+            final int v = indices[i];
+            if (time - insertedAt[v] >= cacheSize) {
+                insertedAt[v] = time++;
+            }
+        }
+        return time;
+    }
+
+    private static void removeTriangle(int[] adjacency, int[] adjacencyStart, int[] remaining, int vertex,
+                                       int triangle) {
+        final int start = adjacencyStart[vertex];
+        final int last = start + remaining[vertex] - 1;
+        for (int k = start; k <= last; k++) {
+            if (adjacency[k] == triangle) {
+                adjacency[k] = adjacency[last];
+                adjacency[last] = triangle;
+                remaining[vertex]--;
+                return;
+            }
+        }
+    }
+
+    private static float vertexScore(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0) {
+            // Nothing left to draw with this vertex
+            return -1f;
+        }
+        final float score = (cachePosition >= 0) ? CACHE_SCORES[cachePosition] : 0f;
+        return score + ((remainingTriangles < VALENCE_TABLE_SIZE)
+                ? VALENCE_SCORES[remainingTriangles] : valenceScore(remainingTriangles));
+    }
+
+    private static float valenceScore(int remainingTriangles) {
+        return VALENCE_BOOST_SCALE * (float)Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+    }
+
+    /** Maps a float to an int with the same ordering, so keys can sort as integers. */
+    private static int sortableBits(float value) {
+        final int bits = Float.floatToIntBits(value);
+        return bits >= 0 ? bits : bits ^ 0x7FFFFFFF;
+    }
+
+    private static int[] toInts(short[] indices) {
+        final int[] ints = new int[indices.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = indices[i] & 0xFFFF;
+        }
+        return ints;
+    }
+}
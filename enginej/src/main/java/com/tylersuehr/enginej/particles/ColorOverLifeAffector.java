@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+import com.tylersuehr.enginej.sprites.SpriteBatch;
+
+/**
+ * Fades the color of particles linearly from birth to death, usually to transparent.
+ *
+ * @author Tyler Suehr
+ */
+public class ColorOverLifeAffector implements ParticleAffector {
+    private final float[] mStart = new float[4];
+    private final float[] mRange = new float[4];
+
+
+    /**
+     * @param start the RGBA color at birth, each component within [0, 1]
+     * @param end the RGBA color at death, each component within [0, 1]
+     */
+    public ColorOverLifeAffector(float[] start, float[] end) {
+        if (start.length != 4 || end.length != 4) {
+            throw new IllegalArgumentException("Colors must have 4 components!");
+        }
+        for (int k = 0; k < 4; k++) {
+            mStart[k] = start[k];
+            mRange[k] = end[k] - start[k];
+        }
+    }
+
+    @Override
+    public void affect(ParticleEmitter emitter, int start, int end, float deltaSeconds) {
+        final float[] ages = emitter.age, lives = emitter.life;
+        final int[] colors = emitter.color;
+        final float r0 = mStart[0], g0 = mStart[1], b0 = mStart[2], a0 = mStart[3];
+        final float dr = mRange[0], dg = mRange[1], db = mRange[2], da = mRange[3];
+        for (int i = start; i < end; i++) {
+            final float t = Math.min(ages[i] / lives[i], 1f);
+            colors[i] = SpriteBatch.packColor(r0 + dr * t, g0 + dg * t, b0 + db * t, a0 + da * t);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+/**
+ * Changes the live particles of a {@link ParticleEmitter} each update, after they have aged
+ * and moved. Affectors may be called for different ranges of one emitter at the same time
+ * from different threads, so they must only touch the particles in their range and not keep
+ * any per-update state of their own.
+ *
+ * @author Tyler Suehr
+ */
+public interface ParticleAffector {
+    /**
+     * Called to affect a range of live particles.
+     *
+     * @param emitter the emitter, whose arrays hold the particles
+     * @param start the first particle
+     * @param end one past the last particle
+     * @param deltaSeconds the time step
+     */
+    void affect(ParticleEmitter emitter, int start, int end, float deltaSeconds);
+}
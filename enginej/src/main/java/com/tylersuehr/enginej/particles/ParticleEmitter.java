@@ -0,0 +1,297 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+import com.tylersuehr.enginej.sprites.SpriteBatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spawns and stores the live particles of one effect, like a fire or a trail of sparks.
+ *
+ * Particles are stored as structure-of-arrays: one primitive array per attribute, indexed by
+ * particle, so simulating them is a handful of linear loops instead of a walk over objects.
+ * The arrays are public for {@link ParticleAffector}s; the live particles are always the
+ * first {@link #getCount()} entries. Particles that outlive their life are removed by moving
+ * the last particle into their place, so indices aren't stable between updates.
+ *
+ * Every particle of an emitter shares its material: a texture and a blend mode. Emitters are
+ * updated by a {@link ParticleSystem} and drawn by a {@link ParticleRenderer}.
+ *
+ * @author Tyler Suehr
+ */
+public class ParticleEmitter {
+    public final float[] positionX;
+    public final float[] positionY;
+    public final float[] positionZ;
+    public final float[] velocityX;
+    public final float[] velocityY;
+    public final float[] velocityZ;
+    /** Seconds since the particle spawned. */
+    public final float[] age;
+    /** Seconds the particle lives for. */
+    public final float[] life;
+    public final float[] size;
+    /** Packed colors, see {@link SpriteBatch#packColor(float, float, float, float)}. */
+    public final int[] color;
+
+    private final int mCapacity;
+    private final List<ParticleAffector> mAffectors = new ArrayList<>();
+    private int mCount = 0;
+
+    /* Material */
+    private int mTextureId = 0;
+    private boolean mAdditive = false;
+
+    /* Emission */
+    private float mRate = 0f;
+    private float mEmitDebt = 0f;
+    private int mRandom = 0x2545F491;
+    private float mX, mY, mZ;
+    private float mSpreadX, mSpreadY, mSpreadZ;
+    private float mVelocityX, mVelocityY, mVelocityZ;
+    private float mVelocitySpread;
+    private float mMinLife = 1f, mMaxLife = 1f;
+    private float mStartSize = 1f;
+    private int mStartColor = SpriteBatch.WHITE;
+
+
+    /**
+     * @param capacity the most particles alive at once; emission stops while it is full
+     */
+    public ParticleEmitter(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Emitter must hold at least one particle!");
+        }
+        mCapacity = capacity;
+        positionX = new float[capacity];
+        positionY = new float[capacity];
+        positionZ = new float[capacity];
+        velocityX = new float[capacity];
+        velocityY = new float[capacity];
+        velocityZ = new float[capacity];
+        age = new float[capacity];
+        life = new float[capacity];
+        size = new float[capacity];
+        color = new int[capacity];
+    }
+
+    /**
+     * Adds an affector, applied in the order added after particles move each update.
+     *
+     * @param affector the affector
+     */
+    public void addAffector(ParticleAffector affector) {
+        mAffectors.add(affector);
+    }
+
+    public void removeAffector(ParticleAffector affector) {
+        mAffectors.remove(affector);
+    }
+
+    /**
+     * Sets the material shared by every particle.
+     *
+     * @param textureId the pointer to the OpenGL ES texture object
+     * @param additive true to add the particles onto the scene, false to alpha blend them
+     */
+    public void setMaterial(int textureId, boolean additive) {
+        mTextureId = textureId;
+        mAdditive = additive;
+    }
+
+    /**
+     * Sets how many particles spawn per second. Fractions carry over between updates.
+     *
+     * @param particlesPerSecond the rate, or 0 to only spawn by {@link #burst(int)}
+     */
+    public void setRate(float particlesPerSecond) {
+        mRate = Math.max(0f, particlesPerSecond);
+    }
+
+    /**
+     * Sets where particles spawn: anywhere within a box around a point.
+     *
+     * @param x the x-coordinate of the center
+     * @param y the y-coordinate of the center
+     * @param z the z-coordinate of the center
+     * @param spreadX the half-width of the box
+     * @param spreadY the half-height of the box
+     * @param spreadZ the half-depth of the box
+     */
+    public void setSpawnArea(float x, float y, float z, float spreadX, float spreadY, float spreadZ) {
+        mX = x;
+        mY = y;
+        mZ = z;
+        mSpreadX = spreadX;
+        mSpreadY = spreadY;
+        mSpreadZ = spreadZ;
+    }
+
+    /**
+     * Sets the velocity of new particles, with a random offset on each axis.
+     *
+     * @param vx the x-component of the velocity
+     * @param vy the y-component of the velocity
+     * @param vz the z-component of the velocity
+     * @param spread the largest random offset on each axis
+     */
+    public void setVelocity(float vx, float vy, float vz, float spread) {
+        mVelocityX = vx;
+        mVelocityY = vy;
+        mVelocityZ = vz;
+        mVelocitySpread = spread;
+    }
+
+    /**
+     * Sets how long new particles live, picked uniformly within a range.
+     *
+     * @param minSeconds the shortest life
+     * @param maxSeconds the longest life
+     */
+    public void setLife(float minSeconds, float maxSeconds) {
+        if (minSeconds <= 0f || maxSeconds < minSeconds) {
+            throw new IllegalArgumentException("Life must be positive, with min <= max!");
+        }
+        mMinLife = minSeconds;
+        mMaxLife = maxSeconds;
+    }
+
+    /**
+     * Sets the size and color of new particles, which affectors may change over their life.
+     *
+     * @param size the size
+     * @param color the color, see {@link SpriteBatch#packColor(float, float, float, float)}
+     */
+    public void setStartAppearance(float size, int color) {
+        mStartSize = size;
+        mStartColor = color;
+    }
+
+    /**
+     * Spawns particles immediately.
+     *
+     * @param numParticles the number to spawn; particles beyond the capacity are dropped
+     * @return the number spawned
+     */
+    public int burst(int numParticles) {
+        final int n = Math.min(numParticles, mCapacity - mCount);
+        for (int i = mCount, end = mCount + n; i < end; i++) {
+            positionX[i] = mX + mSpreadX * nextSigned();
+            positionY[i] = mY + mSpreadY * nextSigned();
+            positionZ[i] = mZ + mSpreadZ * nextSigned();
+            velocityX[i] = mVelocityX + mVelocitySpread * nextSigned();
+            velocityY[i] = mVelocityY + mVelocitySpread * nextSigned();
+            velocityZ[i] = mVelocityZ + mVelocitySpread * nextSigned();
+            age[i] = 0f;
+            life[i] = mMinLife + (mMaxLife - mMinLife) * (nextSigned() * 0.5f + 0.5f);
+            size[i] = mStartSize;
+            color[i] = mStartColor;
+        }
+        mCount += n;
+        return n;
+    }
+
+    /** Removes every live particle. */
+    public void clear() {
+        mCount = 0;
+        mEmitDebt = 0f;
+    }
+
+    /** Gets the number of live particles. */
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public int getTextureId() {
+        return mTextureId;
+    }
+
+    public boolean isAdditive() {
+        return mAdditive;
+    }
+
+    /**
+     * Ages, moves and affects a range of particles. Ranges don't share any data, so they can
+     * run on different threads.
+     */
+    void simulate(int start, int end, float deltaSeconds) {
+        final float[] px = positionX, py = positionY, pz = positionZ;
+        final float[] vx = velocityX, vy = velocityY, vz = velocityZ;
+        final float[] ages = age;
+        for (int i = start; i < end; i++) {
+            ages[i] += deltaSeconds;
+            px[i] += vx[i] * deltaSeconds;
+            py[i] += vy[i] * deltaSeconds;
+            pz[i] += vz[i] * deltaSeconds;
+        }
+        for (int a = 0; a < mAffectors.size(); a++) {
+            mAffectors.get(a).affect(this, start, end, deltaSeconds);
+        }
+    }
+
+    /** Removes dead particles, then spawns the particles due for a time step. */
+    void retireAndSpawn(float deltaSeconds) {
+        int count = mCount;
+        for (int i = 0; i < count; ) {
+            if (age[i] < life[i]) {
+                i++;
+                continue;
+            }
+            final int last = --count;
+            positionX[i] = positionX[last];
+            positionY[i] = positionY[last];
+            positionZ[i] = positionZ[last];
+            velocityX[i] = velocityX[last];
+            velocityY[i] = velocityY[last];
+            velocityZ[i] = velocityZ[last];
+            age[i] = age[last];
+            life[i] = life[last];
+            size[i] = size[last];
+            color[i] = color[last];
+        }
+        mCount = count;
+
+        mEmitDebt += mRate * deltaSeconds;
+        final int due = (int)mEmitDebt;
+        mEmitDebt -= due;
+        burst(due);
+    }
+
+    /** Gets a random float within [-1, 1) from a xorshift generator. */
+    private float nextSigned() {
+        int x = mRandom;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        mRandom = x;
+        return (x >>> 8) * (2f / (1 << 24)) - 1f;
+    }
+}
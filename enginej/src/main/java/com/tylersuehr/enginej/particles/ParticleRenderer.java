@@ -0,0 +1,389 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.buffers.DynamicVertexBuffer;
+import com.tylersuehr.enginej.buffers.GPUIndexBuffer;
+import com.tylersuehr.enginej.ecs.ParallelFor;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
+import com.tylersuehr.enginej.sprites.SpriteBatch;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Draws the particles of a {@link ParticleSystem} from a single streaming vertex buffer.
+ *
+ * Every emitter's particles are written into one staging array, streamed into a
+ * {@link DynamicVertexBuffer} with one glBufferSubData call, then drawn with one draw call
+ * per run of adjacent emitters that share a material. Writing the vertices can be split across
+ * a fork-join pool, since each particle owns a fixed range of the array.
+ *
+ * Particles can be drawn two ways:
+ * <ul>
+ *     <li>{@link #MODE_POINTS}: one point sprite per particle, with a vec3 position, a float
+ *     size (for gl_PointSize) and a color. 20 bytes per particle.</li>
+ *     <li>{@link #MODE_QUADS}: a quad per particle facing the camera, with a vec3 position,
+ *     vec2 texture coordinates and a color. 96 bytes per particle, but not limited by the
+ *     device's largest point size. The 4 corners are drawn as two triangles through a quad
+ *     index buffer from {@link SpriteBatch#createQuadIndexBuffer(int)}, which can be shared with
+ *     sprite batches. Short indices reach at most {@link SpriteBatch#MAX_SPRITES} quads, so
+ *     longer runs take one draw per that many particles.</li>
+ * </ul>
+ * Colors are 4 normalized unsigned bytes. Particles aren't sorted by depth, so alpha blended
+ * emitters should use a soft texture or be drawn with depth writes off.
+ *
+ * @author Tyler Suehr
+ */
+public class ParticleRenderer implements ParallelFor.Body {
+    public static final int MODE_POINTS = 0;
+    public static final int MODE_QUADS = 1;
+
+    private static final int DEFAULT_MIN_PER_TASK = 8192;
+    private static final int POINT_INTS_PER_VERTEX = 5; // x, y, z, size, color
+    private static final int QUAD_INTS_PER_VERTEX = 6; // x, y, z, u, v, color
+    private static final int QUAD_VERTICES = 4;
+    private static final int QUAD_INDICES = 6;
+
+    private final int mMode;
+    private final int mMaxParticles;
+    private final int mIntsPerVertex;
+    private final int mVerticesPerParticle;
+    private final DynamicVertexBuffer mBuffer;
+    private final GPUIndexBuffer mQuadIndices;
+    private final boolean mOwnsQuadIndices;
+    private final int mMaxQuadsPerDraw;
+
+    /* Staging memory; floats are stored as their raw bits so colors can share the array */
+    private final int[] mVertexData;
+
+    /* Camera axes the quads are expanded along */
+    private float mRightX = 1f, mRightY = 0f, mRightZ = 0f;
+    private float mUpX = 0f, mUpY = 1f, mUpZ = 0f;
+
+    private ForkJoinPool mPool;
+    private int mMinPerTask = DEFAULT_MIN_PER_TASK;
+
+    /* Where the attributes point for the frame being drawn */
+    private int mPositionLoc;
+    private int mExtraLoc;
+    private int mColorLoc;
+    private int mPointedOffset;
+
+    /* Set for the emitter being written */
+    private ParticleEmitter mCurrent;
+    private int mCurrentFirst;
+
+    /* Statistics of the last draw */
+    private int mDrawCalls = 0;
+    private int mParticlesDrawn = 0;
+
+
+    /**
+     * @param maxParticles the most particles drawn per frame, across every emitter
+     * @param mode {@link #MODE_POINTS} or {@link #MODE_QUADS}
+     */
+    public ParticleRenderer(int maxParticles, int mode) {
+        this(maxParticles, mode, null);
+    }
+
+    /**
+     * @param maxParticles the most particles drawn per frame, across every emitter
+     * @param mode {@link #MODE_POINTS} or {@link #MODE_QUADS}
+     * @param sharedQuadIndices for quads, indices from {@link SpriteBatch#createQuadIndexBuffer(int)}
+     *                          to share, or null to create them for this renderer; unused by points
+     * @throws IllegalArgumentException if the shared indices are not unsigned shorts
+     */
+    public ParticleRenderer(int maxParticles, int mode, GPUIndexBuffer sharedQuadIndices) {
+        if (maxParticles < 1) {
+            throw new IllegalArgumentException("Renderer must draw at least one particle!");
+        }
+        if (mode != MODE_POINTS && mode != MODE_QUADS) {
+            throw new IllegalArgumentException("Unknown particle mode: " + mode);
+        }
+        mMode = mode;
+        mMaxParticles = maxParticles;
+        mIntsPerVertex = (mode == MODE_POINTS) ? POINT_INTS_PER_VERTEX : QUAD_INTS_PER_VERTEX;
+        mVerticesPerParticle = (mode == MODE_POINTS) ? 1 : QUAD_VERTICES;
+
+        mVertexData = new int[maxParticles * mVerticesPerParticle * mIntsPerVertex];
+
+        if (mode == MODE_QUADS) {
+            if (sharedQuadIndices != null && sharedQuadIndices.getIndexType() != GL.GL_UNSIGNED_SHORT) {
+                throw new IllegalArgumentException("Shared quad indices must be unsigned shorts!");
+            }
+            mOwnsQuadIndices = (sharedQuadIndices == null);
+            mQuadIndices = mOwnsQuadIndices
+                    ? SpriteBatch.createQuadIndexBuffer(Math.min(maxParticles, SpriteBatch.MAX_SPRITES))
+                    : sharedQuadIndices;
+            mMaxQuadsPerDraw = Math.min(mQuadIndices.getIndexCount() / QUAD_INDICES, SpriteBatch.MAX_SPRITES);
+            if (mMaxQuadsPerDraw < 1) {
+                throw new IllegalArgumentException("Shared quad indices must cover at least one quad!");
+            }
+        } else {
+            mOwnsQuadIndices = false;
+            mQuadIndices = null;
+            mMaxQuadsPerDraw = 0;
+        }
+
+        // Holds one full frame, so a full frame orphans the previous one's storage
+        mBuffer = new DynamicVertexBuffer(mVertexData.length * EngineUtils.BYTES_PER_INT, 1,
+                GL.GL_STREAM_DRAW);
+    }
+
+    /**
+     * Splits writing the vertices across a fork-join pool when an emitter has enough particles.
+     *
+     * @param pool the pool to run on, or null to write on the calling thread only
+     * @param minPerTask the fewest particles worth giving one task
+     */
+    public void setParallel(ForkJoinPool pool, int minPerTask) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one particle!");
+        }
+        mPool = pool;
+        mMinPerTask = minPerTask;
+    }
+
+    /**
+     * Sets the camera axes that quads are expanded along so they face the camera. These are
+     * the first two rows of the view matrix' rotation. Unused by point sprites.
+     */
+    public void setBillboardAxes(float rightX, float rightY, float rightZ, float upX, float upY, float upZ) {
+        mRightX = rightX;
+        mRightY = rightY;
+        mRightZ = rightZ;
+        mUpX = upX;
+        mUpY = upY;
+        mUpZ = upZ;
+    }
+
+    /**
+     * Draws every live particle. The shader program must already be in use, with its matrix
+     * uniforms set. Particles beyond the renderer's maximum are skipped.
+     *
+     * @param system the particle system
+     * @param positionAttrLoc the location of the vec3 position attribute
+     * @param sizeOrTextureCoordAttrLoc the location of the float size attribute for points,
+     *                                  or the vec2 texture coordinate attribute for quads, or
+     *                                  -1 if unused
+     * @param colorAttrLoc the location of the vec4 color attribute, or -1 if unused
+     * @return the number of particles drawn
+     */
+    public int draw(ParticleSystem system, int positionAttrLoc, int sizeOrTextureCoordAttrLoc,
+                    int colorAttrLoc) {
+        mDrawCalls = 0;
+        mParticlesDrawn = 0;
+
+        // Write every emitter into the staging array, back to back
+        int total = 0;
+        for (int e = 0; e < system.getEmitterCount(); e++) {
+            final ParticleEmitter emitter = system.getEmitter(e);
+            final int count = Math.min(emitter.getCount(), mMaxParticles - total);
+            mCurrent = emitter;
+            mCurrentFirst = total;
+            ParallelFor.run(mPool, count, mMinPerTask, this);
+            total += count;
+        }
+        mCurrent = null;
+        if (total == 0) {
+            return 0;
+        }
+
+        // Stream the staged vertices into the ring
+        final int numInts = total * mVerticesPerParticle * mIntsPerVertex;
+        final int offset = mBuffer.allocate(numInts * EngineUtils.BYTES_PER_INT);
+        mBuffer.put(offset, mVertexData, 0, numInts);
+        mBuffer.flush();
+
+        mPositionLoc = positionAttrLoc;
+        mExtraLoc = sizeOrTextureCoordAttrLoc;
+        mColorLoc = colorAttrLoc;
+        mPointedOffset = -1;
+        pointAttributes(offset);
+        GLStateCache.setEnabled(GL.GL_BLEND, true);
+
+        // One draw per run of emitters sharing a material
+        final int primitive = (mMode == MODE_POINTS) ? GL.GL_POINTS : GL.GL_TRIANGLES;
+        int runFirst = 0;
+        int runCount = 0;
+        ParticleEmitter runEmitter = null;
+        int written = 0;
+        for (int e = 0; e < system.getEmitterCount() && written < total; e++) {
+            final ParticleEmitter emitter = system.getEmitter(e);
+            final int count = Math.min(emitter.getCount(), total - written);
+            if (count == 0) {
+                continue;
+            }
+            if (runEmitter != null && !sameMaterial(runEmitter, emitter)) {
+                drawRun(primitive, runEmitter, offset, runFirst, runCount);
+                runFirst = written;
+                runCount = 0;
+            }
+            if (runCount == 0) {
+                runEmitter = emitter;
+            }
+            runCount += count;
+            written += count;
+        }
+        drawRun(primitive, runEmitter, offset, runFirst, runCount);
+
+        mParticlesDrawn = total;
+        return total;
+    }
+
+    /**
+     * Deletes the GPU buffers owned by this renderer. The renderer cannot be used afterwards.
+     */
+    public void release() {
+        mBuffer.release();
+        if (mOwnsQuadIndices) {
+            GLStateCache.deleteBuffer(mQuadIndices.getBufferId());
+        }
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    /** Gets the number of draw calls made by the last {@link #draw(ParticleSystem, int, int, int)}. */
+    public int getDrawCallCount() {
+        return mDrawCalls;
+    }
+
+    /** Gets the number of particles drawn by the last {@link #draw(ParticleSystem, int, int, int)}. */
+    public int getParticlesDrawnCount() {
+        return mParticlesDrawn;
+    }
+
+    @Override
+    public void run(int start, int end) {
+        if (mMode == MODE_POINTS) {
+            writePoints(mCurrent, start, end, mCurrentFirst + start);
+        } else {
+            writeQuads(mCurrent, start, end, mCurrentFirst + start);
+        }
+    }
+
+    private void writePoints(ParticleEmitter emitter, int start, int end, int firstSlot) {
+        final float[] px = emitter.positionX, py = emitter.positionY, pz = emitter.positionZ;
+        final float[] sizes = emitter.size;
+        final int[] colors = emitter.color;
+        final int[] data = mVertexData;
+        for (int i = start, v = firstSlot * POINT_INTS_PER_VERTEX; i < end; i++, v += POINT_INTS_PER_VERTEX) {
+            data[v]     = Float.floatToRawIntBits(px[i]);
+            data[v + 1] = Float.floatToRawIntBits(py[i]);
+            data[v + 2] = Float.floatToRawIntBits(pz[i]);
+            data[v + 3] = Float.floatToRawIntBits(sizes[i]);
+            data[v + 4] = colors[i];
+        }
+    }
+
+    private void writeQuads(ParticleEmitter emitter, int start, int end, int firstSlot) {
+        final float[] px = emitter.positionX, py = emitter.positionY, pz = emitter.positionZ;
+        final float[] sizes = emitter.size;
+        final int[] colors = emitter.color;
+        final int one = Float.floatToRawIntBits(1f);
+        final int stride = QUAD_INTS_PER_VERTEX;
+        final int perParticle = QUAD_VERTICES * stride;
+        for (int i = start, v = firstSlot * perParticle; i < end; i++, v += perParticle) {
+            final float half = sizes[i] * 0.5f;
+            final float rx = mRightX * half, ry = mRightY * half, rz = mRightZ * half;
+            final float ux = mUpX * half, uy = mUpY * half, uz = mUpZ * half;
+            final float x = px[i], y = py[i], z = pz[i];
+            final int color = colors[i];
+
+            // Counter-clockwise corners, in the order the quad indices expect: bottom-left,
+            // bottom-right, top-right, top-left
+            putQuadVertex(v, x - rx - ux, y - ry - uy, z - rz - uz, 0, 0, color);
+            putQuadVertex(v + stride, x + rx - ux, y + ry - uy, z + rz - uz, one, 0, color);
+            putQuadVertex(v + stride * 2, x + rx + ux, y + ry + uy, z + rz + uz, one, one, color);
+            putQuadVertex(v + stride * 3, x - rx + ux, y - ry + uy, z - rz + uz, 0, one, color);
+        }
+    }
+
+    private void putQuadVertex(int v, float x, float y, float z, int uBits, int vBits, int color) {
+        final int[] data = mVertexData;
+        data[v]     = Float.floatToRawIntBits(x);
+        data[v + 1] = Float.floatToRawIntBits(y);
+        data[v + 2] = Float.floatToRawIntBits(z);
+        data[v + 3] = uBits;
+        data[v + 4] = vBits;
+        data[v + 5] = color;
+    }
+
+    private void drawRun(int primitive, ParticleEmitter emitter, int offset, int firstParticle,
+                         int numParticles) {
+        if (emitter == null || numParticles == 0) {
+            return;
+        }
+        final int dst = emitter.isAdditive() ? GL.GL_ONE : GL.GL_ONE_MINUS_SRC_ALPHA;
+        GLStateCache.blendFunc(GL.GL_SRC_ALPHA, dst);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, emitter.getTextureId());
+
+        if (mMode == MODE_POINTS) {
+            GL.glDrawArrays(primitive, firstParticle, numParticles);
+            Profiler.countDraw(numParticles);
+            mDrawCalls++;
+            return;
+        }
+
+        // The indices always start at vertex 0, so the attributes are moved to each draw's
+        // first quad; that keeps every index within an unsigned short however far in it is
+        final int quadBytes = QUAD_VERTICES * QUAD_INTS_PER_VERTEX * EngineUtils.BYTES_PER_INT;
+        mQuadIndices.bind();
+        for (int first = firstParticle, end = firstParticle + numParticles; first < end; first += mMaxQuadsPerDraw) {
+            final int quads = Math.min(mMaxQuadsPerDraw, end - first);
+            pointAttributes(offset + first * quadBytes);
+            GL.glDrawElements(primitive, quads * QUAD_INDICES, GL.GL_UNSIGNED_SHORT, 0);
+            Profiler.countDraw(quads * QUAD_INDICES);
+            mDrawCalls++;
+        }
+    }
+
+    private void pointAttributes(int offset) {
+        if (offset == mPointedOffset) {
+            return;
+        }
+        final int stride = mIntsPerVertex * EngineUtils.BYTES_PER_FLOAT;
+        final int extraComponents = (mMode == MODE_POINTS) ? 1 : 2;
+        mBuffer.setVertexAttr(offset, mPositionLoc, 3, stride);
+        if (mExtraLoc >= 0) {
+            mBuffer.setVertexAttr(offset + 3 * EngineUtils.BYTES_PER_FLOAT, mExtraLoc,
+                    extraComponents, stride);
+        }
+        if (mColorLoc >= 0) {
+            mBuffer.setVertexAttr(offset + (3 + extraComponents) * EngineUtils.BYTES_PER_FLOAT, mColorLoc,
+                    4, GL.GL_UNSIGNED_BYTE, true, stride);
+        }
+        mPointedOffset = offset;
+    }
+
+    private static boolean sameMaterial(ParticleEmitter a, ParticleEmitter b) {
+        return a.getTextureId() == b.getTextureId() && a.isAdditive() == b.isAdditive();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+import com.tylersuehr.enginej.ecs.ParallelFor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Updates a set of {@link ParticleEmitter}s each frame. Moving and affecting particles is
+ * split into chunks across a fork-join pool when an emitter has enough of them; removing dead
+ * particles and spawning new ones stay on the calling thread, since they change the count.
+ *
+ * @author Tyler Suehr
+ */
+public class ParticleSystem implements ParallelFor.Body {
+    private static final int DEFAULT_MIN_PER_TASK = 8192;
+
+    private final List<ParticleEmitter> mEmitters = new ArrayList<>();
+    private ForkJoinPool mPool;
+    private int mMinPerTask = DEFAULT_MIN_PER_TASK;
+
+    /* Set for the emitter being simulated */
+    private ParticleEmitter mCurrent;
+    private float mDelta;
+
+
+    public void addEmitter(ParticleEmitter emitter) {
+        mEmitters.add(emitter);
+    }
+
+    public void removeEmitter(ParticleEmitter emitter) {
+        mEmitters.remove(emitter);
+    }
+
+    public int getEmitterCount() {
+        return mEmitters.size();
+    }
+
+    public ParticleEmitter getEmitter(int index) {
+        return mEmitters.get(index);
+    }
+
+    /**
+     * Splits each emitter across a fork-join pool when it has enough particles.
+     *
+     * @param pool the pool to run on, or null to simulate on the calling thread only
+     * @param minPerTask the fewest particles worth giving one task
+     */
+    public void setParallel(ForkJoinPool pool, int minPerTask) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one particle!");
+        }
+        mPool = pool;
+        mMinPerTask = minPerTask;
+    }
+
+    /**
+     * Simulates every emitter by a time step, then retires dead particles and spawns new ones.
+     *
+     * @param deltaSeconds the time step
+     */
+    public void update(float deltaSeconds) {
+        mDelta = deltaSeconds;
+        for (int e = 0; e < mEmitters.size(); e++) {
+            final ParticleEmitter emitter = mEmitters.get(e);
+            mCurrent = emitter;
+            ParallelFor.run(mPool, emitter.getCount(), mMinPerTask, this);
+            emitter.retireAndSpawn(deltaSeconds);
+        }
+        mCurrent = null;
+    }
+
+    /** Gets the number of live particles across every emitter. */
+    public int getParticleCount() {
+        int count = 0;
+        for (int e = 0; e < mEmitters.size(); e++) {
+            count += mEmitters.get(e).getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void run(int start, int end) {
+        mCurrent.simulate(start, end, mDelta);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.particles;
+
+/**
+ * Changes the size of particles linearly from birth to death.
+ *
+ * @author Tyler Suehr
+ */
+public class SizeOverLifeAffector implements ParticleAffector {
+    private final float mStart;
+    private final float mEnd;
+
+
+    public SizeOverLifeAffector(float startSize, float endSize) {
+        mStart = startSize;
+        mEnd = endSize;
+    }
+
+    @Override
+    public void affect(ParticleEmitter emitter, int start, int end, float deltaSeconds) {
+        final float[] ages = emitter.age, lives = emitter.life, sizes = emitter.size;
+        final float range = mEnd - mStart;
+        for (int i = start; i < end; i++) {
+            final float t = Math.min(ages[i] / lives[i], 1f);
+            sizes[i] = mStart + range * t;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.profiling;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records where frame time goes: CPU time per named scope, the time of each whole frame, and
+ * per-frame counts of draw calls, vertices, binds, uploaded bytes and culled objects.
+ *
+ * Every frame's numbers are stored in ring buffers that are allocated up front, so recording
+ * never allocates. The engine counts its own GL work; games add their own scopes:
+ *
+ * <pre>
+ * static final int PHYSICS = Profiler.registerScope("physics");
+ * ...
+ * Profiler.begin(PHYSICS);
+ * stepPhysics();
+ * Profiler.end(PHYSICS);
+ * </pre>
+ *
+ * Recording is off by default, and when off, every recording method returns after reading one
+ * field. Record and query on the GL thread only; {@link ProfilerOverlay} reads the periodic
+ * summary, which is safe from any thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class Profiler {
+    public static final int COUNTER_DRAW_CALLS     = 0;
+    public static final int COUNTER_VERTICES       = 1;
+    public static final int COUNTER_PROGRAM_BINDS  = 2;
+    public static final int COUNTER_TEXTURE_BINDS  = 3;
+    public static final int COUNTER_BUFFER_BINDS   = 4;
+    public static final int COUNTER_BYTES_UPLOADED = 5;
+    public static final int COUNTER_STATE_CHANGES  = 6;
+    public static final int COUNTER_VISIBLE        = 7;
+    public static final int COUNTER_CULLED         = 8;
+    public static final int MAX_COUNTERS = 16;
+    public static final int MAX_SCOPES = 32;
+
+    private static final int DEFAULT_CAPACITY = 300;
+
+    private static volatile boolean sEnabled = false;
+
+    private static final String[] sCounterNames = new String[MAX_COUNTERS];
+    private static final String[] sScopeNames = new String[MAX_SCOPES];
+    private static int sCounterCount = 0;
+    private static int sScopeCount = 0;
+
+    /* This frame's running totals */
+    private static final long[] sCounters = new long[MAX_COUNTERS];
+    private static final long[] sScopeNanos = new long[MAX_SCOPES];
+    private static final long[] sScopeStarts = new long[MAX_SCOPES];
+    private static long sFrameStart = 0;
+
+    /* Ring buffers holding the totals of past frames */
+    private static int sCapacity = 0;
+    private static long[] sFrameHistory;
+    private static long[][] sCounterHistory;
+    private static long[][] sScopeHistory;
+    private static int sHead = 0;
+    private static long sFrameCount = 0;
+
+    private static volatile int sSummaryInterval = 0;
+    private static volatile String sSummary = "";
+
+    public static final int SCOPE_UPDATE;
+    public static final int SCOPE_DRAW;
+
+    static {
+        registerCounter("draw calls");
+        registerCounter("vertices");
+        registerCounter("program binds");
+        registerCounter("texture binds");
+        registerCounter("buffer binds");
+        registerCounter("bytes uploaded");
+        registerCounter("state changes");
+        registerCounter("visible objects");
+        registerCounter("culled objects");
+        SCOPE_UPDATE = registerScope("update");
+        SCOPE_DRAW = registerScope("draw");
+        setCapacity(DEFAULT_CAPACITY);
+    }
+
+
+    private Profiler() {}
+
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Sets how many past frames are kept, clearing the history.
+     * @param frames the number of frames, at least 1
+     */
+    public static void setCapacity(int frames) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("Profiler capacity must be at least 1 frame!");
+        }
+        sCapacity = frames;
+        sFrameHistory = new long[frames];
+        sCounterHistory = new long[MAX_COUNTERS][frames];
+        sScopeHistory = new long[MAX_SCOPES][frames];
+        sHead = 0;
+        sFrameCount = 0;
+    }
+
+    /**
+     * Rebuilds the summary from {@link #formatSummary()} every few frames, for
+     * {@link ProfilerOverlay}.
+     * @param frames the number of frames between updates, or 0 to stop updating it
+     */
+    public static void setSummaryInterval(int frames) {
+        sSummaryInterval = frames;
+    }
+
+    /**
+     * Adds a named counter. Call once, like in a static initializer, and keep the id.
+     * @param name the name of the counter
+     * @return the id of the counter
+     */
+    public static synchronized int registerCounter(String name) {
+        if (sCounterCount == MAX_COUNTERS) {
+            throw new IllegalStateException("Too many profiler counters!");
+        }
+        sCounterNames[sCounterCount] = name;
+        return sCounterCount++;
+    }
+
+    /**
+     * Adds a named scope. Call once, like in a static initializer, and keep the id.
+     * @param name the name of the scope
+     * @return the id of the scope
+     */
+    public static synchronized int registerScope(String name) {
+        if (sScopeCount == MAX_SCOPES) {
+            throw new IllegalStateException("Too many profiler scopes!");
+        }
+        sScopeNames[sScopeCount] = name;
+        return sScopeCount++;
+    }
+
+    /**
+     * Starts a new frame, clearing this frame's totals.
+     */
+    public static void beginFrame() {
+        beginFrame(System.nanoTime());
+    }
+
+    static void beginFrame(long now) {
+        if (!sEnabled) {
+            return;
+        }
+        Arrays.fill(sCounters, 0);
+        Arrays.fill(sScopeNanos, 0);
+        sFrameStart = now;
+    }
+
+    /**
+     * Ends the frame, storing its totals in the history.
+     */
+    public static void endFrame() {
+        endFrame(System.nanoTime());
+    }
+
+    static void endFrame(long now) {
+        if (!sEnabled || sFrameStart == 0) {
+            return;
+        }
+        final int head = sHead;
+        sFrameHistory[head] = now - sFrameStart;
+        for (int i = 0; i < sCounterCount; i++) {
+            sCounterHistory[i][head] = sCounters[i];
+        }
+        for (int i = 0; i < sScopeCount; i++) {
+            sScopeHistory[i][head] = sScopeNanos[i];
+        }
+        sHead = (head + 1 == sCapacity) ? 0 : head + 1;
+        sFrameCount++;
+        sFrameStart = 0;
+
+        if (sSummaryInterval > 0 && sFrameCount % sSummaryInterval == 0) {
+            sSummary = formatSummary();
+        }
+    }
+
+    /**
+     * Starts timing a scope. Scopes may nest, but a scope can't be nested inside itself.
+     * @param scope the id of the scope
+     */
+    public static void begin(int scope) {
+        if (sEnabled) {
+            sScopeStarts[scope] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Stops timing a scope, adding the time to this frame's total for it.
+     * @param scope the id of the scope
+     */
+    public static void end(int scope) {
+        if (sEnabled) {
+            sScopeNanos[scope] += System.nanoTime() - sScopeStarts[scope];
+        }
+    }
+
+    /**
+     * Adds to a counter for this frame.
+     *
+     * @param counter the id of the counter, like {@link #COUNTER_DRAW_CALLS}
+     * @param amount the amount to add
+     */
+    public static void count(int counter, long amount) {
+        if (sEnabled) {
+            sCounters[counter] += amount;
+        }
+    }
+
+    /**
+     * Counts one draw call and the vertices it submitted.
+     * @param vertices the number of vertices (or indices) drawn
+     */
+    public static void countDraw(int vertices) {
+        if (sEnabled) {
+            sCounters[COUNTER_DRAW_CALLS]++;
+            sCounters[COUNTER_VERTICES] += vertices;
+        }
+    }
+
+    /** Gets the number of frames stored, up to the capacity. */
+    public static int getStoredFrameCount() {
+        return (int)Math.min(sFrameCount, sCapacity);
+    }
+
+    /** Gets the total number of frames recorded. */
+    public static long getFrameCount() {
+        return sFrameCount;
+    }
+
+    public static int getCounterCount() {
+        return sCounterCount;
+    }
+
+    public static String getCounterName(int counter) {
+        return sCounterNames[counter];
+    }
+
+    public static int getScopeCount() {
+        return sScopeCount;
+    }
+
+    public static String getScopeName(int scope) {
+        return sScopeNames[scope];
+    }
+
+    /**
+     * Gets the time of a stored frame.
+     * @param framesAgo 0 for the last frame, 1 for the one before it, and so on
+     * @return the frame time in nanoseconds
+     */
+    public static long getFrameNanos(int framesAgo) {
+        return sFrameHistory[indexOf(framesAgo)];
+    }
+
+    public static long getCounter(int counter, int framesAgo) {
+        return sCounterHistory[counter][indexOf(framesAgo)];
+    }
+
+    public static long getScopeNanos(int scope, int framesAgo) {
+        return sScopeHistory[scope][indexOf(framesAgo)];
+    }
+
+    /**
+     * Gets a percentile of the stored frame times.
+     * @param percentile from 0 to 100, like 50 for the median or 99
+     * @return the frame time in nanoseconds, or 0 if nothing is stored
+     */
+    public static long getFrameTimePercentile(double percentile) {
+        final int n = getStoredFrameCount();
+        if (n == 0) {
+            return 0;
+        }
+        final long[] sorted = Arrays.copyOf(sFrameHistory, n);
+        Arrays.sort(sorted);
+        final int rank = (int)Math.ceil(percentile / 100.0 * n) - 1;
+        return sorted[Math.min(Math.max(rank, 0), n - 1)];
+    }
+
+    /**
+     * Counts the stored frame times into equal-width buckets, the last of which also holds
+     * everything longer.
+     *
+     * @param bucketNanos the width of each bucket
+     * @param bucketCount the number of buckets
+     * @return the number of frames in each bucket
+     */
+    public static int[] getFrameTimeHistogram(long bucketNanos, int bucketCount) {
+        final int[] histogram = new int[bucketCount];
+        final int n = getStoredFrameCount();
+        for (int i = 0; i < n; i++) {
+            histogram[(int)Math.min(sFrameHistory[i] / bucketNanos, bucketCount - 1)]++;
+        }
+        return histogram;
+    }
+
+    /** Gets the average of a counter over the stored frames. */
+    public static double getCounterAverage(int counter) {
+        return average(sCounterHistory[counter]);
+    }
+
+    /** Gets the average time of a scope over the stored frames, in nanoseconds. */
+    public static double getScopeAverageNanos(int scope) {
+        return average(sScopeHistory[scope]);
+    }
+
+    /**
+     * Formats the frame time percentiles, then the average of each scope and counter.
+     * @return a few lines of text
+     */
+    public static String formatSummary() {
+        final StringBuilder sb = new StringBuilder(256);
+        sb.append(String.format(Locale.US, "frame p50 %.2fms p95 %.2fms p99 %.2fms\n",
+                getFrameTimePercentile(50) / 1e6,
+                getFrameTimePercentile(95) / 1e6,
+                getFrameTimePercentile(99) / 1e6));
+        for (int i = 0; i < sScopeCount; i++) {
+            sb.append(String.format(Locale.US, "%s %.2fms\n", sScopeNames[i], getScopeAverageNanos(i) / 1e6));
+        }
+        for (int i = 0; i < sCounterCount; i++) {
+            sb.append(String.format(Locale.US, "%s %.1f\n", sCounterNames[i], getCounterAverage(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gets the summary last built on the GL thread. Safe to call from any thread.
+     * @return the summary, or an empty string if none was built
+     * @see #setSummaryInterval(int)
+     */
+    public static String getSummary() {
+        return sSummary;
+    }
+
+    /**
+     * Writes every stored frame as CSV, oldest first: the frame time, then each scope time
+     * (both in microseconds), then each counter.
+     *
+     * @param out where to write
+     * @throws IOException if writing fails
+     */
+    public static void dump(Writer out) throws IOException {
+        out.write("frame_us");
+        for (int i = 0; i < sScopeCount; i++) {
+            out.write("," + sScopeNames[i].replace(' ', '_') + "_us");
+        }
+        for (int i = 0; i < sCounterCount; i++) {
+            out.write("," + sCounterNames[i].replace(' ', '_'));
+        }
+        out.write('\n');
+
+        for (int ago = getStoredFrameCount() - 1; ago >= 0; ago--) {
+            final int index = indexOf(ago);
+            final StringBuilder line = new StringBuilder(128);
+            line.append(sFrameHistory[index] / 1000);
+            for (int i = 0; i < sScopeCount; i++) {
+                line.append(',').append(sScopeHistory[i][index] / 1000);
+            }
+            for (int i = 0; i < sCounterCount; i++) {
+                line.append(',').append(sCounterHistory[i][index]);
+            }
+            out.write(line.append('\n').toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes every stored frame to a CSV file.
+     * @see #dump(Writer)
+     */
+    public static void dump(File file) throws IOException {
+        try (final Writer out = new FileWriter(file)) {
+            dump(out);
+        }
+    }
+
+    private static int indexOf(int framesAgo) {
+        if (framesAgo < 0 || framesAgo >= getStoredFrameCount()) {
+            throw new IndexOutOfBoundsException("Frame " + framesAgo + " is not stored!");
+        }
+        final int index = sHead - 1 - framesAgo;
+        return (index < 0) ? index + sCapacity : index;
+    }
+
+    private static double average(long[] history) {
+        final int n = getStoredFrameCount();
+        if (n == 0) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            total += history[i];
+        }
+        return (double)total / n;
+    }
+}
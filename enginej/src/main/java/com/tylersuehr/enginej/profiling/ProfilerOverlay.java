@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.profiling;
+
+import android.widget.TextView;
+
+/**
+ * Shows the {@link Profiler} summary in a {@link TextView} laid over the game's surface.
+ *
+ * The summary is built on the GL thread every so many frames, and this just shows the latest
+ * one on the UI thread a couple of times a second, so the game thread never touches the view.
+ *
+ * @author Tyler Suehr
+ */
+public final class ProfilerOverlay implements Runnable {
+    private static final long REFRESH_MILLIS = 500;
+    private static final int SUMMARY_INTERVAL_FRAMES = 30;
+
+    private final TextView mView;
+    private boolean mShowing = false;
+
+
+    public ProfilerOverlay(TextView view) {
+        mView = view;
+    }
+
+    /**
+     * Starts profiling and showing the summary. Call on the UI thread.
+     */
+    public void show() {
+        if (!mShowing) {
+            mShowing = true;
+            Profiler.setSummaryInterval(SUMMARY_INTERVAL_FRAMES);
+            Profiler.setEnabled(true);
+            mView.post(this);
+        }
+    }
+
+    /**
+     * Stops showing the summary and stops profiling. Call on the UI thread.
+     */
+    public void hide() {
+        if (mShowing) {
+            mShowing = false;
+            mView.removeCallbacks(this);
+            Profiler.setEnabled(false);
+            Profiler.setSummaryInterval(0);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (mShowing) {
+            mView.setText(Profiler.getSummary());
+            mView.postDelayed(this, REFRESH_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.render;
+
+import com.tylersuehr.enginej.AbstractGameObject;
+import com.tylersuehr.enginej.geometry.Bounds;
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tests the bounds of many objects against the view frustum so that only the visible ones are
+ * submitted for drawing.
+ *
+ * Each object has a world-space bounding sphere and axis-aligned box. The spheres are stored
+ * in structure-of-arrays form (one array per component) so the test streams through memory.
+ * The cheap sphere test decides most objects; only spheres crossing a plane are retested
+ * against the tighter box, so each box is kept in one run of floats to touch a single cache
+ * line. Objects are referred to by the index returned when adding them.
+ *
+ * Typical frame:
+ * <pre>
+ *     culler.setTransformedBounds(id, shape.boundingSphere, 0, shape.boundingBox, 0, model, 0);
+ *     ...
+ *     final int visible = culler.cull(viewProjection, 0);
+ *     for (int i = 0; i < visible; i++) {
+ *         objects[culler.getVisible(i)].submit(queue, program, key);
+ *     }
+ *     queue.execute();
+ * </pre>
+ *
+ * Large scenes can split the test across cores with {@link #setParallel(ForkJoinPool, int)}.
+ * Only the test runs in parallel; every other method must be called from one thread.
+ *
+ * @author Tyler Suehr
+ */
+public class FrustumCuller {
+    private static final int DEFAULT_MIN_PER_TASK = 4096;
+    /* Radius given to objects without bounds; crosses every plane but is never outside one */
+    private static final float UNBOUNDED_RADIUS = 1e30f;
+
+    /* Bounding spheres */
+    private float[] mCenterX;
+    private float[] mCenterY;
+    private float[] mCenterZ;
+    private float[] mRadius;
+
+    /* Bounding boxes, kept together per object since only a few are ever read per frame */
+    private float[] mBoxes;
+
+    private int mCount = 0;
+    private boolean[] mVisible;
+    private int[] mVisibleList;
+    private int mVisibleCount = 0;
+
+    private final float[] mPlanes = new float[Mat4.FRUSTUM_PLANES_SIZE];
+    private final float[] mScratch = new float[Bounds.BOX_SIZE + GeoMath.SPHERE_SIZE];
+    private ForkJoinPool mPool;
+    private int mMinPerTask = DEFAULT_MIN_PER_TASK;
+
+
+    /** Constructs with the number of objects expected. */
+    public FrustumCuller(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    /**
+     * Adds an object with a bounding sphere; its box is the box around the sphere.
+     * @return the index of the object
+     */
+    public int addSphere(float x, float y, float z, float radius) {
+        final int id = add();
+        setSphere(id, x, y, z, radius);
+        return id;
+    }
+
+    /**
+     * Adds an object with a bounding box; its sphere is the sphere around the box.
+     * @return the index of the object
+     */
+    public int addBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final int id = add();
+        setBox(id, minX, minY, minZ, maxX, maxY, maxZ);
+        return id;
+    }
+
+    /**
+     * Adds an object with both a bounding sphere and box, like those of a
+     * {@link com.tylersuehr.enginej.ShapeBuilder.ShapeData}.
+     * @return the index of the object
+     */
+    public int addBounds(float[] sphere, int sphereOff, float[] box, int boxOff) {
+        final int id = add();
+        setBounds(id, sphere, sphereOff, box, boxOff);
+        return id;
+    }
+
+    /**
+     * Adds a game object with the bounds from {@link AbstractGameObject#getBounds}. An object
+     * without bounds is always visible.
+     * @return the index of the object
+     */
+    public int addObject(AbstractGameObject<?> object) {
+        final int id = add();
+        setObject(id, object);
+        return id;
+    }
+
+    /** Moves a game object to the bounds it currently reports. */
+    public void setObject(int id, AbstractGameObject<?> object) {
+        checkId(id);
+        if (!object.getBounds(mScratch, Bounds.BOX_SIZE, mScratch, 0)) {
+            mScratch[Bounds.BOX_SIZE] = 0f;
+            mScratch[Bounds.BOX_SIZE + 1] = 0f;
+            mScratch[Bounds.BOX_SIZE + 2] = 0f;
+            mScratch[Bounds.BOX_SIZE + 3] = UNBOUNDED_RADIUS;
+            Bounds.boxOfSphere(mScratch, 0, mScratch, Bounds.BOX_SIZE);
+        }
+        store(id, mScratch, Bounds.BOX_SIZE, mScratch, 0);
+    }
+
+    /** Moves an object, giving it a bounding sphere and the box around that sphere. */
+    public void setSphere(int id, float x, float y, float z, float radius) {
+        checkId(id);
+        mScratch[Bounds.BOX_SIZE] = x;
+        mScratch[Bounds.BOX_SIZE + 1] = y;
+        mScratch[Bounds.BOX_SIZE + 2] = z;
+        mScratch[Bounds.BOX_SIZE + 3] = radius;
+        Bounds.boxOfSphere(mScratch, 0, mScratch, Bounds.BOX_SIZE);
+        store(id, mScratch, Bounds.BOX_SIZE, mScratch, 0);
+    }
+
+    /** Moves an object, giving it a bounding box and the sphere around that box. */
+    public void setBox(int id, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        checkId(id);
+        mScratch[0] = minX;
+        mScratch[1] = minY;
+        mScratch[2] = minZ;
+        mScratch[3] = maxX;
+        mScratch[4] = maxY;
+        mScratch[5] = maxZ;
+        Bounds.sphereOfBox(mScratch, Bounds.BOX_SIZE, mScratch, 0);
+        store(id, mScratch, Bounds.BOX_SIZE, mScratch, 0);
+    }
+
+    /**
+     * Moves an object, giving it both a bounding sphere and box in world space.
+     *
+     * @param id the index of the object
+     * @param sphere the array of the sphere, see {@link GeoMath#SPHERE_SIZE}
+     * @param sphereOff the offset of the sphere
+     * @param box the array of the box, see {@link Bounds#BOX_SIZE}
+     * @param boxOff the offset of the box
+     */
+    public void setBounds(int id, float[] sphere, int sphereOff, float[] box, int boxOff) {
+        checkId(id);
+        store(id, sphere, sphereOff, box, boxOff);
+    }
+
+    /**
+     * Moves an object by transforming its local bounds, like those of a
+     * {@link com.tylersuehr.enginej.ShapeBuilder.ShapeData}, by its model matrix.
+     *
+     * @param id the index of the object
+     * @param sphere the array of the local sphere, see {@link GeoMath#SPHERE_SIZE}
+     * @param sphereOff the offset of the local sphere
+     * @param box the array of the local box, see {@link Bounds#BOX_SIZE}
+     * @param boxOff the offset of the local box
+     * @param model the array of the model matrix
+     * @param modelOff the offset of the model matrix
+     */
+    public void setTransformedBounds(int id, float[] sphere, int sphereOff, float[] box, int boxOff,
+                                     float[] model, int modelOff) {
+        checkId(id);
+        Bounds.transformBox(mScratch, 0, model, modelOff, box, boxOff);
+        Bounds.transformSphere(mScratch, Bounds.BOX_SIZE, model, modelOff, sphere, sphereOff);
+        store(id, mScratch, Bounds.BOX_SIZE, mScratch, 0);
+    }
+
+    /** Removes every object, keeping the allocated arrays for reuse. */
+    public void clear() {
+        mCount = 0;
+        mVisibleCount = 0;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * Splits the test across a fork-join pool when there are enough objects for it to pay
+     * off. Splitting stops at ranges of minPerTask objects, since each task has a fixed cost.
+     *
+     * @param pool the pool to run on, or null to test on the calling thread only
+     * @param minPerTask the fewest objects worth giving one task
+     */
+    public void setParallel(ForkJoinPool pool, int minPerTask) {
+        if (minPerTask < 1) {
+            throw new IllegalArgumentException("Tasks must have at least one object!");
+        }
+        mPool = pool;
+        mMinPerTask = minPerTask;
+    }
+
+    /**
+     * Tests every object against the frustum of a view-projection matrix.
+     *
+     * @param viewProjection the array of the view-projection matrix
+     * @param offset the offset of the matrix
+     * @return the number of visible objects
+     */
+    public int cull(float[] viewProjection, int offset) {
+        Mat4.extractFrustumPlanes(mPlanes, 0, viewProjection, offset);
+        if (mPool != null && mCount >= mMinPerTask * 2) {
+            mPool.invoke(new CullTask(0, mCount));
+        } else {
+            cullRange(0, mCount);
+        }
+
+        // Always write and only advance past visible objects, since a branch on visibility
+        // would be mispredicted for a large share of a typical scene
+        final boolean[] flags = mVisible;
+        final int[] list = mVisibleList;
+        int visible = 0;
+        for (int i = 0, count = mCount; i < count; i++) {
+            list[visible] = i;
+            visible += flags[i] ? 1 : 0;
+        }
+        mVisibleCount = visible;
+
+        Profiler.count(Profiler.COUNTER_VISIBLE, visible);
+        Profiler.count(Profiler.COUNTER_CULLED, mCount - visible);
+        return visible;
+    }
+
+    /** Gets the number of objects found visible by the last {@link #cull(float[], int)}. */
+    public int getVisibleCount() {
+        return mVisibleCount;
+    }
+
+    /** Gets the number of objects culled by the last {@link #cull(float[], int)}. */
+    public int getCulledCount() {
+        return mCount - mVisibleCount;
+    }
+
+    /**
+     * Gets a visible object from the last {@link #cull(float[], int)}, in index order.
+     *
+     * @param i from 0 up to {@link #getVisibleCount()}
+     * @return the index of the object
+     */
+    public int getVisible(int i) {
+        if (i < 0 || i >= mVisibleCount) {
+            throw new IndexOutOfBoundsException("Visible object " + i + " does not exist!");
+        }
+        return mVisibleList[i];
+    }
+
+    /** Determines if an object was visible in the last {@link #cull(float[], int)}. */
+    public boolean isVisible(int id) {
+        checkId(id);
+        return mVisible[id];
+    }
+
+    private void cullRange(int start, int end) {
+        final float[] p = mPlanes;
+        for (int i = start; i < end; i++) {
+            final float x = mCenterX[i], y = mCenterY[i], z = mCenterZ[i], r = mRadius[i];
+            boolean visible = true;
+            boolean crossing = false;
+            for (int k = 0; k < Mat4.FRUSTUM_PLANES_SIZE; k += 4) {
+                final float distance = (p[k] * x) + (p[k + 1] * y) + (p[k + 2] * z) + p[k + 3];
+                if (distance < -r) {
+                    visible = false;
+                    break;
+                }
+                crossing |= distance < r;
+            }
+
+            // A sphere crossing a plane may still be outside it with its tighter box
+            mVisible[i] = visible && (!crossing || intersectsBox(i));
+        }
+    }
+
+    /** Tests the corner of a box farthest along each plane's normal. */
+    private boolean intersectsBox(int i) {
+        final float[] p = mPlanes;
+        final int b = i * Bounds.BOX_SIZE;
+        for (int k = 0; k < Mat4.FRUSTUM_PLANES_SIZE; k += 4) {
+            final float nx = p[k], ny = p[k + 1], nz = p[k + 2];
+            final float distance = (nx * mBoxes[(nx >= 0f) ? b + 3 : b])
+                    + (ny * mBoxes[(ny >= 0f) ? b + 4 : b + 1])
+                    + (nz * mBoxes[(nz >= 0f) ? b + 5 : b + 2]) + p[k + 3];
+            if (distance < 0f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int add() {
+        if (mCount == mRadius.length) {
+            allocate(mRadius.length * 2);
+        }
+        return mCount++;
+    }
+
+    private void store(int id, float[] sphere, int sphereOff, float[] box, int boxOff) {
+        mCenterX[id] = sphere[sphereOff];
+        mCenterY[id] = sphere[sphereOff + 1];
+        mCenterZ[id] = sphere[sphereOff + 2];
+        mRadius[id] = sphere[sphereOff + 3];
+        System.arraycopy(box, boxOff, mBoxes, id * Bounds.BOX_SIZE, Bounds.BOX_SIZE);
+    }
+
+    private void checkId(int id) {
+        if (id < 0 || id >= mCount) {
+            throw new IndexOutOfBoundsException("Object " + id + " does not exist!");
+        }
+    }
+
+    private void allocate(int capacity) {
+        if (mRadius == null) {
+            mCenterX = new float[capacity];
+            mCenterY = new float[capacity];
+            mCenterZ = new float[capacity];
+            mRadius = new float[capacity];
+            mBoxes = new float[capacity * Bounds.BOX_SIZE];
+            mVisible = new boolean[capacity];
+            mVisibleList = new int[capacity];
+            return;
+        }
+        mCenterX = Arrays.copyOf(mCenterX, capacity);
+        mCenterY = Arrays.copyOf(mCenterY, capacity);
+        mCenterZ = Arrays.copyOf(mCenterZ, capacity);
+        mRadius = Arrays.copyOf(mRadius, capacity);
+        mBoxes = Arrays.copyOf(mBoxes, capacity * Bounds.BOX_SIZE);
+        mVisible = Arrays.copyOf(mVisible, capacity);
+        mVisibleList = Arrays.copyOf(mVisibleList, capacity);
+    }
+
+
+    /**
+     * Halves its range until it is small enough, then tests it. Tasks only write the
+     * visibility of their own range, so they never contend.
+     */
+    private final class CullTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int mStart;
+        private final int mEnd;
+
+        CullTask(int start, int end) {
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart < mMinPerTask * 2) {
+                cullRange(mStart, mEnd);
+                return;
+            }
+            final int mid = (mStart + mEnd) >>> 1;
+            invokeAll(new CullTask(mStart, mid), new CullTask(mid, mEnd));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.render;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+
+/**
+ * Defines something that can be drawn by a {@link RenderQueue}.
+ *
+ * The integer parameter is passed back exactly as it was submitted, which lets a single
+ * command object draw many things (an entity index, a particle emitter, etc.) without
+ * allocating a command per submission.
+ *
+ * @author Tyler Suehr
+ */
+public interface RenderCommand {
+    /**
+     * Called when this command should bind its data and draw. The program is already in use.
+     *
+     * @param program the shader program this command was submitted with
+     * @param param the parameter this command was submitted with
+     */
+    void execute(AbstractShaderProgram program, int param);
+}
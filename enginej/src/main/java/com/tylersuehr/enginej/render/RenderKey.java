@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.render;
+
+/**
+ * A utility for packing draw state into the 64-bit sort keys used by {@link RenderQueue}.
+ *
+ * Keys sort as unsigned numbers, so the most significant fields group draws together first:
+ * <pre>
+ *     opaque:      | layer:4 | 0 | program:10 | texture:12 | buffer:12 | depth:25 |
+ *     translucent: | layer:4 | 1 | ~depth:25  | program:10 | texture:12 | buffer:12 |
+ * </pre>
+ * Opaque draws are grouped by state and then drawn front-to-back (to help early depth
+ * rejection), while translucent draws come after all opaque draws in the same layer and are
+ * drawn back-to-front so blending is correct.
+ *
+ * Program, texture and buffer ids are masked to their field width; ids that collide only
+ * affect how well draws are grouped, never correctness.
+ *
+ * @author Tyler Suehr
+ */
+public final class RenderKey {
+    public static final int MAX_LAYER = 0xF;
+
+    private static final int PROGRAM_BITS = 10;
+    private static final int TEXTURE_BITS = 12;
+    private static final int BUFFER_BITS = 12;
+    private static final int DEPTH_BITS = 25;
+
+    private static final long PROGRAM_MASK = (1L << PROGRAM_BITS) - 1;
+    private static final long TEXTURE_MASK = (1L << TEXTURE_BITS) - 1;
+    private static final long BUFFER_MASK = (1L << BUFFER_BITS) - 1;
+    private static final long DEPTH_MASK = (1L << DEPTH_BITS) - 1;
+
+    private static final int LAYER_SHIFT = 60;
+    private static final int TRANSLUCENT_SHIFT = 59;
+
+    /* Field positions for opaque keys */
+    private static final int OPAQUE_PROGRAM_SHIFT = 49;
+    private static final int OPAQUE_TEXTURE_SHIFT = 37;
+    private static final int OPAQUE_BUFFER_SHIFT = 25;
+
+    /* Field positions for translucent keys */
+    private static final int TRANSLUCENT_DEPTH_SHIFT = 34;
+    private static final int TRANSLUCENT_PROGRAM_SHIFT = 24;
+    private static final int TRANSLUCENT_TEXTURE_SHIFT = 12;
+
+
+    private RenderKey() {}
+
+    /**
+     * Creates a key for an opaque draw.
+     *
+     * @param layer the layer to draw in [0, {@link #MAX_LAYER}], lower layers draw first
+     * @param programId the pointer to the OpenGL ES program object
+     * @param textureId the pointer to the main OpenGL ES texture object, or 0
+     * @param bufferId the pointer to the main OpenGL ES buffer object, or 0
+     * @param depth the normalized distance from the camera [0, 1]
+     * @return the sort key
+     */
+    public static long opaque(int layer, int programId, int textureId, int bufferId, float depth) {
+        return ((long)(layer & MAX_LAYER) << LAYER_SHIFT)
+                | ((programId & PROGRAM_MASK) << OPAQUE_PROGRAM_SHIFT)
+                | ((textureId & TEXTURE_MASK) << OPAQUE_TEXTURE_SHIFT)
+                | ((bufferId & BUFFER_MASK) << OPAQUE_BUFFER_SHIFT)
+                | quantizeDepth(depth);
+    }
+
+    /**
+     * Creates a key for a translucent (blended) draw.
+     *
+     * @param layer the layer to draw in [0, {@link #MAX_LAYER}], lower layers draw first
+     * @param programId the pointer to the OpenGL ES program object
+     * @param textureId the pointer to the main OpenGL ES texture object, or 0
+     * @param bufferId the pointer to the main OpenGL ES buffer object, or 0
+     * @param depth the normalized distance from the camera [0, 1]
+     * @return the sort key
+     */
+    public static long translucent(int layer, int programId, int textureId, int bufferId, float depth) {
+        return ((long)(layer & MAX_LAYER) << LAYER_SHIFT)
+                | (1L << TRANSLUCENT_SHIFT)
+                | ((DEPTH_MASK - quantizeDepth(depth)) << TRANSLUCENT_DEPTH_SHIFT)
+                | ((programId & PROGRAM_MASK) << TRANSLUCENT_PROGRAM_SHIFT)
+                | ((textureId & TEXTURE_MASK) << TRANSLUCENT_TEXTURE_SHIFT)
+                | (bufferId & BUFFER_MASK);
+    }
+
+    public static int getLayer(long key) {
+        return (int)(key >>> LAYER_SHIFT);
+    }
+
+    public static boolean isTranslucent(long key) {
+        return ((key >>> TRANSLUCENT_SHIFT) & 1L) != 0;
+    }
+
+    /** Gets the (masked) program id stored in a key. */
+    public static int getProgram(long key) {
+        final int shift = isTranslucent(key) ? TRANSLUCENT_PROGRAM_SHIFT : OPAQUE_PROGRAM_SHIFT;
+        return (int)((key >>> shift) & PROGRAM_MASK);
+    }
+
+    /** Gets the (masked) texture id stored in a key. */
+    public static int getTexture(long key) {
+        final int shift = isTranslucent(key) ? TRANSLUCENT_TEXTURE_SHIFT : OPAQUE_TEXTURE_SHIFT;
+        return (int)((key >>> shift) & TEXTURE_MASK);
+    }
+
+    /** Gets the (masked) buffer id stored in a key. */
+    public static int getBuffer(long key) {
+        return isTranslucent(key)
+                ? (int)(key & BUFFER_MASK)
+                : (int)((key >>> OPAQUE_BUFFER_SHIFT) & BUFFER_MASK);
+    }
+
+    private static long quantizeDepth(float depth) {
+        if (!(depth > 0f)) {
+            return 0L; // also catches NaN
+        }
+        if (depth >= 1f) {
+            return DEPTH_MASK;
+        }
+        return (long)(depth * DEPTH_MASK);
+    }
+}
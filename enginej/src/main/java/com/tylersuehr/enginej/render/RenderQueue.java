@@ -0,0 +1,280 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.render;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+
+import java.util.Arrays;
+
+/**
+ * Collects draw submissions for a frame, sorts them by their {@link RenderKey} and then
+ * executes them in that order, so draws that share a program, texture or buffer run back to
+ * back instead of thrashing OpenGL ES state.
+ *
+ * Keys are sorted with an 8-bit LSD radix sort into preallocated arrays; passes where every
+ * key has the same digit are skipped. Nothing is allocated per frame once the queue has grown
+ * to the largest number of submissions seen.
+ *
+ * Typical frame:
+ * <pre>
+ *     for (each object) {
+ *         object.submit(queue, program, RenderKey.opaque(...));
+ *     }
+ *     queue.execute();
+ * </pre>
+ *
+ * @author Tyler Suehr
+ */
+public class RenderQueue {
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_SIZE = 1 << RADIX_BITS;
+    private static final int RADIX_PASSES = 64 / RADIX_BITS;
+
+    /* Sort keys and the submission each one belongs to */
+    private long[] mKeys;
+    private int[] mOrder;
+    private long[] mKeysScratch;
+    private int[] mOrderScratch;
+    private final int[] mHistogram = new int[RADIX_SIZE * RADIX_PASSES];
+
+    /* Submissions, indexed by submission order */
+    private AbstractShaderProgram[] mPrograms;
+    private RenderCommand[] mCommands;
+    private int[] mParams;
+    private int mCount = 0;
+
+    /* State switches counted in submission order, for comparison */
+    private AbstractShaderProgram mLastSubmittedProgram;
+    private int mLastSubmittedTexture;
+    private int mSubmittedProgramSwitches;
+    private int mSubmittedTextureSwitches;
+
+    /* Statistics for the last executed frame */
+    private int mExecutedCount;
+    private int mProgramSwitches;
+    private int mTextureSwitches;
+    private int mSavedProgramSwitches;
+    private int mSavedTextureSwitches;
+
+
+    /** Constructs with the number of submissions expected per frame. */
+    public RenderQueue(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    /**
+     * Adds a draw to this frame.
+     *
+     * @param key the sort key, see {@link RenderKey}
+     * @param program the shader program to draw with
+     * @param command the command that binds data and draws
+     * @param param a parameter passed back to the command
+     */
+    public void submit(long key, AbstractShaderProgram program, RenderCommand command, int param) {
+        if (mCount == mKeys.length) {
+            grow();
+        }
+
+        final int i = mCount++;
+        mKeys[i] = key;
+        mOrder[i] = i;
+        mPrograms[i] = program;
+        mCommands[i] = command;
+        mParams[i] = param;
+
+        final int texture = RenderKey.getTexture(key);
+        if (i == 0 || program != mLastSubmittedProgram) {
+            mSubmittedProgramSwitches++;
+        }
+        if (i == 0 || texture != mLastSubmittedTexture) {
+            mSubmittedTextureSwitches++;
+        }
+        mLastSubmittedProgram = program;
+        mLastSubmittedTexture = texture;
+    }
+
+    /**
+     * Sorts and executes every submission for this frame, then clears the queue.
+     */
+    public void execute() {
+        sort();
+
+        final long[] keys = mKeys;
+        final int[] order = mOrder;
+        AbstractShaderProgram currentProgram = null;
+        int currentTexture = 0;
+        int programSwitches = 0;
+        int textureSwitches = 0;
+
+        for (int i = 0; i < mCount; i++) {
+            final int submission = order[i];
+            final AbstractShaderProgram program = mPrograms[submission];
+            if (program != currentProgram) {
+                program.useProgram();
+                currentProgram = program;
+                programSwitches++;
+            }
+
+            final int texture = RenderKey.getTexture(keys[i]);
+            if (i == 0 || texture != currentTexture) {
+                currentTexture = texture;
+                textureSwitches++;
+            }
+
+            mCommands[submission].execute(program, mParams[submission]);
+        }
+
+        mExecutedCount = mCount;
+        mProgramSwitches = programSwitches;
+        mTextureSwitches = textureSwitches;
+        mSavedProgramSwitches = mSubmittedProgramSwitches - programSwitches;
+        mSavedTextureSwitches = mSubmittedTextureSwitches - textureSwitches;
+        clear();
+    }
+
+    /**
+     * Drops every submission without drawing them.
+     */
+    public void clear() {
+        // Release references so the queue doesn't keep objects alive
+        Arrays.fill(mPrograms, 0, mCount, null);
+        Arrays.fill(mCommands, 0, mCount, null);
+        mCount = 0;
+        mLastSubmittedProgram = null;
+        mSubmittedProgramSwitches = 0;
+        mSubmittedTextureSwitches = 0;
+    }
+
+    /** Gets the number of submissions waiting to be executed. */
+    public int size() {
+        return mCount;
+    }
+
+    /** Gets the number of commands executed in the last frame. */
+    public int getExecutedCount() {
+        return mExecutedCount;
+    }
+
+    /** Gets the number of program changes made in the last frame. */
+    public int getProgramSwitches() {
+        return mProgramSwitches;
+    }
+
+    /** Gets the number of texture changes made in the last frame. */
+    public int getTextureSwitches() {
+        return mTextureSwitches;
+    }
+
+    /** Gets how many program changes sorting avoided in the last frame. */
+    public int getSavedProgramSwitches() {
+        return mSavedProgramSwitches;
+    }
+
+    /** Gets how many texture changes sorting avoided in the last frame. */
+    public int getSavedTextureSwitches() {
+        return mSavedTextureSwitches;
+    }
+
+    /**
+     * Sorts the keys (and the submission order alongside them) in ascending unsigned order.
+     */
+    private void sort() {
+        final int n = mCount;
+        if (n < 2) {
+            return;
+        }
+
+        // Build the histograms for every pass in one read of the keys
+        final int[] histogram = mHistogram;
+        Arrays.fill(histogram, 0);
+        for (int i = 0; i < n; i++) {
+            final long key = mKeys[i];
+            for (int pass = 0; pass < RADIX_PASSES; pass++) {
+                histogram[pass * RADIX_SIZE + (int)((key >>> (pass * RADIX_BITS)) & (RADIX_SIZE - 1))]++;
+            }
+        }
+
+        long[] srcKeys = mKeys, dstKeys = mKeysScratch;
+        int[] srcOrder = mOrder, dstOrder = mOrderScratch;
+        for (int pass = 0; pass < RADIX_PASSES; pass++) {
+            final int base = pass * RADIX_SIZE;
+            final int shift = pass * RADIX_BITS;
+
+            // Every key has the same digit, so this pass wouldn't move anything
+            if (histogram[base + (int)((srcKeys[0] >>> shift) & (RADIX_SIZE - 1))] == n) {
+                continue;
+            }
+
+            // Turn counts into starting offsets
+            for (int d = 0, sum = 0; d < RADIX_SIZE; d++) {
+                final int count = histogram[base + d];
+                histogram[base + d] = sum;
+                sum += count;
+            }
+
+            for (int i = 0; i < n; i++) {
+                final long key = srcKeys[i];
+                final int dst = histogram[base + (int)((key >>> shift) & (RADIX_SIZE - 1))]++;
+                dstKeys[dst] = key;
+                dstOrder[dst] = srcOrder[i];
+            }
+
+            final long[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+            final int[] tmpOrder = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = tmpOrder;
+        }
+
+        // Keep whichever arrays ended up holding the sorted result
+        mKeys = srcKeys;
+        mKeysScratch = dstKeys;
+        mOrder = srcOrder;
+        mOrderScratch = dstOrder;
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mOrder = new int[capacity];
+        mKeysScratch = new long[capacity];
+        mOrderScratch = new int[capacity];
+        mPrograms = new AbstractShaderProgram[capacity];
+        mCommands = new RenderCommand[capacity];
+        mParams = new int[capacity];
+    }
+
+    private void grow() {
+        final int capacity = mKeys.length * 2;
+        mKeys = Arrays.copyOf(mKeys, capacity);
+        mOrder = Arrays.copyOf(mOrder, capacity);
+        mKeysScratch = new long[capacity];
+        mOrderScratch = new int[capacity];
+        mPrograms = Arrays.copyOf(mPrograms, capacity);
+        mCommands = Arrays.copyOf(mCommands, capacity);
+        mParams = Arrays.copyOf(mParams, capacity);
+    }
+}
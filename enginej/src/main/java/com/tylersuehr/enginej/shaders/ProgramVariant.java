@@ -0,0 +1,481 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.shaders;
+
+import android.util.Log;
+
+import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One compiled variant of a vertex and fragment shader pair, shared by everything in the
+ * {@link ShaderRegistry} that asked for the same sources and defines.
+ *
+ * Nothing is compiled until the program is first needed, at which point the locations of all
+ * active uniforms and attributes are looked up once. The typed uniform setters keep a shadow
+ * copy of each uniform and skip the upload when the value hasn't changed. Since uniform values
+ * belong to the OpenGL ES program object, the shadow copy lives here and not with its users.
+ * Like glUniform*, the setters only affect this program while it's the current program.
+ *
+ * @author Tyler Suehr
+ */
+public final class ProgramVariant {
+    private static final String TAG = "ENGINE";
+
+    private final String mKey;
+    private final String mVertexSource;
+    private final String mFragmentSource;
+
+    private int mProgram = 0;
+    private boolean mBuilt = false;
+    private long mCompileTimeNanos = 0;
+    private long mLinkTimeNanos = 0;
+
+    private final Map<String, Integer> mUniformLocations = new HashMap<>();
+    private final Map<String, Integer> mAttribLocations = new HashMap<>();
+
+    /* Sorted locations of the shadowed uniforms, with their offsets into the shadow copy */
+    private int[] mShadowLocations;
+    private int[] mShadowOffsets;
+    private boolean[] mShadowValid;
+    private int[] mShadowVersions;
+    private float[] mShadow;
+
+
+    ProgramVariant(String key, String vertexSource, String fragmentSource) {
+        mKey = key;
+        mVertexSource = vertexSource;
+        mFragmentSource = fragmentSource;
+    }
+
+    /**
+     * Makes this the current OpenGL ES shader program, building it first if needed.
+     */
+    public void use() {
+        GLStateCache.useProgram(getProgramId());
+    }
+
+    /**
+     * Gets the pointer to the OpenGL ES program, building it first if needed.
+     * @return the pointer to the OpenGL ES program object or 0 if it failed to build
+     */
+    public int getProgramId() {
+        if (!mBuilt) {
+            build();
+        }
+        return mProgram;
+    }
+
+    public boolean isBuilt() {
+        return mBuilt;
+    }
+
+    /** Gets the time spent compiling both shaders, or 0 if not built yet. */
+    public long getCompileTimeNanos() {
+        return mCompileTimeNanos;
+    }
+
+    /** Gets the time spent linking and introspecting the program, or 0 if not built yet. */
+    public long getLinkTimeNanos() {
+        return mLinkTimeNanos;
+    }
+
+    public String getKey() {
+        return mKey;
+    }
+
+    /**
+     * Gets the cached location of an active uniform. Array uniforms can be found with or
+     * without their "[0]" suffix.
+     *
+     * @param name the name of the uniform in the shader source
+     * @return the location of the uniform, or -1 if it isn't active
+     */
+    public int getUniformLocation(String name) {
+        if (!mBuilt) {
+            build();
+        }
+        final Integer location = mUniformLocations.get(name);
+        return (location != null) ? location : -1;
+    }
+
+    /**
+     * Gets the cached location of an active vertex attribute.
+     *
+     * @param name the name of the attribute in the shader source
+     * @return the location of the attribute, or -1 if it isn't active
+     */
+    public int getAttribLocation(String name) {
+        if (!mBuilt) {
+            build();
+        }
+        final Integer location = mAttribLocations.get(name);
+        return (location != null) ? location : -1;
+    }
+
+    public void setUniform1i(int location, int value) {
+        final int slot = slotOf(location, 1);
+        if (slot >= 0) {
+            final int o = mShadowOffsets[slot];
+            final float bits = Float.intBitsToFloat(value);
+            if (mShadowValid[slot] && same(mShadow[o], bits)) {
+                return;
+            }
+            mShadow[o] = bits;
+            validate(slot);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniform1i(location, value);
+    }
+
+    public void setUniform1f(int location, float x) {
+        final int slot = slotOf(location, 1);
+        if (slot >= 0) {
+            final int o = mShadowOffsets[slot];
+            if (mShadowValid[slot] && same(mShadow[o], x)) {
+                return;
+            }
+            mShadow[o] = x;
+            validate(slot);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniform1f(location, x);
+    }
+
+    public void setUniform2f(int location, float x, float y) {
+        final int slot = slotOf(location, 2);
+        if (slot >= 0) {
+            final int o = mShadowOffsets[slot];
+            if (mShadowValid[slot] && same(mShadow[o], x) && same(mShadow[o + 1], y)) {
+                return;
+            }
+            mShadow[o] = x;
+            mShadow[o + 1] = y;
+            validate(slot);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniform2f(location, x, y);
+    }
+
+    public void setUniform3f(int location, float x, float y, float z) {
+        final int slot = slotOf(location, 3);
+        if (slot >= 0) {
+            final int o = mShadowOffsets[slot];
+            if (mShadowValid[slot] && same(mShadow[o], x) && same(mShadow[o + 1], y)
+                    && same(mShadow[o + 2], z)) {
+                return;
+            }
+            mShadow[o] = x;
+            mShadow[o + 1] = y;
+            mShadow[o + 2] = z;
+            validate(slot);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniform3f(location, x, y, z);
+    }
+
+    public void setUniform4f(int location, float x, float y, float z, float w) {
+        final int slot = slotOf(location, 4);
+        if (slot >= 0) {
+            final int o = mShadowOffsets[slot];
+            if (mShadowValid[slot] && same(mShadow[o], x) && same(mShadow[o + 1], y)
+                    && same(mShadow[o + 2], z) && same(mShadow[o + 3], w)) {
+                return;
+            }
+            mShadow[o] = x;
+            mShadow[o + 1] = y;
+            mShadow[o + 2] = z;
+            mShadow[o + 3] = w;
+            validate(slot);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniform4f(location, x, y, z, w);
+    }
+
+    /**
+     * Sets a mat3 uniform, skipping the upload if all 9 values match the last ones set.
+     *
+     * @param location the location of the uniform
+     * @param m the column-major matrix
+     * @param offset the index of the first matrix value
+     */
+    public void setUniformMatrix3(int location, float[] m, int offset) {
+        if (location >= 0 && !shadowChanged(slotOf(location, 9), m, offset, 9)) {
+            return;
+        }
+        GL.glUniformMatrix3fv(location, 1, false, m, offset);
+    }
+
+    /**
+     * Sets a mat4 uniform, skipping the upload if all 16 values match the last ones set.
+     *
+     * @param location the location of the uniform
+     * @param m the column-major matrix
+     * @param offset the index of the first matrix value
+     */
+    public void setUniformMatrix4(int location, float[] m, int offset) {
+        if (location >= 0 && !shadowChanged(slotOf(location, 16), m, offset, 16)) {
+            return;
+        }
+        GL.glUniformMatrix4fv(location, 1, false, m, offset);
+    }
+
+    /**
+     * Sets a mat4 uniform whose owner tracks changes with a version counter, like a camera
+     * that bumps its version whenever its view-projection matrix is rebuilt. The upload is
+     * skipped if the version matches the last one set, without comparing any values.
+     *
+     * @param location the location of the uniform
+     * @param m the column-major matrix
+     * @param offset the index of the first matrix value
+     * @param version the non-negative version of the matrix, which must change whenever its
+     *                values do
+     */
+    public void setUniformMatrix4(int location, float[] m, int offset, int version) {
+        final int slot = slotOf(location, 16);
+        if (slot >= 0) {
+            if (mShadowValid[slot] && mShadowVersions[slot] == version) {
+                return;
+            }
+            mShadowValid[slot] = true;
+            mShadowVersions[slot] = version;
+            System.arraycopy(m, offset, mShadow, mShadowOffsets[slot], 16);
+        } else if (location < 0) {
+            return;
+        }
+        GL.glUniformMatrix4fv(location, 1, false, m, offset);
+    }
+
+    /**
+     * Forgets the shadowed uniform values, so the next set of each uniform is always uploaded.
+     */
+    public void invalidateUniforms() {
+        if (mShadowValid != null) {
+            Arrays.fill(mShadowValid, false);
+        }
+    }
+
+    /**
+     * Deletes the OpenGL ES program, if built. It will be built again when next needed.
+     */
+    void release() {
+        if (mProgram != 0) {
+            GLStateCache.deleteProgram(mProgram);
+        }
+        onContextLost();
+    }
+
+    /**
+     * Forgets the program without deleting it, as its GL context (and the program) is gone.
+     */
+    void onContextLost() {
+        mProgram = 0;
+        mBuilt = false;
+        mUniformLocations.clear();
+        mAttribLocations.clear();
+        mShadowLocations = null;
+        mShadowOffsets = null;
+        mShadowValid = null;
+        mShadowVersions = null;
+        mShadow = null;
+    }
+
+    private void build() {
+        final long start = System.nanoTime();
+        final int vertexShader = EngineUtils.compileShader(GL.GL_VERTEX_SHADER, mVertexSource);
+        final int fragmentShader = EngineUtils.compileShader(GL.GL_FRAGMENT_SHADER, mFragmentSource);
+        final long compiled = System.nanoTime();
+
+        int program = 0;
+        if (vertexShader != 0 && fragmentShader != 0) {
+            program = EngineUtils.linkProgram(vertexShader, fragmentShader);
+        }
+
+        // The program keeps what it needs once linked, so the shaders can go
+        if (program != 0) {
+            GL.glDetachShader(program, vertexShader);
+            GL.glDetachShader(program, fragmentShader);
+        }
+        GL.glDeleteShader(vertexShader);
+        GL.glDeleteShader(fragmentShader);
+
+        // Mark as built even if it failed so we don't retry every frame
+        mProgram = program;
+        mBuilt = true;
+        introspect();
+
+        mCompileTimeNanos = compiled - start;
+        mLinkTimeNanos = System.nanoTime() - compiled;
+        if (program == 0) {
+            Log.wtf(TAG, "Could not build shader program variant: " + mKey);
+        }
+    }
+
+    private void introspect() {
+        final int[] count = new int[1];
+        final int[] size = new int[1];
+        final int[] type = new int[1];
+
+        if (mProgram != 0) {
+            GL.glGetProgramiv(mProgram, GL.GL_ACTIVE_ATTRIBUTES, count, 0);
+        }
+        for (int i = 0; i < count[0]; i++) {
+            final String name = GL.glGetActiveAttrib(mProgram, i, size, 0, type, 0);
+            if (name != null) {
+                mAttribLocations.put(name, GL.glGetAttribLocation(mProgram, name));
+            }
+        }
+
+        count[0] = 0;
+        if (mProgram != 0) {
+            GL.glGetProgramiv(mProgram, GL.GL_ACTIVE_UNIFORMS, count, 0);
+        }
+        final int[] locations = new int[count[0]];
+        final int[] components = new int[count[0]];
+        int numShadowed = 0;
+        for (int i = 0; i < count[0]; i++) {
+            String name = GL.glGetActiveUniform(mProgram, i, size, 0, type, 0);
+            if (name == null) {
+                continue;
+            }
+            final int location = GL.glGetUniformLocation(mProgram, name);
+            mUniformLocations.put(name, location);
+            if (name.endsWith("[0]")) {
+                name = name.substring(0, name.length() - 3);
+                mUniformLocations.put(name, location);
+            }
+
+            // Only single (non-array) values are shadowed
+            final int numComponents = componentsOf(type[0]);
+            if (location >= 0 && size[0] == 1 && numComponents > 0) {
+                locations[numShadowed] = location;
+                components[numShadowed] = numComponents;
+                numShadowed++;
+            }
+        }
+
+        // Sort the shadowed uniforms by location so they can be binary searched
+        final long[] sorted = new long[numShadowed];
+        for (int i = 0; i < numShadowed; i++) {
+            sorted[i] = ((long)locations[i] << 32) | components[i];
+        }
+        Arrays.sort(sorted);
+
+        mShadowLocations = new int[numShadowed];
+        mShadowOffsets = new int[numShadowed];
+        mShadowValid = new boolean[numShadowed];
+        mShadowVersions = new int[numShadowed];
+        int totalComponents = 0;
+        for (int i = 0; i < numShadowed; i++) {
+            mShadowLocations[i] = (int)(sorted[i] >>> 32);
+            mShadowOffsets[i] = totalComponents;
+            totalComponents += (int)sorted[i];
+        }
+        mShadow = new float[totalComponents];
+    }
+
+    /**
+     * Finds the shadow slot of a uniform, if it has one of the given size. A set whose size
+     * doesn't match the uniform's type isn't shadowed, so it can't spill into the next
+     * uniform's values; OpenGL ES rejects it anyway.
+     */
+    private int slotOf(int location, int numComponents) {
+        if (!mBuilt) {
+            build();
+        }
+        if (location < 0) {
+            return -1;
+        }
+        final int slot = Arrays.binarySearch(mShadowLocations, location);
+        if (slot < 0) {
+            return -1;
+        }
+        final int end = (slot + 1 < mShadowOffsets.length) ? mShadowOffsets[slot + 1] : mShadow.length;
+        return (end - mShadowOffsets[slot] == numComponents) ? slot : -1;
+    }
+
+    private void validate(int slot) {
+        mShadowValid[slot] = true;
+        mShadowVersions[slot] = -1;
+    }
+
+    /* Compares and copies values into the shadow copy, returning true if an upload is needed */
+    private boolean shadowChanged(int slot, float[] values, int offset, int count) {
+        if (slot < 0) {
+            return true;
+        }
+        final int o = mShadowOffsets[slot];
+        boolean changed = !mShadowValid[slot];
+        for (int i = 0; i < count; i++) {
+            if (!same(mShadow[o + i], values[offset + i])) {
+                mShadow[o + i] = values[offset + i];
+                changed = true;
+            }
+        }
+        validate(slot);
+        return changed;
+    }
+
+    /* Compares by bits, so NaN matches itself and 0 and -0 are re-uploaded rather than missed */
+    private static boolean same(float a, float b) {
+        return Float.floatToRawIntBits(a) == Float.floatToRawIntBits(b);
+    }
+
+    private static int componentsOf(int type) {
+        switch (type) {
+            case GL.GL_FLOAT:
+            case GL.GL_INT:
+            case GL.GL_BOOL:
+            case GL.GL_SAMPLER_2D:
+            case GL.GL_SAMPLER_CUBE:
+                return 1;
+            case GL.GL_FLOAT_VEC2:
+                return 2;
+            case GL.GL_FLOAT_VEC3:
+                return 3;
+            case GL.GL_FLOAT_VEC4:
+            case GL.GL_FLOAT_MAT2:
+                return 4;
+            case GL.GL_FLOAT_MAT3:
+                return 9;
+            case GL.GL_FLOAT_MAT4:
+                return 16;
+            default:
+                // Integer and boolean vectors have no shadowed setter
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.shaders;
+
+import android.content.Context;
+import android.support.annotation.RawRes;
+import android.util.Log;
+
+import com.tylersuehr.enginej.EngineUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares compiled shader programs so that each unique combination of vertex source, fragment
+ * source and defines is only ever compiled and linked once.
+ *
+ * Defines make it easy to write one "uber-shader" and select features per variant with
+ * <code>#ifdef</code>. Each define is either a name ("USE_FOG") or a name and a value
+ * ("MAX_LIGHTS 4"); order doesn't matter, so the same set always maps to the same variant.
+ *
+ * Variants aren't compiled until first used. Call {@link #buildAll()} during a loading screen
+ * to move that cost up front, and {@link #logBuildTimes()} to see where startup time goes.
+ *
+ * Like OpenGL ES itself, this must only be used from the GL thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class ShaderRegistry {
+    private static final String TAG = "ENGINE";
+
+    private static final Map<String, ProgramVariant> sVariants = new HashMap<>();
+    private static final Map<Integer, String> sSources = new HashMap<>();
+
+
+    private ShaderRegistry() {}
+
+    /**
+     * Gets the shared variant for a pair of shader resources and a set of defines, creating
+     * it if it doesn't exist yet. The resources are read once and then cached.
+     *
+     * @param c {@link Context}
+     * @param vertexShaderResId the resource id of the vertex shader source
+     * @param fragShaderResId the resource id of the fragment shader source
+     * @param defines the defines for this variant, like "USE_FOG" or "MAX_LIGHTS 4"
+     * @return the shared program variant
+     */
+    public static ProgramVariant obtain(Context c, @RawRes int vertexShaderResId,
+                                        @RawRes int fragShaderResId, String... defines) {
+        return obtain(readSource(c, vertexShaderResId), readSource(c, fragShaderResId), defines);
+    }
+
+    /**
+     * Gets the shared variant for a pair of shader sources and a set of defines, creating it
+     * if it doesn't exist yet.
+     *
+     * @param vertexSource the source code of the vertex shader
+     * @param fragmentSource the source code of the fragment shader
+     * @param defines the defines for this variant, like "USE_FOG" or "MAX_LIGHTS 4"
+     * @return the shared program variant
+     */
+    public static ProgramVariant obtain(String vertexSource, String fragmentSource, String... defines) {
+        // Sort a copy of the defines so that their order can't create duplicate variants
+        final String[] sorted = defines.clone();
+        Arrays.sort(sorted);
+
+        final StringBuilder key = new StringBuilder(vertexSource.length() + fragmentSource.length() + 32);
+        key.append(vertexSource).append('\0').append(fragmentSource);
+        for (String define : sorted) {
+            key.append('\0').append(define);
+        }
+        final String k = key.toString();
+
+        ProgramVariant variant = sVariants.get(k);
+        if (variant == null) {
+            variant = new ProgramVariant(k,
+                    EngineUtils.injectDefines(vertexSource, sorted),
+                    EngineUtils.injectDefines(fragmentSource, sorted));
+            sVariants.put(k, variant);
+        }
+        return variant;
+    }
+
+    /**
+     * Builds every variant that hasn't been built yet.
+     */
+    public static void buildAll() {
+        for (ProgramVariant variant : sVariants.values()) {
+            variant.getProgramId();
+        }
+    }
+
+    /**
+     * Must be called when a new GL context is created. Every program died with the old
+     * context, so each variant is rebuilt the next time it's used.
+     */
+    public static void onContextLost() {
+        for (ProgramVariant variant : sVariants.values()) {
+            variant.onContextLost();
+        }
+    }
+
+    /**
+     * Deletes all the programs and forgets every variant and cached source.
+     */
+    public static void clear() {
+        for (ProgramVariant variant : sVariants.values()) {
+            variant.release();
+        }
+        sVariants.clear();
+        sSources.clear();
+    }
+
+    public static int getVariantCount() {
+        return sVariants.size();
+    }
+
+    /**
+     * Gets all the variants, like for reporting their build times.
+     * @return a new list of the variants
+     */
+    public static List<ProgramVariant> getVariants() {
+        return new ArrayList<>(sVariants.values());
+    }
+
+    /** Gets the total time spent compiling and linking all built variants. */
+    public static long getTotalBuildTimeNanos() {
+        long total = 0;
+        for (ProgramVariant variant : sVariants.values()) {
+            total += variant.getCompileTimeNanos() + variant.getLinkTimeNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Logs the compile and link time of each built variant, along with the total.
+     */
+    public static void logBuildTimes() {
+        int built = 0;
+        for (ProgramVariant variant : sVariants.values()) {
+            if (variant.isBuilt()) {
+                built++;
+                Log.d(TAG, String.format("Program %d: compile %.2fms, link %.2fms",
+                        variant.getProgramId(),
+                        variant.getCompileTimeNanos() / 1e6,
+                        variant.getLinkTimeNanos() / 1e6));
+            }
+        }
+        Log.d(TAG, String.format("Built %d of %d program variants in %.2fms",
+                built, sVariants.size(), getTotalBuildTimeNanos() / 1e6));
+    }
+
+    private static String readSource(Context c, @RawRes int resId) {
+        String source = sSources.get(resId);
+        if (source == null) {
+            source = EngineUtils.readSourceCode(c, resId);
+            sSources.put(resId, source);
+        }
+        return source;
+    }
+}
@@ -0,0 +1,728 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.tylersuehr.enginej.spatial;
+
+import com.tylersuehr.enginej.geometry.GeoMath;
+import com.tylersuehr.enginej.geometry.Ray;
+import com.tylersuehr.enginej.geometry.Sphere;
+
+import java.util.Arrays;
+
+/**
+ * A bounding volume hierarchy over spheres and axis-aligned boxes, used to find what a
+ * {@link Ray} hits without testing every object, like for touch picking.
+ *
+ * Primitives are added once and then referred to by the index returned when adding them. The
+ * tree is built top-down with binned splits chosen by the surface area heuristic (SAH), and
+ * everything lives in flat primitive arrays: six floats of bounds per node, plus where its
+ * primitives start and how many there are. When objects move, update them with
+ * {@link #setSphere(int, float, float, float, float)} or {@link #setBox(int, float, float,
+ * float, float, float, float)} and call {@link #refit()}, which recomputes node bounds in one
+ * pass without changing the tree. Call {@link #build()} again after large movements, since a
+ * refit tree gets looser as objects drift from where it was built.
+ *
+ * Queries do not allocate. Rays use the {@link GeoMath#RAY_SIZE} layout and are treated as
+ * half-lines: only hits at or after the ray's point count, unlike
+ * {@link GeoMath#intersects(Sphere, Ray)}, which tests the whole line. Hit distances are in
+ * units of the ray's vector, so the hit point is <code>point + distance * vector</code>.
+ *
+ * A BVH is not thread-safe, since queries share a traversal stack.
+ *
+ * @author Tyler Suehr
+ */
+public final class BVH {
+    /* Primitive shapes */
+    public static final int TYPE_SPHERE = 0;
+    public static final int TYPE_BOX    = 1;
+
+    /* Floats per node and primitive bounds: min xyz, max xyz */
+    private static final int BOUNDS_SIZE = 6;
+    private static final int MAX_LEAF_SIZE = 4;
+    private static final int NUM_BINS = 12;
+
+    /* Primitives; spheres store center xyz and radius, boxes store min xyz and max xyz */
+    private int mPrimCount = 0;
+    private byte[] mPrimType;
+    private float[] mPrimShape;
+    private float[] mPrimBounds;
+    private float[] mCentroids;
+
+    /* Nodes; interior nodes have a count of 0 and their left child at start, right at start + 1 */
+    private int mNodeCount = 0;
+    private float[] mNodeBounds = new float[0];
+    private int[] mNodeStart = new int[0];
+    private int[] mNodeSize = new int[0];
+    private int[] mOrder = new int[0];
+    private boolean mNeedsBuild = true;
+
+    /* Build scratch */
+    private int[] mBuildStack = new int[64];
+    private final float[] mCentroidBounds = new float[BOUNDS_SIZE];
+    private final float[] mBinBounds = new float[NUM_BINS * BOUNDS_SIZE];
+    private final int[] mBinCount = new int[NUM_BINS];
+    private final float[] mRightCost = new float[NUM_BINS];
+    private int mSplitAxis;
+    private int mSplitBin;
+
+    /* Query scratch */
+    private int[] mStack = new int[64];
+    private float[] mStackDistance = new float[64];
+    private final float[] mRayData = new float[GeoMath.RAY_SIZE];
+    private float mOx, mOy, mOz;
+    private float mDx, mDy, mDz;
+    private float mInvX, mInvY, mInvZ;
+    private float mHitDistance = Float.POSITIVE_INFINITY;
+
+
+    public BVH() {
+        this(64);
+    }
+
+    /** Constructs with room for the given number of primitives before growing. */
+    public BVH(int capacity) {
+        capacity = Math.max(1, capacity);
+        mPrimType = new byte[capacity];
+        mPrimShape = new float[capacity * BOUNDS_SIZE];
+        mPrimBounds = new float[capacity * BOUNDS_SIZE];
+        mCentroids = new float[capacity * 3];
+    }
+
+    /**
+     * Adds a sphere. The tree must be rebuilt before the next query.
+     *
+     * @return the index of the sphere, which queries report hits by
+     */
+    public int addSphere(float x, float y, float z, float radius) {
+        final int index = addPrimitive();
+        setSphere(index, x, y, z, radius);
+        return index;
+    }
+
+    /**
+     * Adds a copy of a sphere. The tree must be rebuilt before the next query.
+     *
+     * @return the index of the sphere, which queries report hits by
+     */
+    public int addSphere(Sphere sphere) {
+        return addSphere(sphere.center.x, sphere.center.y, sphere.center.z, sphere.radius);
+    }
+
+    /**
+     * Adds an axis-aligned box. The tree must be rebuilt before the next query.
+     *
+     * @return the index of the box, which queries report hits by
+     */
+    public int addBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        final int index = addPrimitive();
+        setBox(index, minX, minY, minZ, maxX, maxY, maxZ);
+        return index;
+    }
+
+    /**
+     * Moves or resizes a primitive, making it a sphere. Call {@link #refit()} or
+     * {@link #build()} before the next query.
+     */
+    public void setSphere(int index, float x, float y, float z, float radius) {
+        checkIndex(index);
+        final int s = index * BOUNDS_SIZE;
+        mPrimType[index] = TYPE_SPHERE;
+        mPrimShape[s] = x;
+        mPrimShape[s + 1] = y;
+        mPrimShape[s + 2] = z;
+        mPrimShape[s + 3] = radius;
+    }
+
+    /**
+     * Moves or resizes a primitive, making it a box. Call {@link #refit()} or
+     * {@link #build()} before the next query.
+     */
+    public void setBox(int index, float minX, float minY, float minZ,
+                       float maxX, float maxY, float maxZ) {
+        checkIndex(index);
+        final int s = index * BOUNDS_SIZE;
+        mPrimType[index] = TYPE_BOX;
+        mPrimShape[s] = minX;
+        mPrimShape[s + 1] = minY;
+        mPrimShape[s + 2] = minZ;
+        mPrimShape[s + 3] = maxX;
+        mPrimShape[s + 4] = maxY;
+        mPrimShape[s + 5] = maxZ;
+    }
+
+    /**
+     * Gets the shape of a primitive.
+     * @return {@link #TYPE_SPHERE} or {@link #TYPE_BOX}
+     */
+    public int getType(int index) {
+        checkIndex(index);
+        return mPrimType[index];
+    }
+
+    public int size() {
+        return mPrimCount;
+    }
+
+    /** Gets the number of nodes in the tree, which is 0 until built. */
+    public int getNodeCount() {
+        return mNodeCount;
+    }
+
+    /** Removes every primitive, keeping the allocated arrays for reuse. */
+    public void clear() {
+        mPrimCount = 0;
+        mNodeCount = 0;
+        mNeedsBuild = true;
+    }
+
+    /**
+     * Builds the tree from scratch over every primitive. This allocates only when the tree
+     * has grown past its previous size.
+     */
+    public void build() {
+        final int n = mPrimCount;
+        final int maxNodes = Math.max(1, 2 * n - 1);
+        if (mNodeStart.length < maxNodes) {
+            mNodeBounds = new float[maxNodes * BOUNDS_SIZE];
+            mNodeStart = new int[maxNodes];
+            mNodeSize = new int[maxNodes];
+        }
+        if (mOrder.length < n) {
+            mOrder = new int[n];
+        }
+
+        for (int i = 0; i < n; i++) {
+            mOrder[i] = i;
+            computePrimitiveBounds(i);
+        }
+
+        mNodeCount = 1;
+        mNodeStart[0] = 0;
+        mNodeSize[0] = n;
+        int maxDepth = 1;
+        int top = 0;
+
+        // Split nodes depth-first with an explicit stack of (node, depth) pairs, since a
+        // badly clustered scene can make the tree far deeper than log(n)
+        mBuildStack[top++] = 0;
+        mBuildStack[top++] = 1;
+        while (top > 0) {
+            final int depth = mBuildStack[--top];
+            final int node = mBuildStack[--top];
+            maxDepth = Math.max(maxDepth, depth);
+
+            computeNodeBounds(node);
+            final int start = mNodeStart[node];
+            final int count = mNodeSize[node];
+            if (count <= MAX_LEAF_SIZE) {
+                continue;
+            }
+
+            int mid = findSplit(start, count) ? partition(start, count) : start;
+            if (mid == start || mid == start + count) {
+                // Every centroid is in the same spot, so any split is as good as another
+                mid = start + (count >> 1);
+            }
+
+            final int left = mNodeCount;
+            mNodeCount += 2;
+            mNodeStart[left] = start;
+            mNodeSize[left] = mid - start;
+            mNodeStart[left + 1] = mid;
+            mNodeSize[left + 1] = start + count - mid;
+            mNodeStart[node] = left;
+            mNodeSize[node] = 0;
+
+            if (top + 4 > mBuildStack.length) {
+                mBuildStack = Arrays.copyOf(mBuildStack, mBuildStack.length * 2);
+            }
+            mBuildStack[top++] = left + 1;
+            mBuildStack[top++] = depth + 1;
+            mBuildStack[top++] = left;
+            mBuildStack[top++] = depth + 1;
+        }
+
+        // Nearest-first traversal pops one node and pushes at most two per level
+        if (mStack.length < maxDepth + 1) {
+            mStack = new int[maxDepth + 1];
+            mStackDistance = new float[maxDepth + 1];
+        }
+        mNeedsBuild = false;
+    }
+
+    /**
+     * Recomputes the bounds of every node from the current primitives without changing the
+     * tree's structure. This is much cheaper than {@link #build()} and suits objects that
+     * move a little each frame.
+     */
+    public void refit() {
+        if (mNeedsBuild) {
+            throw new IllegalStateException("BVH must be built before it can be refit!");
+        }
+        for (int i = 0; i < mPrimCount; i++) {
+            computePrimitiveBounds(i);
+        }
+
+        // Children are always created after their parent, so walking backwards visits
+        // both children before the parent that unions them
+        for (int node = mNodeCount - 1; node >= 0; node--) {
+            if (mNodeSize[node] > 0 || mPrimCount == 0) {
+                computeNodeBounds(node);
+            } else {
+                final int b = node * BOUNDS_SIZE;
+                final int l = mNodeStart[node] * BOUNDS_SIZE;
+                final int r = l + BOUNDS_SIZE;
+                for (int k = 0; k < 3; k++) {
+                    mNodeBounds[b + k] = min(mNodeBounds[l + k], mNodeBounds[r + k]);
+                    mNodeBounds[b + 3 + k] = max(mNodeBounds[l + 3 + k], mNodeBounds[r + 3 + k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the closest primitive a ray hits.
+     *
+     * @param ray the array of the ray, see {@link GeoMath#RAY_SIZE}
+     * @param rayOff the offset of the ray
+     * @return the index of the closest primitive hit, or -1 if none
+     */
+    public int intersectNearest(float[] ray, int rayOff) {
+        beginQuery(ray, rayOff);
+        float best = Float.POSITIVE_INFINITY;
+        int bestIndex = -1;
+        if (mPrimCount == 0) {
+            mHitDistance = best;
+            return bestIndex;
+        }
+
+        final float rootDistance = intersectNode(0);
+        int top = 0;
+        if (rootDistance != Float.POSITIVE_INFINITY) {
+            mStack[0] = 0;
+            mStackDistance[0] = rootDistance;
+            top = 1;
+        }
+
+        while (top > 0) {
+            final int node = mStack[--top];
+            if (mStackDistance[top] >= best) {
+                continue; // Something closer was found since this node was pushed
+            }
+
+            final int count = mNodeSize[node];
+            if (count > 0) {
+                final int start = mNodeStart[node];
+                for (int i = start; i < start + count; i++) {
+                    final int prim = mOrder[i];
+                    final float t = intersectPrimitive(prim);
+                    if (t < best) {
+                        best = t;
+                        bestIndex = prim;
+                    }
+                }
+                continue;
+            }
+
+            // Push the farther child first so the nearer one is visited first and can
+            // shrink the best distance before the farther one is looked at
+            final int left = mNodeStart[node];
+            float nearT = intersectNode(left);
+            float farT = intersectNode(left + 1);
+            int near = left;
+            int far = left + 1;
+            if (farT < nearT) {
+                final float t = nearT;
+                nearT = farT;
+                farT = t;
+                near = left + 1;
+                far = left;
+            }
+            if (farT < best) {
+                mStack[top] = far;
+                mStackDistance[top++] = farT;
+            }
+            if (nearT < best) {
+                mStack[top] = near;
+                mStackDistance[top++] = nearT;
+            }
+        }
+
+        mHitDistance = best;
+        return bestIndex;
+    }
+
+    /**
+     * Finds the closest primitive a ray hits.
+     *
+     * @param ray the ray
+     * @return the index of the closest primitive hit, or -1 if none
+     */
+    public int intersectNearest(Ray ray) {
+        GeoMath.store(mRayData, 0, ray);
+        return intersectNearest(mRayData, 0);
+    }
+
+    /**
+     * Finds every primitive a ray hits, in no particular order.
+     *
+     * @param ray the array of the ray, see {@link GeoMath#RAY_SIZE}
+     * @param rayOff the offset of the ray
+     * @param out the array to store the indices of the primitives hit in
+     * @param outOff the offset to start storing at
+     * @return the number of primitives hit; if this is more than fits in out, only the
+     *         first that fit were stored
+     */
+    public int intersectAll(float[] ray, int rayOff, int[] out, int outOff) {
+        beginQuery(ray, rayOff);
+        mHitDistance = Float.POSITIVE_INFINITY;
+        if (mPrimCount == 0) {
+            return 0;
+        }
+
+        int hits = 0;
+        int top = 0;
+        if (intersectNode(0) != Float.POSITIVE_INFINITY) {
+            mStack[top++] = 0;
+        }
+        while (top > 0) {
+            final int node = mStack[--top];
+            final int count = mNodeSize[node];
+            if (count > 0) {
+                final int start = mNodeStart[node];
+                for (int i = start; i < start + count; i++) {
+                    final int prim = mOrder[i];
+                    if (intersectPrimitive(prim) != Float.POSITIVE_INFINITY) {
+                        if (outOff + hits < out.length) {
+                            out[outOff + hits] = prim;
+                        }
+                        hits++;
+                    }
+                }
+                continue;
+            }
+
+            final int left = mNodeStart[node];
+            if (intersectNode(left + 1) != Float.POSITIVE_INFINITY) {
+                mStack[top++] = left + 1;
+            }
+            if (intersectNode(left) != Float.POSITIVE_INFINITY) {
+                mStack[top++] = left;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Finds every primitive a ray hits, in no particular order.
+     *
+     * @param ray the ray
+     * @param out the array to store the indices of the primitives hit in
+     * @param outOff the offset to start storing at
+     * @return the number of primitives hit; if this is more than fits in out, only the
+     *         first that fit were stored
+     */
+    public int intersectAll(Ray ray, int[] out, int outOff) {
+        GeoMath.store(mRayData, 0, ray);
+        return intersectAll(mRayData, 0, out, outOff);
+    }
+
+    /**
+     * Gets the distance to the hit found by the last {@link #intersectNearest(float[], int)},
+     * in units of the ray's vector.
+     *
+     * @return the distance, or positive infinity if nothing was hit
+     */
+    public float getHitDistance() {
+        return mHitDistance;
+    }
+
+    /**
+     * Stores the point hit by the last {@link #intersectNearest(float[], int)}.
+     *
+     * @param out the array to store the point in
+     * @param outOff the offset of the point
+     * @return true if a point was written, false if nothing was hit
+     */
+    public boolean getHitPoint(float[] out, int outOff) {
+        if (mHitDistance == Float.POSITIVE_INFINITY) {
+            return false;
+        }
+        out[outOff] = mOx + mDx * mHitDistance;
+        out[outOff + 1] = mOy + mDy * mHitDistance;
+        out[outOff + 2] = mOz + mDz * mHitDistance;
+        return true;
+    }
+
+    private int addPrimitive() {
+        if (mPrimCount == mPrimType.length) {
+            final int capacity = mPrimType.length * 2;
+            mPrimType = Arrays.copyOf(mPrimType, capacity);
+            mPrimShape = Arrays.copyOf(mPrimShape, capacity * BOUNDS_SIZE);
+            mPrimBounds = Arrays.copyOf(mPrimBounds, capacity * BOUNDS_SIZE);
+            mCentroids = Arrays.copyOf(mCentroids, capacity * 3);
+        }
+        mNeedsBuild = true;
+        return mPrimCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mPrimCount) {
+            throw new IndexOutOfBoundsException("Primitive " + index + " does not exist!");
+        }
+    }
+
+    private void computePrimitiveBounds(int prim) {
+        final int s = prim * BOUNDS_SIZE;
+        final int c = prim * 3;
+        if (mPrimType[prim] == TYPE_SPHERE) {
+            final float r = Math.abs(mPrimShape[s + 3]);
+            for (int k = 0; k < 3; k++) {
+                mPrimBounds[s + k] = mPrimShape[s + k] - r;
+                mPrimBounds[s + 3 + k] = mPrimShape[s + k] + r;
+                mCentroids[c + k] = mPrimShape[s + k];
+            }
+        } else {
+            for (int k = 0; k < 3; k++) {
+                mPrimBounds[s + k] = min(mPrimShape[s + k], mPrimShape[s + 3 + k]);
+                mPrimBounds[s + 3 + k] = max(mPrimShape[s + k], mPrimShape[s + 3 + k]);
+                mCentroids[c + k] = (mPrimBounds[s + k] + mPrimBounds[s + 3 + k]) * 0.5f;
+            }
+        }
+    }
+
+    /** Unions the bounds of a node's primitives, also finding the bounds of their centroids. */
+    private void computeNodeBounds(int node) {
+        final int b = node * BOUNDS_SIZE;
+        final int start = mNodeStart[node];
+        final int end = start + mNodeSize[node];
+        for (int k = 0; k < 3; k++) {
+            mNodeBounds[b + k] = Float.POSITIVE_INFINITY;
+            mNodeBounds[b + 3 + k] = Float.NEGATIVE_INFINITY;
+            mCentroidBounds[k] = Float.POSITIVE_INFINITY;
+            mCentroidBounds[3 + k] = Float.NEGATIVE_INFINITY;
+        }
+        for (int i = start; i < end; i++) {
+            final int prim = mOrder[i];
+            final int s = prim * BOUNDS_SIZE;
+            final int c = prim * 3;
+            for (int k = 0; k < 3; k++) {
+                mNodeBounds[b + k] = min(mNodeBounds[b + k], mPrimBounds[s + k]);
+                mNodeBounds[b + 3 + k] = max(mNodeBounds[b + 3 + k], mPrimBounds[s + 3 + k]);
+                mCentroidBounds[k] = min(mCentroidBounds[k], mCentroids[c + k]);
+                mCentroidBounds[3 + k] = max(mCentroidBounds[3 + k], mCentroids[c + k]);
+            }
+        }
+    }
+
+    /**
+     * Bins the primitives of a node by centroid along each axis and picks the split between
+     * bins with the lowest SAH cost, which is each side's surface area times its primitive
+     * count. Uses {@link #mCentroidBounds} from the last {@link #computeNodeBounds(int)}.
+     *
+     * @return true if a split was found, false if every centroid is in the same spot
+     */
+    private boolean findSplit(int start, int count) {
+        float bestCost = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; axis++) {
+            final float min = mCentroidBounds[axis];
+            final float extent = mCentroidBounds[3 + axis] - min;
+            if (extent <= 0f) {
+                continue;
+            }
+
+            final float scale = NUM_BINS / extent;
+            Arrays.fill(mBinCount, 0);
+            for (int bin = 0; bin < NUM_BINS; bin++) {
+                resetBounds(mBinBounds, bin * BOUNDS_SIZE);
+            }
+            for (int i = start; i < start + count; i++) {
+                final int prim = mOrder[i];
+                final int bin = Math.min(NUM_BINS - 1, (int)((mCentroids[prim * 3 + axis] - min) * scale));
+                mBinCount[bin]++;
+                growBounds(mBinBounds, bin * BOUNDS_SIZE, mPrimBounds, prim * BOUNDS_SIZE);
+            }
+
+            // Sweep from the right storing the cost of everything right of each split, then
+            // sweep from the left reusing one set of bounds for the left side
+            float right0 = Float.POSITIVE_INFINITY, right1 = right0, right2 = right0;
+            float right3 = Float.NEGATIVE_INFINITY, right4 = right3, right5 = right3;
+            int rightCount = 0;
+            for (int bin = NUM_BINS - 1; bin > 0; bin--) {
+                final int b = bin * BOUNDS_SIZE;
+                if (mBinCount[bin] > 0) {
+                    rightCount += mBinCount[bin];
+                    right0 = min(right0, mBinBounds[b]);
+                    right1 = min(right1, mBinBounds[b + 1]);
+                    right2 = min(right2, mBinBounds[b + 2]);
+                    right3 = max(right3, mBinBounds[b + 3]);
+                    right4 = max(right4, mBinBounds[b + 4]);
+                    right5 = max(right5, mBinBounds[b + 5]);
+                }
+                mRightCost[bin] = (rightCount == 0) ? 0f
+                        : rightCount * halfArea(right3 - right0, right4 - right1, right5 - right2);
+            }
+
+            float left0 = Float.POSITIVE_INFINITY, left1 = left0, left2 = left0;
+            float left3 = Float.NEGATIVE_INFINITY, left4 = left3, left5 = left3;
+            int leftCount = 0;
+            for (int bin = 0; bin < NUM_BINS - 1; bin++) {
+                final int b = bin * BOUNDS_SIZE;
+                if (mBinCount[bin] > 0) {
+                    leftCount += mBinCount[bin];
+                    left0 = min(left0, mBinBounds[b]);
+                    left1 = min(left1, mBinBounds[b + 1]);
+                    left2 = min(left2, mBinBounds[b + 2]);
+                    left3 = max(left3, mBinBounds[b + 3]);
+                    left4 = max(left4, mBinBounds[b + 4]);
+                    left5 = max(left5, mBinBounds[b + 5]);
+                }
+                if (leftCount == 0 || leftCount == count) {
+                    continue;
+                }
+
+                final float cost = leftCount * halfArea(left3 - left0, left4 - left1, left5 - left2)
+                        + mRightCost[bin + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    mSplitAxis = axis;
+                    mSplitBin = bin;
+                }
+            }
+        }
+        return bestCost != Float.POSITIVE_INFINITY;
+    }
+
+    /** Moves primitives left of the chosen split to the front of the range. */
+    private int partition(int start, int count) {
+        final int axis = mSplitAxis;
+        final float min = mCentroidBounds[axis];
+        final float scale = NUM_BINS / (mCentroidBounds[3 + axis] - min);
+        int i = start;
+        int j = start + count - 1;
+        while (i <= j) {
+            final int prim = mOrder[i];
+            final int bin = Math.min(NUM_BINS - 1, (int)((mCentroids[prim * 3 + axis] - min) * scale));
+            if (bin <= mSplitBin) {
+                i++;
+            } else {
+                mOrder[i] = mOrder[j];
+                mOrder[j--] = prim;
+            }
+        }
+        return i;
+    }
+
+    private void beginQuery(float[] ray, int rayOff) {
+        if (mNeedsBuild) {
+            throw new IllegalStateException("BVH must be built before it can be queried!");
+        }
+        mOx = ray[rayOff];
+        mOy = ray[rayOff + 1];
+        mOz = ray[rayOff + 2];
+        mDx = ray[rayOff + 3];
+        mDy = ray[rayOff + 4];
+        mDz = ray[rayOff + 5];
+        mInvX = 1f / mDx;
+        mInvY = 1f / mDy;
+        mInvZ = 1f / mDz;
+    }
+
+    /** @return the distance at which the ray enters a node, or positive infinity if it misses */
+    private float intersectNode(int node) {
+        return intersectBounds(mNodeBounds, node * BOUNDS_SIZE);
+    }
+
+    /** @return the distance at which the ray hits a primitive, or positive infinity if it misses */
+    private float intersectPrimitive(int prim) {
+        final int s = prim * BOUNDS_SIZE;
+        if (mPrimType[prim] == TYPE_BOX) {
+            return intersectBounds(mPrimBounds, s);
+        }
+
+        // Solve |o + t*d - c|^2 = r^2 for the smallest t that isn't behind the ray
+        final float ocx = mOx - mPrimShape[s];
+        final float ocy = mOy - mPrimShape[s + 1];
+        final float ocz = mOz - mPrimShape[s + 2];
+        final float r = mPrimShape[s + 3];
+        final float a = (mDx * mDx) + (mDy * mDy) + (mDz * mDz);
+        final float b = (ocx * mDx) + (ocy * mDy) + (ocz * mDz);
+        final float c = (ocx * ocx) + (ocy * ocy) + (ocz * ocz) - (r * r);
+        final float discriminant = (b * b) - (a * c);
+        if (discriminant < 0f || a == 0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+
+        final float root = (float)Math.sqrt(discriminant);
+        final float t = (-b - root) / a;
+        if (t >= 0f) {
+            return t;
+        }
+        // The ray starts inside the sphere, unless the whole sphere is behind it
+        return ((-b + root) / a >= 0f) ? 0f : Float.POSITIVE_INFINITY;
+    }
+
+    /** Slab test of the ray against bounds, clamping the entry distance to the ray's start. */
+    private float intersectBounds(float[] bounds, int off) {
+        final float x0 = (bounds[off] - mOx) * mInvX;
+        final float x1 = (bounds[off + 3] - mOx) * mInvX;
+        final float y0 = (bounds[off + 1] - mOy) * mInvY;
+        final float y1 = (bounds[off + 4] - mOy) * mInvY;
+        final float z0 = (bounds[off + 2] - mOz) * mInvZ;
+        final float z1 = (bounds[off + 5] - mOz) * mInvZ;
+
+        final float near = max(max(min(x0, x1), min(y0, y1)), min(z0, z1));
+        final float far = min(min(max(x0, x1), max(y0, y1)), max(z0, z1));
+        if (far < 0f || near > far) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return max(near, 0f);
+    }
+
+    private static void resetBounds(float[] bounds, int off) {
+        bounds[off] = bounds[off + 1] = bounds[off + 2] = Float.POSITIVE_INFINITY;
+        bounds[off + 3] = bounds[off + 4] = bounds[off + 5] = Float.NEGATIVE_INFINITY;
+    }
+
+    private static void growBounds(float[] bounds, int off, float[] other, int otherOff) {
+        for (int k = 0; k < 3; k++) {
+            bounds[off + k] = min(bounds[off + k], other[otherOff + k]);
+            bounds[off + 3 + k] = max(bounds[off + 3 + k], other[otherOff + 3 + k]);
+        }
+    }
+
+    /* Unlike Math.min and Math.max, these skip the NaN and negative zero checks */
+    private static float min(float a, float b) {
+        return (a < b) ? a : b;
+    }
+
+    private static float max(float a, float b) {
+        return (a > b) ? a : b;
+    }
+
+    /** Half the surface area of a box, which is all the SAH needs since only ratios matter. */
+    private static float halfArea(float dx, float dy, float dz) {
+        return (dx * dy) + (dy * dz) + (dz * dx);
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.sprites;
+
+import com.tylersuehr.enginej.EngineUtils;
+import com.tylersuehr.enginej.buffers.DynamicVertexBuffer;
+import com.tylersuehr.enginej.buffers.GPUIndexBuffer;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.nio.ByteOrder;
+
+/**
+ * Batches textured, colored quads into a single streaming vertex buffer so that a run of
+ * sprites sharing a shader and texture can be drawn with one glDrawElements call.
+ *
+ * Usage, once per shader run:
+ * <pre>
+ *     program.useProgram();
+ *     // ...set uniforms, like the projection matrix and texture unit...
+ *     batch.begin(aPositionLoc, aTextureCoordLoc, aColorLoc);
+ *     batch.draw(textureId, x, y, width, height);
+ *     ...
+ *     batch.end();
+ * </pre>
+ *
+ * The batch is flushed automatically whenever the texture changes or the batch is full.
+ * Each vertex is 20 bytes: position (2 floats), texture coordinates (2 floats) and an RGBA
+ * color packed into 4 normalized unsigned bytes. Index data is shared by every quad, so it
+ * is generated once and can be shared between batches.
+ *
+ * Flushes are streamed into a {@link DynamicVertexBuffer} that holds several full batches, so
+ * most flushes append to it and only a full ring orphans the storage.
+ *
+ * @author Tyler Suehr
+ */
+public class SpriteBatch {
+    /** The most sprites a batch can hold, since every vertex must be addressable by an unsigned short. */
+    public static final int MAX_SPRITES = 16384;
+
+    private static final int VERTICES_PER_SPRITE = 4;
+    private static final int INDICES_PER_SPRITE = 6;
+    private static final int INTS_PER_VERTEX = 5; // x, y, u, v, color
+    private static final int INTS_PER_SPRITE = VERTICES_PER_SPRITE * INTS_PER_VERTEX;
+    private static final int STRIDE = INTS_PER_VERTEX * EngineUtils.BYTES_PER_FLOAT;
+    private static final int TEXTURE_COORD_OFFSET = 2 * EngineUtils.BYTES_PER_FLOAT;
+    private static final int COLOR_OFFSET = 4 * EngineUtils.BYTES_PER_FLOAT;
+    private static final int RING_BATCHES = 4;
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    /** Opaque white, which leaves the texture colors untouched. */
+    public static final int WHITE = packColor(1f, 1f, 1f, 1f);
+
+    private final int mMaxSprites;
+    private final DynamicVertexBuffer mBuffer;
+    private final GPUIndexBuffer mIndexBuffer;
+    private final boolean mOwnsIndexBuffer;
+
+    /* Staging memory; floats are stored as their raw bits so colors can share the array */
+    private final int[] mVertexData;
+
+    private int mSpriteCount = 0;
+    private int mCurrentTexture = 0;
+    private boolean mDrawing = false;
+    private int mPositionLoc;
+    private int mTextureCoordLoc;
+    private int mColorLoc;
+
+    /* Statistics since the last call to resetStats() */
+    private int mDrawCalls = 0;
+    private int mSpritesDrawn = 0;
+
+
+    /** Constructs with the number of sprites to hold before a flush is forced. */
+    public SpriteBatch(int maxSprites) {
+        this(maxSprites, null);
+    }
+
+    /**
+     * Constructs with the number of sprites to hold before a flush is forced and the quad
+     * index buffer to use, which can be shared between batches.
+     *
+     * @param maxSprites the number of sprites to hold, at most {@link #MAX_SPRITES}
+     * @param sharedQuadIndices indices from {@link #createQuadIndexBuffer(int)} for at least
+     *                          maxSprites quads, or null to create one for this batch
+     * @throws IllegalArgumentException if the shared indices are too few or not unsigned shorts
+     */
+    public SpriteBatch(int maxSprites, GPUIndexBuffer sharedQuadIndices) {
+        if (maxSprites < 1 || maxSprites > MAX_SPRITES) {
+            throw new IllegalArgumentException("Sprite batch size must be within 1 and " + MAX_SPRITES + "!");
+        }
+        if (sharedQuadIndices != null) {
+            if (sharedQuadIndices.getIndexCount() < maxSprites * INDICES_PER_SPRITE) {
+                throw new IllegalArgumentException("Shared quad indices must cover " + maxSprites + " sprites!");
+            }
+            if (sharedQuadIndices.getIndexType() != GL.GL_UNSIGNED_SHORT) {
+                throw new IllegalArgumentException("Shared quad indices must be unsigned shorts!");
+            }
+        }
+        mMaxSprites = maxSprites;
+        mOwnsIndexBuffer = (sharedQuadIndices == null);
+        mIndexBuffer = mOwnsIndexBuffer ? createQuadIndexBuffer(maxSprites) : sharedQuadIndices;
+
+        mVertexData = new int[maxSprites * INTS_PER_SPRITE];
+        mBuffer = new DynamicVertexBuffer(mVertexData.length * EngineUtils.BYTES_PER_INT * RING_BATCHES,
+                1, GL.GL_STREAM_DRAW);
+    }
+
+    /**
+     * Creates the index data for a list of quads, two triangles per quad.
+     *
+     * @param numQuads the number of quads
+     * @return the index data
+     */
+    public static short[] createQuadIndices(int numQuads) {
+        final short[] indices = new short[numQuads * INDICES_PER_SPRITE];
+        for (int i = 0, vertex = 0; i < indices.length; i += INDICES_PER_SPRITE, vertex += VERTICES_PER_SPRITE) {
+            indices[i]     = (short)vertex;
+            indices[i + 1] = (short)(vertex + 1);
+            indices[i + 2] = (short)(vertex + 2);
+            indices[i + 3] = (short)(vertex + 2);
+            indices[i + 4] = (short)(vertex + 3);
+            indices[i + 5] = (short)vertex;
+        }
+        return indices;
+    }
+
+    /**
+     * Creates a GPU index buffer for a list of quads, which can be shared by many batches.
+     *
+     * @param numQuads the number of quads
+     * @return the GPU index buffer
+     */
+    public static GPUIndexBuffer createQuadIndexBuffer(int numQuads) {
+        return new GPUIndexBuffer(createQuadIndices(numQuads));
+    }
+
+    /**
+     * Packs a color into the 4 normalized unsigned bytes used by the batch vertices.
+     *
+     * @param r the red component [0, 1]
+     * @param g the green component [0, 1]
+     * @param b the blue component [0, 1]
+     * @param a the alpha component [0, 1]
+     * @return the packed color
+     */
+    public static int packColor(float r, float g, float b, float a) {
+        final int ri = (int)(r * 255f + 0.5f) & 0xFF;
+        final int gi = (int)(g * 255f + 0.5f) & 0xFF;
+        final int bi = (int)(b * 255f + 0.5f) & 0xFF;
+        final int ai = (int)(a * 255f + 0.5f) & 0xFF;
+
+        // Bytes must land in memory as R, G, B, A
+        return LITTLE_ENDIAN
+                ? (ai << 24) | (bi << 16) | (gi << 8) | ri
+                : (ri << 24) | (gi << 16) | (bi << 8) | ai;
+    }
+
+    /**
+     * Starts a run of sprites. The shader program must already be in use.
+     *
+     * @param positionAttrLoc the location of the vec2 position attribute
+     * @param textureCoordAttrLoc the location of the vec2 texture coordinate attribute
+     * @param colorAttrLoc the location of the vec4 color attribute, or -1 if unused
+     */
+    public void begin(int positionAttrLoc, int textureCoordAttrLoc, int colorAttrLoc) {
+        if (mDrawing) {
+            throw new IllegalStateException("SpriteBatch.end() must be called before begin()!");
+        }
+        mDrawing = true;
+        mPositionLoc = positionAttrLoc;
+        mTextureCoordLoc = textureCoordAttrLoc;
+        mColorLoc = colorAttrLoc;
+        mCurrentTexture = 0;
+    }
+
+    /**
+     * Adds a sprite using the whole texture and no tint.
+     *
+     * @param textureId the pointer to the OpenGL ES texture object
+     * @param x the x-coordinate of the bottom-left corner
+     * @param y the y-coordinate of the bottom-left corner
+     * @param width the width of the sprite
+     * @param height the height of the sprite
+     */
+    public void draw(int textureId, float x, float y, float width, float height) {
+        draw(textureId, x, y, width, height, 0f, 1f, 1f, 0f, WHITE);
+    }
+
+    /**
+     * Adds an axis-aligned sprite.
+     *
+     * @param textureId the pointer to the OpenGL ES texture object
+     * @param x the x-coordinate of the bottom-left corner
+     * @param y the y-coordinate of the bottom-left corner
+     * @param width the width of the sprite
+     * @param height the height of the sprite
+     * @param u0 the u texture coordinate at the left edge
+     * @param v0 the v texture coordinate at the bottom edge
+     * @param u1 the u texture coordinate at the right edge
+     * @param v1 the v texture coordinate at the top edge
+     * @param color the tint, see {@link #packColor(float, float, float, float)}
+     */
+    public void draw(int textureId, float x, float y, float width, float height,
+                     float u0, float v0, float u1, float v1, int color) {
+        final int i = prepare(textureId);
+        final float x1 = x + width;
+        final float y1 = y + height;
+        putVertex(i, x, y, u0, v0, color);
+        putVertex(i + INTS_PER_VERTEX, x1, y, u1, v0, color);
+        putVertex(i + INTS_PER_VERTEX * 2, x1, y1, u1, v1, color);
+        putVertex(i + INTS_PER_VERTEX * 3, x, y1, u0, v1, color);
+    }
+
+    /**
+     * Adds a sprite that is scaled and rotated around an origin.
+     *
+     * @param textureId the pointer to the OpenGL ES texture object
+     * @param x the x-coordinate of the origin
+     * @param y the y-coordinate of the origin
+     * @param originX the origin's offset from the sprite's left edge
+     * @param originY the origin's offset from the sprite's bottom edge
+     * @param width the width of the sprite
+     * @param height the height of the sprite
+     * @param scale the uniform scale applied around the origin
+     * @param rotationInDegrees the counter-clockwise rotation around the origin
+     * @param u0 the u texture coordinate at the left edge
+     * @param v0 the v texture coordinate at the bottom edge
+     * @param u1 the u texture coordinate at the right edge
+     * @param v1 the v texture coordinate at the top edge
+     * @param color the tint, see {@link #packColor(float, float, float, float)}
+     */
+    public void draw(int textureId, float x, float y, float originX, float originY,
+                     float width, float height, float scale, float rotationInDegrees,
+                     float u0, float v0, float u1, float v1, int color) {
+        final int i = prepare(textureId);
+
+        // Corners relative to the origin
+        final float left = -originX * scale;
+        final float bottom = -originY * scale;
+        final float right = (width - originX) * scale;
+        final float top = (height - originY) * scale;
+
+        final double angle = Math.toRadians(rotationInDegrees);
+        final float cos = (float)Math.cos(angle);
+        final float sin = (float)Math.sin(angle);
+
+        putVertex(i, x + left * cos - bottom * sin, y + left * sin + bottom * cos, u0, v0, color);
+        putVertex(i + INTS_PER_VERTEX, x + right * cos - bottom * sin, y + right * sin + bottom * cos, u1, v0, color);
+        putVertex(i + INTS_PER_VERTEX * 2, x + right * cos - top * sin, y + right * sin + top * cos, u1, v1, color);
+        putVertex(i + INTS_PER_VERTEX * 3, x + left * cos - top * sin, y + left * sin + top * cos, u0, v1, color);
+    }
+
+    /**
+     * Draws all sprites collected so far with a single draw call.
+     */
+    public void flush() {
+        if (mSpriteCount == 0) {
+            return;
+        }
+
+        // Append the staged vertices to the ring and upload just them
+        final int numInts = mSpriteCount * INTS_PER_SPRITE;
+        final int offset = mBuffer.allocate(numInts * EngineUtils.BYTES_PER_INT);
+        mBuffer.put(offset, mVertexData, 0, numInts);
+        mBuffer.flush();
+
+        mBuffer.setVertexAttr(offset, mPositionLoc, 2, STRIDE);
+        mBuffer.setVertexAttr(offset + TEXTURE_COORD_OFFSET, mTextureCoordLoc, 2, STRIDE);
+        if (mColorLoc >= 0) {
+            mBuffer.setVertexAttr(offset + COLOR_OFFSET, mColorLoc, 4, GL.GL_UNSIGNED_BYTE, true, STRIDE);
+        }
+
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, mCurrentTexture);
+        mIndexBuffer.bind();
+        GL.glDrawElements(GL.GL_TRIANGLES, mSpriteCount * INDICES_PER_SPRITE, GL.GL_UNSIGNED_SHORT, 0);
+        Profiler.countDraw(mSpriteCount * INDICES_PER_SPRITE);
+
+        mDrawCalls++;
+        mSpritesDrawn += mSpriteCount;
+        mSpriteCount = 0;
+    }
+
+    /**
+     * Ends the current run of sprites, drawing anything still collected.
+     */
+    public void end() {
+        if (!mDrawing) {
+            throw new IllegalStateException("SpriteBatch.begin() must be called before end()!");
+        }
+        flush();
+        mDrawing = false;
+    }
+
+    /**
+     * Deletes the GPU buffers owned by this batch. The batch cannot be used afterwards.
+     */
+    public void release() {
+        mBuffer.release();
+        if (mOwnsIndexBuffer) {
+            GLStateCache.deleteBuffer(mIndexBuffer.getBufferId());
+        }
+    }
+
+    public int getDrawCallCount() {
+        return mDrawCalls;
+    }
+
+    public int getSpritesDrawnCount() {
+        return mSpritesDrawn;
+    }
+
+    public void resetStats() {
+        mDrawCalls = 0;
+        mSpritesDrawn = 0;
+    }
+
+    /**
+     * Makes room for a sprite using the provided texture, flushing if the texture changed
+     * or the batch is full.
+     *
+     * @return the offset of the sprite's first vertex in the staging array
+     */
+    private int prepare(int textureId) {
+        if (!mDrawing) {
+            throw new IllegalStateException("SpriteBatch.begin() must be called before draw()!");
+        }
+        if (textureId != mCurrentTexture) {
+            flush();
+            mCurrentTexture = textureId;
+        } else if (mSpriteCount == mMaxSprites) {
+            flush();
+        }
+        return (mSpriteCount++) * INTS_PER_SPRITE;
+    }
+
+    private void putVertex(int i, float x, float y, float u, float v, int color) {
+        final int[] data = mVertexData;
+        data[i]     = Float.floatToRawIntBits(x);
+        data[i + 1] = Float.floatToRawIntBits(y);
+        data[i + 2] = Float.floatToRawIntBits(u);
+        data[i + 3] = Float.floatToRawIntBits(v);
+        data[i + 4] = color;
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.DrawableRes;
+import android.util.Log;
+
+import com.tylersuehr.enginej.TextureUtils;
+import com.tylersuehr.enginej.gl.GLStateCache;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads textures without stalling the GL thread.
+ *
+ * {@link TextureUtils#loadTexture(Context, int, boolean)} decodes and uploads on the calling
+ * thread, which is fine for a handful of textures but stalls rendering during level loads.
+ * This decodes Bitmaps on a small pool of background threads instead, highest priority first,
+ * and queues them for upload. The game then calls {@link #processUploads()} once per frame on
+ * the GL thread, which uploads as many textures as fit in the per-frame time and byte budget.
+ *
+ * Every request returns a {@link TextureHandle} straight away, which draws with a placeholder
+ * texture until the real one is uploaded.
+ *
+ * @author Tyler Suehr
+ */
+public final class AsyncTextureLoader {
+    private static final String TAG = "TEXTURE";
+
+    public static final int PRIORITY_LOW    = 0;
+    public static final int PRIORITY_NORMAL = 5;
+    public static final int PRIORITY_HIGH   = 10;
+
+    /* Highest priority first, then first come first served */
+    private static final Comparator<TextureHandle> ORDER = new Comparator<TextureHandle>() {
+        @Override
+        public int compare(TextureHandle a, TextureHandle b) {
+            if (a.mPriority != b.mPriority) {
+                return (a.mPriority > b.mPriority) ? -1 : 1;
+            }
+            return (a.mSequence < b.mSequence) ? -1 : (a.mSequence == b.mSequence) ? 0 : 1;
+        }
+    };
+
+    private final BitmapDecoder mDecoder;
+    private final ThreadPoolExecutor mExecutor;
+    private final PriorityBlockingQueue<TextureHandle> mReady = new PriorityBlockingQueue<>(16, ORDER);
+    private final Set<TextureHandle> mDecoding =
+            Collections.newSetFromMap(new ConcurrentHashMap<TextureHandle, Boolean>());
+    private boolean mShutdown = false; // Guarded by mReady
+    private long mSequence = 0;
+
+    private long mUploadBudgetNanos;
+    private long mUploadBudgetBytes;
+    private int mPlaceholderColor = 0xFFFFFFFF;
+    private int mPlaceholderTexture = 0;
+    private int mPlaceholderCubeMap = 0;
+
+
+    /**
+     * Constructs with one decoding thread per spare CPU core (at most 4), a 4ms upload budget
+     * and a 4MB upload budget per frame.
+     */
+    public AsyncTextureLoader(Context c) {
+        this(c, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+                TimeUnit.MILLISECONDS.toNanos(4), 4 * 1024 * 1024);
+    }
+
+    /**
+     * @param c {@link Context}
+     * @param decodeThreads the number of background threads decoding Bitmaps
+     * @param uploadBudgetNanos the most time to spend uploading in each {@link #processUploads()}
+     * @param uploadBudgetBytes the most pixel data to upload in each {@link #processUploads()}
+     */
+    public AsyncTextureLoader(Context c, int decodeThreads, long uploadBudgetNanos, long uploadBudgetBytes) {
+        this(new ResourceDecoder(c.getResources()), decodeThreads, uploadBudgetNanos, uploadBudgetBytes);
+    }
+
+    AsyncTextureLoader(BitmapDecoder decoder, int decodeThreads, long uploadBudgetNanos, long uploadBudgetBytes) {
+        mDecoder = decoder;
+        mUploadBudgetNanos = uploadBudgetNanos;
+        mUploadBudgetBytes = uploadBudgetBytes;
+
+        // Runnables are DecodeTasks, so the queue orders them by the handle's priority
+        mExecutor = new ThreadPoolExecutor(decodeThreads, decodeThreads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(16, new Comparator<Runnable>() {
+                    @Override
+                    public int compare(Runnable a, Runnable b) {
+                        return ORDER.compare(((DecodeTask)a).mHandle, ((DecodeTask)b).mHandle);
+                    }
+                }), new DecodeThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Requests a mipmapped 2D texture.
+     *
+     * @param textureResId the resource id of the texture to be loaded
+     * @param wrapSV true if texture should not be repeated
+     * @param priority higher priorities are decoded and uploaded first
+     * @return the handle, which uses the placeholder texture until loaded
+     */
+    public TextureHandle load(@DrawableRes int textureResId, boolean wrapSV, int priority) {
+        return enqueue(new int[] { textureResId }, wrapSV, priority);
+    }
+
+    /**
+     * Requests a cube map texture.
+     *
+     * @param textureResIds the resource ids of the faces in order: -X, +X, -Y, +Y, -Z, +Z
+     * @param priority higher priorities are decoded and uploaded first
+     * @return the handle, which uses the placeholder cube map until loaded
+     */
+    public TextureHandle loadCubeMap(int[] textureResIds, int priority) {
+        if (textureResIds.length != 6) {
+            throw new IllegalArgumentException("A cube map needs exactly 6 faces!");
+        }
+        return enqueue(textureResIds.clone(), false, priority);
+    }
+
+    /**
+     * Uploads decoded textures until the time or byte budget for this frame runs out. At least
+     * one texture is uploaded per call if any are ready, so loading always makes progress.
+     *
+     * Must be called on the GL thread, typically at the start of each frame.
+     *
+     * @return the number of textures uploaded
+     */
+    public int processUploads() {
+        final long start = System.nanoTime();
+        long bytes = 0;
+        int uploaded = 0;
+
+        TextureHandle handle;
+        while ((handle = mReady.poll()) != null) {
+            final Bitmap[] bitmaps = handle.mBitmaps;
+            handle.mBitmaps = null;
+
+            if (handle.mState.get() == TextureHandle.STATE_DECODED) {
+                final int texture = handle.isCubeMap()
+                        ? TextureUtils.createCubeMap(bitmaps)
+                        : TextureUtils.createTexture(bitmaps[0], handle.mWrapSV);
+                handle.onUploaded(texture, bitmaps[0].getWidth(), bitmaps[0].getHeight());
+
+                final int newState = (texture != 0) ? TextureHandle.STATE_LOADED : TextureHandle.STATE_FAILED;
+                if (!handle.mState.compareAndSet(TextureHandle.STATE_DECODED, newState) && texture != 0) {
+                    // Cancelled from another thread while uploading
+                    GLStateCache.deleteTexture(texture);
+                }
+                for (Bitmap bmp : bitmaps) {
+                    bytes += bmp.getByteCount();
+                }
+                uploaded++;
+            }
+            recycle(bitmaps);
+
+            if (bytes >= mUploadBudgetBytes || System.nanoTime() - start >= mUploadBudgetNanos) {
+                break;
+            }
+        }
+        return uploaded;
+    }
+
+    /**
+     * Stops a texture from loading, if it hasn't finished already. Safe to call from any
+     * thread.
+     *
+     * @param handle the handle to cancel
+     */
+    public void cancel(TextureHandle handle) {
+        while (true) {
+            final int state = handle.mState.get();
+            if (state == TextureHandle.STATE_LOADED || state == TextureHandle.STATE_FAILED
+                    || state == TextureHandle.STATE_CANCELLED) {
+                return;
+            }
+            if (handle.mState.compareAndSet(state, TextureHandle.STATE_CANCELLED)) {
+                break;
+            }
+        }
+
+        // Bitmaps still waiting for upload are recycled by processUploads()
+        mExecutor.remove(new DecodeTask(handle));
+    }
+
+    /**
+     * Cancels a texture if still loading, or deletes it if loaded. Must be called on the GL
+     * thread.
+     *
+     * @param handle the handle to release
+     */
+    public void release(TextureHandle handle) {
+        cancel(handle);
+        if (handle.mState.compareAndSet(TextureHandle.STATE_LOADED, TextureHandle.STATE_CANCELLED)) {
+            GLStateCache.deleteTexture(handle.getUploadedTextureId());
+        }
+    }
+
+    /**
+     * Gets the texture drawn in place of textures that haven't loaded yet, creating it if
+     * needed. Must be called on the GL thread.
+     *
+     * @return the pointer to the OpenGL ES placeholder texture object
+     */
+    public int getPlaceholderTexture() {
+        if (mPlaceholderTexture == 0) {
+            mPlaceholderTexture = TextureUtils.createSolidTexture(mPlaceholderColor);
+        }
+        return mPlaceholderTexture;
+    }
+
+    /**
+     * Gets the cube map drawn in place of cube maps that haven't loaded yet, creating it if
+     * needed. A 2D placeholder can't stand in, as a texture object is only ever bound to the
+     * target it was created for. Must be called on the GL thread.
+     *
+     * @return the pointer to the OpenGL ES placeholder cube map texture object
+     */
+    public int getPlaceholderCubeMap() {
+        if (mPlaceholderCubeMap == 0) {
+            mPlaceholderCubeMap = TextureUtils.createSolidCubeMap(mPlaceholderColor);
+        }
+        return mPlaceholderCubeMap;
+    }
+
+    /**
+     * Sets the color of the placeholder texture. Must be called on the GL thread.
+     * @param argb the color, packed as 0xAARRGGBB
+     */
+    public void setPlaceholderColor(int argb) {
+        if (mPlaceholderColor != argb) {
+            deletePlaceholders();
+        }
+        mPlaceholderColor = argb;
+    }
+
+    public void setUploadBudget(long nanos, long bytes) {
+        mUploadBudgetNanos = nanos;
+        mUploadBudgetBytes = bytes;
+    }
+
+    /** Gets the number of decoded textures waiting to be uploaded. */
+    public int getPendingUploadCount() {
+        return mReady.size();
+    }
+
+    /** Gets the number of textures waiting to be decoded. */
+    public int getPendingDecodeCount() {
+        return mExecutor.getQueue().size();
+    }
+
+    /**
+     * Stops the decoding threads and drops everything not yet uploaded, cancelling the
+     * handles of textures still waiting to be decoded or being decoded. Loaded textures are
+     * kept. Must be called on the GL thread.
+     */
+    public void shutdown() {
+        // Tasks that never started would otherwise leave their handles queued forever
+        for (Runnable task : mExecutor.shutdownNow()) {
+            ((DecodeTask)task).mHandle.mState.compareAndSet(
+                    TextureHandle.STATE_QUEUED, TextureHandle.STATE_CANCELLED);
+        }
+        synchronized (mReady) {
+            mShutdown = true;
+
+            // A decode still running sees the cancel and recycles its own Bitmaps
+            for (TextureHandle handle : mDecoding) {
+                handle.mState.compareAndSet(TextureHandle.STATE_DECODING, TextureHandle.STATE_CANCELLED);
+            }
+            TextureHandle handle;
+            while ((handle = mReady.poll()) != null) {
+                handle.mState.compareAndSet(TextureHandle.STATE_DECODED, TextureHandle.STATE_CANCELLED);
+                recycle(handle.mBitmaps);
+                handle.mBitmaps = null;
+            }
+        }
+        deletePlaceholders();
+    }
+
+    private void deletePlaceholders() {
+        if (mPlaceholderTexture != 0) {
+            GLStateCache.deleteTexture(mPlaceholderTexture);
+            mPlaceholderTexture = 0;
+        }
+        if (mPlaceholderCubeMap != 0) {
+            GLStateCache.deleteTexture(mPlaceholderCubeMap);
+            mPlaceholderCubeMap = 0;
+        }
+    }
+
+    private synchronized TextureHandle enqueue(int[] resIds, boolean wrapSV, int priority) {
+        final TextureHandle handle = new TextureHandle(this, resIds, wrapSV, priority, mSequence++);
+        mExecutor.execute(new DecodeTask(handle));
+        return handle;
+    }
+
+    private void decode(TextureHandle handle) {
+        if (!handle.mState.compareAndSet(TextureHandle.STATE_QUEUED, TextureHandle.STATE_DECODING)) {
+            return;
+        }
+        mDecoding.add(handle);
+        try {
+            decodeBitmaps(handle);
+        } finally {
+            mDecoding.remove(handle);
+        }
+    }
+
+    private void decodeBitmaps(TextureHandle handle) {
+        final Bitmap[] bitmaps = new Bitmap[handle.mResIds.length];
+        for (int i = 0; i < bitmaps.length; i++) {
+            bitmaps[i] = mDecoder.decode(handle.mResIds[i]);
+            if (bitmaps[i] == null || handle.mState.get() != TextureHandle.STATE_DECODING) {
+                if (bitmaps[i] == null) {
+                    Log.wtf(TAG, "Bitmap resource could not be decoded!");
+                    handle.mState.compareAndSet(TextureHandle.STATE_DECODING, TextureHandle.STATE_FAILED);
+                }
+                recycle(bitmaps);
+                return;
+            }
+        }
+
+        // Published under the same lock shutdown() drains with, so nothing lands after it
+        synchronized (mReady) {
+            if (mShutdown) {
+                handle.mState.compareAndSet(TextureHandle.STATE_DECODING, TextureHandle.STATE_CANCELLED);
+            }
+            if (handle.mState.compareAndSet(TextureHandle.STATE_DECODING, TextureHandle.STATE_DECODED)) {
+                handle.mBitmaps = bitmaps;
+                mReady.add(handle);
+                return;
+            }
+        }
+        recycle(bitmaps);
+    }
+
+    private static void recycle(Bitmap[] bitmaps) {
+        if (bitmaps != null) {
+            for (Bitmap bmp : bitmaps) {
+                if (bmp != null) {
+                    bmp.recycle();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Decodes one Bitmap on a background thread.
+     */
+    interface BitmapDecoder {
+        /** @return the decoded Bitmap, or null if it couldn't be decoded */
+        Bitmap decode(int resId);
+    }
+
+
+    /**
+     * Decodes Bitmaps from drawable resources, unscaled.
+     */
+    private static final class ResourceDecoder implements BitmapDecoder {
+        private final Resources mResources;
+
+        ResourceDecoder(Resources resources) {
+            mResources = resources;
+        }
+
+        @Override
+        public Bitmap decode(int resId) {
+            final BitmapFactory.Options ops = new BitmapFactory.Options();
+            ops.inScaled = false;
+            return BitmapFactory.decodeResource(mResources, resId, ops);
+        }
+    }
+
+
+    /**
+     * Decodes the Bitmaps of one texture. Equal to any other task for the same handle, so a
+     * queued task can be removed when its handle is cancelled.
+     */
+    private final class DecodeTask implements Runnable {
+        final TextureHandle mHandle;
+
+        DecodeTask(TextureHandle handle) {
+            mHandle = handle;
+        }
+
+        @Override
+        public void run() {
+            decode(mHandle);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof DecodeTask && ((DecodeTask)obj).mHandle == mHandle;
+        }
+
+        @Override
+        public int hashCode() {
+            return mHandle.hashCode();
+        }
+    }
+
+
+    /**
+     * Creates low priority daemon threads, so decoding doesn't compete with the GL thread.
+     */
+    private static final class DecodeThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "TextureDecode-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Lays out a set of images across one or more power-of-two atlas pages.
+ *
+ * Each image is surrounded by a gutter, which {@link #blit(int[], int, int[], int, int, int, int, int)}
+ * fills by extruding the image's edge pixels. Without it, bilinear filtering and the smaller
+ * mip levels would blend in pixels from neighbouring images. Padding adds transparent space
+ * between the gutters of neighbouring images on top of that.
+ *
+ * Images are placed largest first with {@link MaxRectsPacker}, trying each page in turn before
+ * starting a new one. Each page is then shrunk to the smallest power-of-two size that still
+ * fits what was placed on it.
+ *
+ * This is pure Java, so it can be tested and benchmarked on a desktop JVM.
+ *
+ * @author Tyler Suehr
+ */
+public final class AtlasLayout {
+    private final int mGutter;
+    private final int[] mPages;
+    private final int[] mX;
+    private final int[] mY;
+    private final int[] mWidths;
+    private final int[] mHeights;
+    private final int[] mPageWidths;
+    private final int[] mPageHeights;
+
+
+    private AtlasLayout(int count, int gutter, int pageCount) {
+        mGutter = gutter;
+        mPages = new int[count];
+        mX = new int[count];
+        mY = new int[count];
+        mWidths = new int[count];
+        mHeights = new int[count];
+        mPageWidths = new int[pageCount];
+        mPageHeights = new int[pageCount];
+    }
+
+    /**
+     * Computes the layout for a set of images.
+     *
+     * @param widths the width of each image
+     * @param heights the height of each image
+     * @param maxPageSize the largest page width and height, which must be a power of two
+     * @param padding the empty space between neighbouring images' gutters
+     * @param gutter the extruded border around each image
+     * @return the layout
+     * @throws IllegalArgumentException if an image can't fit on a page
+     */
+    public static AtlasLayout compute(final int[] widths, final int[] heights,
+                                      int maxPageSize, int padding, int gutter) {
+        final int count = widths.length;
+        final int border = 2 * gutter + padding;
+
+        // Place the largest images first; they are the hardest to fit later
+        final Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            if (widths[i] + 2 * gutter > maxPageSize || heights[i] + 2 * gutter > maxPageSize) {
+                throw new IllegalArgumentException("Image " + i + " is too large for an atlas page!");
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                final int sideA = Math.max(widths[a], heights[a]);
+                final int sideB = Math.max(widths[b], heights[b]);
+                if (sideA != sideB) {
+                    return (sideA > sideB) ? -1 : 1;
+                }
+                final int areaA = widths[a] * heights[a];
+                final int areaB = widths[b] * heights[b];
+                return (areaA > areaB) ? -1 : (areaA == areaB) ? 0 : 1;
+            }
+        });
+
+        // The padding after the last image on each side may hang off the page
+        final List<MaxRectsPacker> pages = new ArrayList<>();
+        final int[] pageOf = new int[count];
+        final int[] xy = new int[count * 2];
+        for (Integer index : order) {
+            final int w = widths[index] + border;
+            final int h = heights[index] + border;
+            int page = 0;
+            while (page < pages.size() && !pages.get(page).insert(w, h, xy, index * 2)) {
+                page++;
+            }
+            if (page == pages.size()) {
+                final MaxRectsPacker packer = new MaxRectsPacker(maxPageSize + padding, maxPageSize + padding);
+                packer.insert(w, h, xy, index * 2);
+                pages.add(packer);
+            }
+            pageOf[index] = page;
+        }
+
+        final AtlasLayout layout = new AtlasLayout(count, gutter, pages.size());
+        for (int p = 0; p < pages.size(); p++) {
+            final MaxRectsPacker packer = pages.get(p);
+            layout.mPageWidths[p] = nextPowerOfTwo(Math.max(1, packer.getUsedRight() - padding));
+            layout.mPageHeights[p] = nextPowerOfTwo(Math.max(1, packer.getUsedBottom() - padding));
+        }
+        for (int i = 0; i < count; i++) {
+            layout.mPages[i] = pageOf[i];
+            layout.mX[i] = xy[i * 2] + gutter;
+            layout.mY[i] = xy[i * 2 + 1] + gutter;
+            layout.mWidths[i] = widths[i];
+            layout.mHeights[i] = heights[i];
+        }
+        return layout;
+    }
+
+    /**
+     * Copies an image into a page at a given position, filling its gutter by extruding the
+     * image's edge pixels outward.
+     *
+     * @param page the page pixels, row by row
+     * @param pageWidth the width of the page
+     * @param image the image pixels, row by row
+     * @param imageWidth the width of the image
+     * @param imageHeight the height of the image
+     * @param x the left edge of the image (not its gutter) on the page
+     * @param y the top edge of the image (not its gutter) on the page
+     * @param gutter the width of the gutter
+     */
+    public static void blit(int[] page, int pageWidth, int[] image, int imageWidth, int imageHeight,
+                            int x, int y, int gutter) {
+        for (int row = -gutter; row < imageHeight + gutter; row++) {
+            final int srcRow = Math.min(Math.max(row, 0), imageHeight - 1) * imageWidth;
+            final int dst = (y + row) * pageWidth + x;
+            System.arraycopy(image, srcRow, page, dst, imageWidth);
+            final int left = image[srcRow];
+            final int right = image[srcRow + imageWidth - 1];
+            for (int g = 1; g <= gutter; g++) {
+                page[dst - g] = left;
+                page[dst + imageWidth - 1 + g] = right;
+            }
+        }
+    }
+
+    public int getImageCount() {
+        return mPages.length;
+    }
+
+    public int getPageCount() {
+        return mPageWidths.length;
+    }
+
+    public int getPageWidth(int page) {
+        return mPageWidths[page];
+    }
+
+    public int getPageHeight(int page) {
+        return mPageHeights[page];
+    }
+
+    public int getGutter() {
+        return mGutter;
+    }
+
+    /** Gets the page an image was placed on. */
+    public int getPage(int image) {
+        return mPages[image];
+    }
+
+    /** Gets the left edge of an image (not its gutter) on its page. */
+    public int getX(int image) {
+        return mX[image];
+    }
+
+    /** Gets the top edge of an image (not its gutter) on its page. */
+    public int getY(int image) {
+        return mY[image];
+    }
+
+    /**
+     * Gets where an image ended up, including its texture coordinates.
+     * @param image the index of the image
+     * @return a new region
+     */
+    public AtlasRegion getRegion(int image) {
+        final int page = mPages[image];
+        return new AtlasRegion(page, mX[image], mY[image], mWidths[image], mHeights[image],
+                mPageWidths[page], mPageHeights[page]);
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        // highestOneBit(0) is 0, so 1 needs handling on its own
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+}
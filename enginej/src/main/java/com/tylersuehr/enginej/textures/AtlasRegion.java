@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+/**
+ * Where one image ended up in a texture atlas: which page, and its texture coordinates on
+ * that page. The coordinates cover only the image itself, not its padding or gutter.
+ *
+ * @author Tyler Suehr
+ */
+public final class AtlasRegion {
+    public final int page;
+    public final int x;
+    public final int y;
+    public final int width;
+    public final int height;
+    public final float u0;
+    public final float v0;
+    public final float u1;
+    public final float v1;
+
+
+    public AtlasRegion(int page, int x, int y, int width, int height, int pageWidth, int pageHeight) {
+        this.page = page;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.u0 = (float)x / pageWidth;
+        this.v0 = (float)y / pageHeight;
+        this.u1 = (float)(x + width) / pageWidth;
+        this.v1 = (float)(y + height) / pageHeight;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A block-compressed image and its mip levels, as parsed from a .pkm or .ktx container by
+ * {@link PkmParser} or {@link KtxParser}.
+ *
+ * Each level's data is a view into the buffer that was parsed, so nothing is copied; parse a
+ * direct buffer and the levels can be handed straight to glCompressedTexImage2D.
+ *
+ * This is pure Java, so it can be tested and benchmarked on a desktop JVM.
+ *
+ * @author Tyler Suehr
+ */
+public final class CompressedImage {
+    /* Compressed internal formats, from OES_compressed_ETC1_RGB8_texture and OpenGL ES 3.0 */
+    public static final int GL_ETC1_RGB8_OES                             = 0x8D64;
+    public static final int GL_COMPRESSED_R11_EAC                        = 0x9270;
+    public static final int GL_COMPRESSED_SIGNED_R11_EAC                 = 0x9271;
+    public static final int GL_COMPRESSED_RG11_EAC                       = 0x9272;
+    public static final int GL_COMPRESSED_SIGNED_RG11_EAC                = 0x9273;
+    public static final int GL_COMPRESSED_RGB8_ETC2                      = 0x9274;
+    public static final int GL_COMPRESSED_SRGB8_ETC2                     = 0x9275;
+    public static final int GL_COMPRESSED_RGB8_PUNCHTHROUGH_ALPHA1_ETC2  = 0x9276;
+    public static final int GL_COMPRESSED_SRGB8_PUNCHTHROUGH_ALPHA1_ETC2 = 0x9277;
+    public static final int GL_COMPRESSED_RGBA8_ETC2_EAC                 = 0x9278;
+    public static final int GL_COMPRESSED_SRGB8_ALPHA8_ETC2_EAC          = 0x9279;
+
+    private final int mInternalFormat;
+    private final int mWidth;
+    private final int mHeight;
+    private final ByteBuffer[] mLevels;
+
+
+    /**
+     * @param internalFormat the compressed internal format, like {@link #GL_ETC1_RGB8_OES}
+     * @param width the width of the base level
+     * @param height the height of the base level
+     * @param levels the data of each mip level, starting with the base level
+     */
+    public CompressedImage(int internalFormat, int width, int height, ByteBuffer[] levels) {
+        mInternalFormat = internalFormat;
+        mWidth = width;
+        mHeight = height;
+        mLevels = levels;
+    }
+
+    public int getInternalFormat() {
+        return mInternalFormat;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getLevelCount() {
+        return mLevels.length;
+    }
+
+    /** Gets the width of a mip level, which halves (down to 1) with each level. */
+    public int getLevelWidth(int level) {
+        return Math.max(1, mWidth >> level);
+    }
+
+    /** Gets the height of a mip level, which halves (down to 1) with each level. */
+    public int getLevelHeight(int level) {
+        return Math.max(1, mHeight >> level);
+    }
+
+    /**
+     * Gets the compressed data of a mip level, positioned at its start.
+     * @param level the mip level, 0 being the base level
+     * @return a view of the level's data
+     */
+    public ByteBuffer getLevel(int level) {
+        return mLevels[level];
+    }
+
+    /** Gets the total compressed size of all levels, which is also their size on the GPU. */
+    public long getDataSize() {
+        long size = 0;
+        for (ByteBuffer level : mLevels) {
+            size += level.remaining();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the size of one level of a 4x4 block-compressed format.
+     *
+     * @param internalFormat the compressed internal format
+     * @param width the width of the level
+     * @param height the height of the level
+     * @return the size in bytes (at most {@link Integer#MAX_VALUE}), or -1 if the format
+     *         isn't a known ETC/EAC format
+     */
+    public static int blockDataSize(int internalFormat, int width, int height) {
+        final long blocks = ((width + 3L) / 4) * ((height + 3L) / 4);
+        final long blockSize;
+        switch (internalFormat) {
+            case GL_ETC1_RGB8_OES:
+            case GL_COMPRESSED_R11_EAC:
+            case GL_COMPRESSED_SIGNED_R11_EAC:
+            case GL_COMPRESSED_RGB8_ETC2:
+            case GL_COMPRESSED_SRGB8_ETC2:
+            case GL_COMPRESSED_RGB8_PUNCHTHROUGH_ALPHA1_ETC2:
+            case GL_COMPRESSED_SRGB8_PUNCHTHROUGH_ALPHA1_ETC2:
+                blockSize = 8;
+                break;
+            case GL_COMPRESSED_RG11_EAC:
+            case GL_COMPRESSED_SIGNED_RG11_EAC:
+            case GL_COMPRESSED_RGBA8_ETC2_EAC:
+            case GL_COMPRESSED_SRGB8_ALPHA8_ETC2_EAC:
+                blockSize = 16;
+                break;
+            default:
+                return -1;
+        }
+        return (int)Math.min(blocks * blockSize, Integer.MAX_VALUE);
+    }
+
+    /* Makes a view of part of a buffer without disturbing it */
+    static ByteBuffer slice(ByteBuffer data, int start, int length) {
+        final ByteBuffer view = data.duplicate();
+        view.limit(start + length);
+        view.position(start);
+        return view.slice();
+    }
+}
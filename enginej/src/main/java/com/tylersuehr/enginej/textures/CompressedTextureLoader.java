@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import android.content.Context;
+import android.opengl.ETC1;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.RawRes;
+import android.util.Log;
+
+import com.tylersuehr.enginej.TextureUtils;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.profiling.Profiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Loads block-compressed textures from .pkm and .ktx raw resources.
+ *
+ * Compressed textures stay compressed on the GPU, so they take a quarter (or less) of the
+ * memory of a decoded 32-bit Bitmap, and .ktx files carry their precomputed mip levels so
+ * nothing has to be generated at load time. Each level goes straight from a direct buffer to
+ * glCompressedTexImage2D without ever becoming a Bitmap.
+ *
+ * ETC1 is supported by every OpenGL ES 2.0 device, but ETC2/EAC usually need OpenGL ES 3.0.
+ * When the device can't sample a format, ETC1 is decoded on the CPU and uploaded as RGB565,
+ * and anything else falls back to an uncompressed drawable, if one is given.
+ *
+ * @author Tyler Suehr
+ */
+public final class CompressedTextureLoader {
+    private static final String TAG = "TEXTURE";
+
+    private static Set<Integer> sSupportedFormats;
+
+
+    private CompressedTextureLoader() {}
+
+    /**
+     * Loads a compressed texture, falling back to an uncompressed drawable if the device can't
+     * use its format.
+     *
+     * @param c {@link Context}
+     * @param compressedResId the raw resource id of the .pkm or .ktx file
+     * @param fallbackResId the drawable to load instead if the format is unsupported, or 0
+     * @param wrapSV true if texture should not be repeated
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public static int load(Context c, @RawRes int compressedResId, @DrawableRes int fallbackResId, boolean wrapSV) {
+        CompressedImage image = null;
+        try {
+            image = read(c, compressedResId);
+        } catch (IOException ex) {
+            Log.wtf(TAG, "Compressed texture could not be read!", ex);
+        }
+
+        final int texture = (image != null) ? upload(image, wrapSV) : 0;
+        if (texture == 0 && fallbackResId != 0) {
+            return TextureUtils.loadTexture(c, fallbackResId, wrapSV);
+        }
+        return texture;
+    }
+
+    /**
+     * Reads a .pkm or .ktx raw resource into a direct buffer and parses it.
+     *
+     * @param c {@link Context}
+     * @param resId the raw resource id of the file
+     * @return the parsed image
+     * @throws IOException if the resource can't be read or isn't a .pkm or .ktx file
+     */
+    public static CompressedImage read(Context c, @RawRes int resId) throws IOException {
+        final ByteBuffer data;
+        try (final InputStream in = c.getResources().openRawResource(resId)) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(1024, in.available()));
+            final byte[] chunk = new byte[16 * 1024];
+            for (int read; (read = in.read(chunk)) != -1;) {
+                bytes.write(chunk, 0, read);
+            }
+            data = ByteBuffer.allocateDirect(bytes.size()).order(ByteOrder.nativeOrder());
+            data.put(bytes.toByteArray());
+            data.position(0);
+        }
+
+        if (data.remaining() >= 4 && data.get(0) == 'P' && data.get(1) == 'K' && data.get(2) == 'M') {
+            return PkmParser.parse(data);
+        }
+        return KtxParser.parse(data);
+    }
+
+    /**
+     * Uploads every level of a compressed image to a new texture. Must be called on the GL
+     * thread.
+     *
+     * @param image the image, whose levels should be direct buffers
+     * @param wrapSV true if texture should not be repeated
+     * @return the pointer to the OpenGL ES texture object, or 0 if the format is unsupported
+     *         and can't be decoded
+     */
+    public static int upload(CompressedImage image, boolean wrapSV) {
+        final int format = image.getInternalFormat();
+        final boolean supported = isFormatSupported(format);
+        if (!canUpload(format)) {
+            Log.w(TAG, "Compressed texture format not supported: 0x" + Integer.toHexString(format));
+            return 0;
+        }
+
+        final int[] textures = new int[1];
+        GL.glGenTextures(1, textures, 0);
+        if (textures[0] == 0) {
+            Log.wtf(TAG, "Could not create new OpenGL ES texture object!");
+            return 0;
+        }
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, textures[0]);
+
+        final int levels = getUploadedLevelCount(image);
+        final boolean mipmapped = levels > 1;
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MIN_FILTER,
+                mipmapped ? GL.GL_LINEAR_MIPMAP_LINEAR : GL.GL_LINEAR);
+        GL.glTexParameteri(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_MAG_FILTER, GL.GL_LINEAR);
+        if (wrapSV) {
+            // Prevents duplicating texture
+            GL.glTexParameterf(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_S, GL.GL_CLAMP_TO_EDGE);
+            GL.glTexParameterf(GL.GL_TEXTURE_2D, GL.GL_TEXTURE_WRAP_T, GL.GL_CLAMP_TO_EDGE);
+        }
+
+        for (int level = 0; level < levels; level++) {
+            final int width = image.getLevelWidth(level);
+            final int height = image.getLevelHeight(level);
+            final ByteBuffer data = image.getLevel(level);
+            if (supported) {
+                GL.glCompressedTexImage2D(GL.GL_TEXTURE_2D, level, format,
+                        width, height, 0, data.remaining(), data);
+                Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, data.remaining());
+            } else {
+                uploadDecodedEtc1(level, width, height, data);
+            }
+        }
+
+        return textures[0];
+    }
+
+    /**
+     * Checks if the device can sample textures in a compressed format. Must be called on the
+     * GL thread.
+     *
+     * @param internalFormat the compressed internal format, like
+     *                       {@link CompressedImage#GL_ETC1_RGB8_OES}
+     * @return true if supported
+     */
+    public static boolean isFormatSupported(int internalFormat) {
+        if (sSupportedFormats == null) {
+            final int[] count = new int[1];
+            GL.glGetIntegerv(GL.GL_NUM_COMPRESSED_TEXTURE_FORMATS, count, 0);
+            final int[] formats = new int[count[0]];
+            if (count[0] > 0) {
+                GL.glGetIntegerv(GL.GL_COMPRESSED_TEXTURE_FORMATS, formats, 0);
+            }
+
+            sSupportedFormats = new HashSet<>();
+            for (int format : formats) {
+                sSupportedFormats.add(format);
+            }
+        }
+        return sSupportedFormats.contains(internalFormat);
+    }
+
+    /**
+     * Must be called when a new GL context is created or the backend changes. The formats
+     * were queried from the old context, so they're queried again the next time they're needed.
+     */
+    public static void onContextLost() {
+        sSupportedFormats = null;
+    }
+
+    /**
+     * Gets how many levels of an image {@link #upload(CompressedImage, boolean)} uses.
+     * Mipmapped filtering needs every level down to 1x1, or the texture is incomplete, so a
+     * partial mip chain is dropped and only the base level is uploaded.
+     *
+     * @param image the compressed image
+     * @return the full mip chain's length, or 1
+     */
+    public static int getUploadedLevelCount(CompressedImage image) {
+        final int fullLevels = 32 - Integer.numberOfLeadingZeros(Math.max(image.getWidth(), image.getHeight()));
+        return (image.getLevelCount() >= fullLevels) ? fullLevels : 1;
+    }
+
+    /**
+     * Checks if {@link #upload(CompressedImage, boolean)} can use a compressed format, either
+     * directly or by decoding it on the CPU. Must be called on the GL thread.
+     *
+     * @param internalFormat the compressed internal format
+     * @return true if the format can be uploaded
+     */
+    public static boolean canUpload(int internalFormat) {
+        return internalFormat == CompressedImage.GL_ETC1_RGB8_OES || isFormatSupported(internalFormat);
+    }
+
+    /* Decodes an ETC1 level on the CPU and uploads it as RGB565 */
+    private static void uploadDecodedEtc1(int level, int width, int height, ByteBuffer data) {
+        final int stride = width * 2;
+        final ByteBuffer decoded = ByteBuffer.allocateDirect(stride * height).order(ByteOrder.nativeOrder());
+        ETC1.decodeImage(data, decoded, width, height, 2, stride);
+
+        // Rows of RGB565 are only 2 byte aligned when the width is odd
+        GL.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 2);
+        GL.glTexImage2D(GL.GL_TEXTURE_2D, level, GL.GL_RGB, width, height, 0,
+                GL.GL_RGB, GL.GL_UNSIGNED_SHORT_5_6_5, decoded);
+        Profiler.count(Profiler.COUNTER_BYTES_UPLOADED, stride * height);
+        GL.glPixelStorei(GL.GL_UNPACK_ALIGNMENT, 4);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Parses KTX 1.1 files holding a compressed 2D texture and, usually, all of its precomputed
+ * mip levels.
+ *
+ * The header is a 12 byte identifier followed by thirteen 32-bit fields, written in the
+ * byte order of whoever made the file; the endianness field tells us which. After that comes
+ * the key/value data, which is skipped, then each mip level as a 32-bit size followed by the
+ * data, padded to a multiple of 4 bytes. Every size in the file is checked against the data
+ * and the format's block size before it's used, so a corrupt file fails with an
+ * {@link IOException} like any other unreadable one.
+ *
+ * This is pure Java, so it can be tested and benchmarked on a desktop JVM.
+ *
+ * @author Tyler Suehr
+ */
+public final class KtxParser {
+    public static final int HEADER_SIZE = 64;
+
+    private static final byte[] IDENTIFIER = {
+            (byte)0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte)0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int ENDIANNESS = 0x04030201;
+
+
+    private KtxParser() {}
+
+    /**
+     * Parses a .ktx file from its current position.
+     *
+     * @param data the contents of the file; its byte order and position are left alone
+     * @return the image, whose levels are views into the given buffer
+     * @throws IOException if the data isn't a valid .ktx file, or isn't a compressed 2D texture
+     */
+    public static CompressedImage parse(ByteBuffer data) throws IOException {
+        final int start = data.position();
+        if (data.remaining() < HEADER_SIZE) {
+            throw new IOException("Not a KTX file!");
+        }
+        for (int i = 0; i < IDENTIFIER.length; i++) {
+            if (data.get(start + i) != IDENTIFIER[i]) {
+                throw new IOException("Not a KTX file!");
+            }
+        }
+
+        // Read the header in whichever byte order the file was written in
+        final ByteBuffer header = data.duplicate();
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(start + 12) != ENDIANNESS) {
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(start + 12) != ENDIANNESS) {
+                throw new IOException("KTX file has an invalid endianness!");
+            }
+        }
+
+        final int glType = header.getInt(start + 16);
+        final int glInternalFormat = header.getInt(start + 28);
+        final int width = header.getInt(start + 36);
+        final int height = header.getInt(start + 40);
+        final int depth = header.getInt(start + 44);
+        final int arrayElements = header.getInt(start + 48);
+        final int faces = header.getInt(start + 52);
+        final int mipLevels = Math.max(1, header.getInt(start + 56));
+        final int keyValueBytes = header.getInt(start + 60);
+
+        if (glType != 0) {
+            throw new IOException("KTX file is not compressed!");
+        }
+        if (depth > 1 || arrayElements > 0 || faces != 1) {
+            throw new IOException("Only 2D KTX textures are supported!");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IOException("KTX file has an invalid size!");
+        }
+        // A full mip chain ends at 1x1, so anything longer is a corrupt header
+        if (mipLevels > 32 - Integer.numberOfLeadingZeros(Math.max(width, height))) {
+            throw new IOException("KTX file has too many mip levels!");
+        }
+
+        // Sizes are compared against what's left, so a corrupt size can't overflow
+        final int end = data.limit();
+        if (keyValueBytes < 0 || keyValueBytes > end - (start + HEADER_SIZE)) {
+            throw new IOException("KTX file is truncated!");
+        }
+        final ByteBuffer[] levels = new ByteBuffer[mipLevels];
+        int offset = start + HEADER_SIZE + keyValueBytes;
+        for (int level = 0; level < mipLevels; level++) {
+            if (end - offset < 4) {
+                throw new IOException("KTX file is truncated!");
+            }
+            final int imageSize = header.getInt(offset);
+            offset += 4;
+            if (imageSize < 0 || imageSize > end - offset) {
+                throw new IOException("KTX file is truncated!");
+            }
+            final int expected = CompressedImage.blockDataSize(glInternalFormat,
+                    Math.max(1, width >> level), Math.max(1, height >> level));
+            if (expected >= 0 && imageSize != expected) {
+                throw new IOException("KTX level " + level + " has the wrong size!");
+            }
+            levels[level] = CompressedImage.slice(data, offset, imageSize);
+            offset += (imageSize + 3) & ~3;
+        }
+
+        return new CompressedImage(glInternalFormat, width, height, levels);
+    }
+}
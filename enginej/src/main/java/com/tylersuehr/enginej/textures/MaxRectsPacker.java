@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import java.util.Arrays;
+
+/**
+ * Packs rectangles into one fixed-size bin using the MaxRects algorithm with the "best short
+ * side fit" heuristic: each rectangle goes into the free area it fills most snugly.
+ *
+ * Free space is kept as a list of maximal free rectangles, which may overlap. Placing a
+ * rectangle splits every free rectangle it touches, then any free rectangle contained in
+ * another is pruned. Only the newly split rectangles need checking, which keeps inserts
+ * fast. Rectangles are never rotated, so UVs stay simple.
+ *
+ * This is pure Java, so it can be tested and benchmarked on a desktop JVM.
+ *
+ * @author Tyler Suehr
+ */
+public final class MaxRectsPacker {
+    private final int mWidth;
+    private final int mHeight;
+
+    /* Free rectangles stored as (x, y, width, height) */
+    private int[] mFree = new int[64];
+    private int mFreeCount = 0;
+    private int[] mSplit = new int[64];
+    private int mSplitCount = 0;
+
+    private int mUsedRight = 0;
+    private int mUsedBottom = 0;
+    private long mUsedArea = 0;
+
+
+    public MaxRectsPacker(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        reset();
+    }
+
+    /**
+     * Empties the bin.
+     */
+    public void reset() {
+        mFreeCount = 0;
+        mFree = addRect(mFree, 0, 0, 0, mWidth, mHeight);
+        mFreeCount = 1;
+        mUsedRight = 0;
+        mUsedBottom = 0;
+        mUsedArea = 0;
+    }
+
+    /**
+     * Places a rectangle in the bin.
+     *
+     * @param width the width of the rectangle
+     * @param height the height of the rectangle
+     * @param outXY where the top-left corner of the placed rectangle is stored
+     * @param outOff the offset of the corner in outXY
+     * @return true if placed, false if it doesn't fit anywhere
+     */
+    public boolean insert(int width, int height, int[] outXY, int outOff) {
+        int bestShort = Integer.MAX_VALUE;
+        int bestLong = Integer.MAX_VALUE;
+        int bestX = 0;
+        int bestY = 0;
+
+        for (int i = 0; i < mFreeCount; i++) {
+            final int o = i * 4;
+            final int fw = mFree[o + 2];
+            final int fh = mFree[o + 3];
+            if (fw >= width && fh >= height) {
+                final int leftoverX = fw - width;
+                final int leftoverY = fh - height;
+                final int shortSide = Math.min(leftoverX, leftoverY);
+                final int longSide = Math.max(leftoverX, leftoverY);
+                if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                    bestShort = shortSide;
+                    bestLong = longSide;
+                    bestX = mFree[o];
+                    bestY = mFree[o + 1];
+                }
+            }
+        }
+        if (bestShort == Integer.MAX_VALUE) {
+            return false;
+        }
+
+        place(bestX, bestY, width, height);
+        outXY[outOff] = bestX;
+        outXY[outOff + 1] = bestY;
+        return true;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /** Gets the right edge of the right-most placed rectangle. */
+    public int getUsedRight() {
+        return mUsedRight;
+    }
+
+    /** Gets the bottom edge of the bottom-most placed rectangle. */
+    public int getUsedBottom() {
+        return mUsedBottom;
+    }
+
+    /** Gets the fraction of the bin covered by placed rectangles. */
+    public float getOccupancy() {
+        return (float)mUsedArea / ((long)mWidth * mHeight);
+    }
+
+    private void place(int x, int y, int width, int height) {
+        // Split every free rectangle the placed one overlaps, keeping the rest as they are
+        mSplitCount = 0;
+        int kept = 0;
+        for (int i = 0; i < mFreeCount; i++) {
+            final int o = i * 4;
+            if (!split(mFree[o], mFree[o + 1], mFree[o + 2], mFree[o + 3], x, y, width, height)) {
+                if (kept != i) {
+                    System.arraycopy(mFree, o, mFree, kept * 4, 4);
+                }
+                kept++;
+            }
+        }
+        mFreeCount = kept;
+        addSplitRects(kept);
+
+        mUsedRight = Math.max(mUsedRight, x + width);
+        mUsedBottom = Math.max(mUsedBottom, y + height);
+        mUsedArea += (long)width * height;
+    }
+
+    /*
+     * Adds the split rectangles that aren't contained in another free rectangle, and drops the
+     * old free rectangles now contained in a new one. Old rectangles were already pruned
+     * against each other, so only comparisons involving the new ones are needed.
+     */
+    private void addSplitRects(int oldCount) {
+        for (int i = 0; i < mSplitCount; i++) {
+            final int o = i * 4;
+            final int sx = mSplit[o];
+            final int sy = mSplit[o + 1];
+            final int sw = mSplit[o + 2];
+            final int sh = mSplit[o + 3];
+
+            boolean redundant = false;
+            for (int j = 0; j < mFreeCount; j++) {
+                final int f = j * 4;
+                if (contains(mFree[f], mFree[f + 1], mFree[f + 2], mFree[f + 3], sx, sy, sw, sh)) {
+                    redundant = true;
+                    break;
+                }
+            }
+            if (redundant) {
+                continue;
+            }
+            for (int j = mFreeCount - 1; j >= oldCount; j--) {
+                final int f = j * 4;
+                if (contains(sx, sy, sw, sh, mFree[f], mFree[f + 1], mFree[f + 2], mFree[f + 3])) {
+                    removeFree(j);
+                }
+            }
+            mFree = addRect(mFree, mFreeCount++, sx, sy, sw, sh);
+        }
+
+        int kept = 0;
+        for (int i = 0; i < mFreeCount; i++) {
+            final int o = i * 4;
+            boolean redundant = false;
+            if (i < oldCount) {
+                for (int j = oldCount; j < mFreeCount; j++) {
+                    final int f = j * 4;
+                    if (contains(mFree[f], mFree[f + 1], mFree[f + 2], mFree[f + 3],
+                            mFree[o], mFree[o + 1], mFree[o + 2], mFree[o + 3])) {
+                        redundant = true;
+                        break;
+                    }
+                }
+            }
+            if (!redundant) {
+                if (kept != i) {
+                    System.arraycopy(mFree, o, mFree, kept * 4, 4);
+                }
+                kept++;
+            }
+        }
+        mFreeCount = kept;
+    }
+
+    /* Adds the parts of the free rectangle not covered by the used one; false if disjoint */
+    private boolean split(int fx, int fy, int fw, int fh, int ux, int uy, int uw, int uh) {
+        if (ux >= fx + fw || ux + uw <= fx || uy >= fy + fh || uy + uh <= fy) {
+            return false;
+        }
+        if (uy > fy) {
+            mSplit = addRect(mSplit, mSplitCount++, fx, fy, fw, uy - fy);
+        }
+        if (uy + uh < fy + fh) {
+            mSplit = addRect(mSplit, mSplitCount++, fx, uy + uh, fw, fy + fh - (uy + uh));
+        }
+        if (ux > fx) {
+            mSplit = addRect(mSplit, mSplitCount++, fx, fy, ux - fx, fh);
+        }
+        if (ux + uw < fx + fw) {
+            mSplit = addRect(mSplit, mSplitCount++, ux + uw, fy, fx + fw - (ux + uw), fh);
+        }
+        return true;
+    }
+
+    private static boolean contains(int ox, int oy, int ow, int oh, int ix, int iy, int iw, int ih) {
+        return ix >= ox && iy >= oy && ix + iw <= ox + ow && iy + ih <= oy + oh;
+    }
+
+    private void removeFree(int index) {
+        mFreeCount--;
+        System.arraycopy(mFree, (index + 1) * 4, mFree, index * 4, (mFreeCount - index) * 4);
+    }
+
+    private static int[] addRect(int[] rects, int index, int x, int y, int width, int height) {
+        final int o = index * 4;
+        if (o + 4 > rects.length) {
+            rects = Arrays.copyOf(rects, rects.length * 2);
+        }
+        rects[o] = x;
+        rects[o + 1] = y;
+        rects[o + 2] = width;
+        rects[o + 3] = height;
+        return rects;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses .pkm files, the container written by the ETC1 and ETC2 encoders (etc1tool,
+ * etcpack). A .pkm holds exactly one level, so there are no precomputed mips.
+ *
+ * The 16 byte header is big-endian: the magic "PKM ", a version ("10" or "20"), the data
+ * type, the width and height rounded up to whole 4x4 blocks, then the original width and
+ * height.
+ *
+ * This is pure Java, so it can be tested and benchmarked on a desktop JVM.
+ *
+ * @author Tyler Suehr
+ */
+public final class PkmParser {
+    public static final int HEADER_SIZE = 16;
+
+    /* Data types stored in the header of version 2.0 files */
+    private static final int ETC1_RGB_NO_MIPMAPS = 0;
+    private static final int ETC2PACKAGE_RGB_NO_MIPMAPS = 1;
+    private static final int ETC2PACKAGE_RGBA_NO_MIPMAPS = 3;
+    private static final int ETC2PACKAGE_RGBA1_NO_MIPMAPS = 4;
+    private static final int ETC2PACKAGE_R_NO_MIPMAPS = 5;
+    private static final int ETC2PACKAGE_RG_NO_MIPMAPS = 6;
+    private static final int ETC2PACKAGE_R_SIGNED_NO_MIPMAPS = 7;
+    private static final int ETC2PACKAGE_RG_SIGNED_NO_MIPMAPS = 8;
+
+
+    private PkmParser() {}
+
+    /**
+     * Parses a .pkm file from its current position.
+     *
+     * @param data the contents of the file; its byte order and position are left alone
+     * @return the image, whose data is a view into the given buffer
+     * @throws IOException if the data isn't a valid .pkm file
+     */
+    public static CompressedImage parse(ByteBuffer data) throws IOException {
+        final int start = data.position();
+        if (data.remaining() < HEADER_SIZE
+                || data.get(start) != 'P' || data.get(start + 1) != 'K'
+                || data.get(start + 2) != 'M' || data.get(start + 3) != ' ') {
+            throw new IOException("Not a PKM file!");
+        }
+
+        final char major = (char)data.get(start + 4);
+        final int type = readShort(data, start + 6);
+        final int width = readShort(data, start + 12);
+        final int height = readShort(data, start + 14);
+
+        final int format;
+        if (major == '1') {
+            format = CompressedImage.GL_ETC1_RGB8_OES;
+        } else if (major == '2') {
+            format = formatOf(type);
+        } else {
+            throw new IOException("Unsupported PKM version: " + major);
+        }
+
+        if (width == 0 || height == 0) {
+            throw new IOException("PKM file has an invalid size!");
+        }
+        final int size = CompressedImage.blockDataSize(format, width, height);
+        if (data.remaining() - HEADER_SIZE < size) {
+            throw new IOException("PKM file is truncated!");
+        }
+
+        return new CompressedImage(format, width, height, new ByteBuffer[] {
+                CompressedImage.slice(data, start + HEADER_SIZE, size)
+        });
+    }
+
+    private static int formatOf(int type) throws IOException {
+        switch (type) {
+            case ETC1_RGB_NO_MIPMAPS:
+                return CompressedImage.GL_ETC1_RGB8_OES;
+            case ETC2PACKAGE_RGB_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_RGB8_ETC2;
+            case ETC2PACKAGE_RGBA_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_RGBA8_ETC2_EAC;
+            case ETC2PACKAGE_RGBA1_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_RGB8_PUNCHTHROUGH_ALPHA1_ETC2;
+            case ETC2PACKAGE_R_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_R11_EAC;
+            case ETC2PACKAGE_RG_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_RG11_EAC;
+            case ETC2PACKAGE_R_SIGNED_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_SIGNED_R11_EAC;
+            case ETC2PACKAGE_RG_SIGNED_NO_MIPMAPS:
+                return CompressedImage.GL_COMPRESSED_SIGNED_RG11_EAC;
+            default:
+                throw new IOException("Unsupported PKM data type: " + type);
+        }
+    }
+
+    private static int readShort(ByteBuffer data, int index) {
+        return ((data.get(index) & 0xFF) << 8) | (data.get(index + 1) & 0xFF);
+    }
+}
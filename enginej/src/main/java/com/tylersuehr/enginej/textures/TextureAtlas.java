@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import com.tylersuehr.enginej.gl.GLStateCache;
+
+import java.util.Map;
+
+/**
+ * Many small images packed into a few large textures, built by {@link TextureAtlasBuilder}.
+ *
+ * Every image on a page is drawn with the same texture bind, so things like a
+ * {@link com.tylersuehr.enginej.sprites.SpriteBatch} can draw them all in one call by using
+ * each image's {@link AtlasRegion} texture coordinates.
+ *
+ * @author Tyler Suehr
+ */
+public final class TextureAtlas {
+    private final int[] mPageTextures;
+    private final Map<Integer, AtlasRegion> mRegions;
+
+
+    TextureAtlas(int[] pageTextures, Map<Integer, AtlasRegion> regions) {
+        mPageTextures = pageTextures;
+        mRegions = regions;
+    }
+
+    /**
+     * Gets where an image ended up.
+     *
+     * @param key the drawable resource id, or the key the image was added with
+     * @return the region of the image, or null if it isn't in this atlas
+     */
+    public AtlasRegion getRegion(int key) {
+        return mRegions.get(key);
+    }
+
+    /**
+     * Gets the texture for an image's page.
+     *
+     * @param region the region of the image
+     * @return the pointer to the OpenGL ES texture object
+     */
+    public int getTextureId(AtlasRegion region) {
+        return mPageTextures[region.page];
+    }
+
+    public int getTextureIdOfPage(int page) {
+        return mPageTextures[page];
+    }
+
+    public int getPageCount() {
+        return mPageTextures.length;
+    }
+
+    public int getRegionCount() {
+        return mRegions.size();
+    }
+
+    /**
+     * Deletes the page textures. Must be called on the GL thread.
+     */
+    public void release() {
+        for (int i = 0; i < mPageTextures.length; i++) {
+            if (mPageTextures[i] != 0) {
+                GLStateCache.deleteTexture(mPageTextures[i]);
+                mPageTextures[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.DrawableRes;
+
+import com.tylersuehr.enginej.TextureUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs drawable resources and Bitmaps into a {@link TextureAtlas}.
+ *
+ * The layout comes from {@link AtlasLayout}. By default pages are at most 2048x2048 and each
+ * image gets a 2 pixel extruded gutter, which keeps bilinear filtering from bleeding, plus
+ * 2 pixels of padding.
+ *
+ * Pages are uploaded without mipmaps. A fixed gutter only covers the first mip level or two,
+ * and placements aren't aligned to the mip grid, so smaller levels would blend neighbouring
+ * images together.
+ *
+ * @author Tyler Suehr
+ */
+public final class TextureAtlasBuilder {
+    private final Context mContext;
+    private final List<Integer> mKeys = new ArrayList<>();
+    private final List<Bitmap> mBitmaps = new ArrayList<>();
+    private final List<Boolean> mOwned = new ArrayList<>();
+    private int mMaxPageSize = 2048;
+    private int mPadding = 2;
+    private int mGutter = 2;
+
+
+    public TextureAtlasBuilder(Context c) {
+        mContext = c;
+    }
+
+    /**
+     * @param maxPageSize the largest page width and height, which must be a power of two
+     */
+    public TextureAtlasBuilder setMaxPageSize(int maxPageSize) {
+        if (Integer.bitCount(maxPageSize) != 1) {
+            throw new IllegalArgumentException("Atlas pages must be a power of two!");
+        }
+        mMaxPageSize = maxPageSize;
+        return this;
+    }
+
+    public TextureAtlasBuilder setPadding(int padding) {
+        mPadding = padding;
+        return this;
+    }
+
+    /**
+     * @param gutter the extruded border around each image
+     */
+    public TextureAtlasBuilder setGutter(int gutter) {
+        mGutter = gutter;
+        return this;
+    }
+
+    /**
+     * Adds a drawable resource, found in the atlas by its resource id.
+     *
+     * @param drawRes the resource id of the image
+     * @throws IllegalArgumentException if an image was already added with the same key
+     */
+    public TextureAtlasBuilder add(@DrawableRes int drawRes) {
+        checkUniqueKey(drawRes);
+        final BitmapFactory.Options ops = new BitmapFactory.Options();
+        ops.inScaled = false;
+        ops.inPreferredConfig = Bitmap.Config.ARGB_8888;
+
+        final Bitmap bmp = BitmapFactory.decodeResource(mContext.getResources(), drawRes, ops);
+        if (bmp == null) {
+            throw new RuntimeException("Bitmap resource could not be decoded!");
+        }
+        return add(drawRes, bmp, true);
+    }
+
+    /**
+     * Adds a Bitmap, found in the atlas by the given key. The Bitmap is not recycled.
+     *
+     * @param key the key to find the image by
+     * @param bmp the image
+     * @throws IllegalArgumentException if an image was already added with the same key
+     */
+    public TextureAtlasBuilder add(int key, Bitmap bmp) {
+        checkUniqueKey(key);
+        return add(key, bmp, false);
+    }
+
+    /**
+     * Packs everything added into pages and uploads them. Must be called on the GL thread.
+     * The builder is empty afterwards, even if this throws, and decoded resources are recycled.
+     *
+     * @return the atlas
+     */
+    public TextureAtlas build() {
+        try {
+            return buildPages();
+        } finally {
+            // Decoded images are recycled even if packing or uploading fails
+            for (int i = 0; i < mBitmaps.size(); i++) {
+                if (mOwned.get(i)) {
+                    mBitmaps.get(i).recycle();
+                }
+            }
+            mKeys.clear();
+            mBitmaps.clear();
+            mOwned.clear();
+        }
+    }
+
+    private TextureAtlas buildPages() {
+        final int count = mBitmaps.size();
+        final int[] widths = new int[count];
+        final int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            widths[i] = mBitmaps.get(i).getWidth();
+            heights[i] = mBitmaps.get(i).getHeight();
+        }
+        final AtlasLayout layout = AtlasLayout.compute(widths, heights, mMaxPageSize, mPadding, mGutter);
+
+        final int[] pageTextures = new int[layout.getPageCount()];
+        int[] image = new int[0];
+        for (int p = 0; p < pageTextures.length; p++) {
+            final int pageWidth = layout.getPageWidth(p);
+            final int pageHeight = layout.getPageHeight(p);
+            final int[] pixels = new int[pageWidth * pageHeight];
+            for (int i = 0; i < count; i++) {
+                if (layout.getPage(i) == p) {
+                    final int size = widths[i] * heights[i];
+                    if (image.length < size) {
+                        image = new int[size];
+                    }
+                    mBitmaps.get(i).getPixels(image, 0, widths[i], 0, 0, widths[i], heights[i]);
+                    AtlasLayout.blit(pixels, pageWidth, image, widths[i], heights[i],
+                            layout.getX(i), layout.getY(i), mGutter);
+                }
+            }
+
+            final Bitmap page = Bitmap.createBitmap(pageWidth, pageHeight, Bitmap.Config.ARGB_8888);
+            try {
+                page.setPixels(pixels, 0, pageWidth, 0, 0, pageWidth, pageHeight);
+                pageTextures[p] = TextureUtils.createTexture(page, true, false);
+            } finally {
+                page.recycle();
+            }
+        }
+
+        final Map<Integer, AtlasRegion> regions = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            regions.put(mKeys.get(i), layout.getRegion(i));
+        }
+        return new TextureAtlas(pageTextures, regions);
+    }
+
+    private TextureAtlasBuilder add(int key, Bitmap bmp, boolean owned) {
+        mKeys.add(key);
+        mBitmaps.add(bmp);
+        mOwned.add(owned);
+        return this;
+    }
+
+    private void checkUniqueKey(int key) {
+        // A second image under the same key would take space on a page but never be found
+        if (mKeys.contains(key)) {
+            throw new IllegalArgumentException("An image was already added with key " + key + "!");
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.RawRes;
+import android.util.Log;
+
+import com.tylersuehr.enginej.TextureUtils;
+import com.tylersuehr.enginej.gl.GLStateCache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares textures by resource id and options, counts who is using each one, and keeps the
+ * estimated GPU memory of everything it holds under a budget.
+ *
+ * Each {@link #acquire(int, boolean)} must be paired with a {@link #release(int)}. Released
+ * textures aren't deleted straight away, since the next level will often want them again;
+ * instead, when the total goes over the budget, the least recently used textures that
+ * nothing references are deleted until it fits. Referenced textures are never evicted, so
+ * the budget can be exceeded while they're all in use.
+ *
+ * Like OpenGL ES itself, this must only be used from the GL thread.
+ *
+ * @author Tyler Suehr
+ */
+public final class TextureCache {
+    private static final String TAG = "TEXTURE";
+
+    /* Option bits, kept in the low half of a key */
+    private static final int FLAG_WRAP_SV    = 1;
+    private static final int FLAG_COMPRESSED = 2;
+
+    private final Context mContext;
+    private final LinkedHashMap<Long, Entry> mEntries = new LinkedHashMap<>(32, 0.75f, true);
+    private final Map<Integer, Entry> mByTexture = new HashMap<>();
+    private final Set<Long> mUnusable = new HashSet<>();
+    private long mBudgetBytes;
+    private long mTotalBytes = 0;
+
+    private long mHits = 0;
+    private long mMisses = 0;
+    private long mEvictions = 0;
+
+
+    /**
+     * @param c {@link Context}
+     * @param budgetBytes the estimated GPU memory to stay under
+     */
+    public TextureCache(Context c, long budgetBytes) {
+        mContext = c;
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * Gets a mipmapped texture from a drawable, loading it if it isn't cached.
+     *
+     * @param drawRes the resource id of the image
+     * @param wrapSV true if texture should not be repeated
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     */
+    public int acquire(@DrawableRes int drawRes, boolean wrapSV) {
+        final long key = keyOf(drawRes, wrapSV ? FLAG_WRAP_SV : 0);
+        final Entry cached = hit(key);
+        if (cached != null) {
+            return cached.mTexture;
+        }
+
+        final BitmapFactory.Options ops = new BitmapFactory.Options();
+        ops.inScaled = false;
+        final Bitmap bmp = BitmapFactory.decodeResource(mContext.getResources(), drawRes, ops);
+        if (bmp == null) {
+            Log.wtf(TAG, "Bitmap resource could not be decoded!");
+            return 0;
+        }
+
+        final int texture = TextureUtils.createTexture(bmp, wrapSV);
+        final long bytes = estimateBytes(bmp.getWidth(), bmp.getHeight(), 4, true);
+        bmp.recycle();
+        return add(key, texture, bytes);
+    }
+
+    /**
+     * Gets a texture from a .pkm or .ktx file, loading it if it isn't cached.
+     *
+     * @param compressedResId the raw resource id of the file
+     * @param fallbackResId the drawable to load instead if the format is unsupported, or 0
+     * @param wrapSV true if texture should not be repeated
+     * @return the pointer to the OpenGL ES texture object or 0 if failed
+     * @see CompressedTextureLoader
+     */
+    public int acquireCompressed(@RawRes int compressedResId, @DrawableRes int fallbackResId, boolean wrapSV) {
+        final long key = keyOf(compressedResId, FLAG_COMPRESSED | (wrapSV ? FLAG_WRAP_SV : 0));
+        final Entry cached = hit(key);
+        if (cached != null) {
+            return cached.mTexture;
+        }
+
+        // Don't read a file again if we already know this device can't use its format
+        if (!mUnusable.contains(key)) {
+            CompressedImage image = null;
+            try {
+                image = CompressedTextureLoader.read(mContext, compressedResId);
+            } catch (IOException ex) {
+                // Might only be a passing failure, so try reading again next time
+                Log.wtf(TAG, "Compressed texture could not be read!", ex);
+            }
+            if (image != null) {
+                final int texture = CompressedTextureLoader.upload(image, wrapSV);
+                if (texture != 0) {
+                    return add(key, texture, estimateBytes(image));
+                }
+                if (!CompressedTextureLoader.canUpload(image.getInternalFormat())) {
+                    mUnusable.add(key);
+                }
+            }
+        }
+        if (fallbackResId != 0) {
+            // Share the fallback with anyone acquiring the drawable directly. It counts its
+            // own hit or miss, so this call isn't counted twice.
+            mMisses--;
+            return acquire(fallbackResId, wrapSV);
+        }
+        return 0;
+    }
+
+    /**
+     * Releases one reference to a texture. It stays cached until evicted.
+     * @param texture the pointer returned by an acquire method
+     */
+    public void release(int texture) {
+        final Entry entry = mByTexture.get(texture);
+        if (entry == null || entry.mRefCount == 0) {
+            throw new IllegalStateException("Texture " + texture + " was released more times than acquired!");
+        }
+        entry.mRefCount--;
+        trim();
+    }
+
+    /**
+     * Deletes every unreferenced texture, like after leaving a level.
+     */
+    public void evictUnused() {
+        evict(0);
+    }
+
+    /**
+     * Deletes every texture, referenced or not.
+     */
+    public void clear() {
+        for (Entry entry : mEntries.values()) {
+            GLStateCache.deleteTexture(entry.mTexture);
+        }
+        forget();
+    }
+
+    /**
+     * Must be called when a new GL context is created. Every texture died with the old
+     * context, so all of them are forgotten without being deleted.
+     */
+    public void onContextLost() {
+        forget();
+    }
+
+    public void setBudgetBytes(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+        trim();
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /** Gets the estimated GPU memory of every cached texture. */
+    public long getTotalBytes() {
+        return mTotalBytes;
+    }
+
+    public int getTextureCount() {
+        return mEntries.size();
+    }
+
+    public long getHitCount() {
+        return mHits;
+    }
+
+    public long getMissCount() {
+        return mMisses;
+    }
+
+    public long getEvictionCount() {
+        return mEvictions;
+    }
+
+    public void resetCounters() {
+        mHits = 0;
+        mMisses = 0;
+        mEvictions = 0;
+    }
+
+    /**
+     * Estimates the GPU memory of an uncompressed texture.
+     *
+     * @param width the width of the base level
+     * @param height the height of the base level
+     * @param bytesPerPixel the size of one pixel, like 4 for RGBA8888 or 2 for RGB565
+     * @param mipmapped true if the texture has a full mip chain, which adds about a third
+     * @return the estimated size in bytes
+     */
+    public static long estimateBytes(int width, int height, int bytesPerPixel, boolean mipmapped) {
+        long bytes = (long)width * height * bytesPerPixel;
+        while (mipmapped && (width > 1 || height > 1)) {
+            width = Math.max(1, width >> 1);
+            height = Math.max(1, height >> 1);
+            bytes += (long)width * height * bytesPerPixel;
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the GPU memory of a compressed texture, which is the size of the levels that
+     * are uploaded, or RGB565 if it has to be decoded.
+     *
+     * @param image the compressed image
+     * @return the estimated size in bytes
+     * @see CompressedTextureLoader#getUploadedLevelCount(CompressedImage)
+     */
+    public static long estimateBytes(CompressedImage image) {
+        return estimateBytes(image, CompressedTextureLoader.isFormatSupported(image.getInternalFormat()));
+    }
+
+    static long estimateBytes(CompressedImage image, boolean formatSupported) {
+        final int levels = CompressedTextureLoader.getUploadedLevelCount(image);
+        if (!formatSupported) {
+            return estimateBytes(image.getWidth(), image.getHeight(), 2, levels > 1);
+        }
+        long bytes = 0;
+        for (int level = 0; level < levels; level++) {
+            bytes += image.getLevel(level).remaining();
+        }
+        return bytes;
+    }
+
+    private Entry hit(long key) {
+        final Entry entry = mEntries.get(key);
+        if (entry != null) {
+            entry.mRefCount++;
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return entry;
+    }
+
+    private int add(long key, int texture, long bytes) {
+        if (texture == 0) {
+            return 0;
+        }
+        final Entry entry = new Entry(texture, bytes);
+        entry.mRefCount = 1;
+        mEntries.put(key, entry);
+        mByTexture.put(texture, entry);
+        mTotalBytes += bytes;
+        trim();
+        return texture;
+    }
+
+    private void trim() {
+        if (mTotalBytes > mBudgetBytes) {
+            evict(mBudgetBytes);
+        }
+    }
+
+    /* Deletes unreferenced textures, least recently used first, until under the limit */
+    private void evict(long limitBytes) {
+        final Iterator<Entry> it = mEntries.values().iterator();
+        while (mTotalBytes > limitBytes && it.hasNext()) {
+            final Entry entry = it.next();
+            if (entry.mRefCount == 0) {
+                GLStateCache.deleteTexture(entry.mTexture);
+                mByTexture.remove(entry.mTexture);
+                mTotalBytes -= entry.mBytes;
+                mEvictions++;
+                it.remove();
+            }
+        }
+    }
+
+    private void forget() {
+        mEntries.clear();
+        mByTexture.clear();
+        mTotalBytes = 0;
+    }
+
+    private static long keyOf(int resId, int flags) {
+        return ((long)resId << 32) | (flags & 0xFFFFFFFFL);
+    }
+
+
+    /**
+     * One cached texture.
+     */
+    private static final class Entry {
+        final int mTexture;
+        final long mBytes;
+        int mRefCount = 0;
+
+        Entry(int texture, long bytes) {
+            mTexture = texture;
+            mBytes = bytes;
+        }
+    }
+}
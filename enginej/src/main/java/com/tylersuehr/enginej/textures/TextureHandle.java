@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Tyler Suehr 2018
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package com.tylersuehr.enginej.textures;
+
+import android.graphics.Bitmap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A texture that may still be loading in the background, returned immediately by
+ * {@link AsyncTextureLoader}.
+ *
+ * Until the real texture is uploaded, {@link #getTextureId()} returns the loader's placeholder
+ * texture, or its placeholder cube map for cube maps, so a handle can be drawn with right away.
+ *
+ * @author Tyler Suehr
+ */
+public final class TextureHandle {
+    public static final int STATE_QUEUED    = 0;
+    public static final int STATE_DECODING  = 1;
+    public static final int STATE_DECODED   = 2;
+    public static final int STATE_LOADED    = 3;
+    public static final int STATE_FAILED    = 4;
+    public static final int STATE_CANCELLED = 5;
+
+    final AtomicInteger mState = new AtomicInteger(STATE_QUEUED);
+    final AsyncTextureLoader mLoader;
+    final int[] mResIds;
+    final boolean mWrapSV;
+    final int mPriority;
+    final long mSequence;
+
+    /* Set by the decoding thread, then handed to the GL thread through the ready queue */
+    Bitmap[] mBitmaps;
+
+    private int mTextureId = 0;
+    private int mWidth = 0;
+    private int mHeight = 0;
+
+
+    TextureHandle(AsyncTextureLoader loader, int[] resIds, boolean wrapSV, int priority, long sequence) {
+        mLoader = loader;
+        mResIds = resIds;
+        mWrapSV = wrapSV;
+        mPriority = priority;
+        mSequence = sequence;
+    }
+
+    /**
+     * Gets the texture to draw with. Must be called on the GL thread.
+     * @return the pointer to the OpenGL ES texture object, or the placeholder if not loaded
+     */
+    public int getTextureId() {
+        if (mState.get() == STATE_LOADED) {
+            return mTextureId;
+        }
+        return isCubeMap() ? mLoader.getPlaceholderCubeMap() : mLoader.getPlaceholderTexture();
+    }
+
+    /**
+     * Stops this texture from loading, if it hasn't finished already. Safe to call from any
+     * thread.
+     */
+    public void cancel() {
+        mLoader.cancel(this);
+    }
+
+    public boolean isLoaded() {
+        return mState.get() == STATE_LOADED;
+    }
+
+    public boolean isCubeMap() {
+        return mResIds.length == 6;
+    }
+
+    public int getState() {
+        return mState.get();
+    }
+
+    public int getPriority() {
+        return mPriority;
+    }
+
+    /** Gets the width of the texture (of each face, for a cube map), or 0 if not loaded. */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /** Gets the height of the texture (of each face, for a cube map), or 0 if not loaded. */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    void onUploaded(int textureId, int width, int height) {
+        mTextureId = textureId;
+        mWidth = width;
+        mHeight = height;
+    }
+
+    int getUploadedTextureId() {
+        return mTextureId;
+    }
+}
@@ -0,0 +1,88 @@
+package com.tylersuehr.enginej;
+
+import com.tylersuehr.enginej.geometry.Circle;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.geometry.Point;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ShapeBuilder}.
+ *
+ * @author Tyler Suehr
+ */
+public class ShapeBuilderTest {
+    private final Circle mCircle = new Circle(new Point(0f, 0f, 0f), 1f);
+
+
+    @After
+    public void tearDown() {
+        ShapeLod.setEnabled(true);
+        ShapeLod.clearTransform();
+    }
+
+    @Test
+    public void build_isUnchangedByLaterAppends() {
+        final ShapeBuilder builder = new ShapeBuilder(8).appendCircle(mCircle, 8);
+        final ShapeBuilder.ShapeData first = builder.build();
+        builder.appendCircle(mCircle, 8);
+        final ShapeBuilder.ShapeData second = builder.build();
+
+        assertEquals(8, first.getVertexCount());
+        assertEquals(8, drawnVertices(first));
+
+        // Both circles, stitched into the one strip
+        assertEquals(1, second.drawList.size());
+        assertEquals(second.getVertexCount(), drawnVertices(second));
+    }
+
+    @Test
+    public void createCircle_buildsLevelsUnlessDisabled() {
+        final ShapeBuilder.ShapeData lod = ShapeBuilder.createCircle(mCircle, 64);
+        final ShapeBuilder.LodDrawCommand command = (ShapeBuilder.LodDrawCommand)lod.drawList.get(0);
+        assertEquals(ShapeBuilder.DEFAULT_LOD_LEVELS, command.getLevelCount());
+        assertEquals(66 + 34 + 18 + 10, lod.getVertexCount());
+
+        ShapeLod.setEnabled(false);
+        final ShapeBuilder.ShapeData plain = ShapeBuilder.createCircle(mCircle, 64);
+        assertTrue(plain.drawList.get(0) instanceof ShapeBuilder.DrawArraysCommand);
+        assertEquals(66, plain.getVertexCount());
+    }
+
+    @Test
+    public void lodDraw_keepsALevelPerInstance() {
+        final HeadlessGLBackend backend = new HeadlessGLBackend();
+        GL.setBackend(backend);
+        final float[] projection = new float[Mat4.SIZE];
+        Mat4.perspective(projection, 0, 60f, 1f, 1f, 1000f);
+        ShapeLod.setViewport(1000, 1000);
+        ShapeLod.setTransform(projection, 0);
+
+        // A circle far in front of the camera is small on screen
+        final Circle far = new Circle(new Point(0f, 0f, -500f), 1f);
+        final ShapeBuilder.ShapeData shape = ShapeBuilder.createCircle(far, 64, 4);
+        final ShapeBuilder.LodDrawCommand command = (ShapeBuilder.LodDrawCommand)shape.drawList.get(0);
+
+        final int level = command.draw(0);
+        assertEquals(command.getLevelCount() - 1, level);
+        assertEquals(10, backend.getVertexCount());
+
+        // The shared level is untouched, so another instance starts from its own
+        assertEquals(0, command.getCurrentLevel());
+        assertEquals(level, command.draw(level));
+    }
+
+    private static int drawnVertices(ShapeBuilder.ShapeData shape) {
+        int count = 0;
+        for (ShapeBuilder.ShapeDrawCommand command : shape.drawList) {
+            final ShapeBuilder.DrawArraysCommand arrays = (ShapeBuilder.DrawArraysCommand)command;
+            count = Math.max(count, arrays.first + arrays.getCount());
+        }
+        return count;
+    }
+}
@@ -0,0 +1,86 @@
+package com.tylersuehr.enginej;
+
+import android.graphics.Bitmap;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for the textures {@link TextureUtils} creates, run against a
+ * {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class TextureUtilsTest {
+    private HeadlessGLBackend mBackend;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+    }
+
+    @Test
+    public void solidCubeMap_bindsAsCubeMap() {
+        final int cubeMap = TextureUtils.createSolidCubeMap(0xFF808080);
+        assertNotEquals(0, cubeMap);
+        GLStateCache.bindTexture(1, GL.GL_TEXTURE_CUBE_MAP, cubeMap);
+
+        assertEquals(6, mBackend.getCallCount(HeadlessGLBackend.CMD_TEX_IMAGE_2D));
+        assertEquals(6 * 4, mBackend.getTextureMemory());
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void solidTexture_cannotStandInForCubeMap() {
+        final int texture = TextureUtils.createSolidTexture(0xFF808080);
+        GLStateCache.bindTexture(1, GL.GL_TEXTURE_CUBE_MAP, texture);
+
+        assertEquals(1, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void createTexture_uploadsThroughTheBackend() {
+        final int texture = TextureUtils.createTexture(bitmap(64, 32), true);
+
+        assertNotEquals(0, texture);
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_TEX_IMAGE_2D_BITMAP));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_GENERATE_MIPMAP));
+        assertEquals(64 * 32 * 4, mBackend.getBytesUploaded());
+        assertTrue(mBackend.getTextureMemory() >= 64 * 32 * 4);
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void createCubeMap_uploadsEveryFace() {
+        final Bitmap[] faces = new Bitmap[6];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = bitmap(16, 16);
+        }
+
+        final int cubeMap = TextureUtils.createCubeMap(faces);
+        assertNotEquals(0, cubeMap);
+
+        assertEquals(6, mBackend.getCallCount(HeadlessGLBackend.CMD_TEX_IMAGE_2D_BITMAP));
+        assertEquals(6 * 16 * 16 * 4, mBackend.getTextureMemory());
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    /** A mocked ARGB_8888 Bitmap, since the backend only reads its size. */
+    private static Bitmap bitmap(int width, int height) {
+        final Bitmap bmp = mock(Bitmap.class);
+        when(bmp.getWidth()).thenReturn(width);
+        when(bmp.getHeight()).thenReturn(height);
+        when(bmp.getByteCount()).thenReturn(width * height * 4);
+        return bmp;
+    }
+}
@@ -0,0 +1,169 @@
+package com.tylersuehr.enginej.buffers;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DynamicVertexBuffer}, run against a {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class DynamicVertexBufferTest {
+    private HeadlessGLBackend mBackend;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+    }
+
+    @After
+    public void tearDown() {
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void constructor_createsEveryBufferAtFullCapacity() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(1026, 3, GL.GL_STREAM_DRAW);
+
+        assertEquals(1024, buffer.getCapacity()); // Rounded down to whole floats
+        assertEquals(3, mBackend.getBufferCount());
+        assertEquals(3 * 1024, mBackend.getBufferMemory());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsStaticUsage() {
+        new DynamicVertexBuffer(1024, 1, GL.GL_STATIC_DRAW);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNoBuffers() {
+        new DynamicVertexBuffer(1024, 0, GL.GL_STREAM_DRAW);
+    }
+
+    @Test
+    public void allocate_advancesInWholeFloats() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 1, GL.GL_STREAM_DRAW);
+
+        assertEquals(0, buffer.allocate(5));
+        assertEquals(8, buffer.allocate(4));
+        assertEquals(12, buffer.allocate(52));
+        assertEquals(0, buffer.getWrapCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allocate_rejectsMoreThanTheCapacity() {
+        new DynamicVertexBuffer(64, 1, GL.GL_STREAM_DRAW).allocate(65);
+    }
+
+    @Test
+    public void wrap_orphansASingleBuffer() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 1, GL.GL_STREAM_DRAW);
+        final int id = buffer.getBufferId();
+        buffer.allocate(40);
+        mBackend.resetCounters();
+
+        assertEquals(0, buffer.allocate(40));
+
+        assertEquals(1, buffer.getWrapCount());
+        assertEquals(id, buffer.getBufferId());
+        // Fresh storage for the same buffer, with no data to copy
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_DATA));
+        assertEquals(0, mBackend.getBytesUploaded());
+        assertEquals(64, mBackend.getBufferMemory());
+    }
+
+    @Test
+    public void wrap_rotatesThroughSeveralBuffers() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 3, GL.GL_STREAM_DRAW);
+        final int[] ids = new int[4];
+        mBackend.resetCounters();
+
+        for (int i = 0; i < ids.length; i++) {
+            // Each allocation fills a whole buffer, so every one after the first moves on
+            buffer.allocate(64);
+            ids[i] = buffer.getBufferId();
+        }
+
+        assertEquals(3, buffer.getWrapCount());
+        assertNotEquals(ids[0], ids[1]);
+        assertNotEquals(ids[1], ids[2]);
+        assertNotEquals(ids[0], ids[2]);
+        assertEquals(ids[0], ids[3]);
+        // Rotating never reallocates storage
+        assertEquals(0, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_DATA));
+    }
+
+    @Test
+    public void wrap_flushesPendingWritesToTheBufferBeingLeft() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 2, GL.GL_STREAM_DRAW);
+        final int offset = buffer.allocate(48);
+        buffer.put(offset, new float[12], 0, 12);
+        mBackend.resetCounters();
+
+        buffer.allocate(32);
+
+        assertEquals(1, buffer.getUploadCount());
+        assertEquals(48, buffer.getBytesUploaded());
+        assertEquals(48, mBackend.getBytesUploaded());
+
+        // Nothing is left to upload to the new buffer
+        buffer.flush();
+        assertEquals(1, buffer.getUploadCount());
+    }
+
+    @Test
+    public void flush_mergesDirtyRangesIntoOneUpload() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(256, 1, GL.GL_DYNAMIC_DRAW);
+        mBackend.resetCounters();
+
+        buffer.put(16, new int[] { 1, 2, 3, 4 }, 0, 4);   // 16 to 32
+        buffer.put(96, new float[] { 1f, 2f }, 0, 2);     // 96 to 104
+        buffer.put(40, new float[] { 1f, 2f, 3f }, 1, 2); // 40 to 48
+        buffer.flush();
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_SUB_DATA));
+        assertEquals(1, buffer.getUploadCount());
+        assertEquals(104 - 16, buffer.getBytesUploaded());
+        assertEquals(104 - 16, mBackend.getBytesUploaded());
+
+        // Flushing again with nothing written does nothing
+        buffer.flush();
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_SUB_DATA));
+    }
+
+    @Test
+    public void resetStats_clearsEveryCounter() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 1, GL.GL_STREAM_DRAW);
+        buffer.put(buffer.allocate(64), new int[16], 0, 16);
+        buffer.allocate(4);
+        assertEquals(1, buffer.getWrapCount());
+        assertEquals(1, buffer.getUploadCount());
+        assertEquals(64, buffer.getBytesUploaded());
+
+        buffer.resetStats();
+
+        assertEquals(0, buffer.getWrapCount());
+        assertEquals(0, buffer.getUploadCount());
+        assertEquals(0, buffer.getBytesUploaded());
+    }
+
+    @Test
+    public void release_deletesEveryBuffer() {
+        final DynamicVertexBuffer buffer = new DynamicVertexBuffer(64, 3, GL.GL_STREAM_DRAW);
+
+        buffer.release();
+
+        assertEquals(0, mBackend.getBufferCount());
+        assertEquals(0, mBackend.getBufferMemory());
+    }
+}
@@ -0,0 +1,199 @@
+package com.tylersuehr.enginej.buffers;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VertexLayout}: the stride and offsets it works out, and the
+ * bytes it packs in either byte order.
+ *
+ * @author Tyler Suehr
+ */
+public class VertexLayoutTest {
+    @Test
+    public void attributesStartOnFourByteBoundaries() {
+        final VertexLayout layout = meshLayout();
+
+        assertEquals(0, layout.getOffset(0));  // 3 floats, 12 bytes
+        assertEquals(12, layout.getOffset(1)); // 3 bytes, padded to 4
+        assertEquals(16, layout.getOffset(2)); // 2 shorts, 4 bytes
+        assertEquals(20, layout.getOffset(3)); // 3 halves, padded to 8
+        assertEquals(28, layout.getStride());
+        assertEquals(4, layout.getAttributeCount());
+        assertEquals(2, layout.indexOf("a_TextureCoord"));
+        assertEquals(-1, layout.indexOf("a_Color"));
+        assertTrue(layout.usesHalfFloats());
+        assertFalse(new VertexLayout().add("a_Position", 3, VertexLayout.FORMAT_FLOAT).usesHalfFloats());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsZeroComponents() {
+        new VertexLayout().add("a_Position", 0, VertexLayout.FORMAT_FLOAT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsFiveComponents() {
+        new VertexLayout().add("a_Position", 5, VertexLayout.FORMAT_FLOAT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsUnknownFormats() {
+        new VertexLayout().add("a_Position", 3, VertexLayout.FORMAT_UNSIGNED_BYTE_NORM + 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_rejectsTooManyAttributes() {
+        final VertexLayout layout = new VertexLayout();
+        for (int i = 0; i <= VertexLayout.MAX_ATTRIBUTES; i++) {
+            layout.add("a_Attribute" + i, 1, VertexLayout.FORMAT_FLOAT);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pack_rejectsSourcesWithTooFewFloats() {
+        final VertexLayout layout = meshLayout();
+        layout.pack(layout.allocate(1), 0, new float[10], 0, 10, 1);
+    }
+
+    @Test
+    public void pack_writesEachFormatInNativeOrder() {
+        assertPacked(ByteOrder.nativeOrder());
+    }
+
+    @Test
+    public void pack_writesEachFormatInEitherOrder() {
+        assertPacked(ByteOrder.BIG_ENDIAN);
+        assertPacked(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void pack_handlesMoreVerticesThanOneStagingRun() {
+        final VertexLayout layout = new VertexLayout()
+                .add("a_Position", 2, VertexLayout.FORMAT_HALF_FLOAT)
+                .add("a_Color", 4, VertexLayout.FORMAT_UNSIGNED_BYTE_NORM);
+        final int count = 1000;
+        final float[] src = new float[count * 7]; // One extra float per vertex is skipped
+        for (int v = 0; v < count; v++) {
+            src[v * 7] = v;
+            src[v * 7 + 1] = -v;
+            src[v * 7 + 5] = 1f;
+        }
+
+        final ByteBuffer dst = layout.allocate(count + 1);
+        layout.pack(dst, layout.getStride(), src, 0, 7, count);
+
+        assertEquals(0, dst.getInt(0)); // The vertex before the offset is untouched
+        for (int v = 0; v < count; v++) {
+            final int b = (v + 1) * layout.getStride();
+            assertEquals(VertexPacking.toHalf(v), dst.getShort(b));
+            assertEquals(VertexPacking.toHalf(-v), dst.getShort(b + 2));
+            assertEquals(0, dst.get(b + 4));
+            assertEquals((byte)255, dst.get(b + 7));
+        }
+    }
+
+    @Test
+    public void packAttribute_leavesOtherAttributesUntouched() {
+        final VertexLayout layout = meshLayout();
+        final float[] src = meshVertex();
+        final ByteBuffer dst = layout.allocate(1);
+        layout.pack(dst, 0, src, 0, src.length, 1);
+        final ByteBuffer before = layout.allocate(1);
+        before.put(dst.duplicate());
+
+        layout.packAttribute(dst, 0, 1, new float[] { 0f, 0f, -1f }, 0, 3, 1);
+
+        for (int b = 0; b < layout.getStride(); b++) {
+            if (b < 12 || b >= 16) {
+                assertEquals("byte " + b, before.get(b), dst.get(b));
+            }
+        }
+        assertEquals(0, dst.get(12));
+        assertEquals(0, dst.get(13));
+        assertEquals(-127, dst.get(14));
+        assertEquals(0, dst.get(15));
+    }
+
+    @Test
+    public void packColors_writesPackedIntsAsIs() {
+        final VertexLayout layout = new VertexLayout()
+                .add("a_Position", 2, VertexLayout.FORMAT_FLOAT)
+                .add("a_Color", 4, VertexLayout.FORMAT_UNSIGNED_BYTE_NORM);
+        final ByteBuffer dst = layout.allocate(2);
+
+        layout.packColors(dst, 0, 1, new int[] { 0x11223344, 0x55667788 }, 0, 2);
+
+        assertEquals(0x11223344, dst.getInt(8));
+        assertEquals(0x55667788, dst.getInt(8 + layout.getStride()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packColors_rejectsOtherFormats() {
+        final VertexLayout layout = meshLayout();
+        layout.packColors(layout.allocate(1), 0, 1, new int[1], 0, 1);
+    }
+
+    @Test
+    public void bind_skipsAttributesWithoutALocation() {
+        final HeadlessGLBackend backend = new HeadlessGLBackend();
+        GL.setBackend(backend);
+        GLStateCache.invalidate();
+        final int[] buffer = new int[1];
+        GL.glGenBuffers(1, buffer, 0);
+        backend.resetCounters();
+
+        meshLayout().bind(buffer[0], 0, new int[] { 0, -1, 2, 3 });
+
+        assertEquals(1, backend.getCallCount(HeadlessGLBackend.CMD_BIND_BUFFER));
+        assertEquals(3, backend.getCallCount(HeadlessGLBackend.CMD_VERTEX_ATTRIB_POINTER));
+        assertEquals(3, backend.getCallCount(HeadlessGLBackend.CMD_ENABLE_VERTEX_ATTRIB_ARRAY));
+    }
+
+    /** Position as floats, normal as bytes, texture coordinate as shorts, tangent as halves. */
+    private static VertexLayout meshLayout() {
+        return new VertexLayout()
+                .add("a_Position", 3, VertexLayout.FORMAT_FLOAT)
+                .add("a_Normal", 3, VertexLayout.FORMAT_BYTE_NORM)
+                .add("a_TextureCoord", 2, VertexLayout.FORMAT_UNSIGNED_SHORT_NORM)
+                .add("a_Tangent", 3, VertexLayout.FORMAT_HALF_FLOAT);
+    }
+
+    private static float[] meshVertex() {
+        return new float[] {
+                1.5f, -2f, 3.25f,
+                0.5f, -1f, 2f,
+                0f, 1f,
+                1f, -0.5f, 65504f
+        };
+    }
+
+    private static void assertPacked(ByteOrder order) {
+        final VertexLayout layout = meshLayout();
+        final float[] src = meshVertex();
+        final ByteBuffer dst = ByteBuffer.allocateDirect(layout.getStride()).order(order);
+
+        layout.pack(dst, 0, src, 0, src.length, 1);
+
+        assertEquals(1.5f, dst.getFloat(0), 0f);
+        assertEquals(-2f, dst.getFloat(4), 0f);
+        assertEquals(3.25f, dst.getFloat(8), 0f);
+        assertEquals(64, dst.get(12));
+        assertEquals(-127, dst.get(13));
+        assertEquals(127, dst.get(14)); // Clamped
+        assertEquals(0, dst.get(15));   // Padding
+        assertEquals(0, dst.getShort(16));
+        assertEquals(65535, dst.getShort(18) & 0xFFFF);
+        assertEquals(1f, VertexPacking.fromHalf(dst.getShort(20)), 0f);
+        assertEquals(-0.5f, VertexPacking.fromHalf(dst.getShort(22)), 0f);
+        assertEquals(65504f, VertexPacking.fromHalf(dst.getShort(24)), 0f);
+        assertEquals(0, dst.getShort(26)); // Padding
+    }
+}
@@ -0,0 +1,145 @@
+package com.tylersuehr.enginej.buffers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link VertexPacking}. The half float conversions are checked
+ * exhaustively, since all 65536 halves are cheap to walk.
+ *
+ * @author Tyler Suehr
+ */
+public class VertexPackingTest {
+    private static final int POSITIVE_INFINITY = 0x7C00;
+    private static final int LARGEST_HALF = 0x7BFF;
+
+    @Test
+    public void fromHalf_decodesKnownValues() {
+        assertEquals(1f, VertexPacking.fromHalf((short)0x3C00), 0f);
+        assertEquals(-2f, VertexPacking.fromHalf((short)0xC000), 0f);
+        assertEquals(65504f, VertexPacking.fromHalf((short)LARGEST_HALF), 0f);
+        assertEquals(0x1p-14f, VertexPacking.fromHalf((short)0x0400), 0f); // Smallest normal
+        assertEquals(0x1p-24f, VertexPacking.fromHalf((short)0x0001), 0f); // Smallest subnormal
+        assertEquals(Float.POSITIVE_INFINITY, VertexPacking.fromHalf((short)POSITIVE_INFINITY), 0f);
+        assertEquals(Float.floatToRawIntBits(-0f), Float.floatToRawIntBits(VertexPacking.fromHalf((short)0x8000)));
+        assertTrue(Float.isNaN(VertexPacking.fromHalf((short)0x7E00)));
+    }
+
+    @Test
+    public void toHalf_roundTripsEveryHalf() {
+        for (int bits = 0; bits <= 0xFFFF; bits++) {
+            final float value = VertexPacking.fromHalf((short)bits);
+            final int half = VertexPacking.toHalf(value) & 0xFFFF;
+            if (Float.isNaN(value)) {
+                // Any NaN will do, as long as it stays a NaN with the same sign
+                assertEquals(bits & 0xFC00, half & 0xFC00);
+                assertTrue((half & 0x3FF) != 0);
+            } else {
+                assertEquals("half 0x" + Integer.toHexString(bits), bits, half);
+            }
+        }
+    }
+
+    @Test
+    public void toHalf_roundsToNearestEvenBetweenEveryPairOfHalves() {
+        // Covers subnormals, the subnormal to normal boundary and every normal exponent
+        for (int bits = 0; bits < LARGEST_HALF; bits++) {
+            final float below = VertexPacking.fromHalf((short)bits);
+            final float above = VertexPacking.fromHalf((short)(bits + 1));
+            // Halves have 11 significant bits, so the midpoint is exact as a float
+            final float midpoint = (below + above) * 0.5f;
+            final int even = ((bits & 1) == 0) ? bits : bits + 1;
+
+            assertHalf(bits, Math.nextDown(midpoint));
+            assertHalf(even, midpoint);
+            assertHalf(bits + 1, Math.nextUp(midpoint));
+            assertHalf(even | 0x8000, -midpoint);
+        }
+    }
+
+    @Test
+    public void toHalf_overflowsToInfinity() {
+        assertHalf(LARGEST_HALF, 65504f);
+        assertHalf(LARGEST_HALF, Math.nextDown(65520f));
+        // Halfway to the next power of two, which rounds to the even infinity
+        assertHalf(POSITIVE_INFINITY, 65520f);
+        assertHalf(POSITIVE_INFINITY, 1e10f);
+        assertHalf(POSITIVE_INFINITY | 0x8000, -1e10f);
+        assertHalf(POSITIVE_INFINITY, Float.MAX_VALUE);
+        assertHalf(POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        assertHalf(POSITIVE_INFINITY | 0x8000, Float.NEGATIVE_INFINITY);
+    }
+
+    @Test
+    public void toHalf_underflowsToSignedZero() {
+        assertHalf(0x0000, 0x1p-25f); // Halfway to the smallest subnormal, ties to even
+        assertHalf(0x0001, Math.nextUp(0x1p-25f));
+        assertHalf(0x0000, Float.MIN_VALUE);
+        assertHalf(0x0000, 1e-10f);
+        assertHalf(0x8000, -1e-10f);
+        assertHalf(0x8000, -0f);
+    }
+
+    @Test
+    public void toHalf_keepsNaN() {
+        final int half = VertexPacking.toHalf(Float.NaN) & 0xFFFF;
+        assertEquals(POSITIVE_INFINITY, half & POSITIVE_INFINITY);
+        assertTrue((half & 0x3FF) != 0);
+
+        // A NaN whose payload lives only in the low bits must not collapse into infinity
+        final int quiet = VertexPacking.toHalf(Float.intBitsToFloat(0x7F800001)) & 0xFFFF;
+        assertTrue((quiet & 0x3FF) != 0);
+    }
+
+    @Test
+    public void normalizedBytes_roundTripEveryValue() {
+        for (int b = -127; b <= 127; b++) {
+            assertEquals(b, VertexPacking.toByteNorm(b / 127f));
+        }
+        for (int u = 0; u <= 255; u++) {
+            assertEquals(u, VertexPacking.toUnsignedByteNorm(u / 255f) & 0xFF);
+        }
+    }
+
+    @Test
+    public void normalizedShorts_roundTripEveryValue() {
+        for (int s = -32767; s <= 32767; s++) {
+            assertEquals(s, VertexPacking.toShortNorm(s / 32767f));
+        }
+        for (int u = 0; u <= 65535; u++) {
+            assertEquals(u, VertexPacking.toUnsignedShortNorm(u / 65535f) & 0xFFFF);
+        }
+    }
+
+    @Test
+    public void normalizedValues_roundToNearest() {
+        assertEquals(64, VertexPacking.toByteNorm(0.5f)); // 63.5
+        assertEquals(-64, VertexPacking.toByteNorm(-0.5f));
+        assertEquals(128, VertexPacking.toUnsignedByteNorm(0.5f) & 0xFF); // 127.5
+        assertEquals(16384, VertexPacking.toShortNorm(0.5f)); // 16383.5
+        assertEquals(32768, VertexPacking.toUnsignedShortNorm(0.5f) & 0xFFFF); // 32767.5
+    }
+
+    @Test
+    public void normalizedValues_clampToTheirRange() {
+        assertEquals(127, VertexPacking.toByteNorm(2f));
+        assertEquals(-127, VertexPacking.toByteNorm(-2f));
+        assertEquals(255, VertexPacking.toUnsignedByteNorm(1.5f) & 0xFF);
+        assertEquals(0, VertexPacking.toUnsignedByteNorm(-0.5f));
+        assertEquals(32767, VertexPacking.toShortNorm(Float.POSITIVE_INFINITY));
+        assertEquals(-32767, VertexPacking.toShortNorm(-1.0001f));
+        assertEquals(65535, VertexPacking.toUnsignedShortNorm(100f) & 0xFFFF);
+        assertEquals(0, VertexPacking.toUnsignedShortNorm(Float.NEGATIVE_INFINITY));
+
+        // NaN clamps to the bottom of the range rather than packing garbage
+        assertEquals(-127, VertexPacking.toByteNorm(Float.NaN));
+        assertEquals(0, VertexPacking.toUnsignedByteNorm(Float.NaN));
+        assertEquals(-32767, VertexPacking.toShortNorm(Float.NaN));
+        assertEquals(0, VertexPacking.toUnsignedShortNorm(Float.NaN));
+    }
+
+    private static void assertHalf(int expected, float value) {
+        assertEquals(Float.toHexString(value), expected, VertexPacking.toHalf(value) & 0xFFFF);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tylersuehr.enginej.ecs;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.geometry.Mat4;
+import com.tylersuehr.enginej.render.RenderQueue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RenderSystem}'s handles. Only submitting is tested, so no
+ * program or GL backend is needed.
+ *
+ * @author Tyler Suehr
+ */
+public class RenderSystemTest {
+    private static final RenderSystem.Drawable NOTHING = new RenderSystem.Drawable() {
+        @Override
+        public void draw(AbstractShaderProgram program, float[] model, int modelOffset) {}
+    };
+
+    private World mWorld;
+    private ComponentType mTransform;
+    private ComponentType mHandle;
+    private RenderSystem mSystem;
+    private RenderQueue mQueue;
+
+
+    @Before
+    public void setUp() {
+        mWorld = new World();
+        mTransform = mWorld.registerFloatComponent("transform", Mat4.SIZE);
+        mHandle = mWorld.registerIntComponent("handle", 1);
+        mSystem = new RenderSystem(mWorld, mTransform, mHandle);
+        mQueue = new RenderQueue(4);
+    }
+
+    @Test
+    public void register_neverReturnsNoHandle() {
+        for (int i = 0; i < 20; i++) {
+            assertNotEquals(RenderSystem.NO_HANDLE, mSystem.register(null, 0L, NOTHING));
+        }
+    }
+
+    @Test
+    public void submit_skipsNewEntitiesUntilAHandleIsSet() {
+        final int handle = mSystem.register(null, 0L, NOTHING);
+        final int entity = mWorld.createEntity(mTransform, mHandle);
+        assertEquals(0, mSystem.submit(mQueue));
+
+        setHandle(entity, handle);
+        assertEquals(1, mSystem.submit(mQueue));
+
+        setHandle(entity, handle + 1); // Never registered
+        assertEquals(0, mSystem.submit(mQueue));
+    }
+
+    private void setHandle(int entity, int handle) {
+        mWorld.getArchetype(entity).getInts(mHandle)[mWorld.getRow(entity)] = handle;
+    }
+}
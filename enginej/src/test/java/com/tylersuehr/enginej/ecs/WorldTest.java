@@ -0,0 +1,159 @@
+package com.tylersuehr.enginej.ecs;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link World} and the row bookkeeping of its {@link Archetype}s.
+ *
+ * @author Tyler Suehr
+ */
+public class WorldTest {
+    private World mWorld;
+    private ComponentType mPosition;
+    private ComponentType mVelocity;
+    private ComponentType mTag;
+
+
+    @Before
+    public void setUp() {
+        mWorld = new World(2); // Small on purpose so creating has to grow the slots
+        mPosition = mWorld.registerFloatComponent("position", 3);
+        mVelocity = mWorld.registerFloatComponent("velocity", 3);
+        mTag = mWorld.registerIntComponent("tag", 1);
+    }
+
+    @Test
+    public void destroyEntity_reusesTheSlotWithANewGeneration() {
+        final int first = mWorld.createEntity(mPosition);
+        mWorld.destroyEntity(first);
+        assertFalse(mWorld.isAlive(first));
+        assertEquals(0, mWorld.getEntityCount());
+
+        final int second = mWorld.createEntity(mPosition);
+        assertNotEquals(first, second);
+        assertEquals(first & (World.MAX_ENTITIES - 1), second & (World.MAX_ENTITIES - 1));
+        assertTrue(mWorld.isAlive(second));
+        assertFalse(mWorld.isAlive(first));
+
+        // The stale handle must not destroy whatever reused its slot
+        mWorld.destroyEntity(first);
+        assertTrue(mWorld.isAlive(second));
+        assertEquals(1, mWorld.getEntityCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getArchetype_ofDeadEntityThrows() {
+        final int entity = mWorld.createEntity(mPosition);
+        mWorld.destroyEntity(entity);
+        mWorld.getArchetype(entity);
+    }
+
+    @Test
+    public void createEntity_zeroesReusedRows() {
+        final int first = mWorld.createEntity(mTag);
+        setTag(first, 7);
+        mWorld.destroyEntity(first);
+
+        final int second = mWorld.createEntity(mTag);
+        assertEquals(0, getTag(second));
+    }
+
+    @Test
+    public void destroyEntity_fixesUpTheRowOfTheMovedEntity() {
+        final int[] entities = new int[100]; // Past the initial capacity of an archetype
+        for (int i = 0; i < entities.length; i++) {
+            entities[i] = mWorld.createEntity(mPosition, mTag);
+            setTag(entities[i], i);
+        }
+
+        // Destroying from the front moves the last row into the hole every time
+        for (int i = 0; i < 50; i++) {
+            mWorld.destroyEntity(entities[i]);
+        }
+        assertEquals(50, mWorld.getEntityCount());
+        for (int i = 50; i < entities.length; i++) {
+            final Archetype archetype = mWorld.getArchetype(entities[i]);
+            assertEquals(i, getTag(entities[i]));
+            assertEquals(entities[i], archetype.getEntity(mWorld.getRow(entities[i])));
+        }
+    }
+
+    @Test
+    public void addComponent_keepsSharedValuesAndFixesUpTheRowLeftBehind() {
+        final int a = mWorld.createEntity(mPosition, mTag);
+        final int b = mWorld.createEntity(mPosition, mTag);
+        setTag(a, 1);
+        setTag(b, 2);
+        final Archetype source = mWorld.getArchetype(a);
+
+        mWorld.addComponent(a, mVelocity);
+        assertTrue(mWorld.hasComponent(a, mVelocity));
+        assertEquals(1, getTag(a));
+        final float[] velocities = mWorld.getArchetype(a).getFloats(mVelocity);
+        for (int k = 0; k < 3; k++) {
+            assertEquals(0f, velocities[mWorld.getRow(a) * 3 + k], 0f);
+        }
+
+        // b took a's old row
+        assertSame(source, mWorld.getArchetype(b));
+        assertEquals(0, mWorld.getRow(b));
+        assertEquals(2, getTag(b));
+        assertEquals(1, source.size());
+    }
+
+    @Test
+    public void removeComponent_movesBackAndFixesUpTheRowLeftBehind() {
+        final int a = mWorld.createEntity(mPosition, mVelocity, mTag);
+        final int b = mWorld.createEntity(mPosition, mVelocity, mTag);
+        final int c = mWorld.createEntity(mPosition, mVelocity, mTag);
+        setTag(a, 1);
+        setTag(b, 2);
+        setTag(c, 3);
+
+        mWorld.removeComponent(b, mVelocity);
+        assertFalse(mWorld.hasComponent(b, mVelocity));
+        assertEquals(2, getTag(b));
+        assertEquals(1, getTag(a));
+        assertEquals(3, getTag(c));
+        assertEquals(1, mWorld.getRow(c));
+
+        // Removing a component the entity doesn't have does nothing
+        final Archetype archetype = mWorld.getArchetype(b);
+        mWorld.removeComponent(b, mVelocity);
+        assertSame(archetype, mWorld.getArchetype(b));
+    }
+
+    @Test
+    public void createQuery_picksUpArchetypesCreatedLater() {
+        final Query query = mWorld.createQuery(mPosition);
+        assertEquals(0, query.getArchetypeCount());
+
+        mWorld.createEntity(mPosition);
+        mWorld.createEntity(mVelocity);
+        final int moving = mWorld.createEntity(mPosition, mVelocity);
+        assertEquals(2, query.getArchetypeCount());
+        assertEquals(2, query.getEntityCount());
+
+        // Moving into a new archetype creates it, which the query also picks up
+        mWorld.addComponent(moving, mTag);
+        assertEquals(3, query.getArchetypeCount());
+        assertEquals(2, query.getEntityCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createEntity_rejectsComponentsOfAnotherWorld() {
+        final ComponentType other = new World().registerFloatComponent("other", 1);
+        mWorld.createEntity(mPosition, other);
+    }
+
+    private void setTag(int entity, int value) {
+        mWorld.getArchetype(entity).getInts(mTag)[mWorld.getRow(entity)] = value;
+    }
+
+    private int getTag(int entity) {
+        return mWorld.getArchetype(entity).getInts(mTag)[mWorld.getRow(entity)];
+    }
+}
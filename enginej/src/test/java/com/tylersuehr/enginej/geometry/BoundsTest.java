@@ -0,0 +1,152 @@
+package com.tylersuehr.enginej.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Bounds}, mostly moving local bounds into world space.
+ *
+ * @author Tyler Suehr
+ */
+public class BoundsTest {
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void transformBox_rotatesScalesAndTranslates() {
+        // Scaled to +-3 on x, then turned a quarter about z so x lands on y
+        final float[] m = compose(5f, 0f, 0f, 90f, 0f, 0f, 1f, 3f, 1f, 1f);
+        final float[] box = { -1f, -2f, -3f, 1f, 2f, 3f };
+
+        final float[] out = new float[Bounds.BOX_SIZE];
+        Bounds.transformBox(out, 0, m, 0, box, 0);
+
+        assertArrayEquals(new float[] { 3f, -3f, -3f, 7f, 3f, 3f }, out);
+    }
+
+    @Test
+    public void transformBox_enclosesEveryCornerTightly() {
+        final float[] m = compose(1f, -2f, 4f, 37f, 1f, 2f, 3f, 2f, 0.5f, 3f);
+        final float[] box = { -1f, 0f, 2f, 3f, 1f, 5f };
+
+        final float[] out = new float[Bounds.BOX_SIZE];
+        Bounds.transformBox(out, 0, m, 0, box, 0);
+
+        // The box around the eight transformed corners is exactly the transformed box
+        final float[] expected = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE,
+                -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        final float[] corner = new float[3];
+        for (int i = 0; i < 8; i++) {
+            corner[0] = box[((i & 1) != 0) ? 3 : 0];
+            corner[1] = box[((i & 2) != 0) ? 4 : 1];
+            corner[2] = box[((i & 4) != 0) ? 5 : 2];
+            Mat4.transformPoint(corner, 0, m, 0, corner, 0);
+            for (int k = 0; k < 3; k++) {
+                expected[k] = Math.min(expected[k], corner[k]);
+                expected[3 + k] = Math.max(expected[3 + k], corner[k]);
+            }
+        }
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void transformBox_mayAliasItsInput() {
+        final float[] m = compose(1f, 2f, 3f, 90f, 0f, 1f, 0f, 1f, 1f, 1f);
+        final float[] box = { 0f, 0f, 0f, 0f, 0f, 0f, 1f, 2f, 3f, 2f, 4f, 6f };
+        final float[] expected = new float[Bounds.BOX_SIZE];
+        Bounds.transformBox(expected, 0, m, 0, box, 6);
+
+        Bounds.transformBox(box, 6, m, 0, box, 6);
+
+        for (int k = 0; k < Bounds.BOX_SIZE; k++) {
+            assertEquals(expected[k], box[6 + k], 0f);
+        }
+    }
+
+    @Test
+    public void transformSphere_keepsRadiusUnderRotation() {
+        final float[] m = compose(0f, 0f, -10f, 60f, 1f, 1f, 0f, 1f, 1f, 1f);
+        final float[] sphere = { 1f, 0f, 0f, 2f };
+
+        final float[] out = new float[GeoMath.SPHERE_SIZE];
+        Bounds.transformSphere(out, 0, m, 0, sphere, 0);
+
+        final float[] center = new float[3];
+        Mat4.transformPoint(center, 0, m, 0, sphere, 0);
+        assertArrayEquals(new float[] { center[0], center[1], center[2], 2f }, out);
+    }
+
+    @Test
+    public void transformSphere_scalesRadiusByLargestAxisScale() {
+        final float[] m = compose(4f, 5f, 6f, 30f, 0f, 0f, 1f, 1f, 3f, 2f);
+        final float[] sphere = { 0f, 1f, 0f, 0.5f };
+
+        final float[] out = new float[GeoMath.SPHERE_SIZE];
+        Bounds.transformSphere(out, 0, m, 0, sphere, 0);
+
+        assertEquals(1.5f, out[3], EPSILON);
+
+        // Every point on the scaled sphere's surface is still inside it
+        final float[] point = new float[3];
+        for (int i = 0; i < 3; i++) {
+            point[0] = sphere[0];
+            point[1] = sphere[1];
+            point[2] = sphere[2];
+            point[i] += sphere[3];
+            Mat4.transformPoint(point, 0, m, 0, point, 0);
+            final float dx = point[0] - out[0], dy = point[1] - out[1], dz = point[2] - out[2];
+            assertTrue(Math.sqrt((dx * dx) + (dy * dy) + (dz * dz)) <= out[3] + EPSILON);
+        }
+    }
+
+    @Test
+    public void sphereOfBoxAndBoxOfSphereEnclose() {
+        final float[] box = { -1f, -2f, -2f, 1f, 2f, 2f };
+        final float[] sphere = new float[GeoMath.SPHERE_SIZE];
+        Bounds.sphereOfBox(sphere, 0, box, 0);
+        assertArrayEquals(new float[] { 0f, 0f, 0f, 3f }, sphere);
+
+        final float[] out = new float[Bounds.BOX_SIZE];
+        Bounds.boxOfSphere(out, 0, sphere, 0);
+        assertArrayEquals(new float[] { -3f, -3f, -3f, 3f, 3f, 3f }, out);
+    }
+
+    @Test
+    public void computeBoxAndSphere_readStridedPositions() {
+        // xyz plus a texture coordinate per vertex
+        final float[] vertices = {
+                99f, 99f,
+                -1f, 0f, 0f, 9f, 9f,
+                3f, 2f, 0f, 9f, 9f,
+                1f, 0f, 4f, 9f, 9f
+        };
+
+        final float[] box = new float[Bounds.BOX_SIZE];
+        Bounds.computeBox(box, 0, vertices, 2, 3, 5);
+        assertArrayEquals(new float[] { -1f, 0f, 0f, 3f, 2f, 4f }, box);
+
+        final float[] sphere = new float[GeoMath.SPHERE_SIZE];
+        Bounds.computeSphere(sphere, 0, vertices, 2, 3, 5);
+        assertEquals(1f, sphere[0], 0f);
+        assertEquals(1f, sphere[1], 0f);
+        assertEquals(2f, sphere[2], 0f);
+        assertEquals(3f, sphere[3], EPSILON); // (-1, 0, 0) is the farthest vertex
+    }
+
+    private static float[] compose(float tx, float ty, float tz, float angle,
+                                   float ax, float ay, float az, float sx, float sy, float sz) {
+        final float length = (float)Math.sqrt((ax * ax) + (ay * ay) + (az * az));
+        final float[] q = new float[4];
+        Quat.setAxisAngle(q, 0, angle, ax / length, ay / length, az / length);
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, tx, ty, tz, q, 0, sx, sy, sz);
+        return m;
+    }
+
+    private static void assertArrayEquals(float[] expected, float[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("[" + i + "]", expected[i], actual[i], EPSILON);
+        }
+    }
+}
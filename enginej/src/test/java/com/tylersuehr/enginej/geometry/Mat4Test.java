@@ -0,0 +1,226 @@
+package com.tylersuehr.enginej.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Mat4}, covering the math that is easy to get subtly wrong.
+ *
+ * @author Tyler Suehr
+ */
+public class Mat4Test {
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void invert_timesOriginalIsIdentity() {
+        final float[] q = rotation(37f, 1f, 2f, 3f);
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 4f, -2f, 7f, q, 0, 2f, 0.5f, 3f);
+
+        final float[] inverse = new float[Mat4.SIZE];
+        assertTrue(Mat4.invert(inverse, 0, m, 0));
+        final float[] product = new float[Mat4.SIZE];
+        Mat4.multiply(product, 0, inverse, 0, m, 0);
+        assertMatrixEquals(identity(), product);
+        Mat4.multiply(product, 0, m, 0, inverse, 0);
+        assertMatrixEquals(identity(), product);
+    }
+
+    @Test
+    public void invert_singularReturnsFalse() {
+        final float[] m = new float[Mat4.SIZE];
+        assertFalse(Mat4.invert(new float[Mat4.SIZE], 0, m, 0));
+    }
+
+    @Test
+    public void invert_respectsOffsets() {
+        final float[] m = new float[Mat4.SIZE + 3];
+        Mat4.compose(m, 3, 1f, 2f, 3f, identityQuat(), 0, 2f, 2f, 2f);
+        final float[] inverse = new float[Mat4.SIZE + 5];
+        assertTrue(Mat4.invert(inverse, 5, m, 3));
+
+        final float[] product = new float[Mat4.SIZE];
+        Mat4.multiply(product, 0, inverse, 5, m, 3);
+        assertMatrixEquals(identity(), product);
+    }
+
+    @Test
+    public void composeDecompose_roundTripsSmallRotation() {
+        // Positive trace
+        assertRoundTrip(30f, 0.3f, 1f, -0.2f);
+    }
+
+    @Test
+    public void composeDecompose_roundTripsHalfTurnAboutX() {
+        // The x diagonal term is the largest
+        assertRoundTrip(180f, 1f, 0f, 0f);
+    }
+
+    @Test
+    public void composeDecompose_roundTripsHalfTurnAboutY() {
+        // The y diagonal term is the largest
+        assertRoundTrip(180f, 0f, 1f, 0f);
+    }
+
+    @Test
+    public void composeDecompose_roundTripsHalfTurnAboutZ() {
+        // The z diagonal term is the largest
+        assertRoundTrip(170f, 0.1f, 0f, 1f);
+    }
+
+    @Test
+    public void decompose_foldsMirrorIntoXScale() {
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 0f, 0f, 0f, identityQuat(), 0, -2f, 3f, 4f);
+
+        final float[] t = new float[3];
+        final float[] q = new float[Quat.SIZE];
+        final float[] s = new float[3];
+        Mat4.decompose(m, 0, t, 0, q, 0, s, 0);
+        assertArrayEquals(new float[] { -2f, 3f, 4f }, s, EPSILON);
+        assertEquals(1f, Math.abs(q[3]), EPSILON);
+    }
+
+    @Test
+    public void normalMatrix_isInverseTransposeOfUpperLeft() {
+        final float[] q = rotation(50f, 0f, 1f, 1f);
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 5f, 6f, 7f, q, 0, 1f, 2f, 4f);
+
+        final float[] normal = new float[9];
+        assertTrue(Mat4.normalMatrix(normal, 0, m, 0));
+
+        // N^T * M3 must be the identity, where N^T is N with rows and columns swapped
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                float sum = 0f;
+                for (int k = 0; k < 3; k++) {
+                    sum += normal[row * 3 + k] * m[col * 4 + k];
+                }
+                assertEquals((row == col) ? 1f : 0f, sum, EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void normalMatrix_ofRotationIsTheRotation() {
+        final float[] q = rotation(120f, 1f, 1f, 0f);
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 0f, 0f, 0f, q, 0, 1f, 1f, 1f);
+
+        final float[] normal = new float[9];
+        assertTrue(Mat4.normalMatrix(normal, 0, m, 0));
+        for (int col = 0; col < 3; col++) {
+            for (int row = 0; row < 3; row++) {
+                assertEquals(m[col * 4 + row], normal[col * 3 + row], EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void normalMatrix_singularLeavesOutputUntouched() {
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 0f, 0f, 0f, identityQuat(), 0, 1f, 0f, 1f);
+        final float[] normal = new float[9];
+        normal[0] = 42f;
+        assertFalse(Mat4.normalMatrix(normal, 0, m, 0));
+        assertEquals(42f, normal[0], 0f);
+    }
+
+    @Test
+    public void extractFrustumPlanes_classifiesKnownPoints() {
+        final float[] projection = new float[Mat4.SIZE];
+        final float[] view = new float[Mat4.SIZE];
+        final float[] viewProjection = new float[Mat4.SIZE];
+        Mat4.perspective(projection, 0, 90f, 1f, 1f, 100f);
+        Mat4.lookAt(view, 0, 0f, 0f, 0f, 0f, 0f, -1f, 0f, 1f, 0f);
+        Mat4.multiply(viewProjection, 0, projection, 0, view, 0);
+
+        final float[] planes = new float[Mat4.FRUSTUM_PLANES_SIZE];
+        Mat4.extractFrustumPlanes(planes, 0, viewProjection, 0);
+
+        // Every plane is normalized
+        for (int p = 0; p < 6; p++) {
+            final float nx = planes[p * 4], ny = planes[p * 4 + 1], nz = planes[p * 4 + 2];
+            assertEquals(1f, (float)Math.sqrt(nx * nx + ny * ny + nz * nz), EPSILON);
+        }
+
+        assertInsideAll(planes, 0f, 0f, -10f);
+        assertInsideAll(planes, 4f, -4f, -5f);
+        assertOutsideOnly(planes, 0, -20f, 0f, -10f);  // left
+        assertOutsideOnly(planes, 1, 20f, 0f, -10f);   // right
+        assertOutsideOnly(planes, 2, 0f, -20f, -10f);  // bottom
+        assertOutsideOnly(planes, 3, 0f, 20f, -10f);   // top
+        assertOutsideOnly(planes, 4, 0f, 0f, -0.5f);   // near
+        assertOutsideOnly(planes, 5, 0f, 0f, -150f);   // far
+
+        // With a 90 degree field of view, the side planes pass through x = -z exactly
+        assertEquals(0f, distance(planes, 1, 10f, 0f, -10f), EPSILON);
+        assertEquals(0f, distance(planes, 4, 0f, 0f, -1f), EPSILON);
+        assertEquals(0f, distance(planes, 5, 0f, 0f, -100f), 1e-3f);
+    }
+
+    private static void assertRoundTrip(float angle, float ax, float ay, float az) {
+        final float[] q = rotation(angle, ax, ay, az);
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.compose(m, 0, 1f, -2f, 3f, q, 0, 2f, 3f, 0.5f);
+
+        final float[] t = new float[3];
+        final float[] outQ = new float[Quat.SIZE];
+        final float[] s = new float[3];
+        Mat4.decompose(m, 0, t, 0, outQ, 0, s, 0);
+        assertArrayEquals(new float[] { 1f, -2f, 3f }, t, EPSILON);
+        assertArrayEquals(new float[] { 2f, 3f, 0.5f }, s, EPSILON);
+
+        // q and -q are the same rotation
+        final float dot = q[0] * outQ[0] + q[1] * outQ[1] + q[2] * outQ[2] + q[3] * outQ[3];
+        assertEquals(1f, Math.abs(dot), EPSILON);
+
+        final float[] recomposed = new float[Mat4.SIZE];
+        Mat4.compose(recomposed, 0, t[0], t[1], t[2], outQ, 0, s[0], s[1], s[2]);
+        assertMatrixEquals(m, recomposed);
+    }
+
+    private static void assertInsideAll(float[] planes, float x, float y, float z) {
+        for (int p = 0; p < 6; p++) {
+            assertTrue("plane " + p, distance(planes, p, x, y, z) > 0f);
+        }
+    }
+
+    private static void assertOutsideOnly(float[] planes, int outside, float x, float y, float z) {
+        for (int p = 0; p < 6; p++) {
+            final float distance = distance(planes, p, x, y, z);
+            assertTrue("plane " + p, (p == outside) ? distance < 0f : distance > 0f);
+        }
+    }
+
+    private static float distance(float[] planes, int p, float x, float y, float z) {
+        return planes[p * 4] * x + planes[p * 4 + 1] * y + planes[p * 4 + 2] * z + planes[p * 4 + 3];
+    }
+
+    private static void assertMatrixEquals(float[] expected, float[] actual) {
+        for (int i = 0; i < Mat4.SIZE; i++) {
+            assertEquals("element " + i, expected[i], actual[i], EPSILON);
+        }
+    }
+
+    private static float[] rotation(float angle, float x, float y, float z) {
+        final float length = (float)Math.sqrt(x * x + y * y + z * z);
+        final float[] q = new float[Quat.SIZE];
+        Quat.setAxisAngle(q, 0, angle, x / length, y / length, z / length);
+        return q;
+    }
+
+    private static float[] identity() {
+        final float[] m = new float[Mat4.SIZE];
+        Mat4.setIdentity(m, 0);
+        return m;
+    }
+
+    private static float[] identityQuat() {
+        final float[] q = new float[Quat.SIZE];
+        Quat.setIdentity(q, 0);
+        return q;
+    }
+}
@@ -0,0 +1,127 @@
+package com.tylersuehr.enginej.gl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GLStateCache}, run against a {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class GLStateCacheTest {
+    private HeadlessGLBackend mBackend;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+    }
+
+    @Test
+    public void redundantBindsAreSkipped() {
+        final int buffer = genBuffer();
+        final int texture = genTexture();
+        mBackend.resetCounters();
+
+        for (int i = 0; i < 3; i++) {
+            GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, buffer);
+            GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, texture);
+            GLStateCache.setEnabled(GL.GL_BLEND, true);
+            GLStateCache.blendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+        }
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_BUFFER));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_ACTIVE_TEXTURE));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_ENABLE));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BLEND_FUNC));
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void texturesAreShadowedPerUnit() {
+        final int texture = genTexture();
+        mBackend.resetCounters();
+
+        GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, texture);
+        GLStateCache.bindTexture(1, GL.GL_TEXTURE_2D, texture);
+        GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, texture);
+
+        assertEquals(2, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+    }
+
+    @Test
+    public void invalidate_forcesTheNextChangeThrough() {
+        final int buffer = genBuffer();
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, buffer);
+        mBackend.resetCounters();
+
+        GLStateCache.invalidate();
+        GLStateCache.bindBuffer(GL.GL_ARRAY_BUFFER, buffer);
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_BUFFER));
+    }
+
+    @Test
+    public void bindTexture_isShadowedAfterInvalidate() {
+        final int texture = genTexture();
+        GLStateCache.invalidate();
+        mBackend.resetCounters();
+
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, texture);
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, texture);
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_ACTIVE_TEXTURE));
+    }
+
+    @Test
+    public void bindTexture_withUnknownUnitSelectsUnitZero() {
+        final int first = genTexture();
+        final int second = genTexture();
+        GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, second);
+
+        // The game switches units behind the cache's back, then invalidates as documented
+        GL.glActiveTexture(GL.GL_TEXTURE0 + 1);
+        GLStateCache.invalidate();
+        GLStateCache.bindTexture(GL.GL_TEXTURE_2D, first);
+
+        // The bind landed in unit 0, replacing the second texture there
+        final int[] params = new int[1];
+        GL.glGetIntegerv(GL.GL_ACTIVE_TEXTURE, params, 0);
+        assertEquals(GL.GL_TEXTURE0, params[0]);
+        GL.glGetIntegerv(GL.GL_TEXTURE_BINDING_2D, params, 0);
+        assertEquals(first, params[0]);
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void deleteTexture_forgetsItWhereverBound() {
+        final int texture = genTexture();
+        GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, texture);
+
+        GLStateCache.deleteTexture(texture);
+        mBackend.resetCounters();
+        GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, 0);
+
+        // Deleting unbound it, so unbinding again is redundant
+        assertEquals(0, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(0, mBackend.getTextureCount());
+    }
+
+    private static int genBuffer() {
+        final int[] ids = new int[1];
+        GL.glGenBuffers(1, ids, 0);
+        return ids[0];
+    }
+
+    private static int genTexture() {
+        final int[] ids = new int[1];
+        GL.glGenTextures(1, ids, 0);
+        return ids[0];
+    }
+}
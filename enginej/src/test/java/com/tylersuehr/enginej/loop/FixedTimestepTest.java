@@ -0,0 +1,112 @@
+package com.tylersuehr.enginej.loop;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FixedTimestep}, driven by a fake {@link Clock}.
+ *
+ * @author Tyler Suehr
+ */
+public class FixedTimestepTest {
+    private static final long MS = 1_000_000L;
+
+    private FakeClock mClock;
+    private FixedTimestep mTimestep;
+
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock();
+        mTimestep = new FixedTimestep(50, mClock); // 20ms steps
+    }
+
+    @Test
+    public void advance_consumesWholeSteps() {
+        mClock.mNanos += 50 * MS;
+
+        assertEquals(2, mTimestep.advance());
+        assertEquals(0.5f, mTimestep.getAlpha(), 1e-6f);
+
+        mClock.mNanos += 10 * MS;
+        assertEquals(1, mTimestep.advance());
+        assertEquals(0f, mTimestep.getAlpha(), 1e-6f);
+        assertEquals(3, mTimestep.getTickCount());
+    }
+
+    @Test
+    public void advance_clampsLargeGapsToMaxFrame() {
+        // Five seconds is clamped to the default 250ms, or 12 steps and 10ms over
+        mClock.mNanos += 5000 * MS;
+
+        assertEquals(12, mTimestep.advance());
+        assertEquals(0.5f, mTimestep.getAlpha(), 1e-6f);
+
+        mClock.mNanos += 5000 * MS;
+        mTimestep.setMaxFrameNanos(100 * MS);
+        assertEquals(5, mTimestep.advance());
+    }
+
+    @Test
+    public void advance_capsTicksAndDropsTheBacklog() {
+        mTimestep.setMaxTicksPerAdvance(3);
+        mClock.mNanos += 210 * MS;
+
+        assertEquals(3, mTimestep.advance());
+        assertTrue(mTimestep.getAlpha() < 1f);
+
+        // Nothing left over to spiral into the next frame
+        assertEquals(0, mTimestep.advance());
+    }
+
+    @Test
+    public void getAlpha_staysInRangeForUnevenFrames() {
+        final Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            mClock.mNanos += random.nextInt(100) * MS + random.nextInt(1_000_000);
+            mTimestep.advance();
+
+            final float alpha = mTimestep.getAlpha();
+            assertTrue("alpha " + alpha, alpha >= 0f && alpha < 1f);
+        }
+    }
+
+    @Test
+    public void reset_skipsTimeSpentPaused() {
+        mClock.mNanos += 30 * MS;
+        assertEquals(1, mTimestep.advance());
+
+        // Paused for a minute
+        mClock.mNanos += 60_000 * MS;
+        mTimestep.reset();
+
+        assertEquals(0, mTimestep.advance());
+        assertEquals(0f, mTimestep.getAlpha(), 0f);
+
+        mClock.mNanos += 20 * MS;
+        assertEquals(1, mTimestep.advance());
+        assertEquals(2, mTimestep.getTickCount());
+    }
+
+    @Test
+    public void advance_ignoresClockGoingBackwards() {
+        mClock.mNanos -= 100 * MS;
+
+        assertEquals(0, mTimestep.advance());
+        assertEquals(0f, mTimestep.getAlpha(), 0f);
+    }
+
+
+    private static final class FakeClock implements Clock {
+        long mNanos = 1000 * MS;
+
+        @Override
+        public long nanoTime() {
+            return mNanos;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.tylersuehr.enginej.mesh;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MeshOptimizer}. Reordering must never add, drop or flip a
+ * triangle, so each result is compared with its input as a multiset of triangles, each
+ * rotated to start at its smallest vertex so the winding is kept.
+ *
+ * @author Tyler Suehr
+ */
+public class MeshOptimizerTest {
+    private static final int GRID = 24;
+
+    @Test
+    public void optimizeVertexCache_keepsEveryTriangle() {
+        final MeshData grid = shuffledGrid(GRID, 1);
+        final int[] optimized = MeshOptimizer.optimizeVertexCache(grid.indexData, grid.getVertexCount());
+
+        assertEquals(triangles(grid.indexData), triangles(optimized));
+    }
+
+    @Test
+    public void optimizeVertexCache_lowersTheAcmrOfAShuffledGrid() {
+        final MeshData grid = shuffledGrid(GRID, 2);
+        final int cache = MeshOptimizer.DEFAULT_CACHE_SIZE;
+        final float before = MeshOptimizer.computeACMR(grid.indexData, grid.getVertexCount(), cache);
+        final float after = MeshOptimizer.computeACMR(
+                MeshOptimizer.optimizeVertexCache(grid.indexData, grid.getVertexCount()),
+                grid.getVertexCount(), cache);
+
+        assertTrue("ACMR " + before + " -> " + after, after < before * 0.5f);
+        // A grid can't do better than one new vertex per two triangles
+        assertTrue(after >= 0.5f);
+    }
+
+    @Test
+    public void optimizeVertexCache_leavesTheInputAlone() {
+        final MeshData grid = shuffledGrid(8, 3);
+        final int[] copy = grid.indexData.clone();
+        MeshOptimizer.optimizeVertexCache(grid.indexData, grid.getVertexCount());
+
+        assertArrayEquals(copy, grid.indexData);
+    }
+
+    @Test
+    public void optimizeVertexCache_shortIndicesMatchIntIndices() {
+        final MeshData grid = shuffledGrid(8, 4);
+        final short[] shorts = grid.toShortIndices();
+        final short[] optimized = MeshOptimizer.optimizeVertexCache(shorts, grid.getVertexCount());
+        final int[] ints = new int[optimized.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = optimized[i] & 0xFFFF;
+        }
+
+        assertArrayEquals(MeshOptimizer.optimizeVertexCache(grid.indexData, grid.getVertexCount()), ints);
+    }
+
+    @Test
+    public void optimizeOverdraw_keepsEveryTriangle() {
+        final MeshData grid = shuffledGrid(GRID, 5);
+        final int[] cached = MeshOptimizer.optimizeVertexCache(grid.indexData, grid.getVertexCount());
+        final int[] optimized = MeshOptimizer.optimizeOverdraw(cached, grid.vertexData,
+                grid.floatsPerVertex, MeshOptimizer.DEFAULT_CACHE_SIZE);
+
+        assertEquals(triangles(grid.indexData), triangles(optimized));
+    }
+
+    @Test
+    public void optimize_keepsEveryTriangleAfterRemapping() {
+        final MeshData grid = shuffledGrid(GRID, 6);
+        for (boolean overdraw : new boolean[] { false, true }) {
+            final float[] acmr = new float[2];
+            final MeshData optimized = MeshOptimizer.optimize(grid, overdraw, acmr);
+
+            // Vertices move, so compare the triangles by their positions
+            assertEquals(grid.getVertexCount(), optimized.getVertexCount());
+            assertEquals(positionTriangles(grid), positionTriangles(optimized));
+            assertTrue(acmr[1] < acmr[0]);
+        }
+    }
+
+    @Test
+    public void computeFetchRemap_isAPermutationInFirstUseOrder() {
+        // Vertex 5 is never used, so it goes last
+        final int[] indices = { 3, 1, 4, 4, 1, 0, 2, 0, 1 };
+        final int[] remap = MeshOptimizer.computeFetchRemap(indices, 6);
+
+        assertArrayEquals(new int[] { 3, 1, 4, 0, 2, 5 }, remap);
+
+        final MeshData grid = shuffledGrid(GRID, 7);
+        final int[] big = MeshOptimizer.computeFetchRemap(grid.indexData, grid.getVertexCount());
+        final boolean[] seen = new boolean[big.length];
+        for (int index : big) {
+            assertFalse(seen[index]);
+            seen[index] = true;
+        }
+    }
+
+    @Test
+    public void emptyIndicesAreHandled() {
+        final int[] empty = new int[0];
+
+        assertEquals(0, MeshOptimizer.optimizeVertexCache(empty, 4).length);
+        assertEquals(0, MeshOptimizer.optimizeOverdraw(empty, new float[12], 3,
+                MeshOptimizer.DEFAULT_CACHE_SIZE).length);
+        assertEquals(0f, MeshOptimizer.computeACMR(empty, 4, MeshOptimizer.DEFAULT_CACHE_SIZE), 0f);
+        assertArrayEquals(new int[] { 0, 1, 2, 3 }, MeshOptimizer.computeFetchRemap(empty, 4));
+
+        final MeshData optimized = MeshOptimizer.optimize(new MeshData(new float[12], 3, empty), true, null);
+        assertEquals(0, optimized.getIndexCount());
+    }
+
+    @Test
+    public void degenerateTrianglesAreKept() {
+        final MeshData grid = shuffledGrid(6, 8);
+        final int[] indices = Arrays.copyOf(grid.indexData, grid.indexData.length + 9);
+        final int n = grid.indexData.length;
+        indices[n] = 3;
+        indices[n + 1] = 3;
+        indices[n + 2] = 7;
+        indices[n + 3] = 5;
+        indices[n + 4] = 5;
+        indices[n + 5] = 5;
+        indices[n + 6] = 9;
+        indices[n + 7] = 2;
+        indices[n + 8] = 9;
+        final MeshData mesh = new MeshData(grid.vertexData, 3, indices);
+
+        final int[] cached = MeshOptimizer.optimizeVertexCache(indices, mesh.getVertexCount());
+        assertEquals(triangles(indices), triangles(cached));
+        final int[] overdraw = MeshOptimizer.optimizeOverdraw(cached, mesh.vertexData, 3,
+                MeshOptimizer.DEFAULT_CACHE_SIZE);
+        assertEquals(triangles(indices), triangles(overdraw));
+        assertEquals(positionTriangles(mesh), positionTriangles(MeshOptimizer.optimize(mesh, true, null)));
+    }
+
+    /* A flat grid of size x size quads, with its triangles shuffled */
+    private static MeshData shuffledGrid(int size, long seed) {
+        final int row = size + 1;
+        final float[] vertices = new float[row * row * 3];
+        for (int y = 0, v = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                vertices[v++] = x;
+                vertices[v++] = y;
+                vertices[v++] = (x * 7 + y * 3) % 5;
+            }
+        }
+
+        final int[] indices = new int[size * size * 6];
+        for (int y = 0, i = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final int a = y * row + x;
+                final int b = a + row;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = a + 1;
+                indices[i++] = a + 1;
+                indices[i++] = b;
+                indices[i++] = b + 1;
+            }
+        }
+
+        final Random random = new Random(seed);
+        for (int t = indices.length / 3 - 1; t > 0; t--) {
+            final int swap = random.nextInt(t + 1);
+            for (int c = 0; c < 3; c++) {
+                final int temp = indices[t * 3 + c];
+                indices[t * 3 + c] = indices[swap * 3 + c];
+                indices[swap * 3 + c] = temp;
+            }
+        }
+        return new MeshData(vertices, 3, indices);
+    }
+
+    /* Each triangle rotated to start at its smallest index, which keeps its winding, sorted */
+    private static List<String> triangles(int[] indices) {
+        final List<String> out = new ArrayList<>();
+        for (int t = 0; t < indices.length; t += 3) {
+            out.add(canonical(new String[] {
+                    String.valueOf(indices[t]), String.valueOf(indices[t + 1]), String.valueOf(indices[t + 2])
+            }));
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private static List<String> positionTriangles(MeshData mesh) {
+        final List<String> out = new ArrayList<>();
+        final int[] indices = mesh.indexData;
+        for (int t = 0; t < indices.length; t += 3) {
+            out.add(canonical(new String[] {
+                    position(mesh, indices[t]), position(mesh, indices[t + 1]), position(mesh, indices[t + 2])
+            }));
+        }
+        Collections.sort(out);
+        return out;
+    }
+
+    private static String position(MeshData mesh, int vertex) {
+        final float[] v = mesh.vertexData;
+        final int i = vertex * mesh.floatsPerVertex;
+        return String.format("%08.2f,%08.2f,%08.2f", v[i], v[i + 1], v[i + 2]);
+    }
+
+    private static String canonical(String[] corners) {
+        int first = 0;
+        for (int c = 1; c < 3; c++) {
+            if (corners[c].compareTo(corners[first]) < 0) {
+                first = c;
+            }
+        }
+        return corners[first] + "|" + corners[(first + 1) % 3] + "|" + corners[(first + 2) % 3];
+    }
+}
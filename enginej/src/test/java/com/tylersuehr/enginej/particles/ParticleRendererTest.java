@@ -0,0 +1,171 @@
+package com.tylersuehr.enginej.particles;
+
+import com.tylersuehr.enginej.buffers.GPUIndexBuffer;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+import com.tylersuehr.enginej.sprites.SpriteBatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParticleRenderer}, counting its GL calls through a
+ * {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class ParticleRendererTest {
+    private HeadlessGLBackend mBackend;
+    private int mFire;
+    private int mSmoke;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+        final int[] textures = new int[2];
+        GL.glGenTextures(2, textures, 0);
+        mFire = textures[0];
+        mSmoke = textures[1];
+    }
+
+    @After
+    public void tearDown() {
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void oneDrawPerRunOfEmittersSharingAMaterial() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 3));
+        system.addEmitter(emitter(mFire, false, 2)); // Same run
+        system.addEmitter(emitter(mSmoke, false, 4));
+        system.addEmitter(emitter(mSmoke, true, 1)); // Same texture, different blending
+        system.addEmitter(emitter(mFire, false, 5)); // Back to the first material
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_POINTS);
+        mBackend.resetCounters();
+
+        assertEquals(15, renderer.draw(system, 0, 1, 2));
+
+        assertEquals(4, renderer.getDrawCallCount());
+        assertEquals(4, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ARRAYS));
+        assertEquals(15, mBackend.getVertexCount());
+        // Every particle goes up in one upload, whatever the number of draws
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_SUB_DATA));
+    }
+
+    @Test
+    public void emptyEmittersDoNotSplitARun() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 3));
+        system.addEmitter(emitter(mSmoke, true, 0));
+        system.addEmitter(emitter(mFire, false, 2));
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_POINTS);
+        mBackend.resetCounters();
+
+        renderer.draw(system, 0, 1, 2);
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ARRAYS));
+        assertEquals(5, mBackend.getVertexCount());
+    }
+
+    @Test
+    public void quadsAreDrawnAsFourIndexedCorners() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 4));
+        system.addEmitter(emitter(mSmoke, false, 3));
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_QUADS);
+        mBackend.resetCounters();
+
+        assertEquals(7, renderer.draw(system, 0, 1, 2));
+
+        assertEquals(2, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ELEMENTS));
+        assertEquals(0, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ARRAYS));
+        assertEquals(7 * 6, mBackend.getVertexCount()); // Indices
+        assertEquals(7 * 4 * 24, mBackend.getBytesUploaded()); // 4 corners of 24 bytes each
+        renderer.release();
+    }
+
+    @Test
+    public void longQuadRunsAreSplitToKeepIndicesInRange() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 6));
+        system.addEmitter(emitter(mFire, false, 4));
+        final GPUIndexBuffer indices = SpriteBatch.createQuadIndexBuffer(4);
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_QUADS, indices);
+        mBackend.resetCounters();
+
+        renderer.draw(system, 0, 1, 2);
+
+        // One run of 10, drawn 4 + 4 + 2 with the attributes moved to each draw's first quad
+        assertEquals(3, renderer.getDrawCallCount());
+        assertEquals(3, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ELEMENTS));
+        assertEquals(10 * 6, mBackend.getVertexCount());
+        assertEquals(3 * 3, mBackend.getCallCount(HeadlessGLBackend.CMD_VERTEX_ATTRIB_POINTER));
+
+        // The shared indices stay alive for their other users
+        renderer.release();
+        assertEquals(1, mBackend.getBufferCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sharedQuadIndicesMustBeShorts() {
+        new ParticleRenderer(100, ParticleRenderer.MODE_QUADS, new GPUIndexBuffer(new int[6]));
+    }
+
+    @Test
+    public void particlesBeyondTheMaximumAreSkipped() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 6));
+        system.addEmitter(emitter(mSmoke, false, 6));
+        system.addEmitter(emitter(mFire, true, 6));
+        final ParticleRenderer renderer = new ParticleRenderer(10, ParticleRenderer.MODE_POINTS);
+        mBackend.resetCounters();
+
+        assertEquals(10, renderer.draw(system, 0, 1, 2));
+
+        assertEquals(2, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ARRAYS));
+        assertEquals(10, renderer.getParticlesDrawnCount());
+    }
+
+    @Test
+    public void unusedAttributesAreNotPointed() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 3));
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_POINTS);
+        mBackend.resetCounters();
+
+        renderer.draw(system, 0, -1, -1);
+
+        // Only the position; pointing -1 would raise GL_INVALID_VALUE, checked in tearDown()
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_VERTEX_ATTRIB_POINTER));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_ENABLE_VERTEX_ATTRIB_ARRAY));
+    }
+
+    @Test
+    public void nothingIsDrawnWithoutParticles() {
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter(mFire, false, 0));
+        final ParticleRenderer renderer = new ParticleRenderer(100, ParticleRenderer.MODE_POINTS);
+        mBackend.resetCounters();
+
+        assertEquals(0, renderer.draw(system, 0, 1, 2));
+
+        assertEquals(0, renderer.getDrawCallCount());
+        assertEquals(0, mBackend.getCallCount(HeadlessGLBackend.CMD_DRAW_ARRAYS));
+        assertEquals(0, mBackend.getCallCount(HeadlessGLBackend.CMD_BUFFER_SUB_DATA));
+    }
+
+    private static ParticleEmitter emitter(int textureId, boolean additive, int count) {
+        final ParticleEmitter emitter = new ParticleEmitter(Math.max(1, count));
+        emitter.setMaterial(textureId, additive);
+        emitter.burst(count);
+        return emitter;
+    }
+}
@@ -0,0 +1,163 @@
+package com.tylersuehr.enginej.particles;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ParticleSystem} and {@link ParticleEmitter}: retiring dead
+ * particles and spawning new ones over fixed time steps.
+ *
+ * @author Tyler Suehr
+ */
+public class ParticleSystemTest {
+    @Test
+    public void deadParticlesAreReplacedByTheLastLiveOne() {
+        final ParticleEmitter emitter = burst(5);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+        kill(emitter, 1);
+        kill(emitter, 3);
+
+        system.update(0f);
+
+        assertEquals(3, emitter.getCount());
+        assertSizes(emitter, 0f, 4f, 2f);
+    }
+
+    @Test
+    public void deadParticleMovedIntoAGapIsRemovedToo() {
+        final ParticleEmitter emitter = burst(5);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+        kill(emitter, 1);
+        kill(emitter, 4);
+
+        system.update(0f);
+
+        assertEquals(3, emitter.getCount());
+        assertSizes(emitter, 0f, 3f, 2f);
+    }
+
+    @Test
+    public void everyParticleDyingEmptiesTheEmitter() {
+        final ParticleEmitter emitter = burst(4);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+
+        system.update(2f); // Every particle lives 1 second
+
+        assertEquals(0, emitter.getCount());
+    }
+
+    @Test
+    public void rateCarriesFractionsBetweenSteps() {
+        final ParticleEmitter emitter = new ParticleEmitter(100);
+        emitter.setLife(10f, 10f);
+        emitter.setRate(10f);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+
+        // 2.5 particles are due each step, so steps alternate between spawning 2 and 3
+        final int[] expected = { 2, 5, 7, 10, 12, 15, 17, 20 };
+        for (int step = 0; step < expected.length; step++) {
+            system.update(0.25f);
+            assertEquals(expected[step], emitter.getCount());
+        }
+    }
+
+    @Test
+    public void spawningStopsAtCapacity() {
+        final ParticleEmitter emitter = new ParticleEmitter(15);
+        emitter.setLife(10f, 10f);
+        emitter.setRate(10f);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+
+        for (int step = 0; step < 8; step++) {
+            system.update(0.25f);
+        }
+
+        assertEquals(15, emitter.getCount());
+        assertEquals(0, emitter.burst(10)); // A full emitter spawns nothing
+    }
+
+    @Test
+    public void particlesMoveByTheirVelocity() {
+        final ParticleEmitter emitter = new ParticleEmitter(4);
+        emitter.setLife(10f, 10f);
+        emitter.setSpawnArea(1f, 2f, 3f, 0f, 0f, 0f);
+        emitter.setVelocity(2f, 0f, -4f, 0f);
+        emitter.burst(1);
+        final ParticleSystem system = new ParticleSystem();
+        system.addEmitter(emitter);
+
+        system.update(0.5f);
+
+        assertEquals(2f, emitter.positionX[0], 1e-6f);
+        assertEquals(2f, emitter.positionY[0], 1e-6f);
+        assertEquals(1f, emitter.positionZ[0], 1e-6f);
+        assertEquals(0.5f, emitter.age[0], 1e-6f);
+    }
+
+    @Test
+    public void parallelUpdateMatchesSerialUpdate() {
+        final ParticleEmitter serial = randomEmitter();
+        final ParticleEmitter parallel = randomEmitter();
+        final ParticleSystem serialSystem = new ParticleSystem();
+        final ParticleSystem parallelSystem = new ParticleSystem();
+        serialSystem.addEmitter(serial);
+        parallelSystem.addEmitter(parallel);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        parallelSystem.setParallel(pool, 64);
+
+        try {
+            for (int step = 0; step < 30; step++) {
+                serialSystem.update(1f / 30f);
+                parallelSystem.update(1f / 30f);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(serial.getCount(), parallel.getCount());
+        for (int i = 0; i < serial.getCount(); i++) {
+            assertEquals(serial.positionX[i], parallel.positionX[i], 0f);
+            assertEquals(serial.positionY[i], parallel.positionY[i], 0f);
+            assertEquals(serial.age[i], parallel.age[i], 0f);
+        }
+    }
+
+    /** Spawns particles that live 1 second, each sized by its index so it can be followed. */
+    private static ParticleEmitter burst(int count) {
+        final ParticleEmitter emitter = new ParticleEmitter(count);
+        emitter.setLife(1f, 1f);
+        emitter.burst(count);
+        for (int i = 0; i < count; i++) {
+            emitter.size[i] = i;
+        }
+        return emitter;
+    }
+
+    private static ParticleEmitter randomEmitter() {
+        final ParticleEmitter emitter = new ParticleEmitter(5000);
+        emitter.setLife(0.2f, 1.5f);
+        emitter.setRate(3000f);
+        emitter.setVelocity(0f, 1f, 0f, 2f);
+        emitter.addAffector(new GravityAffector(0f, -9.8f, 0f));
+        emitter.addAffector(new DragAffector(0.5f));
+        return emitter;
+    }
+
+    private static void kill(ParticleEmitter emitter, int index) {
+        emitter.age[index] = emitter.life[index];
+    }
+
+    private static void assertSizes(ParticleEmitter emitter, float... sizes) {
+        for (int i = 0; i < sizes.length; i++) {
+            assertEquals("particle " + i, sizes[i], emitter.size[i], 0f);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.tylersuehr.enginej.profiling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Profiler}, recording frames at fixed timestamps so their
+ * times are known.
+ *
+ * @author Tyler Suehr
+ */
+public class ProfilerTest {
+    private long mClock;
+
+
+    @Before
+    public void setUp() {
+        Profiler.setEnabled(true);
+        Profiler.setCapacity(4);
+        Profiler.setSummaryInterval(0);
+        mClock = 1000; // A frame start of 0 means no frame has begun
+    }
+
+    @After
+    public void tearDown() {
+        Profiler.setEnabled(false);
+        Profiler.setCapacity(300);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCapacity_rejectsZero() {
+        Profiler.setCapacity(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setCapacity_rejectsNegative() {
+        Profiler.setCapacity(-1);
+    }
+
+    @Test
+    public void ring_keepsTheNewestFramesOnceFull() {
+        for (int i = 1; i <= 6; i++) {
+            frame(i * 100, i);
+        }
+
+        assertEquals(6, Profiler.getFrameCount());
+        assertEquals(4, Profiler.getStoredFrameCount());
+        assertEquals(600, Profiler.getFrameNanos(0));
+        assertEquals(500, Profiler.getFrameNanos(1));
+        assertEquals(400, Profiler.getFrameNanos(2));
+        assertEquals(300, Profiler.getFrameNanos(3));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void ring_rejectsFramesThatWereOverwritten() {
+        for (int i = 1; i <= 6; i++) {
+            frame(i * 100, i);
+        }
+        Profiler.getFrameNanos(4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void ring_rejectsFramesNotYetRecorded() {
+        frame(100, 1);
+        Profiler.getFrameNanos(1);
+    }
+
+    @Test
+    public void capacityOfOneKeepsOnlyTheLastFrame() {
+        Profiler.setCapacity(1);
+
+        frame(100, 1);
+        frame(200, 2);
+
+        assertEquals(1, Profiler.getStoredFrameCount());
+        assertEquals(200, Profiler.getFrameNanos(0));
+        assertEquals(2, Profiler.getCounter(Profiler.COUNTER_DRAW_CALLS, 0));
+    }
+
+    @Test
+    public void counters_areKeptPerFrame() {
+        frame(100, 3);
+        frame(100, 0);
+        frame(100, 5);
+
+        assertEquals(5, Profiler.getCounter(Profiler.COUNTER_DRAW_CALLS, 0));
+        assertEquals(0, Profiler.getCounter(Profiler.COUNTER_DRAW_CALLS, 1));
+        assertEquals(3, Profiler.getCounter(Profiler.COUNTER_DRAW_CALLS, 2));
+        assertEquals(50, Profiler.getCounter(Profiler.COUNTER_VERTICES, 0));
+        assertEquals(8 / 3.0, Profiler.getCounterAverage(Profiler.COUNTER_DRAW_CALLS), 1e-9);
+    }
+
+    @Test
+    public void counters_averageOnlyTheStoredFrames() {
+        for (int i = 1; i <= 6; i++) {
+            frame(100, i);
+        }
+
+        // Frames 3 to 6 are stored
+        assertEquals((3 + 4 + 5 + 6) / 4.0, Profiler.getCounterAverage(Profiler.COUNTER_DRAW_CALLS), 1e-9);
+    }
+
+    @Test
+    public void percentiles_useTheNearestRank() {
+        Profiler.setCapacity(10);
+        for (int i = 10; i >= 1; i--) {
+            frame(i * 100, 0);
+        }
+
+        assertEquals(100, Profiler.getFrameTimePercentile(0));
+        assertEquals(100, Profiler.getFrameTimePercentile(10));
+        assertEquals(500, Profiler.getFrameTimePercentile(50));
+        assertEquals(600, Profiler.getFrameTimePercentile(51));
+        assertEquals(1000, Profiler.getFrameTimePercentile(95));
+        assertEquals(1000, Profiler.getFrameTimePercentile(100));
+    }
+
+    @Test
+    public void percentiles_ignoreOverwrittenFrames() {
+        frame(10_000, 0); // Overwritten by the later frames
+        for (int i = 1; i <= 4; i++) {
+            frame(i * 100, 0);
+        }
+
+        assertEquals(400, Profiler.getFrameTimePercentile(100));
+        assertEquals(200, Profiler.getFrameTimePercentile(50));
+    }
+
+    @Test
+    public void percentiles_areZeroWithoutFrames() {
+        assertEquals(0, Profiler.getFrameTimePercentile(50));
+    }
+
+    @Test
+    public void histogram_putsLongFramesInTheLastBucket() {
+        frame(50, 0);
+        frame(150, 0);
+        frame(199, 0);
+        frame(5000, 0);
+
+        assertArrayEquals(new int[] { 1, 2, 1 }, Profiler.getFrameTimeHistogram(100, 3));
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        Profiler.setEnabled(false);
+
+        frame(100, 1);
+
+        assertEquals(0, Profiler.getFrameCount());
+    }
+
+    @Test
+    public void dump_writesOldestFirst() throws Exception {
+        frame(1000, 1);
+        frame(2000, 2);
+        final StringWriter out = new StringWriter();
+
+        Profiler.dump(out);
+
+        final String[] lines = out.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("frame_us,update_us,draw_us"));
+        assertTrue(lines[1].startsWith("1,0,0,1,10,"));
+        assertTrue(lines[2].startsWith("2,0,0,2,20,"));
+    }
+
+    /** Records one frame lasting the given time, with a number of 10 vertex draws. */
+    private void frame(long nanos, int draws) {
+        Profiler.beginFrame(mClock);
+        for (int i = 0; i < draws; i++) {
+            Profiler.countDraw(10);
+        }
+        mClock += nanos;
+        Profiler.endFrame(mClock);
+    }
+}
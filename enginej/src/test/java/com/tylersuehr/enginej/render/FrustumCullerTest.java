@@ -0,0 +1,236 @@
+package com.tylersuehr.enginej.render;
+
+import com.tylersuehr.enginej.AbstractGameObject;
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.geometry.Bounds;
+import com.tylersuehr.enginej.geometry.Mat4;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrustumCuller}.
+ *
+ * Most use an orthographic camera at the origin looking down -z, so the visible region is
+ * simply x and y in [-10, 10] and z in [-100, -1].
+ *
+ * @author Tyler Suehr
+ */
+public class FrustumCullerTest {
+    private final float[] mViewProjection = new float[Mat4.SIZE];
+    private FrustumCuller mCuller;
+
+
+    @Before
+    public void setUp() {
+        Mat4.ortho(mViewProjection, 0, -10f, 10f, -10f, 10f, 1f, 100f);
+        mCuller = new FrustumCuller(4);
+    }
+
+    @Test
+    public void spheresOutsideAnyPlaneAreCulled() {
+        final int inside = mCuller.addSphere(0f, 0f, -50f, 1f);
+        final int left = mCuller.addSphere(-12f, 0f, -50f, 1f);
+        final int above = mCuller.addSphere(0f, 12f, -50f, 1f);
+        final int behind = mCuller.addSphere(0f, 0f, 5f, 1f);
+        final int beyondFar = mCuller.addSphere(0f, 0f, -120f, 1f);
+        final int touching = mCuller.addSphere(10.5f, 0f, -50f, 1f);
+
+        assertEquals(2, mCuller.cull(mViewProjection, 0));
+        assertTrue(mCuller.isVisible(inside));
+        assertFalse(mCuller.isVisible(left));
+        assertFalse(mCuller.isVisible(above));
+        assertFalse(mCuller.isVisible(behind));
+        assertFalse(mCuller.isVisible(beyondFar));
+        assertTrue(mCuller.isVisible(touching));
+    }
+
+    @Test
+    public void crossingSpheresAreRetestedAgainstTheirBox() {
+        // A tall, thin box just right of the frustum; its sphere reaches back inside
+        final int outside = mCuller.addBox(10.5f, -5f, -51f, 11f, 5f, -49f);
+        // The same box nudged so it straddles the right plane
+        final int straddling = mCuller.addBox(9.5f, -5f, -51f, 11f, 5f, -49f);
+
+        mCuller.cull(mViewProjection, 0);
+
+        assertFalse(mCuller.isVisible(outside));
+        assertTrue(mCuller.isVisible(straddling));
+    }
+
+    @Test
+    public void boxIsOnlyReadForSpheresThatCrossAPlane() {
+        // Deliberately inconsistent bounds: the sphere is well inside, the box far outside
+        final float[] sphere = { 0f, 0f, -50f, 1f };
+        final float[] box = { 50f, 50f, 50f, 51f, 51f, 51f };
+        final int id = mCuller.addBounds(sphere, 0, box, 0);
+
+        mCuller.cull(mViewProjection, 0);
+        assertTrue(mCuller.isVisible(id));
+
+        // Once the sphere crosses a plane, the box decides
+        sphere[0] = 9.5f;
+        mCuller.setBounds(id, sphere, 0, box, 0);
+        mCuller.cull(mViewProjection, 0);
+        assertFalse(mCuller.isVisible(id));
+    }
+
+    @Test
+    public void visibleListIsCompactedInIndexOrder() {
+        for (int i = 0; i < 100; i++) {
+            // Every third object is off to the left
+            final float x = (i % 3 == 0) ? -50f : (i % 20) - 9.5f;
+            mCuller.addSphere(x, 0f, -50f, 0.25f);
+        }
+
+        final int visible = mCuller.cull(mViewProjection, 0);
+
+        assertEquals(66, visible);
+        assertEquals(66, mCuller.getVisibleCount());
+        assertEquals(34, mCuller.getCulledCount());
+        int expected = 0;
+        for (int i = 0; i < visible; i++) {
+            while (expected % 3 == 0) {
+                expected++;
+            }
+            assertEquals(expected++, mCuller.getVisible(i));
+        }
+
+        // The list shrinks when objects move out of view, and stale entries can't be read
+        for (int i = 0; i < 100; i++) {
+            if (i != 50) {
+                mCuller.setSphere(i, 0f, 0f, 50f, 0.25f);
+            }
+        }
+        assertEquals(1, mCuller.cull(mViewProjection, 0));
+        assertEquals(50, mCuller.getVisible(0));
+        try {
+            mCuller.getVisible(1);
+            fail();
+        } catch (IndexOutOfBoundsException expectedException) {
+            // Only the one visible object is readable
+        }
+    }
+
+    @Test
+    public void transformedBoundsAreCulledInWorldSpace() {
+        final float[] sphere = { 0f, 0f, 0f, 1f };
+        final float[] box = { -1f, -1f, -1f, 1f, 1f, 1f };
+        final float[] model = new float[Mat4.SIZE];
+        final float[] q = { 0f, 0f, 0f, 1f };
+
+        Mat4.compose(model, 0, 0f, 0f, -50f, q, 0, 1f, 1f, 1f);
+        final int id = mCuller.addBounds(sphere, 0, box, 0);
+        mCuller.setTransformedBounds(id, sphere, 0, box, 0, model, 0);
+        mCuller.cull(mViewProjection, 0);
+        assertTrue(mCuller.isVisible(id));
+
+        // Moved right of the frustum, then scaled on x until it reaches back into view
+        Mat4.compose(model, 0, 12f, 0f, -50f, q, 0, 1f, 1f, 1f);
+        mCuller.setTransformedBounds(id, sphere, 0, box, 0, model, 0);
+        mCuller.cull(mViewProjection, 0);
+        assertFalse(mCuller.isVisible(id));
+
+        Mat4.compose(model, 0, 12f, 0f, -50f, q, 0, 3f, 1f, 1f);
+        mCuller.setTransformedBounds(id, sphere, 0, box, 0, model, 0);
+        mCuller.cull(mViewProjection, 0);
+        assertTrue(mCuller.isVisible(id));
+    }
+
+    @Test
+    public void gameObjectsAreCulledByTheBoundsTheyReport() {
+        final BoundedObject object = new BoundedObject();
+        object.mX = 0f;
+        final int bounded = mCuller.addObject(object);
+        final int unbounded = mCuller.addObject(new BoundedObject());
+        mCuller.cull(mViewProjection, 0);
+        assertTrue(mCuller.isVisible(bounded));
+
+        object.mX = 50f;
+        mCuller.setObject(bounded, object);
+        mCuller.cull(mViewProjection, 0);
+        assertFalse(mCuller.isVisible(bounded));
+
+        // Objects without bounds are never culled
+        mViewProjection[12] = 1000f;
+        mCuller.cull(mViewProjection, 0);
+        assertTrue(mCuller.isVisible(unbounded));
+    }
+
+    @Test
+    public void parallelCullMatchesSerialCull() {
+        final float[] view = new float[Mat4.SIZE];
+        final float[] projection = new float[Mat4.SIZE];
+        Mat4.lookAt(view, 0, 3f, 2f, 5f, 0f, 0f, -40f, 0f, 1f, 0f);
+        Mat4.perspective(projection, 0, 60f, 1.5f, 0.5f, 80f);
+        Mat4.multiply(mViewProjection, 0, projection, 0, view, 0);
+
+        final FrustumCuller serial = new FrustumCuller(16);
+        final FrustumCuller parallel = new FrustumCuller(16);
+        final Random random = new Random(19);
+        final float[] box = new float[Bounds.BOX_SIZE];
+        for (int i = 0; i < 10000; i++) {
+            final float x = (random.nextFloat() - 0.5f) * 200f;
+            final float y = (random.nextFloat() - 0.5f) * 200f;
+            final float z = (random.nextFloat() - 0.5f) * 200f;
+            box[0] = x;
+            box[1] = y;
+            box[2] = z;
+            box[3] = x + random.nextFloat() * 4f;
+            box[4] = y + random.nextFloat() * 4f;
+            box[5] = z + random.nextFloat() * 4f;
+            serial.addBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+            parallel.addBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+        }
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setParallel(pool, 64);
+
+        try {
+            final int visible = serial.cull(mViewProjection, 0);
+            assertTrue(visible > 0 && visible < 10000);
+            assertEquals(visible, parallel.cull(mViewProjection, 0));
+            for (int i = 0; i < visible; i++) {
+                assertEquals(serial.getVisible(i), parallel.getVisible(i));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setParallel_rejectsEmptyTasks() {
+        mCuller.setParallel(null, 0);
+    }
+
+
+    /**
+     * A small sphere at z = -50 that can be moved along x. Unplaced instances have no bounds.
+     */
+    private static final class BoundedObject extends AbstractGameObject<AbstractShaderProgram> {
+        float mX = Float.NaN;
+
+        @Override
+        public boolean getBounds(float[] sphere, int sphereOff, float[] box, int boxOff) {
+            if (Float.isNaN(mX)) {
+                return false;
+            }
+            sphere[sphereOff] = mX;
+            sphere[sphereOff + 1] = 0f;
+            sphere[sphereOff + 2] = -50f;
+            sphere[sphereOff + 3] = 0.87f;
+            Bounds.boxOfSphere(box, boxOff, sphere, sphereOff);
+            return true;
+        }
+
+        @Override
+        public void onBindData(AbstractShaderProgram program) {}
+
+        @Override
+        public void onDraw() {}
+    }
+}
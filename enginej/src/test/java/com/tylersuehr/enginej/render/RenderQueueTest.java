@@ -0,0 +1,138 @@
+package com.tylersuehr.enginej.render;
+
+import com.tylersuehr.enginej.AbstractShaderProgram;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+import com.tylersuehr.enginej.shaders.ShaderRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RenderQueue}, run against a {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class RenderQueueTest {
+    private static final String VERTEX_SOURCE =
+            "attribute vec4 a_Position;\n"
+            + "void main() {\n"
+            + "    gl_Position = a_Position;\n"
+            + "}\n";
+    private static final String FRAGMENT_SOURCE =
+            "precision mediump float;\n"
+            + "void main() {\n"
+            + "#ifdef RED\n"
+            + "    gl_FragColor = vec4(1.0, 0.0, 0.0, 1.0);\n"
+            + "#else\n"
+            + "    gl_FragColor = vec4(1.0);\n"
+            + "#endif\n"
+            + "}\n";
+
+    private HeadlessGLBackend mBackend;
+    private AbstractShaderProgram[] mPrograms;
+    private int[] mTextures;
+    private RenderQueue mQueue;
+    private final List<Integer> mExecuted = new ArrayList<>();
+    private final RenderCommand mCommand = new RenderCommand() {
+        @Override
+        public void execute(AbstractShaderProgram program, int param) {
+            mExecuted.add(param);
+            GLStateCache.bindTexture(0, GL.GL_TEXTURE_2D, mTextures[param % mTextures.length]);
+            GL.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+        }
+    };
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+        ShaderRegistry.onContextLost();
+        mPrograms = new AbstractShaderProgram[] {
+                new AbstractShaderProgram(ShaderRegistry.obtain(VERTEX_SOURCE, FRAGMENT_SOURCE)) {},
+                new AbstractShaderProgram(ShaderRegistry.obtain(VERTEX_SOURCE, FRAGMENT_SOURCE, "RED")) {}
+        };
+        mTextures = new int[3];
+        GL.glGenTextures(3, mTextures, 0);
+        mQueue = new RenderQueue(4);
+    }
+
+    @After
+    public void tearDown() {
+        ShaderRegistry.clear();
+    }
+
+    @Test
+    public void sortingGroupsProgramsAndTextures() {
+        // Alternate programs and cycle textures, the worst order to draw in
+        final int count = 60;
+        for (int i = 0; i < count; i++) {
+            submit(i, mPrograms[i % 2]);
+        }
+        assertEquals(count, mQueue.size());
+        mBackend.resetCounters();
+
+        mQueue.execute();
+
+        assertEquals(count, mQueue.getExecutedCount());
+        assertEquals(0, mQueue.size());
+        assertEquals(2, mQueue.getProgramSwitches());
+        assertEquals(count - 2, mQueue.getSavedProgramSwitches());
+        assertEquals(2 * mTextures.length, mQueue.getTextureSwitches());
+        assertEquals(count - 2 * mTextures.length, mQueue.getSavedTextureSwitches());
+
+        // Only the switches the queue reported reach GL
+        assertEquals(2, mBackend.getCallCount(HeadlessGLBackend.CMD_USE_PROGRAM));
+        assertEquals(2 * mTextures.length, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(count, mBackend.getDrawCallCount());
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void executesInKeyOrder() {
+        final long[] keys = new long[40];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = submit(i, mPrograms[(i / 3) % 2]);
+        }
+
+        mQueue.execute();
+
+        assertEquals(keys.length, mExecuted.size());
+        for (int i = 1; i < mExecuted.size(); i++) {
+            final long previous = keys[mExecuted.get(i - 1)];
+            final long current = keys[mExecuted.get(i)];
+            // Keys sort unsigned, so flip the sign bit to compare them as signed
+            assertTrue(previous + Long.MIN_VALUE <= current + Long.MIN_VALUE);
+        }
+    }
+
+    @Test
+    public void clearDropsSubmissions() {
+        submit(0, mPrograms[0]);
+        submit(1, mPrograms[1]);
+        mQueue.clear();
+        mBackend.resetCounters();
+
+        mQueue.execute();
+
+        assertEquals(0, mQueue.getExecutedCount());
+        assertTrue(mExecuted.isEmpty());
+        assertEquals(0, mBackend.getDrawCallCount());
+    }
+
+    private long submit(int param, AbstractShaderProgram program) {
+        final long key = RenderKey.opaque(0, program.getProgramId(),
+                mTextures[param % mTextures.length], 0, (param % 10) / 10f);
+        mQueue.submit(key, program, mCommand, param);
+        return key;
+    }
+}
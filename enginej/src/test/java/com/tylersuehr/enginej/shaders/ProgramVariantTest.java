@@ -0,0 +1,95 @@
+package com.tylersuehr.enginej.shaders;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the uniform shadowing of {@link ProgramVariant}, run against a
+ * {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class ProgramVariantTest {
+    private static final String VERTEX_SOURCE =
+            "uniform mat3 u_NormalMatrix;\n"
+            + "uniform vec4 u_Color;\n"
+            + "uniform mat4 u_Matrix;\n"
+            + "attribute vec4 a_Position;\n"
+            + "void main() {\n"
+            + "    gl_Position = u_Matrix * a_Position;\n"
+            + "}\n";
+    private static final String FRAGMENT_SOURCE =
+            "precision mediump float;\n"
+            + "uniform vec4 u_Color;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = u_Color;\n"
+            + "}\n";
+
+    private HeadlessGLBackend mBackend;
+    private ProgramVariant mVariant;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+        ShaderRegistry.onContextLost();
+        mVariant = ShaderRegistry.obtain(VERTEX_SOURCE, FRAGMENT_SOURCE);
+        mVariant.use();
+        mBackend.resetCounters();
+    }
+
+    @Test
+    public void unchangedUniformsAreSkipped() {
+        final int color = mVariant.getUniformLocation("u_Color");
+        final float[] matrix = new float[16];
+        matrix[0] = 1f;
+
+        for (int i = 0; i < 3; i++) {
+            mVariant.setUniform4f(color, 1f, 0.5f, 0.25f, 1f);
+            mVariant.setUniformMatrix4(mVariant.getUniformLocation("u_Matrix"), matrix, 0);
+        }
+
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_UNIFORM_4F));
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_UNIFORM_MATRIX_4FV));
+    }
+
+    @Test
+    public void mismatchedMatrixSetDoesNotCorruptNeighbouringShadow() {
+        final int normalMatrix = mVariant.getUniformLocation("u_NormalMatrix");
+        final int color = mVariant.getUniformLocation("u_Color");
+        mVariant.setUniform4f(color, 1f, 1f, 1f, 1f);
+
+        // A mat4 set on the mat3 uniform; its last 7 values would land in u_Color's shadow
+        final float[] matrix = new float[16];
+        for (int i = 9; i < 13; i++) {
+            matrix[i] = 0.5f;
+        }
+        mVariant.setUniformMatrix4(normalMatrix, matrix, 0);
+        mVariant.setUniformMatrix4(normalMatrix, matrix, 0, 7);
+        mBackend.resetCounters();
+
+        // GL still holds white, so this must be uploaded
+        mVariant.setUniform4f(color, 0.5f, 0.5f, 0.5f, 0.5f);
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_UNIFORM_4F));
+    }
+
+    @Test
+    public void mismatchedSetIsPassedThrough() {
+        final int color = mVariant.getUniformLocation("u_Color");
+        final float[] matrix = new float[16];
+
+        mVariant.setUniformMatrix4(color, matrix, 0);
+        mVariant.setUniformMatrix4(color, matrix, 0);
+
+        // Not shadowed, so the driver gets to reject both
+        assertEquals(2, mBackend.getCallCount(HeadlessGLBackend.CMD_UNIFORM_MATRIX_4FV));
+    }
+}
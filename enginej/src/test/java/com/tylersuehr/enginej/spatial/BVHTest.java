@@ -0,0 +1,361 @@
+package com.tylersuehr.enginej.spatial;
+
+import com.tylersuehr.enginej.geometry.GeoMath;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BVH}, checked against a brute-force scan of every primitive.
+ *
+ * @author Tyler Suehr
+ */
+public class BVHTest {
+    private static final int PRIMITIVES = 300;
+    private static final int RAYS = 2000;
+
+    private final float[] mRay = new float[GeoMath.RAY_SIZE];
+    private final int[] mHits = new int[PRIMITIVES];
+    private Random mRandom;
+    private BVH mBvh;
+
+    /* Copy of every primitive for the brute-force scan, in the same layout the BVH uses */
+    private boolean[] mIsBox;
+    private float[] mShape;
+    private int mCount;
+
+
+    @Before
+    public void setUp() {
+        mRandom = new Random(42);
+        mBvh = new BVH(4); // Small on purpose so adding has to grow the arrays
+        mIsBox = new boolean[PRIMITIVES];
+        mShape = new float[PRIMITIVES * 6];
+        mCount = 0;
+    }
+
+    @Test
+    public void emptyTree_hitsNothing() {
+        mBvh.build();
+        setRay(0f, 0f, 0f, 1f, 0f, 0f);
+
+        assertEquals(-1, mBvh.intersectNearest(mRay, 0));
+        assertEquals(Float.POSITIVE_INFINITY, mBvh.getHitDistance(), 0f);
+        assertFalse(mBvh.getHitPoint(new float[3], 0));
+        assertEquals(0, mBvh.intersectAll(mRay, 0, mHits, 0));
+    }
+
+    @Test
+    public void singleSphere_hitAndMiss() {
+        addSphere(0f, 0f, 10f, 2f);
+        mBvh.build();
+
+        setRay(0f, 0f, 0f, 0f, 0f, 1f);
+        assertEquals(0, mBvh.intersectNearest(mRay, 0));
+        assertEquals(8f, mBvh.getHitDistance(), 1e-5f);
+        final float[] point = new float[3];
+        assertTrue(mBvh.getHitPoint(point, 0));
+        assertArrayEquals(new float[] { 0f, 0f, 8f }, point, 1e-5f);
+
+        // Pointing away, so the sphere is behind the ray
+        setRay(0f, 0f, 0f, 0f, 0f, -1f);
+        assertEquals(-1, mBvh.intersectNearest(mRay, 0));
+        assertEquals(0, mBvh.intersectAll(mRay, 0, mHits, 0));
+    }
+
+    @Test
+    public void singleBox_distanceIsInUnitsOfTheRayVector() {
+        addBox(-1f, -1f, 4f, 1f, 1f, 6f);
+        mBvh.build();
+
+        setRay(0f, 0f, 0f, 0f, 0f, 2f);
+        assertEquals(0, mBvh.intersectNearest(mRay, 0));
+        assertEquals(2f, mBvh.getHitDistance(), 1e-5f);
+        assertEquals(1, mBvh.intersectAll(mRay, 0, mHits, 0));
+        assertEquals(0, mHits[0]);
+    }
+
+    @Test
+    public void rayStartingInside_hitsAtZero() {
+        addSphere(0f, 0f, 0f, 3f);
+        addBox(10f, -1f, -1f, 12f, 1f, 1f);
+        mBvh.build();
+
+        setRay(1f, 0f, 0f, 1f, 0f, 0f);
+        assertEquals(0, mBvh.intersectNearest(mRay, 0));
+        assertEquals(0f, mBvh.getHitDistance(), 0f);
+        assertEquals(2, mBvh.intersectAll(mRay, 0, mHits, 0));
+
+        // Inside the box, pointing back through the sphere
+        setRay(11f, 0f, 0f, -1f, 0f, 0f);
+        assertEquals(1, mBvh.intersectNearest(mRay, 0));
+        assertEquals(0f, mBvh.getHitDistance(), 0f);
+        assertEquals(2, mBvh.intersectAll(mRay, 0, mHits, 0));
+    }
+
+    @Test
+    public void axisParallelRays_takeTheInfiniteSlabPath() {
+        addBox(-1f, -1f, 5f, 1f, 1f, 7f);
+        mBvh.build();
+
+        // Both zero components are inside the box's slabs
+        setRay(0.5f, -0.5f, 0f, 0f, 0f, 1f);
+        assertEquals(0, mBvh.intersectNearest(mRay, 0));
+        assertEquals(5f, mBvh.getHitDistance(), 1e-5f);
+
+        // One zero component is outside its slab
+        setRay(1.5f, 0f, 0f, 0f, 0f, 1f);
+        assertEquals(-1, mBvh.intersectNearest(mRay, 0));
+        setRay(0f, -3f, 0f, 0f, 0f, 1f);
+        assertEquals(-1, mBvh.intersectNearest(mRay, 0));
+    }
+
+    @Test
+    public void randomScene_matchesBruteForce() {
+        fillRandomScene();
+        mBvh.build();
+        assertTrue(mBvh.getNodeCount() > 1);
+
+        checkRandomRays();
+        checkAxisParallelRays();
+    }
+
+    @Test
+    public void refit_matchesBruteForceAfterMoving() {
+        fillRandomScene();
+        mBvh.build();
+
+        for (int frame = 0; frame < 3; frame++) {
+            for (int i = 0; i < mCount; i++) {
+                final float dx = nextFloat(-4f, 4f);
+                final float dy = nextFloat(-4f, 4f);
+                final float dz = nextFloat(-4f, 4f);
+                final int s = i * 6;
+                if (mIsBox[i]) {
+                    setBox(i, mShape[s] + dx, mShape[s + 1] + dy, mShape[s + 2] + dz,
+                            mShape[s + 3] + dx, mShape[s + 4] + dy, mShape[s + 5] + dz);
+                } else {
+                    setSphere(i, mShape[s] + dx, mShape[s + 1] + dy, mShape[s + 2] + dz,
+                            mShape[s + 3]);
+                }
+            }
+            mBvh.refit();
+
+            checkRandomRays();
+            checkAxisParallelRays();
+        }
+    }
+
+    @Test
+    public void intersectAll_countsHitsThatDoNotFit() {
+        for (int i = 0; i < 5; i++) {
+            addSphere(0f, 0f, 10f * (i + 1), 1f);
+        }
+        mBvh.build();
+        setRay(0f, 0f, 0f, 0f, 0f, 1f);
+
+        final int[] out = new int[3];
+        assertEquals(5, mBvh.intersectAll(mRay, 0, out, 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void query_beforeBuildThrows() {
+        addSphere(0f, 0f, 0f, 1f);
+        mBvh.intersectNearest(mRay, 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refit_beforeBuildThrows() {
+        addSphere(0f, 0f, 0f, 1f);
+        mBvh.refit();
+    }
+
+    private void fillRandomScene() {
+        for (int i = 0; i < PRIMITIVES; i++) {
+            final float x = nextFloat(-50f, 50f);
+            final float y = nextFloat(-50f, 50f);
+            final float z = nextFloat(-50f, 50f);
+            if (mRandom.nextBoolean()) {
+                addSphere(x, y, z, nextFloat(0.5f, 3f));
+            } else {
+                addBox(x, y, z, x + nextFloat(0.5f, 5f), y + nextFloat(0.5f, 5f),
+                        z + nextFloat(0.5f, 5f));
+            }
+        }
+    }
+
+    private void checkRandomRays() {
+        for (int i = 0; i < RAYS; i++) {
+            setRay(nextFloat(-60f, 60f), nextFloat(-60f, 60f), nextFloat(-60f, 60f),
+                    nextFloat(-1f, 1f), nextFloat(-1f, 1f), nextFloat(-1f, 1f));
+            checkRay();
+        }
+    }
+
+    /** Fires rays along each axis through the middle of primitives, so they hit something. */
+    private void checkAxisParallelRays() {
+        for (int i = 0; i < mCount; i++) {
+            final int s = i * 6;
+            final float cx, cy, cz;
+            if (mIsBox[i]) {
+                cx = (mShape[s] + mShape[s + 3]) * 0.5f;
+                cy = (mShape[s + 1] + mShape[s + 4]) * 0.5f;
+                cz = (mShape[s + 2] + mShape[s + 5]) * 0.5f;
+            } else {
+                cx = mShape[s];
+                cy = mShape[s + 1];
+                cz = mShape[s + 2];
+            }
+            final float sign = mRandom.nextBoolean() ? 1f : -1f;
+            switch (i % 3) {
+                case 0:
+                    setRay(cx - 80f * sign, cy, cz, sign, 0f, 0f);
+                    break;
+                case 1:
+                    setRay(cx, cy - 80f * sign, cz, 0f, sign, 0f);
+                    break;
+                default:
+                    setRay(cx, cy, cz - 80f * sign, 0f, 0f, sign);
+                    break;
+            }
+            checkRay();
+            assertNotEquals(-1, mBvh.intersectNearest(mRay, 0));
+
+            // Diagonal in one plane, with the third component still zero
+            setRay(cx - 60f, cy - 60f * sign, cz, 1f, sign, 0f);
+            checkRay();
+        }
+    }
+
+    /** Compares both queries for the current ray with the brute-force scan. */
+    private void checkRay() {
+        double best = Double.POSITIVE_INFINITY;
+        int expectedHits = 0;
+        final int[] expected = new int[mCount];
+        for (int i = 0; i < mCount; i++) {
+            final double t = bruteForce(i);
+            if (t != Double.POSITIVE_INFINITY) {
+                expected[expectedHits++] = i;
+                best = Math.min(best, t);
+            }
+        }
+
+        final String message = "ray " + Arrays.toString(mRay);
+        final int nearest = mBvh.intersectNearest(mRay, 0);
+        if (best == Double.POSITIVE_INFINITY) {
+            assertEquals(message, -1, nearest);
+        } else {
+            // Several primitives may be about equally close, so check the distance matches
+            // rather than the index
+            final double tolerance = 1e-3 * (1.0 + best);
+            assertNotEquals(message, -1, nearest);
+            assertEquals(message, best, bruteForce(nearest), tolerance);
+            assertEquals(message, best, mBvh.getHitDistance(), tolerance);
+        }
+
+        final int hits = mBvh.intersectAll(mRay, 0, mHits, 0);
+        final int[] actual = Arrays.copyOf(mHits, hits);
+        Arrays.sort(actual);
+        assertArrayEquals(message, Arrays.copyOf(expected, expectedHits), actual);
+    }
+
+    /** @return the distance along the ray to a primitive, in doubles, or infinity if missed */
+    private double bruteForce(int index) {
+        final int s = index * 6;
+        final double ox = mRay[0], oy = mRay[1], oz = mRay[2];
+        final double dx = mRay[3], dy = mRay[4], dz = mRay[5];
+        if (mIsBox[index]) {
+            double near = Double.NEGATIVE_INFINITY;
+            double far = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < 3; k++) {
+                final double o = mRay[k];
+                final double d = mRay[3 + k];
+                final double min = mShape[s + k];
+                final double max = mShape[s + 3 + k];
+                if (d == 0.0) {
+                    if (o < min || o > max) {
+                        return Double.POSITIVE_INFINITY;
+                    }
+                    continue;
+                }
+                final double t0 = (min - o) / d;
+                final double t1 = (max - o) / d;
+                near = Math.max(near, Math.min(t0, t1));
+                far = Math.min(far, Math.max(t0, t1));
+            }
+            if (far < 0.0 || near > far) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return Math.max(near, 0.0);
+        }
+
+        final double ocx = ox - mShape[s];
+        final double ocy = oy - mShape[s + 1];
+        final double ocz = oz - mShape[s + 2];
+        final double r = mShape[s + 3];
+        final double a = dx * dx + dy * dy + dz * dz;
+        final double b = ocx * dx + ocy * dy + ocz * dz;
+        final double c = ocx * ocx + ocy * ocy + ocz * ocz - r * r;
+        final double discriminant = b * b - a * c;
+        if (discriminant < 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double root = Math.sqrt(discriminant);
+        final double near = (-b - root) / a;
+        if (near >= 0.0) {
+            return near;
+        }
+        return ((-b + root) / a >= 0.0) ? 0.0 : Double.POSITIVE_INFINITY;
+    }
+
+    private void addSphere(float x, float y, float z, float radius) {
+        assertEquals(mCount, mBvh.addSphere(x, y, z, radius));
+        setSphere(mCount++, x, y, z, radius);
+    }
+
+    private void addBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        assertEquals(mCount, mBvh.addBox(minX, minY, minZ, maxX, maxY, maxZ));
+        setBox(mCount++, minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    private void setSphere(int index, float x, float y, float z, float radius) {
+        mBvh.setSphere(index, x, y, z, radius);
+        mIsBox[index] = false;
+        final int s = index * 6;
+        mShape[s] = x;
+        mShape[s + 1] = y;
+        mShape[s + 2] = z;
+        mShape[s + 3] = radius;
+    }
+
+    private void setBox(int index, float minX, float minY, float minZ,
+                        float maxX, float maxY, float maxZ) {
+        mBvh.setBox(index, minX, minY, minZ, maxX, maxY, maxZ);
+        mIsBox[index] = true;
+        final int s = index * 6;
+        mShape[s] = minX;
+        mShape[s + 1] = minY;
+        mShape[s + 2] = minZ;
+        mShape[s + 3] = maxX;
+        mShape[s + 4] = maxY;
+        mShape[s + 5] = maxZ;
+    }
+
+    private void setRay(float ox, float oy, float oz, float dx, float dy, float dz) {
+        mRay[0] = ox;
+        mRay[1] = oy;
+        mRay[2] = oz;
+        mRay[3] = dx;
+        mRay[4] = dy;
+        mRay[5] = dz;
+    }
+
+    private float nextFloat(float min, float max) {
+        return min + mRandom.nextFloat() * (max - min);
+    }
+}
@@ -0,0 +1,115 @@
+package com.tylersuehr.enginej.sprites;
+
+import com.tylersuehr.enginej.buffers.GPUIndexBuffer;
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.GLStateCache;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SpriteBatch}, run against a {@link HeadlessGLBackend}.
+ *
+ * @author Tyler Suehr
+ */
+public class SpriteBatchTest {
+    private HeadlessGLBackend mBackend;
+    private int[] mTextures;
+    private SpriteBatch mBatch;
+
+
+    @Before
+    public void setUp() {
+        mBackend = new HeadlessGLBackend();
+        GL.setBackend(mBackend);
+        GLStateCache.invalidate();
+        mTextures = new int[2];
+        GL.glGenTextures(2, mTextures, 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (mBatch != null) {
+            mBatch.release();
+        }
+    }
+
+    @Test
+    public void oneDrawPerTextureRun() {
+        mBatch = new SpriteBatch(100);
+        final int[] textures = { 0, 0, 0, 1, 1, 0, 0 };
+        mBackend.resetCounters();
+
+        mBatch.begin(0, 1, 2);
+        for (int texture : textures) {
+            mBatch.draw(mTextures[texture], 0f, 0f, 16f, 16f);
+        }
+        mBatch.end();
+
+        assertEquals(3, mBatch.getDrawCallCount());
+        assertEquals(3, mBackend.getDrawCallCount());
+        assertEquals(3, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(textures.length * 6, mBackend.getVertexCount());
+        assertEquals(textures.length, mBatch.getSpritesDrawnCount());
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void fullBatchIsFlushed() {
+        mBatch = new SpriteBatch(4);
+        mBackend.resetCounters();
+
+        mBatch.begin(0, 1, -1);
+        for (int i = 0; i < 10; i++) {
+            mBatch.draw(mTextures[0], i, 0f, 16f, 16f);
+        }
+        mBatch.end();
+
+        // 4 + 4 + 2, all with the same texture bound once
+        assertEquals(3, mBackend.getDrawCallCount());
+        assertEquals(1, mBackend.getCallCount(HeadlessGLBackend.CMD_BIND_TEXTURE));
+        assertEquals(60, mBackend.getVertexCount());
+        assertEquals(0, mBackend.getErrorCount());
+    }
+
+    @Test
+    public void emptyBatchDoesNotDraw() {
+        mBatch = new SpriteBatch(4);
+        mBackend.resetCounters();
+
+        mBatch.begin(0, 1, 2);
+        mBatch.end();
+
+        assertEquals(0, mBackend.getDrawCallCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void drawOutsideBeginFails() {
+        mBatch = new SpriteBatch(4);
+        mBatch.draw(mTextures[0], 0f, 0f, 16f, 16f);
+    }
+
+    @Test
+    public void largestBatchAddressesEveryShortIndex() {
+        final short[] indices = SpriteBatch.createQuadIndices(SpriteBatch.MAX_SPRITES);
+
+        assertEquals(65535, indices[indices.length - 2] & 0xFFFF);
+        mBatch = new SpriteBatch(SpriteBatch.MAX_SPRITES);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sharedIndicesMustCoverTheBatch() {
+        final GPUIndexBuffer indices = SpriteBatch.createQuadIndexBuffer(3);
+        new SpriteBatch(4, indices);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sharedIndicesMustBeShorts() {
+        final GPUIndexBuffer indices = new GPUIndexBuffer(new int[4 * 6]);
+        new SpriteBatch(4, indices);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tylersuehr.enginej.textures;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for {@link AsyncTextureLoader}, decoding with a fake decoder that can be
+ * held mid-decode.
+ *
+ * @author Tyler Suehr
+ */
+public class AsyncTextureLoaderTest {
+    private BlockingDecoder mDecoder;
+    private AsyncTextureLoader mLoader;
+
+
+    @Before
+    public void setUp() {
+        mDecoder = new BlockingDecoder();
+        mLoader = new AsyncTextureLoader(mDecoder, 1, TimeUnit.MILLISECONDS.toNanos(4), 1024);
+    }
+
+    @After
+    public void tearDown() {
+        mDecoder.mRelease.countDown();
+    }
+
+    @Test
+    public void shutdown_cancelsQueuedHandles() throws Exception {
+        final TextureHandle decoding = mLoader.load(1, false, AsyncTextureLoader.PRIORITY_NORMAL);
+        final TextureHandle queued = mLoader.load(2, false, AsyncTextureLoader.PRIORITY_NORMAL);
+        assertTrue(mDecoder.mStarted.await(5, TimeUnit.SECONDS));
+
+        mLoader.shutdown();
+
+        assertEquals(TextureHandle.STATE_CANCELLED, decoding.getState());
+        assertEquals(TextureHandle.STATE_CANCELLED, queued.getState());
+    }
+
+    @Test
+    public void shutdown_cancelsHandleMidDecodeAndRecyclesItsBitmaps() throws Exception {
+        final TextureHandle handle = mLoader.load(1, false, AsyncTextureLoader.PRIORITY_NORMAL);
+        assertTrue(mDecoder.mStarted.await(5, TimeUnit.SECONDS));
+
+        mLoader.shutdown();
+        assertEquals(TextureHandle.STATE_CANCELLED, handle.getState());
+
+        // The decode finishes after shutdown() drained the upload queue
+        mDecoder.mRelease.countDown();
+        verify(mDecoder.mBitmap, timeout(5000)).recycle();
+
+        assertEquals(TextureHandle.STATE_CANCELLED, handle.getState());
+        assertEquals(0, mLoader.getPendingUploadCount());
+    }
+
+
+    /**
+     * Blocks the first decode until released, handing back a mock Bitmap.
+     */
+    private static final class BlockingDecoder implements AsyncTextureLoader.BitmapDecoder {
+        final CountDownLatch mStarted = new CountDownLatch(1);
+        final CountDownLatch mRelease = new CountDownLatch(1);
+        final Bitmap mBitmap = mock(Bitmap.class);
+
+        @Override
+        public Bitmap decode(int resId) {
+            mStarted.countDown();
+            try {
+                mRelease.await();
+            } catch (InterruptedException e) {
+                // shutdown() interrupts the decoding threads, carry on as a real decode would
+            }
+            return mBitmap;
+        }
+    }
+}
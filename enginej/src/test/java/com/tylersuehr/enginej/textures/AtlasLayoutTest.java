@@ -0,0 +1,65 @@
+package com.tylersuehr.enginej.textures;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link AtlasLayout}.
+ *
+ * @author Tyler Suehr
+ */
+public class AtlasLayoutTest {
+    @Test
+    public void compute_singlePixelImageGetsOnePixelPage() {
+        final AtlasLayout layout = AtlasLayout.compute(new int[] { 1 }, new int[] { 1 }, 64, 2, 0);
+
+        assertEquals(1, layout.getPageCount());
+        assertEquals(1, layout.getPageWidth(0));
+        assertEquals(1, layout.getPageHeight(0));
+    }
+
+    @Test
+    public void compute_pagesArePowersOfTwo() {
+        final AtlasLayout layout = AtlasLayout.compute(new int[] { 3, 30 }, new int[] { 5, 17 }, 256, 1, 1);
+
+        for (int p = 0; p < layout.getPageCount(); p++) {
+            assertEquals(1, Integer.bitCount(layout.getPageWidth(p)));
+            assertEquals(1, Integer.bitCount(layout.getPageHeight(p)));
+        }
+    }
+
+    @Test
+    public void compute_imagesFitTheirPagesWithoutOverlapping() {
+        final Random random = new Random(42);
+        final int count = 200;
+        final int[] widths = new int[count];
+        final int[] heights = new int[count];
+        for (int i = 0; i < count; i++) {
+            widths[i] = 1 + random.nextInt(60);
+            heights[i] = 1 + random.nextInt(60);
+        }
+        final int gutter = 1;
+        final AtlasLayout layout = AtlasLayout.compute(widths, heights, 256, 2, gutter);
+
+        for (int i = 0; i < count; i++) {
+            final int page = layout.getPage(i);
+            assertTrue(layout.getX(i) - gutter >= 0 && layout.getY(i) - gutter >= 0);
+            assertTrue(layout.getX(i) + widths[i] + gutter <= layout.getPageWidth(page));
+            assertTrue(layout.getY(i) + heights[i] + gutter <= layout.getPageHeight(page));
+
+            for (int j = 0; j < i; j++) {
+                if (layout.getPage(j) != page) {
+                    continue;
+                }
+                final boolean apart = layout.getX(i) + widths[i] + gutter <= layout.getX(j) - gutter
+                        || layout.getX(j) + widths[j] + gutter <= layout.getX(i) - gutter
+                        || layout.getY(i) + heights[i] + gutter <= layout.getY(j) - gutter
+                        || layout.getY(j) + heights[j] + gutter <= layout.getY(i) - gutter;
+                assertTrue("images " + i + " and " + j + " overlap", apart);
+            }
+        }
+    }
+}
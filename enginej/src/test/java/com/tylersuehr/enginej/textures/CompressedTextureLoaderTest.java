@@ -0,0 +1,51 @@
+package com.tylersuehr.enginej.textures;
+
+import com.tylersuehr.enginej.gl.GL;
+import com.tylersuehr.enginej.gl.HeadlessGLBackend;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link CompressedTextureLoader}'s format queries.
+ *
+ * @author Tyler Suehr
+ */
+public class CompressedTextureLoaderTest {
+    @Test
+    public void isFormatSupported_queriesTheContextOnce() {
+        final HeadlessGLBackend backend = new HeadlessGLBackend();
+        GL.setBackend(backend);
+
+        assertTrue(CompressedTextureLoader.isFormatSupported(CompressedImage.GL_ETC1_RGB8_OES));
+        assertFalse(CompressedTextureLoader.isFormatSupported(CompressedImage.GL_COMPRESSED_RGB8_ETC2));
+
+        assertEquals(2, backend.getCallCount(HeadlessGLBackend.CMD_GET_INTEGERV));
+    }
+
+    @Test
+    public void isFormatSupported_forgetsTheFormatsOfTheOldBackend() {
+        GL.setBackend(new HeadlessGLBackend());
+        assertFalse(CompressedTextureLoader.isFormatSupported(CompressedImage.GL_COMPRESSED_RGB8_ETC2));
+
+        final HeadlessGLBackend es3 = new HeadlessGLBackend();
+        es3.setCompressedTextureFormats(CompressedImage.GL_ETC1_RGB8_OES,
+                CompressedImage.GL_COMPRESSED_RGB8_ETC2);
+        GL.setBackend(es3);
+
+        assertTrue(CompressedTextureLoader.isFormatSupported(CompressedImage.GL_COMPRESSED_RGB8_ETC2));
+    }
+
+    @Test
+    public void isFormatSupported_queriesAgainAfterContextLoss() {
+        final HeadlessGLBackend backend = new HeadlessGLBackend();
+        GL.setBackend(backend);
+        CompressedTextureLoader.isFormatSupported(CompressedImage.GL_ETC1_RGB8_OES);
+
+        CompressedTextureLoader.onContextLost();
+        CompressedTextureLoader.isFormatSupported(CompressedImage.GL_ETC1_RGB8_OES);
+
+        assertEquals(4, backend.getCallCount(HeadlessGLBackend.CMD_GET_INTEGERV));
+    }
+}
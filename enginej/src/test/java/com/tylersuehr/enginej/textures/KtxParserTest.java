@@ -0,0 +1,220 @@
+package com.tylersuehr.enginej.textures;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link KtxParser}.
+ *
+ * @author Tyler Suehr
+ */
+public class KtxParserTest {
+    private static final byte[] IDENTIFIER = {
+            (byte)0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte)0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int ETC1 = CompressedImage.GL_ETC1_RGB8_OES;
+    private static final int ETC2_RGBA = CompressedImage.GL_COMPRESSED_RGBA8_ETC2_EAC;
+
+    @Test
+    public void parse_readsEitherByteOrder() throws IOException {
+        for (ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN }) {
+            final CompressedImage image = KtxParser.parse(new Ktx(ETC1, 16, 8).fullChain().write(order));
+
+            assertEquals(ETC1, image.getInternalFormat());
+            assertEquals(16, image.getWidth());
+            assertEquals(8, image.getHeight());
+            assertEquals(5, image.getLevelCount());
+            assertEquals(64, image.getLevel(0).remaining());
+            for (int level = 1; level < 5; level++) {
+                assertEquals(CompressedImage.blockDataSize(ETC1, image.getLevelWidth(level),
+                        image.getLevelHeight(level)), image.getLevel(level).remaining());
+            }
+        }
+    }
+
+    @Test
+    public void parse_skipsMipPaddingAndKeyValueData() throws IOException {
+        // Levels of a 3-component, 1 byte per block format would need padding; fake that with
+        // an unknown format, whose sizes aren't checked
+        final Ktx ktx = new Ktx(0x1234, 4, 4);
+        ktx.keyValueBytes = 12;
+        ktx.sizes = new int[] { 5, 3, 1 };
+        final ByteBuffer data = ktx.write(ByteOrder.LITTLE_ENDIAN);
+        final CompressedImage image = KtxParser.parse(data);
+
+        // Each level is filled with its number, starting at 1
+        assertEquals(3, image.getLevelCount());
+        for (int level = 0; level < 3; level++) {
+            final ByteBuffer bytes = image.getLevel(level);
+            assertEquals(ktx.sizes[level], bytes.remaining());
+            for (int i = bytes.position(); i < bytes.limit(); i++) {
+                assertEquals(level + 1, bytes.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void parse_treatsZeroLevelsAsOne() throws IOException {
+        final Ktx ktx = new Ktx(ETC2_RGBA, 8, 8);
+        ktx.declaredLevels = 0;
+        ktx.sizes = new int[] { 64 };
+
+        assertEquals(1, KtxParser.parse(ktx.write(ByteOrder.LITTLE_ENDIAN)).getLevelCount());
+    }
+
+    @Test
+    public void parse_rejectsTruncatedFiles() {
+        final ByteBuffer full = new Ktx(ETC1, 16, 16).fullChain().write(ByteOrder.LITTLE_ENDIAN);
+        for (int length = 0; length < full.capacity() - 3; length++) {
+            final ByteBuffer data = full.duplicate();
+            data.limit(length);
+            assertRejected(data);
+        }
+    }
+
+    @Test
+    public void parse_rejectsMalformedHeaders() {
+        Ktx ktx = new Ktx(ETC1, 16, 16).fullChain();
+        ktx.keyValueBytes = -8;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, 16).fullChain();
+        ktx.keyValueBytes = Integer.MAX_VALUE - 8;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, 16);
+        ktx.sizes = new int[] { Integer.MAX_VALUE - 2 };
+        assertRejected(ktx.write(ByteOrder.BIG_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, 16);
+        ktx.sizes = new int[] { -4 };
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, 16).fullChain();
+        ktx.declaredLevels = Integer.MAX_VALUE;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, 16).fullChain();
+        ktx.declaredLevels = 6;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 0, 16);
+        ktx.sizes = new int[] { 8 };
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 16, -16);
+        ktx.sizes = new int[] { 8 };
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void parse_rejectsLevelsOfTheWrongSize() {
+        final Ktx ktx = new Ktx(ETC1, 16, 16);
+        ktx.sizes = new int[] { 128, 32, 16 };
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void parse_rejectsUncompressedAndNon2DTextures() {
+        Ktx ktx = new Ktx(ETC1, 4, 4);
+        ktx.sizes = new int[] { 8 };
+        ktx.glType = 0x1401;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+
+        ktx = new Ktx(ETC1, 4, 4);
+        ktx.sizes = new int[] { 8 };
+        ktx.faces = 6;
+        assertRejected(ktx.write(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void parse_rejectsBadIdentifierAndEndianness() {
+        final ByteBuffer badIdentifier = new Ktx(ETC1, 4, 4).fullChain().write(ByteOrder.LITTLE_ENDIAN);
+        badIdentifier.put(5, (byte)'2');
+        assertRejected(badIdentifier);
+
+        final ByteBuffer badEndianness = new Ktx(ETC1, 4, 4).fullChain().write(ByteOrder.LITTLE_ENDIAN);
+        badEndianness.putInt(12, 0x01020305);
+        assertRejected(badEndianness);
+    }
+
+    private static void assertRejected(ByteBuffer data) {
+        try {
+            KtxParser.parse(data);
+            fail("Parsed a malformed KTX file");
+        } catch (IOException expected) {
+            // Only an IOException reaches the fallback drawable
+        }
+    }
+
+
+    /**
+     * Writes a KTX file, which the tests can corrupt field by field.
+     */
+    private static final class Ktx {
+        final int format;
+        final int width;
+        final int height;
+        int glType = 0;
+        int faces = 1;
+        int keyValueBytes = 0;
+        int declaredLevels = -1;
+        int[] sizes = new int[0];
+
+        Ktx(int format, int width, int height) {
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+
+        Ktx fullChain() {
+            final int levels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+            sizes = new int[levels];
+            for (int level = 0; level < levels; level++) {
+                sizes[level] = CompressedImage.blockDataSize(format,
+                        Math.max(1, width >> level), Math.max(1, height >> level));
+            }
+            return this;
+        }
+
+        ByteBuffer write(ByteOrder order) {
+            // Corrupt sizes are written as they are, but the data stops at 64KB
+            long length = KtxParser.HEADER_SIZE + Math.max(0L, keyValueBytes);
+            for (int size : sizes) {
+                length += 4 + ((size >= 0) ? (size + 3L) & ~3L : 0);
+            }
+            final ByteBuffer data = ByteBuffer.allocate((int)Math.min(length, 1 << 16)).order(order);
+            data.put(IDENTIFIER);
+            data.putInt(0x04030201);
+            data.putInt(glType);
+            data.putInt(1);          // glTypeSize
+            data.putInt(0);          // glFormat
+            data.putInt(format);
+            data.putInt(0x1907);     // glBaseInternalFormat
+            data.putInt(width);
+            data.putInt(height);
+            data.putInt(0);          // pixelDepth
+            data.putInt(0);          // numberOfArrayElements
+            data.putInt(faces);
+            data.putInt((declaredLevels >= 0) ? declaredLevels : sizes.length);
+            data.putInt(keyValueBytes);
+            data.position(data.position() + Math.max(0, Math.min(keyValueBytes, data.remaining())));
+            for (int level = 0; level < sizes.length && data.remaining() >= 4; level++) {
+                data.putInt(sizes[level]);
+                for (int i = 0; i < sizes[level] && data.hasRemaining(); i++) {
+                    data.put((byte)(level + 1));
+                }
+                while (data.position() % 4 != 0 && data.hasRemaining()) {
+                    data.put((byte)0);
+                }
+            }
+            data.position(0);
+            return data;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.tylersuehr.enginej.textures;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PkmParser}.
+ *
+ * @author Tyler Suehr
+ */
+public class PkmParserTest {
+    @Test
+    public void parse_version1IsEtc1() throws IOException {
+        final CompressedImage image = PkmParser.parse(pkm('1', 0, 10, 6, 3 * 2 * 8));
+
+        assertEquals(CompressedImage.GL_ETC1_RGB8_OES, image.getInternalFormat());
+        assertEquals(10, image.getWidth());
+        assertEquals(6, image.getHeight());
+        assertEquals(1, image.getLevelCount());
+        assertEquals(48, image.getLevel(0).remaining());
+        assertEquals(7, image.getLevel(0).get(image.getLevel(0).position()));
+    }
+
+    @Test
+    public void parse_version2ReadsTheDataType() throws IOException {
+        final CompressedImage image = PkmParser.parse(pkm('2', 3, 8, 8, 4 * 16));
+
+        assertEquals(CompressedImage.GL_COMPRESSED_RGBA8_ETC2_EAC, image.getInternalFormat());
+        assertEquals(64, image.getLevel(0).remaining());
+    }
+
+    @Test
+    public void parse_leavesTheBufferAlone() throws IOException {
+        final ByteBuffer data = pkm('1', 0, 4, 4, 8);
+        PkmParser.parse(data);
+
+        assertEquals(0, data.position());
+        assertEquals(data.capacity(), data.limit());
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsTruncatedData() throws IOException {
+        PkmParser.parse(pkm('1', 0, 8, 8, 31));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsBadMagic() throws IOException {
+        final ByteBuffer data = pkm('1', 0, 4, 4, 8);
+        data.put(0, (byte)'X');
+        PkmParser.parse(data);
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsUnknownVersion() throws IOException {
+        PkmParser.parse(pkm('3', 0, 4, 4, 8));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsUnknownDataType() throws IOException {
+        PkmParser.parse(pkm('2', 2, 4, 4, 8));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsZeroSize() throws IOException {
+        PkmParser.parse(pkm('1', 0, 0, 4, 8));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsShortHeader() throws IOException {
+        PkmParser.parse(ByteBuffer.wrap(new byte[] { 'P', 'K', 'M', ' ', '1', '0' }));
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsSizesPastTheData() throws IOException {
+        // 65535x65535 RGBA would be about 4GB of blocks
+        PkmParser.parse(pkm('2', 3, 0xFFFF, 0xFFFF, 64));
+    }
+
+    private static ByteBuffer pkm(char major, int type, int width, int height, int dataBytes) {
+        final ByteBuffer data = ByteBuffer.allocate(PkmParser.HEADER_SIZE + dataBytes);
+        data.put((byte)'P').put((byte)'K').put((byte)'M').put((byte)' ');
+        data.put((byte)major).put((byte)'0');
+        data.putShort((short)type);
+        data.putShort((short)((width + 3) & ~3)).putShort((short)((height + 3) & ~3));
+        data.putShort((short)width).putShort((short)height);
+        if (data.hasRemaining()) {
+            data.put((byte)7);
+        }
+        data.position(0);
+        return data;
+    }
+}
@@ -0,0 +1,56 @@
+package com.tylersuehr.enginej.textures;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Local unit tests for {@link TextureAtlasBuilder}'s keys and clean-up.
+ *
+ * @author Tyler Suehr
+ */
+public class TextureAtlasBuilderTest {
+    @Test
+    public void add_acceptsDistinctKeys() {
+        new TextureAtlasBuilder(null)
+                .add(1, mock(Bitmap.class))
+                .add(2, mock(Bitmap.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsADuplicateKey() {
+        new TextureAtlasBuilder(null)
+                .add(1, mock(Bitmap.class))
+                .add(1, mock(Bitmap.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_rejectsAResourceAddedUnderItsKey() {
+        // Rejected before decoding, so no resources are needed
+        new TextureAtlasBuilder(null)
+                .add(7, mock(Bitmap.class))
+                .add(7);
+    }
+
+    @Test
+    public void build_emptiesTheBuilderWhenPackingFails() {
+        final Bitmap tooLarge = mock(Bitmap.class);
+        when(tooLarge.getWidth()).thenReturn(512);
+        when(tooLarge.getHeight()).thenReturn(16);
+        final TextureAtlasBuilder builder = new TextureAtlasBuilder(null)
+                .setMaxPageSize(256)
+                .add(1, tooLarge);
+
+        try {
+            builder.build();
+            fail("The image is larger than a page");
+        } catch (IllegalArgumentException expected) {}
+
+        // The key is free again, and Bitmaps the caller passed in are left to the caller
+        builder.add(1, mock(Bitmap.class));
+        verify(tooLarge, times(0)).recycle();
+    }
+}
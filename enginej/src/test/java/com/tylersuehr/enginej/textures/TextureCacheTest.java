@@ -0,0 +1,51 @@
+package com.tylersuehr.enginej.textures;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the size estimates of {@link TextureCache}.
+ *
+ * @author Tyler Suehr
+ */
+public class TextureCacheTest {
+    private static final int ETC2 = CompressedImage.GL_COMPRESSED_RGB8_ETC2;
+
+    @Test
+    public void estimateBytes_uncompressedMipChainAddsAThird() {
+        assertEquals(64 * 64 * 4, TextureCache.estimateBytes(64, 64, 4, false));
+        // 64x64 down to 1x1 is 4096 + 1024 + 256 + 64 + 16 + 4 + 1 pixels
+        assertEquals(5461 * 4, TextureCache.estimateBytes(64, 64, 4, true));
+        assertEquals((8 + 4 + 2 + 1) * 2, TextureCache.estimateBytes(8, 1, 2, true));
+    }
+
+    @Test
+    public void estimateBytes_countsEveryLevelOfAFullChain() {
+        final CompressedImage image = image(16, 16, 5);
+
+        assertEquals(128 + 32 + 8 + 8 + 8, TextureCache.estimateBytes(image, true));
+        assertEquals(TextureCache.estimateBytes(16, 16, 2, true), TextureCache.estimateBytes(image, false));
+    }
+
+    @Test
+    public void estimateBytes_countsOnlyTheBaseOfAPartialChain() {
+        // upload() drops a partial chain, so only the base level reaches the GPU
+        final CompressedImage image = image(16, 16, 3);
+
+        assertEquals(1, CompressedTextureLoader.getUploadedLevelCount(image));
+        assertEquals(128, TextureCache.estimateBytes(image, true));
+        assertEquals(16 * 16 * 2, TextureCache.estimateBytes(image, false));
+    }
+
+    private static CompressedImage image(int width, int height, int levelCount) {
+        final ByteBuffer[] levels = new ByteBuffer[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            levels[level] = ByteBuffer.allocate(CompressedImage.blockDataSize(ETC2,
+                    Math.max(1, width >> level), Math.max(1, height >> level)));
+        }
+        return new CompressedImage(ETC2, width, height, levels);
+    }
+}